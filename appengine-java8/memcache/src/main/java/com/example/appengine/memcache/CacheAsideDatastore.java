@@ -0,0 +1,183 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.appengine.memcache;
+
+import com.google.appengine.api.datastore.AsyncDatastoreService;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.memcache.AsyncMemcacheService;
+import com.google.appengine.api.memcache.Expiration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads Datastore entities through memcache, many keys at a time.
+ *
+ * <p>{@link #lookup} starts one memcache {@code getAll} for all the keys and returns at once, so
+ * the request can do other work while it runs. {@link Lookup#get} then reads all the keys that
+ * were not cached with one Datastore {@code get}, and writes the entities it found back to
+ * memcache with one {@code putAll}, which it does not wait for. Entities that do not exist are
+ * not cached.
+ *
+ * <p>{@link #put} writes entities to Datastore and then deletes them from memcache, so the next
+ * lookup reads them from Datastore again. A lookup that reads an entity from Datastore while it
+ * is being put can still cache the old version, until it expires. Memcache errors are logged and
+ * treated as misses.
+ */
+public class CacheAsideDatastore {
+  private static final Logger logger = Logger.getLogger(CacheAsideDatastore.class.getName());
+
+  private final AsyncMemcacheService memcache;
+  private final AsyncDatastoreService datastore;
+  private final Expiration expiration;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder lookups = new LongAdder();
+  private final LongAdder lookupNanos = new LongAdder();
+  private final LongAdder datastoreNanos = new LongAdder();
+
+  public CacheAsideDatastore(
+      AsyncMemcacheService memcache, AsyncDatastoreService datastore, Expiration expiration) {
+    this.memcache = memcache;
+    this.datastore = datastore;
+    this.expiration = expiration;
+  }
+
+  /** The entities of some keys, being read. */
+  public class Lookup {
+    private final long startNanos;
+    private final Map<String, Key> keys;
+    private final Future<Map<String, Object>> cached;
+
+    private Lookup(long startNanos, Map<String, Key> keys, Future<Map<String, Object>> cached) {
+      this.startNanos = startNanos;
+      this.keys = keys;
+      this.cached = cached;
+    }
+
+    /**
+     * Waits for memcache, reads the keys it did not have from Datastore, and returns the
+     * entities that exist.
+     */
+    public Map<Key, Entity> get() throws ExecutionException, InterruptedException {
+      Map<Key, Entity> entities = new HashMap<>();
+      Map<String, Object> values;
+      try {
+        values = cached.get();
+      } catch (ExecutionException e) {
+        logger.log(Level.WARNING, "Failed to read from memcache.", e);
+        values = new HashMap<>();
+      }
+      List<Key> missing = new ArrayList<>();
+      for (Map.Entry<String, Key> key : keys.entrySet()) {
+        Object value = values.get(key.getKey());
+        if (value instanceof Entity) {
+          entities.put(key.getValue(), (Entity) value);
+        } else {
+          missing.add(key.getValue());
+        }
+      }
+      hits.add(keys.size() - missing.size());
+      misses.add(missing.size());
+
+      if (!missing.isEmpty()) {
+        long datastoreStart = System.nanoTime();
+        Map<Key, Entity> loaded = datastore.get(missing).get();
+        datastoreNanos.add(System.nanoTime() - datastoreStart);
+
+        Map<String, Entity> writeBack = new HashMap<>();
+        for (Map.Entry<Key, Entity> entity : loaded.entrySet()) {
+          writeBack.put(KeyFactory.keyToString(entity.getKey()), entity.getValue());
+        }
+        if (!writeBack.isEmpty()) {
+          // Not waited for, errors are handled by the error handler of the memcache service.
+          memcache.putAll(writeBack, expiration);
+        }
+        entities.putAll(loaded);
+      }
+
+      lookups.increment();
+      lookupNanos.add(System.nanoTime() - startNanos);
+      return entities;
+    }
+  }
+
+  /** Starts reading the entities of some keys from memcache. */
+  public Lookup lookup(Iterable<Key> keys) {
+    long start = System.nanoTime();
+    Map<String, Key> cacheKeys = new LinkedHashMap<>();
+    for (Key key : keys) {
+      cacheKeys.put(KeyFactory.keyToString(key), key);
+    }
+    return new Lookup(start, cacheKeys, memcache.getAll(cacheKeys.keySet()));
+  }
+
+  /** Reads the entities of some keys, and returns the ones that exist. */
+  public Map<Key, Entity> getAll(Iterable<Key> keys)
+      throws ExecutionException, InterruptedException {
+    return lookup(keys).get();
+  }
+
+  /** Writes entities to Datastore, then removes them from memcache. */
+  public List<Key> put(Iterable<Entity> entities)
+      throws ExecutionException, InterruptedException {
+    List<Key> keys = datastore.put(entities).get();
+    List<String> cacheKeys = new ArrayList<>(keys.size());
+    for (Key key : keys) {
+      cacheKeys.add(KeyFactory.keyToString(key));
+    }
+    memcache.deleteAll(cacheKeys).get();
+    return keys;
+  }
+
+  /** Returns the number of keys that were found in memcache. */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /** Returns the number of keys that were read from Datastore. */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /** Returns the number of completed lookups. */
+  public long lookups() {
+    return lookups.sum();
+  }
+
+  /** Returns the average time of a lookup, from {@link #lookup} to the end of its get. */
+  public long averageLookupMicros() {
+    long count = lookups.sum();
+    return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(lookupNanos.sum() / count);
+  }
+
+  /** Returns the total time spent waiting for Datastore reads. */
+  public long datastoreMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(datastoreNanos.sum());
+  }
+}
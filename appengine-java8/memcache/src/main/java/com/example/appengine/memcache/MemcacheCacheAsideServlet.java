@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.appengine.memcache;
+
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.memcache.AsyncMemcacheService;
+import com.google.appengine.api.memcache.ErrorHandlers;
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+// [START example]
+@SuppressWarnings("serial")
+// With @WebServlet annotation the webapp/WEB-INF/web.xml is no longer required.
+@WebServlet(
+    name = "MemcacheCacheAside",
+    description = "Memcache: Cache-aside Datastore reads",
+    urlPatterns = "/memcache/cache-aside")
+public class MemcacheCacheAsideServlet extends HttpServlet {
+
+  private CacheAsideDatastore cache;
+
+  @Override
+  public void init() throws ServletException {
+    AsyncMemcacheService asyncCache = MemcacheServiceFactory.getAsyncMemcacheService();
+    asyncCache.setErrorHandler(ErrorHandlers.getConsistentLogAndContinue(Level.INFO));
+    cache =
+        new CacheAsideDatastore(
+            asyncCache,
+            DatastoreServiceFactory.getAsyncDatastoreService(),
+            Expiration.byDeltaSeconds(600));
+  }
+
+  /** Prints the Item entities with the ids in the ids parameter, for example ?ids=1,2,3. */
+  @Override
+  public void doGet(HttpServletRequest req, HttpServletResponse resp)
+      throws IOException, ServletException {
+    String path = req.getRequestURI();
+    if (path.startsWith("/favicon.ico")) {
+      return; // ignore the request for favicon.ico
+    }
+
+    List<Key> keys = new ArrayList<>();
+    String ids = req.getParameter("ids");
+    if (ids != null) {
+      for (String id : ids.split(",")) {
+        keys.add(KeyFactory.createKey("Item", Long.parseLong(id.trim())));
+      }
+    }
+
+    Map<Key, Entity> items;
+    try {
+      // Read memcache for all the keys at once, and Datastore for the ones it does not have.
+      CacheAsideDatastore.Lookup lookup = cache.lookup(keys);
+      // ... Do other work in parallel to cache retrieval.
+      items = lookup.get();
+    } catch (InterruptedException | ExecutionException e) {
+      throw new ServletException("Error when reading items", e);
+    }
+
+    // Output content
+    resp.setContentType("text/plain");
+    PrintWriter out = resp.getWriter();
+    for (Key key : keys) {
+      Entity item = items.get(key);
+      out.print(key.getId() + ": " + (item == null ? "not found" : item.getProperties()) + "\n");
+    }
+    out.print(
+        "Cache hits " + cache.hits() + ", misses " + cache.misses() + ", average lookup "
+            + cache.averageLookupMicros() + " us\n");
+  }
+}
+// [END example]
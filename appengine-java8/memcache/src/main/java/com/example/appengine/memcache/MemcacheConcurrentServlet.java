@@ -47,16 +47,30 @@ public class MemcacheConcurrentServlet extends HttpServlet {
     String key = "count-concurrent";
     // Using the synchronous cache.
     MemcacheService syncCache = MemcacheServiceFactory.getMemcacheService();
+    long count = incrementWithCompareAndSet(syncCache, key);
 
+    // Output content
+    resp.setContentType("text/plain");
+    resp.getWriter().print("Value is " + count + "\n");
+  }
+
+  /**
+   * Increments a counter with getIdentifiable and putIfUntouched, retrying with a growing delay
+   * while other clients change it. Every request that increments the counter at the same time
+   * retries, so see {@link ShardedCounters} for counters under heavy contention.
+   *
+   * @return the new value, or the last value tried if every retry failed
+   */
+  static long incrementWithCompareAndSet(MemcacheService syncCache, String key)
+      throws ServletException {
+    byte[] newValue = null;
     // Write this value to cache using getIdentifiable and putIfUntouched.
     for (long delayMs = 1; delayMs < 1000; delayMs *= 2) {
       IdentifiableValue oldValue = syncCache.getIdentifiable(key);
-      byte[] newValue =
+      newValue =
           oldValue == null
               ? BigInteger.valueOf(0).toByteArray()
               : increment((byte[]) oldValue.getValue()); // newValue depends on old value
-      resp.setContentType("text/plain");
-      resp.getWriter().print("Value is " + new BigInteger(newValue).intValue() + "\n");
       if (oldValue == null) {
         // Key doesn't exist. We can safely put it in cache.
         syncCache.put(key, newValue);
@@ -74,6 +88,7 @@ public class MemcacheConcurrentServlet extends HttpServlet {
         }
       }
     }
+    return new BigInteger(newValue).longValue();
   }
 
   /**
@@ -82,8 +97,8 @@ public class MemcacheConcurrentServlet extends HttpServlet {
    * @param oldValue a byte array with the old value
    * @return a byte array as the old value increased by one
    */
-  private byte[] increment(byte[] oldValue) {
-    long val = new BigInteger(oldValue).intValue();
+  private static byte[] increment(byte[] oldValue) {
+    long val = new BigInteger(oldValue).longValue();
     val++;
     return BigInteger.valueOf(val).toByteArray();
   }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.appengine.memcache;
+
+import com.google.appengine.api.memcache.MemcacheService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for keys that many requests increment at once, kept in memcache.
+ *
+ * <p>Increments are added up in a {@link LongAdder} per counter in this instance, which requests
+ * update without waiting on each other. The first request {@code flushIntervalMillis} after the
+ * last flush, or the request that finds {@code maxUnflushed} increments waiting, writes the
+ * increments of all counters with one {@link MemcacheService#incrementAll} call; App Engine
+ * standard does not allow background threads, so flushes piggyback on requests. Each flush adds
+ * to a random one of {@code shards} keys per counter, so that instances do not all write the
+ * same key, and {@link #get} reads the shards with one {@link MemcacheService#getAll} call.
+ *
+ * <p>Unlike a compare-and-set loop, an increment never retries, but other instances only see it
+ * after the next flush of this instance. As with any value in memcache, a count can be evicted;
+ * keep counts that must not be lost in Datastore.
+ */
+public class ShardedCounters {
+  private final MemcacheService memcache;
+  private final int shards;
+  private final long flushIntervalMillis;
+  private final long maxUnflushed;
+  private final Map<String, LongAdder> unflushed = new ConcurrentHashMap<>();
+  private final LongAdder unflushedTotal = new LongAdder();
+  private final AtomicLong lastFlushMillis = new AtomicLong(System.currentTimeMillis());
+  private final AtomicBoolean flushing = new AtomicBoolean();
+
+  public ShardedCounters(
+      MemcacheService memcache, int shards, long flushIntervalMillis, long maxUnflushed) {
+    if (shards < 1) {
+      throw new IllegalArgumentException("shards must be at least 1: " + shards);
+    }
+    this.memcache = memcache;
+    this.shards = shards;
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.maxUnflushed = maxUnflushed;
+  }
+
+  /** Adds one to a counter, and writes the increments of all counters if they are due. */
+  public void increment(String name) {
+    unflushed.computeIfAbsent(name, key -> new LongAdder()).increment();
+    unflushedTotal.increment();
+    boolean due =
+        System.currentTimeMillis() - lastFlushMillis.get() >= flushIntervalMillis
+            || unflushedTotal.sum() >= maxUnflushed;
+    // Only one request flushes at a time, the others carry on.
+    if (due && flushing.compareAndSet(false, true)) {
+      try {
+        flush();
+      } finally {
+        flushing.set(false);
+      }
+    }
+  }
+
+  /**
+   * Returns the sum of the shards of a counter in memcache plus the increments of this instance
+   * that are not written yet.
+   */
+  public long get(String name) {
+    List<String> keys = new ArrayList<>(shards);
+    for (int shard = 0; shard < shards; shard++) {
+      keys.add(shardKey(name, shard));
+    }
+    long total = 0;
+    for (Object value : memcache.getAll(keys).values()) {
+      if (value instanceof Number) {
+        total += ((Number) value).longValue();
+      }
+    }
+    LongAdder local = unflushed.get(name);
+    return local == null ? total : total + local.sum();
+  }
+
+  /**
+   * Writes the increments of all counters with one batch call. Increments that memcache did not
+   * apply are kept for the next flush.
+   */
+  public void flush() {
+    lastFlushMillis.set(System.currentTimeMillis());
+    Map<String, Long> offsets = new HashMap<>();
+    Map<String, String> names = new HashMap<>();
+    for (Map.Entry<String, LongAdder> counter : unflushed.entrySet()) {
+      long delta = counter.getValue().sum();
+      if (delta != 0) {
+        String key = shardKey(counter.getKey(), ThreadLocalRandom.current().nextInt(shards));
+        offsets.put(key, delta);
+        names.put(key, counter.getKey());
+      }
+    }
+    if (offsets.isEmpty()) {
+      return;
+    }
+
+    Map<String, Long> results = memcache.incrementAll(offsets, 0L);
+    // Subtract what was written rather than resetting the adders, so that the increments made
+    // during the flush are kept for the next one.
+    for (Map.Entry<String, Long> offset : offsets.entrySet()) {
+      if (results.get(offset.getKey()) != null) {
+        unflushed.get(names.get(offset.getKey())).add(-offset.getValue());
+        unflushedTotal.add(-offset.getValue());
+      }
+    }
+  }
+
+  private static String shardKey(String name, int shard) {
+    return name + "-shard-" + shard;
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.appengine.memcache;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.apphosting.api.ApiProxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares reading batches of entities one key at a time through the synchronous memcache
+ * service with {@link CacheAsideDatastore}, from many threads, against the local memcache and
+ * Datastore services of the App Engine SDK.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.appengine.memcache.CacheAsideBenchmark \
+ *     -Dexec.args="16 2000 20 1000"
+ * </pre>
+ *
+ * <p>The arguments are the number of threads, the number of requests, the keys read by each
+ * request and the number of entities. Requests read keys with a skew towards the first entities,
+ * so that most of them are cached after a while.
+ */
+public class CacheAsideBenchmark {
+
+  /** What a request does with its keys. */
+  private interface Request {
+    void handle(List<Key> keys) throws Exception;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+    int requests = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+    int keysPerRequest = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+    int entities = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+    LocalServiceTestHelper helper =
+        new LocalServiceTestHelper(
+            new LocalMemcacheServiceTestConfig(), new LocalDatastoreServiceTestConfig());
+    helper.setUp();
+    try {
+      DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+      MemcacheService memcache = MemcacheServiceFactory.getMemcacheService();
+      List<Entity> items = new ArrayList<>();
+      for (long id = 1; id <= entities; id++) {
+        Entity item = new Entity("Item", id);
+        item.setProperty("name", "item " + id);
+        items.add(item);
+      }
+      datastore.put(items);
+
+      run("one key at a time", threads, requests, keysPerRequest, entities, keys -> {
+        for (Key key : keys) {
+          String cacheKey = KeyFactory.keyToString(key);
+          if (memcache.get(cacheKey) == null) {
+            try {
+              memcache.put(cacheKey, datastore.get(key), Expiration.byDeltaSeconds(600));
+            } catch (EntityNotFoundException e) {
+              // Not cached.
+            }
+          }
+        }
+      });
+      System.out.println();
+
+      memcache.clearAll();
+      CacheAsideDatastore cache =
+          new CacheAsideDatastore(
+              MemcacheServiceFactory.getAsyncMemcacheService(),
+              DatastoreServiceFactory.getAsyncDatastoreService(),
+              Expiration.byDeltaSeconds(600));
+      run("CacheAsideDatastore", threads, requests, keysPerRequest, entities, cache::getAll);
+      System.out.printf(
+          ", %d hits, %d misses, average lookup %d us, %d ms in Datastore%n",
+          cache.hits(), cache.misses(), cache.averageLookupMicros(), cache.datastoreMillis());
+    } finally {
+      helper.tearDown();
+    }
+  }
+
+  private static void run(
+      String name, int threads, int requests, int keysPerRequest, int entities, Request request)
+      throws Exception {
+    // The local services are found through the environment of the thread.
+    ApiProxy.Environment environment = ApiProxy.getCurrentEnvironment();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int thread = 0; thread < threads; thread++) {
+      int count = requests / threads + (thread < requests % threads ? 1 : 0);
+      futures.add(executor.submit(() -> {
+        ApiProxy.setEnvironmentForCurrentThread(environment);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < count; i++) {
+          List<Key> keys = new ArrayList<>(keysPerRequest);
+          for (int k = 0; k < keysPerRequest; k++) {
+            // The product of two uniform numbers favors small ids.
+            long id = 1 + (long) (random.nextDouble() * random.nextDouble() * entities);
+            keys.add(KeyFactory.createKey("Item", id));
+          }
+          request.handle(keys);
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    long elapsedNanos = System.nanoTime() - start;
+    executor.shutdown();
+    System.out.printf("%-20s %8.0f requests/s", name, requests / (elapsedNanos / 1e9));
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.appengine.memcache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link CacheAsideDatastore}. */
+@RunWith(JUnit4.class)
+public class CacheAsideDatastoreTest {
+
+  private final LocalServiceTestHelper helper =
+      new LocalServiceTestHelper(
+          new LocalMemcacheServiceTestConfig(), new LocalDatastoreServiceTestConfig());
+
+  private CacheAsideDatastore cache;
+  private List<Entity> items;
+  private List<Key> keys;
+
+  @Before
+  public void setUp() throws Exception {
+    helper.setUp();
+    cache =
+        new CacheAsideDatastore(
+            MemcacheServiceFactory.getAsyncMemcacheService(),
+            DatastoreServiceFactory.getAsyncDatastoreService(),
+            Expiration.byDeltaSeconds(600));
+
+    items = new ArrayList<>();
+    keys = new ArrayList<>();
+    for (long id = 1; id <= 3; id++) {
+      Entity item = new Entity("Item", id);
+      item.setProperty("name", "item " + id);
+      items.add(item);
+      keys.add(item.getKey());
+    }
+    cache.put(items);
+  }
+
+  @After
+  public void tearDown() {
+    helper.tearDown();
+  }
+
+  /** Waits for the write back of a lookup, which the lookup does not wait for. */
+  private static void awaitCached(List<Key> keys) throws InterruptedException {
+    MemcacheService memcache = MemcacheServiceFactory.getMemcacheService();
+    for (Key key : keys) {
+      for (int i = 0; i < 100 && !memcache.contains(KeyFactory.keyToString(key)); i++) {
+        Thread.sleep(50);
+      }
+    }
+  }
+
+  @Test
+  public void getAll_readsMissesFromDatastoreThenHitsFromMemcache() throws Exception {
+    Key missing = KeyFactory.createKey("Item", 4);
+    List<Key> lookedUp = new ArrayList<>(keys);
+    lookedUp.add(missing);
+
+    Map<Key, Entity> first = cache.getAll(lookedUp);
+    assertThat(first.keySet()).containsExactlyElementsIn(keys);
+    assertThat(cache.hits()).isEqualTo(0);
+    assertThat(cache.misses()).isEqualTo(4);
+
+    awaitCached(keys);
+    Map<Key, Entity> second = cache.getAll(lookedUp);
+    assertThat(second).isEqualTo(first);
+    // Only the entity that does not exist is read again.
+    assertThat(cache.hits()).isEqualTo(3);
+    assertThat(cache.misses()).isEqualTo(5);
+    assertThat(cache.lookups()).isEqualTo(2);
+  }
+
+  @Test
+  public void getAll_servesCachedEntitiesWithoutDatastore() throws Exception {
+    cache.getAll(keys);
+    awaitCached(keys);
+    DatastoreServiceFactory.getDatastoreService().delete(keys);
+
+    assertThat(cache.getAll(keys).keySet()).containsExactlyElementsIn(keys);
+  }
+
+  @Test
+  public void put_invalidatesCachedEntities() throws Exception {
+    cache.getAll(keys);
+    awaitCached(keys);
+
+    Entity updated = new Entity("Item", 1);
+    updated.setProperty("name", "renamed");
+    cache.put(Arrays.asList(updated));
+
+    Entity read = cache.getAll(keys).get(updated.getKey());
+    assertThat(read.getProperty("name")).isEqualTo("renamed");
+  }
+}
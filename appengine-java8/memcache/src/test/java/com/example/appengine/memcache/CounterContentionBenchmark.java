@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.appengine.memcache;
+
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.apphosting.api.ApiProxy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares {@link MemcacheConcurrentServlet#incrementWithCompareAndSet} with {@link
+ * ShardedCounters} when many threads increment the same counter, against the local memcache
+ * service of the App Engine SDK.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.appengine.memcache.CounterContentionBenchmark \
+ *     -Dexec.args="32 20000"
+ * </pre>
+ *
+ * <p>The arguments are the number of threads and the number of increments. Each run reports how
+ * many increments were lost, which the compare-and-set loop does when it runs out of retries.
+ */
+public class CounterContentionBenchmark {
+
+  /** What a request does. */
+  private interface Request {
+    void handle() throws Exception;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+    int increments = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+    LocalServiceTestHelper helper =
+        new LocalServiceTestHelper(new LocalMemcacheServiceTestConfig());
+    helper.setUp();
+    try {
+      MemcacheService memcache = MemcacheServiceFactory.getMemcacheService();
+
+      run("compare-and-set loop", threads, increments,
+          () -> MemcacheConcurrentServlet.incrementWithCompareAndSet(memcache, "cas"),
+          // The loop stores 0 for the first increment.
+          () -> new BigInteger((byte[]) memcache.get("cas")).longValue() + 1);
+
+      ShardedCounters counters = new ShardedCounters(memcache, 8, 100, 1000);
+      run("sharded counters", threads, increments, () -> counters.increment("sharded"), () -> {
+        counters.flush();
+        return counters.get("sharded");
+      });
+    } finally {
+      helper.tearDown();
+    }
+  }
+
+  /**
+   * Runs {@code increments} requests from {@code threads} threads, then reads the total with
+   * {@code total}.
+   */
+  private static void run(
+      String name, int threads, int increments, Request request, Callable<Long> total)
+      throws Exception {
+    // The local services are found through the environment of the thread.
+    ApiProxy.Environment environment = ApiProxy.getCurrentEnvironment();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int thread = 0; thread < threads; thread++) {
+      int count = increments / threads + (thread < increments % threads ? 1 : 0);
+      futures.add(executor.submit(() -> {
+        ApiProxy.setEnvironmentForCurrentThread(environment);
+        for (int i = 0; i < count; i++) {
+          request.handle();
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    long elapsedNanos = System.nanoTime() - start;
+    executor.shutdown();
+
+    long counted = total.call();
+    System.out.printf(
+        "%-22s %10.0f increments/s, %d of %d increments lost%n",
+        name, increments / (elapsedNanos / 1e9), increments - counted, increments);
+  }
+}
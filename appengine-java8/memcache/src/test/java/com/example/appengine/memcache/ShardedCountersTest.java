@@ -0,0 +1,166 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.appengine.memcache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ShardedCounters}. */
+@RunWith(JUnit4.class)
+public class ShardedCountersTest {
+
+  private static final int SHARDS = 4;
+
+  private final LocalServiceTestHelper helper =
+      new LocalServiceTestHelper(new LocalMemcacheServiceTestConfig());
+
+  private MemcacheService memcache;
+  // Increments of this counter are left out of the next incrementAll call, as if they failed.
+  private String failingCounter;
+
+  @Before
+  public void setUp() {
+    helper.setUp();
+    memcache = MemcacheServiceFactory.getMemcacheService();
+  }
+
+  @After
+  public void tearDown() {
+    helper.tearDown();
+  }
+
+  /** Returns a memcache that does not apply the increments of {@link #failingCounter}. */
+  private MemcacheService failingMemcache() {
+    return (MemcacheService)
+        Proxy.newProxyInstance(
+            MemcacheService.class.getClassLoader(),
+            new Class<?>[] {MemcacheService.class},
+            (proxy, method, args) -> {
+              if (method.getName().equals("incrementAll")
+                  && args[0] instanceof Map
+                  && failingCounter != null) {
+                Map<Object, Object> offsets = new HashMap<>((Map<?, ?>) args[0]);
+                offsets.keySet().removeIf(key -> key.toString().startsWith(failingCounter + "-"));
+                args[0] = offsets;
+              }
+              try {
+                return method.invoke(memcache, args);
+              } catch (InvocationTargetException e) {
+                throw e.getCause();
+              }
+            });
+  }
+
+  /** Returns the sum of the shards of a counter that were written to memcache. */
+  private long stored(String name) {
+    long total = 0;
+    for (int shard = 0; shard < SHARDS; shard++) {
+      Object value = memcache.get(name + "-shard-" + shard);
+      if (value != null) {
+        total += ((Number) value).longValue();
+      }
+    }
+    return total;
+  }
+
+  @Test
+  public void get_sumsShardsAndUnflushedIncrements() {
+    ShardedCounters counters =
+        new ShardedCounters(memcache, SHARDS, Long.MAX_VALUE, Long.MAX_VALUE);
+    memcache.put("visits-shard-0", 5L);
+    memcache.put("visits-shard-3", 7L);
+
+    counters.increment("visits");
+
+    assertThat(counters.get("visits")).isEqualTo(13L);
+    assertThat(counters.get("other")).isEqualTo(0L);
+  }
+
+  @Test
+  public void flush_writesIncrementsOnce() {
+    ShardedCounters counters =
+        new ShardedCounters(memcache, SHARDS, Long.MAX_VALUE, Long.MAX_VALUE);
+    counters.increment("visits");
+    counters.increment("visits");
+    assertThat(stored("visits")).isEqualTo(0L);
+
+    counters.flush();
+    counters.flush();
+
+    assertThat(stored("visits")).isEqualTo(2L);
+    // Flushed increments are no longer counted as unflushed.
+    assertThat(counters.get("visits")).isEqualTo(2L);
+  }
+
+  @Test
+  public void flush_keepsIncrementsThatWereNotApplied() {
+    ShardedCounters counters =
+        new ShardedCounters(failingMemcache(), SHARDS, Long.MAX_VALUE, Long.MAX_VALUE);
+    counters.increment("visits");
+    counters.increment("visits");
+    counters.increment("likes");
+    failingCounter = "likes";
+
+    counters.flush();
+
+    assertThat(stored("visits")).isEqualTo(2L);
+    assertThat(stored("likes")).isEqualTo(0L);
+    assertThat(counters.get("likes")).isEqualTo(1L);
+
+    failingCounter = null;
+    counters.flush();
+
+    assertThat(stored("visits")).isEqualTo(2L);
+    assertThat(stored("likes")).isEqualTo(1L);
+    assertThat(counters.get("likes")).isEqualTo(1L);
+  }
+
+  @Test
+  public void increment_flushesWhenMaxUnflushedIncrementsAreWaiting() {
+    ShardedCounters counters = new ShardedCounters(memcache, SHARDS, Long.MAX_VALUE, 3);
+
+    counters.increment("visits");
+    counters.increment("visits");
+    assertThat(stored("visits")).isEqualTo(0L);
+    counters.increment("visits");
+
+    assertThat(stored("visits")).isEqualTo(3L);
+    assertThat(counters.get("visits")).isEqualTo(3L);
+  }
+
+  @Test
+  public void increment_flushesAfterFlushInterval() {
+    ShardedCounters counters = new ShardedCounters(memcache, SHARDS, 0, Long.MAX_VALUE);
+
+    counters.increment("visits");
+
+    assertThat(stored("visits")).isEqualTo(1L);
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.api.core.ApiFuture;
+import com.google.api.gax.batching.Batcher;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+import com.google.api.gax.rpc.ServerStream;
+import com.google.cloud.bigtable.data.v2.BigtableDataClient;
+import com.google.cloud.bigtable.data.v2.BigtableDataSettings;
+import com.google.cloud.bigtable.data.v2.models.Filters;
+import com.google.cloud.bigtable.data.v2.models.Query;
+import com.google.cloud.bigtable.data.v2.models.Row;
+import com.google.cloud.bigtable.data.v2.models.RowMutationEntry;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Bulk and asynchronous data access for the Cassandra migration codelab.
+ *
+ * <p>Writes and deletes go through a {@link Batcher}, which packs many row mutations into each
+ * {@code MutateRows} RPC and keeps several RPCs in flight at once. The number of outstanding
+ * bytes is bounded by the flow control settings from {@link #settingsBuilder}, so a fast producer
+ * blocks instead of buffering an entire keyspace in memory.
+ */
+public class BulkDataAccess {
+
+  /** Default cap on mutation bytes buffered or in flight per client. */
+  public static final long DEFAULT_MAX_INFLIGHT_BYTES = 64L * 1024 * 1024;
+
+  private final BigtableDataClient dataClient;
+  private final String tableId;
+
+  public BulkDataAccess(BigtableDataClient dataClient, String tableId) {
+    this.dataClient = dataClient;
+    this.tableId = tableId;
+  }
+
+  /**
+   * Returns settings whose bulk mutation batcher blocks once {@code maxInflightBytes} of
+   * mutations are outstanding.
+   */
+  public static BigtableDataSettings.Builder settingsBuilder(
+      BigtableDataSettings.Builder builder, long maxInflightBytes) {
+    BatchingSettings batching =
+        builder.stubSettings().bulkMutateRowsSettings().getBatchingSettings();
+    FlowControlSettings flowControl =
+        batching
+            .getFlowControlSettings()
+            .toBuilder()
+            .setMaxOutstandingRequestBytes(maxInflightBytes)
+            .setLimitExceededBehavior(LimitExceededBehavior.Block)
+            .build();
+    builder
+        .stubSettings()
+        .bulkMutateRowsSettings()
+        .setBatchingSettings(batching.toBuilder().setFlowControlSettings(flowControl).build());
+    return builder;
+  }
+
+  /** Creates a batcher for this table. Callers must close it to flush pending mutations. */
+  public Batcher<RowMutationEntry, Void> newBatcher() {
+    return dataClient.newBulkMutationBatcher(tableId);
+  }
+
+  /**
+   * Applies every entry through one batcher and waits for all of them to be written.
+   *
+   * @return the number of entries written
+   */
+  public long writeAll(Iterator<RowMutationEntry> entries) throws InterruptedException {
+    long count = 0;
+    try (Batcher<RowMutationEntry, Void> batcher = newBatcher()) {
+      while (entries.hasNext()) {
+        batcher.add(entries.next());
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Deletes every row that starts with {@code prefix}. Row keys are streamed with a filter that
+   * returns no cell data, and deletes are batched as the scan progresses.
+   *
+   * @return the number of rows deleted
+   */
+  public long deletePrefix(String prefix) throws InterruptedException {
+    Query query =
+        Query.create(tableId)
+            .prefix(prefix)
+            .filter(
+                Filters.FILTERS
+                    .chain()
+                    .filter(Filters.FILTERS.limit().cellsPerRow(1))
+                    .filter(Filters.FILTERS.value().strip()));
+    long count = 0;
+    ServerStream<Row> rows = dataClient.readRows(query);
+    try (Batcher<RowMutationEntry, Void> batcher = newBatcher()) {
+      for (Row row : rows) {
+        batcher.add(RowMutationEntry.create(row.getKey()).deleteRow());
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Reads a single row without blocking the calling thread. */
+  public ApiFuture<Row> readRowAsync(String rowKey) {
+    return dataClient.readRowAsync(tableId, rowKey);
+  }
+
+  /** Reads all of the given rows in one streaming RPC, completing when every row is received. */
+  public ApiFuture<List<Row>> readRowsAsync(List<String> rowKeys) {
+    Query query = Query.create(tableId);
+    for (String rowKey : rowKeys) {
+      query.rowKey(rowKey);
+    }
+    return dataClient.readRowsCallable().all().futureCall(query);
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.api.gax.batching.Batcher;
+import com.google.cloud.bigtable.data.v2.BigtableDataClient;
+import com.google.cloud.bigtable.data.v2.BigtableDataSettings;
+import com.google.cloud.bigtable.data.v2.models.RowMutationEntry;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies a Cassandra table dump into Bigtable.
+ *
+ * <p>The input is one or more CSV files as written by {@code cqlsh COPY ... TO ... WITH
+ * HEADER = true}, for example one file per token range. The first {@code keyColumns} columns are
+ * joined with {@code #} to form the row key, as in the codelab's {@code phone#4c410523#20190501}
+ * keys, and every other non-empty column is written as a cell in one column family. Files are
+ * loaded in parallel, each through its own batcher; the client's flow control bounds the total
+ * bytes in flight.
+ */
+public class CassandraDumpMigrator {
+
+  private final BigtableDataClient dataClient;
+  private final String tableId;
+  private final String columnFamily;
+  private final int keyColumns;
+  private final long timestamp;
+  private final AtomicLong rowsWritten = new AtomicLong();
+
+  public CassandraDumpMigrator(
+      BigtableDataClient dataClient,
+      String tableId,
+      String columnFamily,
+      int keyColumns,
+      long timestamp) {
+    this.dataClient = dataClient;
+    this.tableId = tableId;
+    this.columnFamily = columnFamily;
+    this.keyColumns = keyColumns;
+    this.timestamp = timestamp;
+  }
+
+  public static void main(String[] args) throws Exception {
+    // Usage: CassandraDumpMigrator <project> <instance> <table> <dump file or directory>
+    //            [keyColumns] [threads]
+    String projectId = args[0];
+    String instanceId = args[1];
+    String tableId = args[2];
+    Path input = Paths.get(args[3]);
+    int keyColumns = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+    int threads = args.length > 5 ? Integer.parseInt(args[5]) : 8;
+
+    List<Path> files = new ArrayList<>();
+    if (Files.isDirectory(input)) {
+      try (DirectoryStream<Path> dir = Files.newDirectoryStream(input, "*.csv")) {
+        dir.forEach(files::add);
+      }
+    } else {
+      files.add(input);
+    }
+
+    BigtableDataSettings settings =
+        BulkDataAccess.settingsBuilder(
+                BigtableDataSettings.newBuilder().setProjectId(projectId).setInstanceId(instanceId),
+                BulkDataAccess.DEFAULT_MAX_INFLIGHT_BYTES)
+            .build();
+    try (BigtableDataClient dataClient = BigtableDataClient.create(settings)) {
+      CassandraDumpMigrator migrator =
+          new CassandraDumpMigrator(
+              dataClient, tableId, "stats_summary", keyColumns, System.currentTimeMillis() * 1000);
+      long start = System.nanoTime();
+      long rows = migrator.migrate(files, threads);
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.printf("Migrated %d rows from %d files in %.1fs (%.0f rows/s)%n",
+          rows, files.size(), seconds, rows / seconds);
+    }
+  }
+
+  /**
+   * Loads every file using up to {@code threads} files at a time.
+   *
+   * @return the total number of rows written
+   */
+  public long migrate(List<Path> files, int threads) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Long>> results = new ArrayList<>();
+      for (Path file : files) {
+        results.add(executor.submit(() -> migrateFile(file)));
+      }
+      long total = 0;
+      for (Future<Long> result : results) {
+        total += result.get();
+      }
+      return total;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  long migrateFile(Path file) throws IOException, InterruptedException {
+    long count = 0;
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        Batcher<RowMutationEntry, Void> batcher = dataClient.newBulkMutationBatcher(tableId)) {
+      String header = reader.readLine();
+      if (header == null) {
+        return 0;
+      }
+      List<String> columns = parseCsvLine(header);
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        batcher.add(toMutation(columns, parseCsvLine(line)));
+        count++;
+      }
+    }
+    rowsWritten.addAndGet(count);
+    return count;
+  }
+
+  /** Returns the number of rows written so far across all files. */
+  public long getRowsWritten() {
+    return rowsWritten.get();
+  }
+
+  RowMutationEntry toMutation(List<String> columns, List<String> values) {
+    if (values.size() != columns.size()) {
+      throw new IllegalArgumentException(
+          String.format("Expected %d columns but found %d", columns.size(), values.size()));
+    }
+    StringBuilder rowKey = new StringBuilder(values.get(0));
+    for (int i = 1; i < keyColumns; i++) {
+      rowKey.append('#').append(values.get(i));
+    }
+    RowMutationEntry entry = RowMutationEntry.create(rowKey.toString());
+    for (int i = keyColumns; i < columns.size(); i++) {
+      String value = values.get(i);
+      if (!value.isEmpty()) {
+        entry.setCell(columnFamily, columns.get(i), timestamp, value);
+      }
+    }
+    return entry;
+  }
+
+  /** Splits one CSV record, handling double-quoted fields and {@code ""} escapes. */
+  static List<String> parseCsvLine(String line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c == '"') {
+          if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+            field.append('"');
+            i++;
+          } else {
+            quoted = false;
+          }
+        } else {
+          field.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+}
@@ -193,14 +193,9 @@ public class CassandraMigrationCodelab {
 
   public void deleteMultiple() {
     try {
-      Query query = Query.create(tableId).prefix("tablet#a0b81f7");
-      ServerStream<Row> rowStream = dataClient.readRows(query);
-      BulkMutation bulkMutation = BulkMutation.create(tableId);
-      for (Row row : rowStream) {
-        bulkMutation.add(row.getKey(), Mutation.create().deleteRow());
-      }
-
-      dataClient.bulkMutateRows(bulkMutation);
+      // Streams matching row keys and batches the deletes as they arrive, rather than
+      // collecting every key into one BulkMutation first.
+      new BulkDataAccess(dataClient, tableId).deletePrefix("tablet#a0b81f7");
     } catch (Exception e) {
       System.out.println("Error during DeleteMultiple: \n" + e.toString());
     }
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.api.gax.batching.BatchingException;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+import com.google.bigtable.v2.BigtableGrpc.BigtableImplBase;
+import com.google.bigtable.v2.MutateRowsRequest;
+import com.google.bigtable.v2.MutateRowsResponse;
+import com.google.bigtable.v2.ReadRowsRequest;
+import com.google.bigtable.v2.ReadRowsResponse;
+import com.google.cloud.bigtable.data.v2.BigtableDataClient;
+import com.google.cloud.bigtable.data.v2.BigtableDataSettings;
+import com.google.cloud.bigtable.data.v2.models.RowMutationEntry;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.BytesValue;
+import com.google.protobuf.StringValue;
+import com.google.rpc.Code;
+import com.google.rpc.Status;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BulkDataAccessTest {
+
+  private static final String TABLE_ID = "table";
+  private static final String COLUMN_FAMILY_NAME = "stats_summary";
+
+  private FakeDataService service;
+  private Server server;
+  private BigtableDataClient dataClient;
+
+  @Before
+  public void setUp() throws Exception {
+    service = new FakeDataService();
+    server = ServerBuilder.forPort(0).addService(service).build().start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (dataClient != null) {
+      dataClient.close();
+    }
+    service.release.countDown();
+    server.shutdownNow().awaitTermination(1, TimeUnit.MINUTES);
+  }
+
+  private BulkDataAccess bulkDataAccess(long maxInflightBytes) throws Exception {
+    dataClient =
+        BigtableDataClient.create(
+            BulkDataAccess.settingsBuilder(
+                    BigtableDataSettings.newBuilderForEmulator(server.getPort())
+                        .setProjectId("fake-project")
+                        .setInstanceId("fake-instance"),
+                    maxInflightBytes)
+                .build());
+    return new BulkDataAccess(dataClient, TABLE_ID);
+  }
+
+  private static List<RowMutationEntry> entries(int count, int valueBytes) {
+    char[] value = new char[valueBytes];
+    Arrays.fill(value, 'x');
+    List<RowMutationEntry> entries = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      entries.add(
+          RowMutationEntry.create(String.format("phone#%04d", i))
+              .setCell(COLUMN_FAMILY_NAME, "os_build", new String(value)));
+    }
+    return entries;
+  }
+
+  @Test
+  public void testSettingsBuilderBlocksAtMaxInflightBytes() {
+    FlowControlSettings flowControl =
+        BulkDataAccess.settingsBuilder(
+                BigtableDataSettings.newBuilder()
+                    .setProjectId("fake-project")
+                    .setInstanceId("fake-instance"),
+                1024)
+            .stubSettings()
+            .bulkMutateRowsSettings()
+            .getBatchingSettings()
+            .getFlowControlSettings();
+
+    assertThat(flowControl.getMaxOutstandingRequestBytes()).isEqualTo(1024);
+    assertThat(flowControl.getLimitExceededBehavior()).isEqualTo(LimitExceededBehavior.Block);
+  }
+
+  @Test
+  public void testWriteAllBatchesEntries() throws Exception {
+    BulkDataAccess bulk = bulkDataAccess(BulkDataAccess.DEFAULT_MAX_INFLIGHT_BYTES);
+
+    assertThat(bulk.writeAll(entries(1000, 16).iterator())).isEqualTo(1000);
+
+    assertThat(service.rowKeys).hasSize(1000);
+    assertThat(service.rowKeys).contains("phone#0999");
+    // Many entries share each MutateRows RPC.
+    assertThat(service.requests.get()).isLessThan(100);
+  }
+
+  @Test
+  public void testWriteAllFailsWhenAnEntryFails() throws Exception {
+    BulkDataAccess bulk = bulkDataAccess(BulkDataAccess.DEFAULT_MAX_INFLIGHT_BYTES);
+    service.failingRowKey = "phone#0042";
+
+    assertThrows(BatchingException.class, () -> bulk.writeAll(entries(100, 16).iterator()));
+
+    // The other entries are still written.
+    assertThat(service.rowKeys).hasSize(100);
+  }
+
+  @Test
+  public void testWriteAllBlocksWhileMaxInflightBytesAreOutstanding() throws Exception {
+    BulkDataAccess bulk = bulkDataAccess(4 * 1024);
+    service.release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Long> written = executor.submit(() -> bulk.writeAll(entries(100, 1024).iterator()));
+
+      // The batch buffered before the limit is sent, but never acknowledged.
+      assertThat(service.received.await(1, TimeUnit.MINUTES)).isTrue();
+      Thread.sleep(500);
+      assertThat(written.isDone()).isFalse();
+      assertThat(service.rowKeys.size()).isLessThan(10);
+
+      service.release.countDown();
+      assertThat(written.get(1, TimeUnit.MINUTES)).isEqualTo(100);
+      assertThat(service.rowKeys).hasSize(100);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testDeletePrefixDeletesEveryScannedRow() throws Exception {
+    BulkDataAccess bulk = bulkDataAccess(BulkDataAccess.DEFAULT_MAX_INFLIGHT_BYTES);
+    service.scannedRowKeys = Arrays.asList("tablet#1", "tablet#2", "tablet#3");
+
+    assertThat(bulk.deletePrefix("tablet#")).isEqualTo(3);
+
+    assertThat(service.rowKeys).containsExactly("tablet#1", "tablet#2", "tablet#3");
+    assertThat(service.deletes.get()).isEqualTo(3);
+  }
+
+  /** Acknowledges MutateRows entries once released, and scans a fixed list of row keys. */
+  private static class FakeDataService extends BigtableImplBase {
+    final List<String> rowKeys = Collections.synchronizedList(new ArrayList<>());
+    final AtomicInteger requests = new AtomicInteger();
+    final AtomicInteger deletes = new AtomicInteger();
+    final CountDownLatch received = new CountDownLatch(1);
+    volatile CountDownLatch release = new CountDownLatch(0);
+    volatile String failingRowKey;
+    volatile List<String> scannedRowKeys = Collections.emptyList();
+
+    @Override
+    public void mutateRows(
+        MutateRowsRequest request, StreamObserver<MutateRowsResponse> responseObserver) {
+      requests.incrementAndGet();
+      MutateRowsResponse.Builder response = MutateRowsResponse.newBuilder();
+      for (int i = 0; i < request.getEntriesCount(); i++) {
+        MutateRowsRequest.Entry entry = request.getEntries(i);
+        String rowKey = entry.getRowKey().toStringUtf8();
+        rowKeys.add(rowKey);
+        if (entry.getMutations(0).hasDeleteFromRow()) {
+          deletes.incrementAndGet();
+        }
+        Code code = rowKey.equals(failingRowKey) ? Code.INVALID_ARGUMENT : Code.OK;
+        response.addEntries(
+            MutateRowsResponse.Entry.newBuilder()
+                .setIndex(i)
+                .setStatus(Status.newBuilder().setCode(code.getNumber())));
+      }
+      received.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        responseObserver.onError(e);
+        return;
+      }
+      responseObserver.onNext(response.build());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void readRows(
+        ReadRowsRequest request, StreamObserver<ReadRowsResponse> responseObserver) {
+      for (String rowKey : scannedRowKeys) {
+        responseObserver.onNext(
+            ReadRowsResponse.newBuilder()
+                .addChunks(
+                    ReadRowsResponse.CellChunk.newBuilder()
+                        .setRowKey(ByteString.copyFromUtf8(rowKey))
+                        .setFamilyName(StringValue.of(COLUMN_FAMILY_NAME))
+                        .setQualifier(BytesValue.of(ByteString.copyFromUtf8("os_build")))
+                        .setCommitRow(true))
+                .build());
+      }
+      responseObserver.onCompleted();
+    }
+  }
+}
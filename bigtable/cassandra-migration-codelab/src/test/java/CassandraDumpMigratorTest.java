@@ -0,0 +1,50 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.bigtable.v2.MutateRowsRequest;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class CassandraDumpMigratorTest {
+
+  @Test
+  public void testParseCsvLine() {
+    assertThat(CassandraDumpMigrator.parseCsvLine("a,\"b,c\",,\"say \"\"hi\"\"\""))
+        .containsExactly("a", "b,c", "", "say \"hi\"")
+        .inOrder();
+  }
+
+  @Test
+  public void testToMutationBuildsCompositeRowKey() {
+    CassandraDumpMigrator migrator =
+        new CassandraDumpMigrator(null, "table", "stats_summary", 2, 1000L);
+    List<String> columns = Arrays.asList("device", "date", "os_build", "os_name");
+
+    MutateRowsRequest.Entry entry =
+        migrator
+            .toMutation(columns, Arrays.asList("phone#4c410523", "20190501", "PQ2A.190405.003", ""))
+            .toProto();
+
+    assertThat(entry.getRowKey().toStringUtf8()).isEqualTo("phone#4c410523#20190501");
+    // The empty os_name column is skipped.
+    assertThat(entry.getMutationsCount()).isEqualTo(1);
+    assertThat(entry.getMutations(0).getSetCell().getColumnQualifier().toStringUtf8())
+        .isEqualTo("os_build");
+  }
+}
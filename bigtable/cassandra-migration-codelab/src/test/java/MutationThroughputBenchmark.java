@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.bigtable.admin.v2.BigtableTableAdminClient;
+import com.google.cloud.bigtable.admin.v2.BigtableTableAdminSettings;
+import com.google.cloud.bigtable.admin.v2.models.CreateTableRequest;
+import com.google.cloud.bigtable.data.v2.BigtableDataClient;
+import com.google.cloud.bigtable.data.v2.BigtableDataSettings;
+import com.google.cloud.bigtable.data.v2.models.Row;
+import com.google.cloud.bigtable.data.v2.models.RowMutation;
+import com.google.cloud.bigtable.data.v2.models.RowMutationEntry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Compares per-row {@code mutateRow} calls with batched writes through {@link BulkDataAccess},
+ * and blocking reads with async reads, against the Bigtable emulator.
+ *
+ * <pre>
+ * gcloud beta emulators bigtable start --host-port=localhost:8086
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=MutationThroughputBenchmark -Dexec.args="8086 100000"
+ * </pre>
+ */
+public class MutationThroughputBenchmark {
+
+  private static final String COLUMN_FAMILY_NAME = "stats_summary";
+  private static final long TIMESTAMP = (long) 1556712000 * 1000;
+
+  public static void main(String[] args) throws Exception {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 8086;
+    int rows = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+    String tableId = "bench-" + System.currentTimeMillis();
+
+    BigtableTableAdminSettings adminSettings =
+        BigtableTableAdminSettings.newBuilderForEmulator(port)
+            .setProjectId("fake-project")
+            .setInstanceId("fake-instance")
+            .build();
+    BigtableDataSettings dataSettings =
+        BulkDataAccess.settingsBuilder(
+                BigtableDataSettings.newBuilderForEmulator(port)
+                    .setProjectId("fake-project")
+                    .setInstanceId("fake-instance"),
+                BulkDataAccess.DEFAULT_MAX_INFLIGHT_BYTES)
+            .build();
+
+    try (BigtableTableAdminClient adminClient = BigtableTableAdminClient.create(adminSettings);
+        BigtableDataClient dataClient = BigtableDataClient.create(dataSettings)) {
+      adminClient.createTable(CreateTableRequest.of(tableId).addFamily(COLUMN_FAMILY_NAME));
+      BulkDataAccess bulk = new BulkDataAccess(dataClient, tableId);
+
+      long start = System.nanoTime();
+      for (int i = 0; i < rows; i++) {
+        dataClient.mutateRow(
+            RowMutation.create(tableId, rowKey("phone", i))
+                .setCell(COLUMN_FAMILY_NAME, "os_build", TIMESTAMP, "PQ2A.190405.003"));
+      }
+      report("per-row mutateRow", rows, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      bulk.writeAll(entries("tablet", rows));
+      report("batched writes", rows, System.nanoTime() - start);
+
+      int reads = Math.min(rows, 10_000);
+      start = System.nanoTime();
+      for (int i = 0; i < reads; i++) {
+        dataClient.readRow(tableId, rowKey("phone", i));
+      }
+      report("blocking readRow", reads, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      List<ApiFuture<Row>> futures = new ArrayList<>(reads);
+      for (int i = 0; i < reads; i++) {
+        futures.add(bulk.readRowAsync(rowKey("phone", i)));
+      }
+      ApiFutures.allAsList(futures).get();
+      report("async readRow", reads, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      long deleted = bulk.deletePrefix("tablet#");
+      report("batched prefix delete", deleted, System.nanoTime() - start);
+
+      adminClient.deleteTable(tableId);
+    }
+  }
+
+  private static String rowKey(String device, int i) {
+    return String.format("%s#%08d#20190501", device, i);
+  }
+
+  private static Iterator<RowMutationEntry> entries(String device, int count) {
+    return new Iterator<RowMutationEntry>() {
+      private int next = 0;
+
+      @Override
+      public boolean hasNext() {
+        return next < count;
+      }
+
+      @Override
+      public RowMutationEntry next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return RowMutationEntry.create(rowKey(device, next++))
+            .setCell(COLUMN_FAMILY_NAME, "os_build", TIMESTAMP, "PQ2A.190405.003");
+      }
+    };
+  }
+
+  private static void report(String mode, long rows, long nanos) {
+    System.out.printf("%-24s %8d rows %8.2fs %10.0f rows/s%n",
+        mode, rows, nanos / 1e9, rows / (nanos / 1e9));
+  }
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.cloud.bigtable.data.v2.BigtableDataClient;
+import com.google.cloud.bigtable.data.v2.models.Filters;
+import com.google.cloud.bigtable.data.v2.models.Query;
+import com.google.cloud.bigtable.data.v2.models.Row;
+import com.google.cloud.bigtable.data.v2.models.RowCell;
+import com.google.cloud.bigtable.data.v2.models.RowMutation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A read-through / write-through cache for a single Bigtable column, built on the cache-aside
+ * pattern shown in {@link Memcached}.
+ *
+ * <ul>
+ *   <li>Reads look up every requested key with one cache multi-get, then fetch all misses from
+ *       Bigtable with a single {@code readRows} call.
+ *   <li>Rows that do not exist are cached as a negative entry so repeated lookups do not reach
+ *       Bigtable.
+ *   <li>Concurrent misses for the same key in this process share one Bigtable read, and TTLs are
+ *       jittered so entries written together do not expire together.
+ *   <li>Writes issued through {@link #setCell} and {@link #deleteCell} invalidate the cached entry.
+ *       They also bump a generation counter for the key, and a read that was in flight during the
+ *       write does not cache the value it got, which may predate the write.
+ * </ul>
+ *
+ * <p>The generation counters only cover writes made through this instance. A read here that
+ * overlaps a write made by another process can still cache the old value after that process
+ * invalidated the entry, until the entry expires; keep the TTL as short as that staleness allows.
+ *
+ * <p>One instance should be shared by the whole application: it owns a single cache client and a
+ * single Bigtable client, both of which are thread safe.
+ */
+public class BigtableCache implements AutoCloseable {
+
+  /** Cached in place of a value for rows or cells that do not exist. */
+  static final String NEGATIVE_ENTRY = "\u0000<absent>";
+
+  // Keys share generation counters by hash; a collision only skips caching a value.
+  private static final int GENERATION_STRIPES = 1024;
+
+  /** The Bigtable operations used by the cache. */
+  public interface Backend extends AutoCloseable {
+
+    /** Reads the latest cell value for each row key; rows without the cell are omitted. */
+    Map<String, String> readCells(List<String> rowKeys);
+
+    void writeCell(String rowKey, String value);
+
+    void deleteCell(String rowKey);
+
+    @Override
+    void close();
+  }
+
+  /** Hit, miss and load counters. */
+  public static class Stats {
+    final LongAdder hits = new LongAdder();
+    final LongAdder negativeHits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder coalescedMisses = new LongAdder();
+    final LongAdder backendReads = new LongAdder();
+
+    public long hits() {
+      return hits.sum();
+    }
+
+    public long negativeHits() {
+      return negativeHits.sum();
+    }
+
+    public long misses() {
+      return misses.sum();
+    }
+
+    /** Misses that waited on another thread's Bigtable read instead of issuing their own. */
+    public long coalescedMisses() {
+      return coalescedMisses.sum();
+    }
+
+    /** Number of {@code readRows} calls sent to Bigtable. */
+    public long backendReads() {
+      return backendReads.sum();
+    }
+
+    public double hitRate() {
+      long hits = hits();
+      long total = hits + misses();
+      return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "hits=%d (negative=%d) misses=%d (coalesced=%d) backendReads=%d hitRate=%.3f",
+          hits(), negativeHits(), misses(), coalescedMisses(), backendReads(), hitRate());
+    }
+  }
+
+  private final CacheStore cache;
+  private final Backend backend;
+  private final String keyPrefix;
+  private final int ttlSeconds;
+  private final int negativeTtlSeconds;
+  private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+  private final Stats stats = new Stats();
+
+  public BigtableCache(
+      CacheStore cache,
+      Backend backend,
+      String keyPrefix,
+      int ttlSeconds,
+      int negativeTtlSeconds) {
+    this.cache = cache;
+    this.backend = backend;
+    this.keyPrefix = keyPrefix;
+    this.ttlSeconds = ttlSeconds;
+    this.negativeTtlSeconds = negativeTtlSeconds;
+  }
+
+  /**
+   * Creates a cache for {@code family:column} in {@code tableId} with the sample's 30 minute TTL
+   * and a one minute TTL for negative entries.
+   */
+  public static BigtableCache create(
+      BigtableDataClient dataClient,
+      CacheStore cache,
+      String tableId,
+      String columnFamily,
+      String column) {
+    return new BigtableCache(
+        cache,
+        new BigtableBackend(dataClient, tableId, columnFamily, column),
+        columnFamily + ":" + column,
+        30 * 60,
+        60);
+  }
+
+  public Stats getStats() {
+    return stats;
+  }
+
+  /** Returns the cell value for one row, or {@code null} if the row or cell does not exist. */
+  public String get(String rowKey) {
+    return getAll(Collections.singletonList(rowKey)).get(rowKey);
+  }
+
+  /**
+   * Returns the cell values for the given rows, in request order. Rows without a value are
+   * omitted from the result.
+   */
+  public Map<String, String> getAll(List<String> rowKeys) {
+    Map<String, String> cacheKeys = new LinkedHashMap<>();
+    for (String rowKey : rowKeys) {
+      cacheKeys.put(rowKey, cacheKey(rowKey));
+    }
+    Map<String, Object> cached = cache.getBulk(cacheKeys.values());
+
+    Map<String, String> found = new HashMap<>();
+    Map<String, CompletableFuture<String>> owned = new LinkedHashMap<>();
+    Map<String, CompletableFuture<String>> waiting = new HashMap<>();
+    for (Map.Entry<String, String> entry : cacheKeys.entrySet()) {
+      Object value = cached.get(entry.getValue());
+      if (value != null) {
+        stats.hits.increment();
+        if (NEGATIVE_ENTRY.equals(value)) {
+          stats.negativeHits.increment();
+        } else {
+          found.put(entry.getKey(), (String) value);
+        }
+        continue;
+      }
+      stats.misses.increment();
+      CompletableFuture<String> load = new CompletableFuture<>();
+      CompletableFuture<String> existing = inFlight.putIfAbsent(entry.getValue(), load);
+      if (existing == null) {
+        owned.put(entry.getKey(), load);
+      } else {
+        stats.coalescedMisses.increment();
+        waiting.put(entry.getKey(), existing);
+      }
+    }
+
+    if (!owned.isEmpty()) {
+      load(owned, found);
+    }
+    for (Map.Entry<String, CompletableFuture<String>> entry : waiting.entrySet()) {
+      String value = entry.getValue().join();
+      if (value != null) {
+        found.put(entry.getKey(), value);
+      }
+    }
+
+    Map<String, String> result = new LinkedHashMap<>();
+    for (String rowKey : cacheKeys.keySet()) {
+      String value = found.get(rowKey);
+      if (value != null) {
+        result.put(rowKey, value);
+      }
+    }
+    return result;
+  }
+
+  private void load(Map<String, CompletableFuture<String>> owned, Map<String, String> found) {
+    Map<String, Long> readGenerations = new HashMap<>();
+    for (String rowKey : owned.keySet()) {
+      readGenerations.put(rowKey, generations.get(stripe(cacheKey(rowKey))));
+    }
+    try {
+      stats.backendReads.increment();
+      Map<String, String> loaded = backend.readCells(new ArrayList<>(owned.keySet()));
+      for (Map.Entry<String, CompletableFuture<String>> entry : owned.entrySet()) {
+        String value = loaded.get(entry.getKey());
+        if (value != null) {
+          found.put(entry.getKey(), value);
+        }
+        writeBack(entry.getKey(), value, readGenerations.get(entry.getKey()));
+        entry.getValue().complete(value);
+      }
+    } catch (RuntimeException e) {
+      for (CompletableFuture<String> load : owned.values()) {
+        load.completeExceptionally(e);
+      }
+      throw e;
+    } finally {
+      for (Map.Entry<String, CompletableFuture<String>> entry : owned.entrySet()) {
+        inFlight.remove(cacheKey(entry.getKey()), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Caches a value read from Bigtable, unless a write to the key through this instance started
+   * since the read. The generation is checked again after the set, because a write may bump it
+   * and delete the entry between the first check and the set.
+   */
+  private void writeBack(String rowKey, String value, long readGeneration) {
+    String cacheKey = cacheKey(rowKey);
+    int stripe = stripe(cacheKey);
+    if (generations.get(stripe) != readGeneration) {
+      return;
+    }
+    if (value != null) {
+      cache.set(cacheKey, jitter(ttlSeconds), value);
+    } else {
+      cache.set(cacheKey, jitter(negativeTtlSeconds), NEGATIVE_ENTRY);
+    }
+    if (generations.get(stripe) != readGeneration) {
+      cache.delete(cacheKey);
+    }
+  }
+
+  /** Writes the cell to Bigtable, then invalidates the cached entry. */
+  public void setCell(String rowKey, String value) {
+    backend.writeCell(rowKey, value);
+    invalidate(rowKey);
+  }
+
+  /** Deletes the cell from Bigtable, then invalidates the cached entry. */
+  public void deleteCell(String rowKey) {
+    backend.deleteCell(rowKey);
+    invalidate(rowKey);
+  }
+
+  private void invalidate(String rowKey) {
+    String cacheKey = cacheKey(rowKey);
+    generations.incrementAndGet(stripe(cacheKey));
+    // Later misses read the new value instead of joining a read that may predate the write.
+    inFlight.remove(cacheKey);
+    cache.delete(cacheKey);
+  }
+
+  private static int stripe(String cacheKey) {
+    return Math.floorMod(cacheKey.hashCode(), GENERATION_STRIPES);
+  }
+
+  String cacheKey(String rowKey) {
+    // Same layout as the Memcached sample: rowkey:family:column
+    return rowKey + ":" + keyPrefix;
+  }
+
+  private static int jitter(int ttlSeconds) {
+    // Spread expiry over +/- 10% of the TTL.
+    int spread = Math.max(1, ttlSeconds / 10);
+    return ttlSeconds - spread + ThreadLocalRandom.current().nextInt(2 * spread + 1);
+  }
+
+  @Override
+  public void close() {
+    cache.close();
+    backend.close();
+  }
+
+  /** Reads and writes a single column through a shared {@link BigtableDataClient}. */
+  public static class BigtableBackend implements Backend {
+
+    private final BigtableDataClient dataClient;
+    private final String tableId;
+    private final String columnFamily;
+    private final String column;
+
+    public BigtableBackend(
+        BigtableDataClient dataClient, String tableId, String columnFamily, String column) {
+      this.dataClient = dataClient;
+      this.tableId = tableId;
+      this.columnFamily = columnFamily;
+      this.column = column;
+    }
+
+    @Override
+    public Map<String, String> readCells(List<String> rowKeys) {
+      Query query =
+          Query.create(tableId)
+              .filter(
+                  Filters.FILTERS
+                      .chain()
+                      .filter(Filters.FILTERS.family().exactMatch(columnFamily))
+                      .filter(Filters.FILTERS.qualifier().exactMatch(column))
+                      .filter(Filters.FILTERS.limit().cellsPerColumn(1)));
+      for (String rowKey : rowKeys) {
+        query.rowKey(rowKey);
+      }
+      Map<String, String> values = new HashMap<>();
+      for (Row row : dataClient.readRows(query)) {
+        List<RowCell> cells = row.getCells(columnFamily, column);
+        if (!cells.isEmpty()) {
+          values.put(row.getKey().toStringUtf8(), cells.get(0).getValue().toStringUtf8());
+        }
+      }
+      return values;
+    }
+
+    @Override
+    public void writeCell(String rowKey, String value) {
+      dataClient.mutateRow(
+          RowMutation.create(tableId, rowKey).setCell(columnFamily, column, value));
+    }
+
+    @Override
+    public void deleteCell(String rowKey) {
+      dataClient.mutateRow(
+          RowMutation.create(tableId, rowKey).deleteCells(columnFamily, column));
+    }
+
+    @Override
+    public void close() {
+      dataClient.close();
+    }
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The small subset of cache operations used by {@link BigtableCache}. Implemented by
+ * {@link MemcachedCacheStore} for Memorystore and by {@link InMemoryCacheStore} for tests.
+ */
+public interface CacheStore extends AutoCloseable {
+
+  /** Returns the cached values for the keys that are present; missing keys are omitted. */
+  Map<String, Object> getBulk(Collection<String> keys);
+
+  /** Stores a value for {@code ttlSeconds} seconds, replacing any existing value. */
+  void set(String key, int ttlSeconds, Object value);
+
+  /** Removes a key from the cache. */
+  void delete(String key);
+
+  @Override
+  void close();
+}
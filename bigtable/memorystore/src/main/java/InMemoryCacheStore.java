@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-process {@link CacheStore} with per-entry expiry. Useful for tests and benchmarks when no
+ * memcached server is available.
+ */
+public class InMemoryCacheStore implements CacheStore {
+
+  private static final class Entry {
+    final Object value;
+    final long expiresAtNanos;
+
+    Entry(Object value, long expiresAtNanos) {
+      this.value = value;
+      this.expiresAtNanos = expiresAtNanos;
+    }
+  }
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  @Override
+  public Map<String, Object> getBulk(Collection<String> keys) {
+    long now = System.nanoTime();
+    Map<String, Object> result = new HashMap<>();
+    for (String key : keys) {
+      Entry entry = entries.get(key);
+      if (entry == null) {
+        continue;
+      }
+      if (entry.expiresAtNanos - now <= 0) {
+        entries.remove(key, entry);
+        continue;
+      }
+      result.put(key, entry.value);
+    }
+    return result;
+  }
+
+  @Override
+  public void set(String key, int ttlSeconds, Object value) {
+    entries.put(key, new Entry(value, System.nanoTime() + ttlSeconds * 1_000_000_000L));
+  }
+
+  @Override
+  public void delete(String key) {
+    entries.remove(key);
+  }
+
+  @Override
+  public void close() {
+    entries.clear();
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.cloud.bigtable.data.v2.BigtableDataClient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports hit rate and lookup latency for {@link BigtableCache} under a skewed read workload.
+ *
+ * <p>When {@code bigtableProjectId} is not set, Bigtable is replaced by an in-process backend
+ * that sleeps for {@code backendLatencyMs} per read; when {@code memcachedDiscoveryEndpoint} is
+ * not set, an {@link InMemoryCacheStore} is used.
+ */
+public class BigtableCacheBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int threads = Integer.getInteger("threads", 16);
+    int lookupsPerThread = Integer.getInteger("lookupsPerThread", 10_000);
+    int batchSize = Integer.getInteger("batchSize", 10);
+    int keySpace = Integer.getInteger("keySpace", 10_000);
+    String endpoint = System.getProperty("memcachedDiscoveryEndpoint");
+
+    CacheStore cacheStore =
+        endpoint == null ? new InMemoryCacheStore() : MemcachedCacheStore.create(endpoint);
+    BigtableCache cache;
+    String projectId = System.getProperty("bigtableProjectId");
+    if (projectId == null) {
+      int latencyMs = Integer.getInteger("backendLatencyMs", 5);
+      cache = new BigtableCache(
+          cacheStore, new SimulatedBackend(keySpace, latencyMs), "stats_summary:os_build",
+          30 * 60, 60);
+    } else {
+      BigtableDataClient dataClient =
+          BigtableDataClient.create(projectId, System.getProperty("bigtableInstanceId"));
+      cache = BigtableCache.create(
+          dataClient, cacheStore, System.getProperty("bigtableTableId"), "stats_summary",
+          "os_build");
+    }
+
+    try {
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      List<Future<long[]>> results = new ArrayList<>();
+      long start = System.nanoTime();
+      for (int t = 0; t < threads; t++) {
+        results.add(executor.submit(() -> run(cache, lookupsPerThread, batchSize, keySpace)));
+      }
+      long[] latencies = new long[threads * lookupsPerThread];
+      int offset = 0;
+      for (Future<long[]> result : results) {
+        long[] threadLatencies = result.get();
+        System.arraycopy(threadLatencies, 0, latencies, offset, threadLatencies.length);
+        offset += threadLatencies.length;
+      }
+      long elapsedNanos = System.nanoTime() - start;
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+
+      Arrays.sort(latencies);
+      System.out.printf("lookups=%d batchSize=%d threads=%d%n", latencies.length, batchSize,
+          threads);
+      System.out.printf("throughput: %.0f keys/sec%n",
+          (double) latencies.length * batchSize / elapsedNanos * 1e9);
+      System.out.printf("latency (us): p50=%d p90=%d p99=%d max=%d%n",
+          percentile(latencies, 0.50), percentile(latencies, 0.90),
+          percentile(latencies, 0.99), latencies[latencies.length - 1] / 1000);
+      System.out.println(cache.getStats());
+    } finally {
+      cache.close();
+    }
+  }
+
+  private static long[] run(BigtableCache cache, int lookups, int batchSize, int keySpace) {
+    long[] latencies = new long[lookups];
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    List<String> keys = new ArrayList<>(batchSize);
+    for (int i = 0; i < lookups; i++) {
+      keys.clear();
+      for (int k = 0; k < batchSize; k++) {
+        keys.add(rowKey(skewed(random, keySpace)));
+      }
+      long start = System.nanoTime();
+      cache.getAll(keys);
+      latencies[i] = System.nanoTime() - start;
+    }
+    return latencies;
+  }
+
+  /** Picks a key index where low indexes are much more likely, approximating a hot key set. */
+  private static int skewed(ThreadLocalRandom random, int keySpace) {
+    double u = random.nextDouble();
+    return (int) (keySpace * u * u * u);
+  }
+
+  private static String rowKey(int index) {
+    return String.format("phone#%08d#20190501", index);
+  }
+
+  private static long percentile(long[] sorted, double p) {
+    return sorted[(int) Math.min(sorted.length - 1, p * sorted.length)] / 1000;
+  }
+
+  /** Pretends to be Bigtable: every even key exists, and each read costs a fixed latency. */
+  static class SimulatedBackend implements BigtableCache.Backend {
+    private final int keySpace;
+    private final int latencyMs;
+
+    SimulatedBackend(int keySpace, int latencyMs) {
+      this.keySpace = keySpace;
+      this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public Map<String, String> readCells(List<String> rowKeys) {
+      try {
+        Thread.sleep(latencyMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+      Map<String, String> values = new HashMap<>();
+      for (String rowKey : rowKeys) {
+        int index = Integer.parseInt(rowKey.substring(6, 14));
+        if (index % 2 == 0 && index < keySpace) {
+          values.put(rowKey, "PQ2A.190405.003");
+        }
+      }
+      return values;
+    }
+
+    @Override
+    public void writeCell(String rowKey, String value) {}
+
+    @Override
+    public void deleteCell(String rowKey) {}
+
+    @Override
+    public void close() {}
+  }
+}
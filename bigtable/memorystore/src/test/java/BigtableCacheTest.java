@@ -0,0 +1,173 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BigtableCacheTest {
+
+  private FakeBackend backend;
+  private BigtableCache cache;
+
+  @Before
+  public void setUp() {
+    backend = new FakeBackend();
+    backend.cells.put("phone#1", "PQ2A.190405.003");
+    backend.cells.put("phone#2", "PQ2A.190405.004");
+    cache = new BigtableCache(
+        new InMemoryCacheStore(), backend, "stats_summary:os_build", 60, 60);
+  }
+
+  @Test
+  public void testBatchesMissesIntoOneRead() {
+    Map<String, String> values = cache.getAll(Arrays.asList("phone#1", "phone#2", "phone#3"));
+
+    assertThat(values).containsExactly(
+        "phone#1", "PQ2A.190405.003", "phone#2", "PQ2A.190405.004").inOrder();
+    assertThat(backend.reads.get()).isEqualTo(1);
+    assertThat(cache.getStats().misses()).isEqualTo(3);
+
+    // Second lookup, including the absent row, is served from the cache.
+    cache.getAll(Arrays.asList("phone#1", "phone#2", "phone#3"));
+    assertThat(backend.reads.get()).isEqualTo(1);
+    assertThat(cache.getStats().hits()).isEqualTo(3);
+    assertThat(cache.getStats().negativeHits()).isEqualTo(1);
+  }
+
+  @Test
+  public void testMutationsInvalidate() {
+    assertThat(cache.get("phone#1")).isEqualTo("PQ2A.190405.003");
+    assertThat(cache.get("phone#3")).isNull();
+
+    cache.setCell("phone#1", "PQ2A.190405.005");
+    cache.setCell("phone#3", "PQ2A.190405.006");
+    assertThat(cache.get("phone#1")).isEqualTo("PQ2A.190405.005");
+    assertThat(cache.get("phone#3")).isEqualTo("PQ2A.190405.006");
+
+    cache.deleteCell("phone#1");
+    assertThat(cache.get("phone#1")).isNull();
+  }
+
+  @Test
+  public void testConcurrentMissesShareOneRead() throws Exception {
+    backend.gate = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      results.add(executor.submit(() -> cache.get("phone#1")));
+    }
+    // Let the other lookups register as waiters before the first read completes.
+    while (cache.getStats().coalescedMisses() < 7) {
+      Thread.sleep(10);
+    }
+    backend.gate.countDown();
+    for (Future<String> result : results) {
+      assertThat(result.get()).isEqualTo("PQ2A.190405.003");
+    }
+    executor.shutdown();
+
+    assertThat(backend.reads.get()).isEqualTo(1);
+    assertThat(cache.getStats().coalescedMisses()).isEqualTo(7);
+  }
+
+  @Test
+  public void testReadDuringWriteIsNotCached() throws Exception {
+    backend.gate = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<String> before = executor.submit(() -> cache.get("phone#1"));
+    while (backend.reads.get() < 1) {
+      Thread.sleep(10);
+    }
+    // The read has its value; the write lands before the value is cached.
+    cache.setCell("phone#1", "PQ2A.190405.005");
+    backend.gate.countDown();
+    assertThat(before.get()).isEqualTo("PQ2A.190405.003");
+    executor.shutdown();
+
+    backend.gate = null;
+    assertThat(cache.get("phone#1")).isEqualTo("PQ2A.190405.005");
+    assertThat(backend.reads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testDeleteDuringReadIsNotHiddenByStaleValue() throws Exception {
+    backend.gate = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<String> before = executor.submit(() -> cache.get("phone#2"));
+    while (backend.reads.get() < 1) {
+      Thread.sleep(10);
+    }
+    cache.deleteCell("phone#2");
+    backend.gate.countDown();
+    assertThat(before.get()).isEqualTo("PQ2A.190405.004");
+    executor.shutdown();
+
+    backend.gate = null;
+    assertThat(cache.get("phone#2")).isNull();
+  }
+
+  private static class FakeBackend implements BigtableCache.Backend {
+    final Map<String, String> cells = new ConcurrentHashMap<>();
+    final AtomicInteger reads = new AtomicInteger();
+    volatile CountDownLatch gate;
+
+    @Override
+    public Map<String, String> readCells(List<String> rowKeys) {
+      Map<String, String> values = new HashMap<>();
+      for (String rowKey : rowKeys) {
+        if (cells.containsKey(rowKey)) {
+          values.put(rowKey, cells.get(rowKey));
+        }
+      }
+      // The values are read before waiting, like a response that is slow to arrive.
+      reads.incrementAndGet();
+      if (gate != null) {
+        try {
+          gate.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+      return values;
+    }
+
+    @Override
+    public void writeCell(String rowKey, String value) {
+      cells.put(rowKey, value);
+    }
+
+    @Override
+    public void deleteCell(String rowKey) {
+      cells.remove(rowKey);
+    }
+
+    @Override
+    public void close() {}
+  }
+}
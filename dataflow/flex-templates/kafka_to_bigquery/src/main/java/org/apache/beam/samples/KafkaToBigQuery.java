@@ -17,40 +17,61 @@ package org.apache.beam.samples;
 import com.google.api.services.bigquery.model.TableFieldSchema;
 import com.google.api.services.bigquery.model.TableRow;
 import com.google.api.services.bigquery.model.TableSchema;
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import org.apache.avro.reflect.Nullable;
 import org.apache.beam.sdk.Pipeline;
-import org.apache.beam.sdk.coders.DefaultCoder;
-import org.apache.beam.sdk.extensions.avro.coders.AvroCoder;
 import org.apache.beam.sdk.io.gcp.bigquery.BigQueryIO;
 import org.apache.beam.sdk.io.gcp.bigquery.BigQueryIO.Write.CreateDisposition;
+import org.apache.beam.sdk.io.gcp.bigquery.BigQueryIO.Write.Method;
 import org.apache.beam.sdk.io.gcp.bigquery.BigQueryIO.Write.WriteDisposition;
+import org.apache.beam.sdk.io.gcp.bigquery.BigQueryUtils;
+import org.apache.beam.sdk.io.gcp.bigquery.WriteResult;
 import org.apache.beam.sdk.io.kafka.KafkaIO;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.options.Default;
 import org.apache.beam.sdk.options.Description;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.options.StreamingOptions;
 import org.apache.beam.sdk.options.Validation;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.Flatten;
 import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.transforms.Values;
 import org.apache.beam.sdk.transforms.WithTimestamps;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
 import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionList;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TupleTagList;
 import org.apache.beam.sdk.values.TypeDescriptor;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.joda.time.Duration;
 import org.joda.time.Instant;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * An Apache Beam pipeline that reads JSON encoded messages from Kafka and
  * writes them to a BigQuery table.
+ *
+ * <p>Message values are read as bytes and parsed straight into schema {@link Row}s. Messages
+ * that cannot be parsed, and rows that BigQuery rejects, can be written to a dead-letter table.
+ * With {@code --writeWithStorageApi}, rows are written through the BigQuery Storage Write API
+ * with exactly-once semantics instead of streaming inserts.
  */
 public class KafkaToBigQuery {
-  private static final Logger LOG = LoggerFactory.getLogger(KafkaToBigQuery.class);
-  private static final Gson GSON = new Gson();
 
   public interface Options extends StreamingOptions {
     @Description("Apache Kafka topic to read from.")
@@ -71,56 +92,183 @@ public class KafkaToBigQuery {
     String getBootstrapServer();
 
     void setBootstrapServer(String value);
-  }
 
-  @DefaultCoder(AvroCoder.class)
-  private static class PageRating {
-    Instant processingTime;
-    @Nullable String url;
-    @Nullable String rating;
+    // Named apart from the BigQueryOptions that BigQueryIO reads, so that they only apply to
+    // the page ratings table and do not change how the dead-letter table is written.
+    @Description("Write with the BigQuery Storage Write API instead of streaming inserts.")
+    @Default.Boolean(false)
+    Boolean getWriteWithStorageApi();
+
+    void setWriteWithStorageApi(Boolean value);
+
+    @Description("How often, in seconds, the Storage Write API commits appended rows.")
+    @Default.Integer(5)
+    Integer getTriggeringFrequencySeconds();
+
+    void setTriggeringFrequencySeconds(Integer value);
+
+    @Description("Number of Storage Write API streams, or 0 to let the runner shard "
+        + "automatically.")
+    @Default.Integer(0)
+    Integer getStorageWriteStreams();
+
+    void setStorageWriteStreams(Integer value);
+
+    @Description("Optional BigQuery table for messages that could not be parsed or written, in "
+        + "the form 'project:dataset.table' or 'dataset.table'.")
+    String getDeadLetterTable();
+
+    void setDeadLetterTable(String value);
   }
 
+  static final Schema PAGE_RATING_SCHEMA = Schema.builder()
+      .addDateTimeField("processing_time")
+      .addNullableField("url", FieldType.STRING)
+      .addNullableField("rating", FieldType.STRING)
+      .build();
+
+  static final Schema DEAD_LETTER_SCHEMA = Schema.builder()
+      .addDateTimeField("processing_time")
+      .addStringField("payload")
+      .addStringField("error")
+      .build();
+
+  static final TupleTag<Row> PAGE_RATINGS = new TupleTag<Row>() {};
+  static final TupleTag<Row> DEAD_LETTERS = new TupleTag<Row>() {};
+
   public static void main(final String[] args) {
     Options options = PipelineOptionsFactory.fromArgs(args).withValidation().as(Options.class);
     options.setStreaming(true);
 
     var pipeline = Pipeline.create(options);
-    pipeline
+    PCollectionTuple parsed = pipeline
         .apply("Read messages from Kafka",
-            KafkaIO.<String, String>read()
+            KafkaIO.<String, byte[]>read()
                 .withBootstrapServers(options.getBootstrapServer())
                 .withTopic(options.getInputTopic())
                 .withKeyDeserializer(StringDeserializer.class)
-                .withValueDeserializer(StringDeserializer.class)
+                .withValueDeserializer(ByteArrayDeserializer.class)
                 .withoutMetadata())
-        .apply("Get message contents", Values.<String>create())
-        .apply("Log messages", MapElements.into(TypeDescriptor.of(String.class))
-            .via(message -> {
-              LOG.info("Received: {}", message);
-              return message;
-            }))
-        .apply("Parse JSON", MapElements.into(TypeDescriptor.of(PageRating.class))
-            .via(message -> GSON.fromJson(message, PageRating.class)))
+        .apply("Get message contents", Values.<byte[]>create())
+        .apply("Parse JSON", parse());
 
+    PCollection<Row> pageRatings = parsed.get(PAGE_RATINGS)
         .apply("Add processing time", WithTimestamps
-            .of((pageRating) -> new Instant(pageRating.processingTime)))
-        .apply("Fixed-size windows", Window.into(FixedWindows.of(Duration.standardMinutes(1))))
-
-        .apply("Convert to BigQuery TableRow", MapElements.into(TypeDescriptor.of(TableRow.class))
-            .via(pageRating -> new TableRow()
-                .set("processing_time", pageRating.processingTime.toString())
-                .set("url", pageRating.url)
-                .set("rating", pageRating.rating)))
-        .apply("Write to BigQuery", BigQueryIO.writeTableRows()
-            .to(options.getOutputTable())
-            .withSchema(new TableSchema().setFields(Arrays.asList(
-                new TableFieldSchema().setName("processing_time").setType("TIMESTAMP"),
-                new TableFieldSchema().setName("url").setType("STRING"),
-                new TableFieldSchema().setName("rating").setType("STRING"))))
-            .withCreateDisposition(CreateDisposition.CREATE_IF_NEEDED)
-            .withWriteDisposition(WriteDisposition.WRITE_APPEND));
+            .of((Row row) -> row.getDateTime("processing_time").toInstant()))
+        .apply("Fixed-size windows", Window.into(FixedWindows.of(Duration.standardMinutes(1))));
+
+    PCollection<Row> failedWrites;
+    if (options.getWriteWithStorageApi()) {
+      BigQueryIO.Write<Row> write = BigQueryIO.<Row>write()
+          .to(options.getOutputTable())
+          .useBeamSchema()
+          .withMethod(Method.STORAGE_WRITE_API)
+          .withTriggeringFrequency(
+              Duration.standardSeconds(options.getTriggeringFrequencySeconds()))
+          .withCreateDisposition(CreateDisposition.CREATE_IF_NEEDED)
+          .withWriteDisposition(WriteDisposition.WRITE_APPEND);
+      write = options.getStorageWriteStreams() > 0
+          ? write.withNumStorageWriteApiStreams(options.getStorageWriteStreams())
+          : write.withAutoSharding();
+      WriteResult result = pageRatings.apply("Write to BigQuery", write);
+      failedWrites = result.getFailedStorageApiInserts()
+          .apply("Dead-letter failed writes", MapElements.into(TypeDescriptor.of(Row.class))
+              .via(error -> deadLetter(error.getRow().toString(), error.getErrorMessage())))
+          .setRowSchema(DEAD_LETTER_SCHEMA);
+    } else {
+      WriteResult result = pageRatings
+          .apply("Convert to BigQuery TableRow",
+              MapElements.into(TypeDescriptor.of(TableRow.class))
+                  .via(BigQueryUtils.toTableRow()))
+          .apply("Write to BigQuery", BigQueryIO.writeTableRows()
+              .to(options.getOutputTable())
+              .withSchema(new TableSchema().setFields(Arrays.asList(
+                  new TableFieldSchema().setName("processing_time").setType("TIMESTAMP"),
+                  new TableFieldSchema().setName("url").setType("STRING"),
+                  new TableFieldSchema().setName("rating").setType("STRING"))))
+              .withCreateDisposition(CreateDisposition.CREATE_IF_NEEDED)
+              .withWriteDisposition(WriteDisposition.WRITE_APPEND)
+              .withExtendedErrorInfo());
+      failedWrites = result.getFailedInsertsWithErr()
+          .apply("Dead-letter failed writes", MapElements.into(TypeDescriptor.of(Row.class))
+              .via(error -> deadLetter(error.getRow().toString(), error.getError().toString())))
+          .setRowSchema(DEAD_LETTER_SCHEMA);
+    }
+
+    if (options.getDeadLetterTable() != null) {
+      PCollectionList.of(parsed.get(DEAD_LETTERS)).and(failedWrites)
+          .apply("Flatten dead letters", Flatten.pCollections())
+          .apply("Write dead letters to BigQuery", BigQueryIO.<Row>write()
+              .to(options.getDeadLetterTable())
+              .useBeamSchema()
+              .withCreateDisposition(CreateDisposition.CREATE_IF_NEEDED)
+              .withWriteDisposition(WriteDisposition.WRITE_APPEND));
+    }
 
     // For a Dataflow Flex Template, do NOT waitUntilFinish().
     pipeline.run();
   }
+
+  /**
+   * Returns a transform that parses JSON message values into {@link #PAGE_RATINGS} rows, and
+   * messages that are not a JSON object into {@link #DEAD_LETTERS}.
+   */
+  static PTransform<PCollection<byte[]>, PCollectionTuple> parse() {
+    return new PTransform<PCollection<byte[]>, PCollectionTuple>() {
+      @Override
+      public PCollectionTuple expand(PCollection<byte[]> messages) {
+        PCollectionTuple result = messages.apply(ParDo.of(new ParsePageRatingFn())
+            .withOutputTags(PAGE_RATINGS, TupleTagList.of(DEAD_LETTERS)));
+        result.get(PAGE_RATINGS).setRowSchema(PAGE_RATING_SCHEMA);
+        result.get(DEAD_LETTERS).setRowSchema(DEAD_LETTER_SCHEMA);
+        return result;
+      }
+    };
+  }
+
+  private static Row deadLetter(String payload, String error) {
+    return Row.withSchema(DEAD_LETTER_SCHEMA).addValues(Instant.now(), payload, error).build();
+  }
+
+  /**
+   * Reads {@code processingTime}, {@code url} and {@code rating} from the message bytes with a
+   * streaming JSON reader, without binding them to an intermediate object. A missing or
+   * non-numeric {@code processingTime} is replaced by the current time.
+   */
+  static class ParsePageRatingFn extends DoFn<byte[], Row> {
+    private final Counter deadLetters = Metrics.counter(KafkaToBigQuery.class, "deadLetters");
+
+    @ProcessElement
+    public void processElement(@Element byte[] message, MultiOutputReceiver out) {
+      Instant processingTime = null;
+      String url = null;
+      String rating = null;
+      try (JsonReader reader = new JsonReader(new InputStreamReader(
+          new ByteArrayInputStream(message), StandardCharsets.UTF_8))) {
+        reader.beginObject();
+        while (reader.hasNext()) {
+          String name = reader.nextName();
+          JsonToken token = reader.peek();
+          if (name.equals("processingTime") && token == JsonToken.NUMBER) {
+            processingTime = new Instant(reader.nextLong());
+          } else if (name.equals("url") && token == JsonToken.STRING) {
+            url = reader.nextString();
+          } else if (name.equals("rating") && token == JsonToken.STRING) {
+            rating = reader.nextString();
+          } else {
+            reader.skipValue();
+          }
+        }
+        reader.endObject();
+      } catch (IOException | IllegalStateException | NumberFormatException e) {
+        deadLetters.inc();
+        out.get(DEAD_LETTERS).output(
+            deadLetter(new String(message, StandardCharsets.UTF_8), e.toString()));
+        return;
+      }
+      out.get(PAGE_RATINGS).output(Row.withSchema(PAGE_RATING_SCHEMA)
+          .addValues(processingTime != null ? processingTime : Instant.now(), url, rating)
+          .build());
+    }
+  }
 }
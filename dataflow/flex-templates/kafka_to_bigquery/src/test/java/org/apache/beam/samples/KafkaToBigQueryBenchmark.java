@@ -0,0 +1,121 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.beam.samples;
+
+import com.google.api.services.bigquery.model.TableRow;
+import com.google.gson.Gson;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.coders.ByteArrayCoder;
+import org.apache.beam.sdk.io.gcp.bigquery.BigQueryUtils;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.options.StreamingOptions;
+import org.apache.beam.sdk.testing.TestStream;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.apache.beam.sdk.values.TypeDescriptor;
+import org.joda.time.Instant;
+
+/**
+ * Measures records per second per vCPU of the {@link KafkaToBigQuery} parsing path on the
+ * DirectRunner. A {@link TestStream} of encoded messages stands in for Kafka, and a DoFn that
+ * formats each row as a {@link TableRow} and drops it stands in for BigQuery. The previous
+ * String, Gson and TableRow path runs on the same input for comparison. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.apache.beam.samples.KafkaToBigQueryBenchmark \
+ *     -Dexec.args="1000000"
+ * </pre>
+ */
+public class KafkaToBigQueryBenchmark {
+
+  public static void main(String[] args) {
+    int records = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    for (int round = 0; round < 2; round++) {
+      run("String + Gson", records, false);
+      run("bytes -> Row", records, true);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void run(String name, int records, boolean schemaPath) {
+    TestStream.Builder<byte[]> stream = TestStream.create(ByteArrayCoder.of());
+    Instant start = Instant.now();
+    List<TimestampedValue<byte[]>> batch = new ArrayList<>();
+    for (int i = 0; i < records; i++) {
+      String message = String.format(
+          "{\"processingTime\": %d, \"url\": \"https://beam.apache.org/%d\", \"rating\": \"%s\"}",
+          start.getMillis() + i, i % 1000, i % 3 == 0 ? "negative" : "positive");
+      batch.add(TimestampedValue.of(message.getBytes(StandardCharsets.UTF_8), start));
+      if (batch.size() == 10_000 || i == records - 1) {
+        stream = stream.addElements(batch.get(0), batch.subList(1, batch.size())
+            .toArray(new TimestampedValue[0]));
+        batch.clear();
+      }
+    }
+
+    StreamingOptions options = PipelineOptionsFactory.as(StreamingOptions.class);
+    options.setStreaming(true);
+    Pipeline pipeline = Pipeline.create(options);
+    PCollection<byte[]> messages = pipeline.apply(stream.advanceWatermarkToInfinity());
+    PCollection<TableRow> tableRows;
+    if (schemaPath) {
+      tableRows = messages
+          .apply(KafkaToBigQuery.parse())
+          .get(KafkaToBigQuery.PAGE_RATINGS)
+          .apply(MapElements.into(TypeDescriptor.of(TableRow.class))
+              .via(BigQueryUtils.toTableRow()));
+    } else {
+      tableRows = messages.apply(ParDo.of(new DoFn<byte[], TableRow>() {
+        private final Gson gson = new Gson();
+
+        @ProcessElement
+        public void processElement(@Element byte[] message, OutputReceiver<TableRow> out) {
+          Map<?, ?> fields =
+              gson.fromJson(new String(message, StandardCharsets.UTF_8), Map.class);
+          out.output(new TableRow()
+              .set("processing_time", new Instant(
+                  ((Number) fields.get("processingTime")).longValue()).toString())
+              .set("url", fields.get("url"))
+              .set("rating", fields.get("rating")));
+        }
+      }));
+    }
+    tableRows.apply("Fake BigQuery sink", ParDo.of(new DoFn<TableRow, Void>() {
+      private final Counter written = Metrics.counter(KafkaToBigQueryBenchmark.class, "written");
+
+      @ProcessElement
+      public void processElement(@Element TableRow row) {
+        written.inc();
+      }
+    }));
+
+    long startNanos = System.nanoTime();
+    pipeline.run().waitUntilFinish();
+    double seconds = (System.nanoTime() - startNanos) / 1e9;
+    int vcpus = Runtime.getRuntime().availableProcessors();
+    System.out.printf("%-14s %,10.0f records/s  %,9.0f records/s/vCPU (%d vCPUs)%n",
+        name, records / seconds, records / seconds / vcpus, vcpus);
+  }
+}
@@ -0,0 +1,94 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.beam.samples;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import org.apache.beam.sdk.PipelineResult;
+import org.apache.beam.sdk.metrics.MetricNameFilter;
+import org.apache.beam.sdk.metrics.MetricQueryResults;
+import org.apache.beam.sdk.metrics.MetricResult;
+import org.apache.beam.sdk.metrics.MetricsFilter;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.TypeDescriptors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests {@link KafkaToBigQuery#parse} on the DirectRunner. */
+@RunWith(JUnit4.class)
+public class KafkaToBigQueryTest {
+
+  private static final long PROCESSING_TIME = 1_700_000_000_000L;
+
+  @Rule public final transient TestPipeline pipeline = TestPipeline.create();
+
+  private static byte[] utf8(String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void parse_readsPageRatingsAndDeadLettersTheRest() {
+    long start = System.currentTimeMillis();
+    PCollectionTuple parsed = pipeline
+        .apply(Create.of(
+            utf8("{\"processingTime\": " + PROCESSING_TIME
+                + ", \"url\": \"https://example.com\", \"rating\": \"positive\"}"),
+            // Unknown fields are skipped, and fields of the wrong type are left empty.
+            utf8("{\"url\": \"https://example.com/\u00e9t\u00e9\", \"rating\": 5, "
+                + "\"tags\": [\"a\", {\"b\": null}]}"),
+            utf8("not json"),
+            utf8("[\"an\", \"array\"]"),
+            utf8("{\"url\": \"https://example.com\"")))
+        .apply(KafkaToBigQuery.parse());
+
+    PCollection<String> pageRatings = parsed.get(KafkaToBigQuery.PAGE_RATINGS)
+        .apply("Page ratings", MapElements.into(TypeDescriptors.strings())
+            .via(row -> {
+              long millis = row.getDateTime("processing_time").getMillis();
+              // A message without a processing time is stamped when it is parsed.
+              String time = millis == PROCESSING_TIME ? "given" : millis >= start ? "now" : "?";
+              return time + " " + row.getString("url") + " " + row.getString("rating");
+            }));
+    PAssert.that(pageRatings).containsInAnyOrder(
+        "given https://example.com positive",
+        "now https://example.com/\u00e9t\u00e9 null");
+
+    PCollection<String> deadLetters = parsed.get(KafkaToBigQuery.DEAD_LETTERS)
+        .apply("Dead letters", MapElements.into(TypeDescriptors.strings())
+            .via(row -> row.getString("payload")));
+    PAssert.that(deadLetters).containsInAnyOrder(
+        "not json", "[\"an\", \"array\"]", "{\"url\": \"https://example.com\"");
+
+    PipelineResult result = pipeline.run();
+    result.waitUntilFinish();
+
+    MetricQueryResults metrics = result.metrics().queryMetrics(MetricsFilter.builder()
+        .addNameFilter(MetricNameFilter.named(KafkaToBigQuery.class, "deadLetters"))
+        .build());
+    long deadLetterCount = 0;
+    for (MetricResult<Long> counter : metrics.getCounters()) {
+      deadLetterCount += counter.getAttempted();
+    }
+    assertEquals(3, deadLetterCount);
+  }
+}
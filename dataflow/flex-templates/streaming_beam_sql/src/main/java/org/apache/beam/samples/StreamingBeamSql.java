@@ -17,29 +17,45 @@ package org.apache.beam.samples;
 import com.google.api.services.bigquery.model.TableFieldSchema;
 import com.google.api.services.bigquery.model.TableRow;
 import com.google.api.services.bigquery.model.TableSchema;
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.google.pubsub.v1.ProjectSubscriptionName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
 import java.util.Arrays;
-import org.apache.avro.reflect.Nullable;
 import org.apache.beam.sdk.Pipeline;
-import org.apache.beam.sdk.coders.DefaultCoder;
-import org.apache.beam.sdk.extensions.avro.coders.AvroCoder;
+import org.apache.beam.sdk.coders.AtomicCoder;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.DoubleCoder;
+import org.apache.beam.sdk.coders.InstantCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarLongCoder;
 import org.apache.beam.sdk.extensions.gcp.options.GcpOptions;
 import org.apache.beam.sdk.extensions.sql.SqlTransform;
 import org.apache.beam.sdk.io.gcp.bigquery.BigQueryIO;
 import org.apache.beam.sdk.io.gcp.bigquery.BigQueryIO.Write.CreateDisposition;
 import org.apache.beam.sdk.io.gcp.bigquery.BigQueryIO.Write.WriteDisposition;
 import org.apache.beam.sdk.io.gcp.pubsub.PubsubIO;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.options.Default;
 import org.apache.beam.sdk.options.Description;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.options.StreamingOptions;
 import org.apache.beam.sdk.options.Validation;
 import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.MapElements;
-import org.apache.beam.sdk.transforms.WithTimestamps;
+import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
 import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.Row;
 import org.apache.beam.sdk.values.TypeDescriptor;
 import org.joda.time.Duration;
@@ -53,7 +69,14 @@ import org.slf4j.LoggerFactory;
  */
 public class StreamingBeamSql {
   private static final Logger LOG = LoggerFactory.getLogger(StreamingBeamSql.class);
-  private static final Gson GSON = new Gson();
+
+  /** How the reviews of each url are aggregated in every window. */
+  public enum AggregationMode {
+    /** Runs a Beam SQL query over Rows. */
+    SQL,
+    /** Runs a hand-written Combine.perKey, which combines partial results before the shuffle. */
+    COMBINER
+  }
 
   public interface Options extends StreamingOptions {
     @Description("Pub/Sub subscription to read from.")
@@ -68,16 +91,20 @@ public class StreamingBeamSql {
     String getOutputTable();
 
     void setOutputTable(String value);
-  }
 
-  @DefaultCoder(AvroCoder.class)
-  private static class PageReviewMessage {
-    @Nullable
-    String url;
-    @Nullable
-    String review;
+    @Description("How to aggregate the reviews: SQL or COMBINER.")
+    @Default.Enum("SQL")
+    AggregationMode getAggregationMode();
+
+    void setAggregationMode(AggregationMode value);
   }
 
+  private static final Schema SCHEMA = Schema.builder()
+      .addStringField("url")
+      .addDoubleField("page_score")
+      .addDateTimeField("processing_time")
+      .build();
+
   public static void main(final String[] args) {
     Options options = PipelineOptionsFactory.fromArgs(args).withValidation().as(Options.class);
     options.setStreaming(true);
@@ -86,60 +113,11 @@ public class StreamingBeamSql {
     var subscription = ProjectSubscriptionName
         .of(project, options.getInputSubscription()).toString();
 
-    var schema = Schema.builder()
-        .addStringField("url")
-        .addDoubleField("page_score")
-        .addDateTimeField("processing_time")
-        .build();
-
     var pipeline = Pipeline.create(options);
-    pipeline
-        // Read, parse, and validate messages from Pub/Sub.
-        .apply("Read messages from Pub/Sub", PubsubIO.readStrings().fromSubscription(subscription))
-        .apply("Parse JSON into SQL rows", MapElements.into(TypeDescriptor.of(Row.class))
-            .via(message -> {
-              // This is a good place to add error handling.
-              // The first transform should act as a validation layer to make sure
-              // that any data coming to the processing pipeline must be valid.
-              // See `MapElements.MapWithFailures` for more details.
-              LOG.info("message: {}", message);
-              var msg = GSON.fromJson(message, PageReviewMessage.class);
-              return Row.withSchema(schema).addValues(
-                  msg.url,                                    // row url
-                  msg.review.equals("positive") ? 1.0 : 0.0,  // row page_score
-                  new Instant()                               // row processing_time
-              ).build();
-            })).setRowSchema(schema) // make sure to set the row schema for the PCollection
-
-        // Add timestamps and bundle elements into windows.
-        .apply("Add processing time", WithTimestamps
-            .of((row) -> row.getDateTime("processing_time").toInstant()))
-        .apply("Fixed-size windows", Window.into(FixedWindows.of(Duration.standardMinutes(1))))
-
-        // Apply a SQL query for every window of elements.
-        .apply("Run Beam SQL query", SqlTransform.query(
-            "SELECT "
-                + "  url, "
-                + "  COUNT(page_score) AS num_reviews, "
-                + "  AVG(page_score) AS score, "
-                + "  MIN(processing_time) AS first_date, "
-                + "  MAX(processing_time) AS last_date "
-                + "FROM PCOLLECTION "
-                + "GROUP BY url"
-        ))
+    var messages = pipeline
+        .apply("Read messages from Pub/Sub", PubsubIO.readStrings().fromSubscription(subscription));
 
-        // Convert the SQL Rows into BigQuery TableRows and write them to BigQuery.
-        .apply("Convert to BigQuery TableRow", MapElements.into(TypeDescriptor.of(TableRow.class))
-            .via(row -> {
-              LOG.info("rating summary: {} {} ({} reviews)", row.getDouble("score"),
-                  row.getString("url"), row.getInt64("num_reviews"));
-              return new TableRow()
-                  .set("url", row.getString("url"))
-                  .set("num_reviews", row.getInt64("num_reviews"))
-                  .set("score", row.getDouble("score"))
-                  .set("first_date", row.getDateTime("first_date").toInstant().toString())
-                  .set("last_date", row.getDateTime("last_date").toInstant().toString());
-            }))
+    aggregate(messages, options.getAggregationMode())
         .apply("Write to BigQuery", BigQueryIO.writeTableRows()
             .to(options.getOutputTable())
             .withSchema(new TableSchema().setFields(Arrays.asList(
@@ -156,4 +134,205 @@ public class StreamingBeamSql {
     // For a Dataflow Flex Template, do NOT waitUntilFinish().
     pipeline.run();
   }
+
+  /**
+   * Parses the JSON messages and summarizes the reviews of each url in one-minute processing
+   * time windows, using either Beam SQL or a hand-written combiner.
+   */
+  static PCollection<TableRow> aggregate(PCollection<String> messages, AggregationMode mode) {
+    // Parse and validate messages. Both modes use the same streaming JSON parser; messages
+    // without a url or review are counted and dropped.
+    var reviews = messages
+        .apply("Parse JSON", ParDo.of(new ParseReviewFn()))
+        .setCoder(KvCoder.of(StringUtf8Coder.of(), ReviewStatsCoder.INSTANCE))
+
+        // Bundle elements into windows. ParseReviewFn stamps each review with its processing
+        // time.
+        .apply("Fixed-size windows", Window.into(FixedWindows.of(Duration.standardMinutes(1))));
+
+    if (mode == AggregationMode.COMBINER) {
+      return reviews
+          .apply("Summarize reviews", Combine.perKey(new ReviewStatsFn()))
+          .apply("Convert to BigQuery TableRow",
+              MapElements.into(TypeDescriptor.of(TableRow.class))
+                  .via(kv -> toTableRow(kv.getKey(), kv.getValue().count, kv.getValue().score(),
+                      new Instant(kv.getValue().minMillis), new Instant(kv.getValue().maxMillis))));
+    }
+
+    return reviews
+        .apply("Convert to SQL rows", MapElements.into(TypeDescriptor.of(Row.class))
+            .via(kv -> Row.withSchema(SCHEMA).addValues(
+                kv.getKey(),                            // row url
+                kv.getValue().sum,                      // row page_score
+                new Instant(kv.getValue().minMillis)    // row processing_time
+            ).build())).setRowSchema(SCHEMA) // make sure to set the row schema for the PCollection
+
+        // Apply a SQL query for every window of elements.
+        .apply("Run Beam SQL query", SqlTransform.query(
+            "SELECT "
+                + "  url, "
+                + "  COUNT(page_score) AS num_reviews, "
+                + "  AVG(page_score) AS score, "
+                + "  MIN(processing_time) AS first_date, "
+                + "  MAX(processing_time) AS last_date "
+                + "FROM PCOLLECTION "
+                + "GROUP BY url"
+        ))
+
+        // Convert the SQL Rows into BigQuery TableRows.
+        .apply("Convert to BigQuery TableRow", MapElements.into(TypeDescriptor.of(TableRow.class))
+            .via(row -> toTableRow(row.getString("url"), row.getInt64("num_reviews"),
+                row.getDouble("score"), row.getDateTime("first_date").toInstant(),
+                row.getDateTime("last_date").toInstant())));
+  }
+
+  private static TableRow toTableRow(
+      String url, long numReviews, double score, Instant firstDate, Instant lastDate) {
+    LOG.info("rating summary: {} {} ({} reviews)", score, url, numReviews);
+    return new TableRow()
+        .set("url", url)
+        .set("num_reviews", numReviews)
+        .set("score", score)
+        .set("first_date", firstDate.toString())
+        .set("last_date", lastDate.toString());
+  }
+
+  /**
+   * Reads the {@code url} and {@code review} fields of a message with a streaming JSON reader,
+   * without binding the message to an object. Outputs the url with a single review whose page
+   * score is 1.0 for positive reviews and 0.0 otherwise, timestamped with the current processing
+   * time.
+   */
+  static class ParseReviewFn extends DoFn<String, KV<String, ReviewStats>> {
+    private final Counter invalidMessages =
+        Metrics.counter(StreamingBeamSql.class, "invalidMessages");
+
+    @ProcessElement
+    public void processElement(
+        @Element String message, OutputReceiver<KV<String, ReviewStats>> out) {
+      String url = null;
+      String review = null;
+      try (JsonReader reader = new JsonReader(new StringReader(message))) {
+        reader.beginObject();
+        while (reader.hasNext()) {
+          String name = reader.nextName();
+          if (reader.peek() == JsonToken.STRING && name.equals("url")) {
+            url = reader.nextString();
+          } else if (reader.peek() == JsonToken.STRING && name.equals("review")) {
+            review = reader.nextString();
+          } else {
+            reader.skipValue();
+          }
+        }
+      } catch (IOException | IllegalStateException e) {
+        // Malformed JSON; handled below like a message with missing fields.
+        url = null;
+      }
+      if (url == null || review == null) {
+        invalidMessages.inc();
+        return;
+      }
+      Instant now = Instant.now();
+      out.outputWithTimestamp(
+          KV.of(url, ReviewStats.of(review.equals("positive") ? 1.0 : 0.0, now)), now);
+    }
+  }
+
+  /**
+   * The COUNT, SUM, MIN and MAX of the reviews of one url. A single review is a ReviewStats with
+   * a count of one, so parsed reviews and partial results share one compact coder.
+   */
+  static class ReviewStats {
+    long count;
+    double sum;
+    long minMillis = Long.MAX_VALUE;
+    long maxMillis = Long.MIN_VALUE;
+
+    static ReviewStats of(double score, Instant processingTime) {
+      ReviewStats review = new ReviewStats();
+      review.count = 1;
+      review.sum = score;
+      review.minMillis = processingTime.getMillis();
+      review.maxMillis = processingTime.getMillis();
+      return review;
+    }
+
+    void merge(ReviewStats other) {
+      count += other.count;
+      sum += other.sum;
+      minMillis = Math.min(minMillis, other.minMillis);
+      maxMillis = Math.max(maxMillis, other.maxMillis);
+    }
+
+    double score() {
+      return sum / count;
+    }
+  }
+
+  /**
+   * Computes the same aggregates as the SQL query. Runners apply it to each bundle before the
+   * shuffle, so only one partial ReviewStats per url, window and bundle is sent over the network.
+   */
+  static class ReviewStatsFn extends Combine.CombineFn<ReviewStats, ReviewStats, ReviewStats> {
+
+    @Override
+    public ReviewStats createAccumulator() {
+      return new ReviewStats();
+    }
+
+    @Override
+    public ReviewStats addInput(ReviewStats accumulator, ReviewStats review) {
+      accumulator.merge(review);
+      return accumulator;
+    }
+
+    @Override
+    public ReviewStats mergeAccumulators(Iterable<ReviewStats> accumulators) {
+      ReviewStats merged = new ReviewStats();
+      for (ReviewStats accumulator : accumulators) {
+        merged.merge(accumulator);
+      }
+      return merged;
+    }
+
+    @Override
+    public ReviewStats extractOutput(ReviewStats accumulator) {
+      return accumulator;
+    }
+
+    @Override
+    public Coder<ReviewStats> getAccumulatorCoder(
+        CoderRegistry registry, Coder<ReviewStats> input) {
+      return ReviewStatsCoder.INSTANCE;
+    }
+
+    @Override
+    public Coder<ReviewStats> getDefaultOutputCoder(
+        CoderRegistry registry, Coder<ReviewStats> input) {
+      return ReviewStatsCoder.INSTANCE;
+    }
+  }
+
+  /** Encodes {@link ReviewStats} field by field, without reflection. */
+  static class ReviewStatsCoder extends AtomicCoder<ReviewStats> {
+    static final ReviewStatsCoder INSTANCE = new ReviewStatsCoder();
+
+    @Override
+    public void encode(ReviewStats value, OutputStream out) throws IOException {
+      VarLongCoder.of().encode(value.count, out);
+      DoubleCoder.of().encode(value.sum, out);
+      InstantCoder.of().encode(new Instant(value.minMillis), out);
+      InstantCoder.of().encode(new Instant(value.maxMillis), out);
+    }
+
+    @Override
+    public ReviewStats decode(InputStream in) throws IOException {
+      ReviewStats value = new ReviewStats();
+      value.count = VarLongCoder.of().decode(in);
+      value.sum = DoubleCoder.of().decode(in);
+      value.minMillis = InstantCoder.of().decode(in).getMillis();
+      value.maxMillis = InstantCoder.of().decode(in).getMillis();
+      return value;
+    }
+  }
 }
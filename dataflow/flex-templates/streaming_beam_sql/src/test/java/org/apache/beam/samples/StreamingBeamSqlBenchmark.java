@@ -0,0 +1,107 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.beam.samples;
+
+import com.google.api.services.bigquery.model.TableRow;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.apache.beam.samples.StreamingBeamSql.AggregationMode;
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.options.StreamingOptions;
+import org.apache.beam.sdk.testing.TestStream;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.joda.time.Instant;
+
+/**
+ * Compares the SQL and COMBINER aggregation modes of {@link StreamingBeamSql} on the
+ * DirectRunner, feeding the same messages to both through a {@link TestStream}. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.apache.beam.samples.StreamingBeamSqlBenchmark \
+ *     -Dexec.args="1000000 1000"
+ * </pre>
+ *
+ * <p>Reports messages per second, and the latency from the start of the run until the first
+ * and the last summary row are produced.
+ */
+public class StreamingBeamSqlBenchmark {
+
+  // Written by the DirectRunner's worker threads in this JVM.
+  private static final ConcurrentLinkedQueue<Long> OUTPUT_NANOS = new ConcurrentLinkedQueue<>();
+
+  public static void main(String[] args) {
+    int messages = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int urls = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    for (int round = 0; round < 2; round++) {
+      for (AggregationMode mode : AggregationMode.values()) {
+        run(mode, messages, urls);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void run(AggregationMode mode, int messages, int urls) {
+    TestStream.Builder<String> stream = TestStream.create(StringUtf8Coder.of());
+    Instant start = Instant.now().minus(1000);
+    List<TimestampedValue<String>> batch = new ArrayList<>();
+    for (int i = 0; i < messages; i++) {
+      String message = String.format(
+          "{\"url\": \"https://beam.apache.org/%d\", \"review\": \"%s\"}",
+          i % urls, i % 3 == 0 ? "negative" : "positive");
+      batch.add(TimestampedValue.of(message, start));
+      if (batch.size() == 10_000) {
+        stream = stream.addElements(batch.get(0), batch.subList(1, batch.size())
+            .toArray(new TimestampedValue[0]));
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      stream = stream.addElements(batch.get(0), batch.subList(1, batch.size())
+          .toArray(new TimestampedValue[0]));
+    }
+
+    StreamingOptions options = PipelineOptionsFactory.as(StreamingOptions.class);
+    options.setStreaming(true);
+    Pipeline pipeline = Pipeline.create(options);
+    StreamingBeamSql.aggregate(pipeline.apply(stream.advanceWatermarkToInfinity()), mode)
+        .apply(ParDo.of(new DoFn<TableRow, Void>() {
+          @ProcessElement
+          public void processElement() {
+            OUTPUT_NANOS.add(System.nanoTime());
+          }
+        }));
+
+    OUTPUT_NANOS.clear();
+    long startNanos = System.nanoTime();
+    pipeline.run().waitUntilFinish();
+    double seconds = (System.nanoTime() - startNanos) / 1e9;
+    long first = Long.MAX_VALUE;
+    long last = Long.MIN_VALUE;
+    for (long nanos : OUTPUT_NANOS) {
+      first = Math.min(first, nanos);
+      last = Math.max(last, nanos);
+    }
+    System.out.printf(
+        "%-8s %,10.0f messages/s  %,d summary rows  first result %.0fms  last result %.0fms%n",
+        mode, messages / seconds, OUTPUT_NANOS.size(), (first - startNanos) / 1e6,
+        (last - startNanos) / 1e6);
+  }
+}
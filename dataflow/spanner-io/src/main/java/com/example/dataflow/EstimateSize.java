@@ -16,14 +16,38 @@
 
 package com.example.dataflow;
 
+import com.google.cloud.ByteArray;
 import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.common.base.Utf8;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Distribution;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.Combine;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.values.PCollection;
 
 /**
  * Estimates the size of the {@code Struct}.
+ *
+ * <p>Sizes are the encoded size of each non-null value: UTF-8 bytes for STRING and JSON, the
+ * decimal string for NUMERIC, fixed widths for scalars, and the sum of the elements or fields for
+ * ARRAY and STRUCT. Each row also updates the {@code rows} counter and the {@code rowSizeBytes}
+ * distribution of this class.
+ *
+ * <p>Rows are summed per bundle rather than emitted one by one, so the output is a handful of
+ * partial sums whose total is the estimated size. Inputs are expected in the global window, as
+ * produced by SpannerIO reads.
  */
 public class EstimateSize extends PTransform<PCollection<Struct>, PCollection<Long>> {
 
@@ -31,6 +55,19 @@ public class EstimateSize extends PTransform<PCollection<Struct>, PCollection<Lo
     return new EstimateSize();
   }
 
+  /** Returns a transform that computes the {@link SizeStats} of all rows. */
+  public static PTransform<PCollection<Struct>, PCollection<SizeStats>> stats() {
+    return new PTransform<PCollection<Struct>, PCollection<SizeStats>>() {
+      @Override
+      public PCollection<SizeStats> expand(PCollection<Struct> input) {
+        return input
+            .apply(ParDo.of(new EstimateStructStatsFn()))
+            .setCoder(SerializableCoder.of(SizeStats.class))
+            .apply(Combine.globally(new MergeStatsFn()));
+      }
+    };
+  }
+
   private EstimateSize() {
   }
 
@@ -39,48 +76,289 @@ public class EstimateSize extends PTransform<PCollection<Struct>, PCollection<Lo
     return input.apply(ParDo.of(new EstimateStructSizeFn()));
   }
 
+  // Widths of fixed size values. DATE is stored as days since the epoch, TIMESTAMP as seconds
+  // and nanoseconds.
+  private static final int BOOL_SIZE = 1;
+  private static final int INT64_SIZE = 8;
+  private static final int FLOAT64_SIZE = 8;
+  private static final int DATE_SIZE = 4;
+  private static final int TIMESTAMP_SIZE = 12;
+
+  /** Returns the estimated encoded size of a row, in bytes. */
+  public static long estimate(Struct row) {
+    long sum = 0;
+    for (int i = 0; i < row.getColumnCount(); i++) {
+      if (!row.isNull(i)) {
+        sum += estimateValue(row, i, row.getColumnType(i));
+      }
+    }
+    return sum;
+  }
+
+  private static long estimateValue(Struct row, int i, Type type) {
+    switch (type.getCode()) {
+      case BOOL:
+        return BOOL_SIZE;
+      case INT64:
+        return INT64_SIZE;
+      case FLOAT64:
+        return FLOAT64_SIZE;
+      case DATE:
+        return DATE_SIZE;
+      case TIMESTAMP:
+        return TIMESTAMP_SIZE;
+      case BYTES:
+        return row.getBytes(i).length();
+      case STRING:
+        return Utf8.encodedLength(row.getString(i));
+      case JSON:
+        return Utf8.encodedLength(row.getJson(i));
+      case PG_JSONB:
+        return Utf8.encodedLength(row.getPgJsonb(i));
+      case NUMERIC:
+        return row.getBigDecimal(i).toString().length();
+      case PG_NUMERIC:
+        return row.getString(i).length();
+      case STRUCT:
+        return estimate(row.getStruct(i));
+      case ARRAY:
+        return estimateArray(row, i, type.getArrayElementType());
+      default:
+        throw new IllegalArgumentException("Unsupported type: " + type);
+    }
+  }
+
+  private static long estimateArray(Struct row, int i, Type elementType) {
+    switch (elementType.getCode()) {
+      case BOOL:
+        return (long) BOOL_SIZE * nonNull(row.getBooleanList(i));
+      case INT64:
+        return (long) INT64_SIZE * nonNull(row.getLongList(i));
+      case FLOAT64:
+        return (long) FLOAT64_SIZE * nonNull(row.getDoubleList(i));
+      case DATE:
+        return (long) DATE_SIZE * nonNull(row.getDateList(i));
+      case TIMESTAMP:
+        return (long) TIMESTAMP_SIZE * nonNull(row.getTimestampList(i));
+      case BYTES:
+        long bytes = 0;
+        for (ByteArray value : row.getBytesList(i)) {
+          bytes += value == null ? 0 : value.length();
+        }
+        return bytes;
+      case STRING:
+      case PG_NUMERIC:
+        return utf8Length(row.getStringList(i));
+      case JSON:
+        return utf8Length(row.getJsonList(i));
+      case PG_JSONB:
+        return utf8Length(row.getPgJsonbList(i));
+      case NUMERIC:
+        long numerics = 0;
+        for (BigDecimal value : row.getBigDecimalList(i)) {
+          numerics += value == null ? 0 : value.toString().length();
+        }
+        return numerics;
+      case STRUCT:
+        long structs = 0;
+        for (Struct value : row.getStructList(i)) {
+          structs += value == null ? 0 : estimate(value);
+        }
+        return structs;
+      default:
+        throw new IllegalArgumentException("Unsupported array element type: " + elementType);
+    }
+  }
+
+  private static long nonNull(List<?> values) {
+    long count = 0;
+    for (Object value : values) {
+      if (value != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static long utf8Length(List<String> values) {
+    long length = 0;
+    for (String value : values) {
+      length += value == null ? 0 : Utf8.encodedLength(value);
+    }
+    return length;
+  }
+
   /**
-   * Estimates the size of a Spanner row. For simplicity, arrays and structs aren't supported.
+   * Estimates the size of each Spanner row and outputs the sum of every bundle.
    */
   public static class EstimateStructSizeFn extends DoFn<Struct, Long> {
 
+    private final Counter rows = Metrics.counter(EstimateSize.class, "rows");
+    private final Distribution rowSizeBytes =
+        Metrics.distribution(EstimateSize.class, "rowSizeBytes");
+    private transient long bundleSum;
+
+    @StartBundle
+    public void startBundle() {
+      bundleSum = 0;
+    }
+
     @ProcessElement
-    public void processElement(ProcessContext c) throws Exception {
-      Struct row = c.element();
-      long sum = 0;
-      for (int i = 0; i < row.getColumnCount(); i++) {
-        if (row.isNull(i)) {
-          continue;
-        }
+    public void processElement(ProcessContext c) {
+      long size = estimate(c.element());
+      rows.inc();
+      rowSizeBytes.update(size);
+      bundleSum += size;
+    }
+
+    @FinishBundle
+    public void finishBundle(FinishBundleContext c) {
+      c.output(bundleSum, GlobalWindow.INSTANCE.maxTimestamp(), GlobalWindow.INSTANCE);
+    }
+  }
+
+  /**
+   * The number of rows, total size and a power-of-two histogram of row sizes. Bucket {@code b}
+   * counts rows of at least {@code 2^(b-1)} and less than {@code 2^b} bytes; bucket 0 counts
+   * empty rows.
+   */
+  public static class SizeStats implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private final long[] buckets = new long[Long.SIZE];
+
+    void add(long size) {
+      count++;
+      sum += size;
+      min = Math.min(min, size);
+      max = Math.max(max, size);
+      buckets[Long.SIZE - Long.numberOfLeadingZeros(size)]++;
+    }
 
-        switch (row.getColumnType(i).getCode()) {
-          case BOOL:
-            sum += 1;
-            break;
-          case INT64:
-          case FLOAT64:
-            sum += 8;
-            break;
-          case TIMESTAMP:
-          case DATE:
-            sum += 12;
-            break;
-          case BYTES:
-            sum += row.getBytes(i).length();
-            break;
-          case STRING:
-            sum += row.getString(i).length();
-            break;
-          case ARRAY:
-            throw new IllegalArgumentException("Arrays are not supported :(");
-          case STRUCT:
-            throw new IllegalArgumentException("Structs are not supported :(");
-          default:
-            throw new IllegalArgumentException("Unsupported type :(");
+    void merge(SizeStats other) {
+      count += other.count;
+      sum += other.sum;
+      min = Math.min(min, other.min);
+      max = Math.max(max, other.max);
+      for (int b = 0; b < buckets.length; b++) {
+        buckets[b] += other.buckets[b];
+      }
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getSum() {
+      return sum;
+    }
+
+    public long getMin() {
+      return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    public long[] getBuckets() {
+      return buckets.clone();
+    }
+
+    /**
+     * Returns the upper bound of the histogram bucket that contains the {@code p}-th percentile
+     * row, so the true percentile is at most this value and more than half of it.
+     */
+    public long percentileUpperBound(double p) {
+      long rank = (long) Math.ceil(p / 100 * count);
+      long seen = 0;
+      for (int b = 0; b < buckets.length; b++) {
+        seen += buckets[b];
+        if (seen >= rank && buckets[b] > 0) {
+          return Math.min(max, b == 0 ? 0 : (1L << b) - 1);
         }
       }
-      c.output(sum);
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "rows=%d bytes=%d min=%d p50<=%d p99<=%d max=%d histogram=%s",
+          count, sum, getMin(), percentileUpperBound(50), percentileUpperBound(99), max,
+          Arrays.toString(Arrays.copyOf(buckets, Long.SIZE - Long.numberOfLeadingZeros(max) + 1)));
     }
   }
 
+  /** Estimates each row and outputs the {@link SizeStats} of every bundle. */
+  static class EstimateStructStatsFn extends DoFn<Struct, SizeStats> {
+
+    private final Counter rows = Metrics.counter(EstimateSize.class, "rows");
+    private final Distribution rowSizeBytes =
+        Metrics.distribution(EstimateSize.class, "rowSizeBytes");
+    private transient SizeStats bundleStats;
+
+    @StartBundle
+    public void startBundle() {
+      bundleStats = new SizeStats();
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext c) {
+      long size = estimate(c.element());
+      rows.inc();
+      rowSizeBytes.update(size);
+      bundleStats.add(size);
+    }
+
+    @FinishBundle
+    public void finishBundle(FinishBundleContext c) {
+      c.output(bundleStats, GlobalWindow.INSTANCE.maxTimestamp(), GlobalWindow.INSTANCE);
+    }
+  }
+
+  /** Merges per-bundle {@link SizeStats}. */
+  static class MergeStatsFn extends Combine.CombineFn<SizeStats, SizeStats, SizeStats> {
+
+    @Override
+    public SizeStats createAccumulator() {
+      return new SizeStats();
+    }
+
+    @Override
+    public SizeStats addInput(SizeStats accumulator, SizeStats input) {
+      accumulator.merge(input);
+      return accumulator;
+    }
+
+    @Override
+    public SizeStats mergeAccumulators(Iterable<SizeStats> accumulators) {
+      SizeStats merged = new SizeStats();
+      for (SizeStats accumulator : accumulators) {
+        merged.merge(accumulator);
+      }
+      return merged;
+    }
+
+    @Override
+    public SizeStats extractOutput(SizeStats accumulator) {
+      return accumulator;
+    }
+
+    @Override
+    public Coder<SizeStats> getAccumulatorCoder(
+        CoderRegistry registry, Coder<SizeStats> inputCoder) {
+      return SerializableCoder.of(SizeStats.class);
+    }
+
+    @Override
+    public Coder<SizeStats> getDefaultOutputCoder(
+        CoderRegistry registry, Coder<SizeStats> inputCoder) {
+      return SerializableCoder.of(SizeStats.class);
+    }
+  }
 }
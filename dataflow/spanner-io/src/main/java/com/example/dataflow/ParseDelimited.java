@@ -0,0 +1,190 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.dataflow;
+
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Mutation.WriteBuilder;
+import java.io.Serializable;
+import java.util.List;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.Field;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TupleTagList;
+
+/**
+ * Parses delimited lines straight into insert-or-update {@link Mutation}s for one table.
+ *
+ * <p>The columns are described by a Beam {@link Schema} whose field names are the Spanner column
+ * names, in file order. A parser is resolved for each field once per DoFn instance, and lines
+ * are split by scanning for the delimiter rather than with a regular expression. Lines that have
+ * too few columns or a value that does not parse are emitted on {@link #DEAD_LETTERS} as rows of
+ * {@link #DEAD_LETTER_SCHEMA} and counted in the {@code badRows} counter, instead of being
+ * logged.
+ */
+public class ParseDelimited extends PTransform<PCollection<String>, PCollectionTuple> {
+
+  public static final TupleTag<Mutation> MUTATIONS = new TupleTag<Mutation>() {};
+  public static final TupleTag<Row> DEAD_LETTERS = new TupleTag<Row>() {};
+
+  public static final Schema DEAD_LETTER_SCHEMA =
+      Schema.builder().addStringField("line").addStringField("error").build();
+
+  private final String table;
+  private final Schema schema;
+  private final char delimiter;
+
+  public static ParseDelimited of(String table, Schema schema, char delimiter) {
+    return new ParseDelimited(table, schema, delimiter);
+  }
+
+  private ParseDelimited(String table, Schema schema, char delimiter) {
+    this.table = table;
+    this.schema = schema;
+    this.delimiter = delimiter;
+  }
+
+  @Override
+  public PCollectionTuple expand(PCollection<String> input) {
+    PCollectionTuple result =
+        input.apply(
+            ParDo.of(new ParseFn(table, schema, delimiter))
+                .withOutputTags(MUTATIONS, TupleTagList.of(DEAD_LETTERS)));
+    result.get(MUTATIONS).setCoder(SerializableCoder.of(Mutation.class));
+    result.get(DEAD_LETTERS).setRowSchema(DEAD_LETTER_SCHEMA);
+    return result;
+  }
+
+  /** Parses the characters {@code [start, end)} of a line and sets them on a mutation. */
+  interface ColumnParser extends Serializable {
+    void parse(WriteBuilder builder, String line, int start, int end);
+  }
+
+  static ColumnParser parserFor(Field field) {
+    String column = field.getName();
+    switch (field.getType().getTypeName()) {
+      case INT64:
+        return (builder, line, start, end) ->
+            builder.set(column).to(Long.parseLong(line, start, end, 10));
+      case DOUBLE:
+        return (builder, line, start, end) ->
+            builder.set(column).to(Double.parseDouble(line.substring(start, end)));
+      case BOOLEAN:
+        return (builder, line, start, end) ->
+            builder.set(column).to(Boolean.parseBoolean(line.substring(start, end)));
+      case STRING:
+        return (builder, line, start, end) -> builder.set(column).to(line.substring(start, end));
+      default:
+        throw new IllegalArgumentException(
+            "Unsupported type for column " + column + ": " + field.getType());
+    }
+  }
+
+  /**
+   * Splits {@code line} on {@code delimiter} into at most {@code bounds.length / 2} trimmed
+   * columns, storing the start and end of column {@code i} at {@code bounds[2 * i]} and {@code
+   * bounds[2 * i + 1]}.
+   *
+   * @return the number of columns found
+   */
+  static int split(String line, char delimiter, int[] bounds) {
+    int columns = 0;
+    int start = 0;
+    int length = line.length();
+    while (columns * 2 < bounds.length) {
+      int end = line.indexOf(delimiter, start);
+      if (end < 0) {
+        end = length;
+      }
+      int from = start;
+      int to = end;
+      while (from < to && Character.isWhitespace(line.charAt(from))) {
+        from++;
+      }
+      while (to > from && Character.isWhitespace(line.charAt(to - 1))) {
+        to--;
+      }
+      bounds[columns * 2] = from;
+      bounds[columns * 2 + 1] = to;
+      columns++;
+      if (end == length) {
+        break;
+      }
+      start = end + 1;
+    }
+    return columns;
+  }
+
+  static class ParseFn extends DoFn<String, Mutation> {
+
+    private final Counter badRows = Metrics.counter(ParseDelimited.class, "badRows");
+    private final String table;
+    private final Schema schema;
+    private final char delimiter;
+    private transient ColumnParser[] parsers;
+    private transient int[] bounds;
+
+    ParseFn(String table, Schema schema, char delimiter) {
+      this.table = table;
+      this.schema = schema;
+      this.delimiter = delimiter;
+    }
+
+    @Setup
+    public void setup() {
+      List<Field> fields = schema.getFields();
+      parsers = new ColumnParser[fields.size()];
+      for (int i = 0; i < parsers.length; i++) {
+        parsers[i] = parserFor(fields.get(i));
+      }
+      bounds = new int[parsers.length * 2];
+    }
+
+    @ProcessElement
+    public void processElement(@Element String line, MultiOutputReceiver out) {
+      int columns = split(line, delimiter, bounds);
+      if (columns < parsers.length) {
+        deadLetter(line, "expected " + parsers.length + " columns, found " + columns, out);
+        return;
+      }
+      WriteBuilder builder = Mutation.newInsertOrUpdateBuilder(table);
+      try {
+        for (int i = 0; i < parsers.length; i++) {
+          parsers[i].parse(builder, line, bounds[2 * i], bounds[2 * i + 1]);
+        }
+      } catch (NumberFormatException e) {
+        deadLetter(line, e.toString(), out);
+        return;
+      }
+      out.get(MUTATIONS).output(builder.build());
+    }
+
+    private void deadLetter(String line, String error, MultiOutputReceiver out) {
+      badRows.inc();
+      out.get(DEAD_LETTERS).output(Row.withSchema(DEAD_LETTER_SCHEMA).addValues(line, error)
+          .build());
+    }
+  }
+}
@@ -19,24 +19,33 @@ package com.example.dataflow;
 import com.google.cloud.spanner.Dialect;
 import com.google.cloud.spanner.Mutation;
 import org.apache.beam.sdk.Pipeline;
-import org.apache.beam.sdk.coders.DefaultCoder;
-import org.apache.beam.sdk.extensions.avro.coders.AvroCoder;
 import org.apache.beam.sdk.io.TextIO;
 import org.apache.beam.sdk.io.gcp.spanner.SpannerIO;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.options.Default;
 import org.apache.beam.sdk.options.Default.Enum;
 import org.apache.beam.sdk.options.Description;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.options.Validation;
+import org.apache.beam.sdk.schemas.JavaFieldSchema;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.annotations.DefaultSchema;
 import org.apache.beam.sdk.transforms.Create;
 import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.Flatten;
+import org.apache.beam.sdk.transforms.MapElements;
 import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.transforms.View;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionList;
+import org.apache.beam.sdk.values.PCollectionTuple;
 import org.apache.beam.sdk.values.PCollectionView;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TupleTagList;
+import org.apache.beam.sdk.values.TypeDescriptors;
 
 /*
 This sample demonstrates how to write to a Spanner table.
@@ -72,7 +81,7 @@ mvn exec:java \
 
 public class SpannerWrite {
 
-  static final String DELIMITER = "\t";
+  static final char DELIMITER = '\t';
 
   public interface Options extends PipelineOptions {
 
@@ -104,30 +113,30 @@ public class SpannerWrite {
     Dialect getDialect();
 
     void setDialect(Dialect dialect);
-  }
-
-  @DefaultCoder(AvroCoder.class)
-  static class Singer {
-    long singerId;
-    String firstName;
-    String lastName;
 
-    Singer() {}
+    @Description("Optional file prefix for lines that could not be parsed, with the reason")
+    String getDeadLetterFilename();
 
-    Singer(long singerId, String firstName, String lastName) {
-      this.singerId = singerId;
-      this.firstName = firstName;
-      this.lastName = lastName;
-    }
+    void setDeadLetterFilename(String value);
   }
 
-  @DefaultCoder(AvroCoder.class)
-  static class Album {
-    long singerId;
-    long albumId;
-    String albumTitle;
+  /** The columns of the singers file, named after the Singers table columns. */
+  static final Schema SINGER_SCHEMA =
+      Schema.builder()
+          .addInt64Field("singerId")
+          .addStringField("firstName")
+          .addStringField("lastName")
+          .build();
+
+  static final TupleTag<Album> ALBUMS = new TupleTag<Album>() {};
 
-    Album() {}
+  @DefaultSchema(JavaFieldSchema.class)
+  public static class Album {
+    public long singerId;
+    public long albumId;
+    public String albumTitle;
+
+    public Album() {}
 
     Album(long singerId, long albumId, String albumTitle) {
       this.singerId = singerId;
@@ -136,45 +145,35 @@ public class SpannerWrite {
     }
   }
 
-  /**
-   * Parses each tab-delimited line into a Singer object. The line format is the following:
-   * singer_id\tfirstName\tlastName
-   */
-  static class ParseSinger extends DoFn<String, Singer> {
-    private static final Logger LOG = LoggerFactory.getLogger(ParseSinger.class);
-
-    @ProcessElement
-    public void processElement(ProcessContext c) {
-      String[] columns = c.element().split(DELIMITER);
-      try {
-        Long singerId = Long.parseLong(columns[0].trim());
-        String firstName = columns[1].trim();
-        String lastName = columns[2].trim();
-        c.output(new Singer(singerId, firstName, lastName));
-      } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
-        LOG.info("ParseSinger: parse error on '" + c.element() + "': " + e.getMessage());
-      }
-    }
-  }
-
   /**
    * Parses each tab-delimited line into an Album object. The line format is the following:
    * singer_id\talbumId\talbumTitle
+   *
+   * <p>Lines that cannot be parsed are emitted on {@link ParseDelimited#DEAD_LETTERS}.
    */
   static class ParseAlbum extends DoFn<String, Album> {
-    private static final Logger LOG = LoggerFactory.getLogger(ParseAlbum.class);
+    private final Counter badRows = Metrics.counter(ParseAlbum.class, "badRows");
+    private final int[] bounds = new int[6];
 
     @ProcessElement
-    public void processElement(ProcessContext c) {
-      String[] columns = c.element().split(DELIMITER);
-      try {
-        Long singerId = Long.parseLong(columns[0].trim());
-        Long albumId = Long.parseLong(columns[1].trim());
-        String albumTitle = columns[2].trim();
-        c.output(new Album(singerId, albumId, albumTitle));
-      } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
-        LOG.info("ParseAlbum: parse error on '" + c.element() + "': " + e.getMessage());
+    public void processElement(@Element String line, MultiOutputReceiver out) {
+      String error;
+      if (ParseDelimited.split(line, DELIMITER, bounds) == 3) {
+        try {
+          long singerId = Long.parseLong(line, bounds[0], bounds[1], 10);
+          long albumId = Long.parseLong(line, bounds[2], bounds[3], 10);
+          String albumTitle = line.substring(bounds[4], bounds[5]);
+          out.get(ALBUMS).output(new Album(singerId, albumId, albumTitle));
+          return;
+        } catch (NumberFormatException e) {
+          error = e.toString();
+        }
+      } else {
+        error = "expected 3 columns";
       }
+      badRows.inc();
+      out.get(ParseDelimited.DEAD_LETTERS)
+          .output(Row.withSchema(ParseDelimited.DEAD_LETTER_SCHEMA).addValues(line, error).build());
     }
   }
 
@@ -185,33 +184,35 @@ public class SpannerWrite {
     String instanceId = options.getInstanceId();
     String databaseId = options.getDatabaseId();
 
-    // Read singers from a tab-delimited file
-    p.apply("ReadSingers", TextIO.read().from(options.getSingersFilename()))
-        // Parse the tab-delimited lines into Singer objects
-        .apply("ParseSingers", ParDo.of(new ParseSinger()))
-        // Spanner expects a Mutation object, so create it using the Singer's data
-        .apply("CreateSingerMutation", ParDo.of(new DoFn<Singer, Mutation>() {
-          @ProcessElement
-          public void processElement(ProcessContext c) {
-            Singer singer = c.element();
-            c.output(Mutation.newInsertOrUpdateBuilder("singers")
-                .set("singerId").to(singer.singerId)
-                .set("firstName").to(singer.firstName)
-                .set("lastName").to(singer.lastName)
-                .build());
-          }
-        }))
-        // Finally write the Mutations to Spanner
+    // Read singers from a tab-delimited file and parse the lines straight into Mutations
+    PCollectionTuple singers = p
+        .apply("ReadSingers", TextIO.read().from(options.getSingersFilename()))
+        .apply("ParseSingers", ParseDelimited.of("singers", SINGER_SCHEMA, DELIMITER));
+    // Finally write the Mutations to Spanner
+    singers.get(ParseDelimited.MUTATIONS)
         .apply("WriteSingers", SpannerIO.write()
             .withInstanceId(instanceId)
             .withDatabaseId(databaseId)
             .withDialectView(p.apply(Create.of(options.getDialect())).apply(View.asSingleton())));
 
     // Read albums from a tab-delimited file
-    PCollection<Album> albums = p
+    PCollectionTuple parsedAlbums = p
         .apply("ReadAlbums", TextIO.read().from(options.getAlbumsFilename()))
         // Parse the tab-delimited lines into Album objects
-        .apply("ParseAlbums", ParDo.of(new ParseAlbum()));
+        .apply("ParseAlbums", ParDo.of(new ParseAlbum())
+            .withOutputTags(ALBUMS, TupleTagList.of(ParseDelimited.DEAD_LETTERS)));
+    PCollection<Album> albums = parsedAlbums.get(ALBUMS);
+    parsedAlbums.get(ParseDelimited.DEAD_LETTERS).setRowSchema(ParseDelimited.DEAD_LETTER_SCHEMA);
+
+    if (options.getDeadLetterFilename() != null) {
+      // Write the lines that could not be parsed, each followed by the reason
+      PCollectionList.of(singers.get(ParseDelimited.DEAD_LETTERS))
+          .and(parsedAlbums.get(ParseDelimited.DEAD_LETTERS))
+          .apply("FlattenDeadLetters", Flatten.pCollections())
+          .apply("FormatDeadLetters", MapElements.into(TypeDescriptors.strings())
+              .via(row -> row.getString("line") + DELIMITER + row.getString("error")))
+          .apply("WriteDeadLetters", TextIO.write().to(options.getDeadLetterFilename()));
+    }
 
     if (options.getDialect() == Dialect.POSTGRESQL) {
       postgreSqlWrite(instanceId, databaseId, p, albums);
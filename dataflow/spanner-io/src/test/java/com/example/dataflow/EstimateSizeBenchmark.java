@@ -0,0 +1,81 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.dataflow;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.Struct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark for {@link EstimateSize#estimate} on Songs-like rows. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.openjdk.jmh.Main \
+ *     -Dexec.args="EstimateSizeBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EstimateSizeBenchmark {
+
+  @Param({"0", "10", "100"})
+  public int arrayLength;
+
+  private Struct row;
+
+  @Setup
+  public void setUp() {
+    List<String> tags = new ArrayList<>();
+    for (int i = 0; i < arrayLength; i++) {
+      tags.add("tag-" + i);
+    }
+    row =
+        Struct.newBuilder()
+            .set("SingerId").to(1L)
+            .set("AlbumId").to(2L)
+            .set("TrackId").to(3L)
+            .set("SongName").to("Nothing Is The Same")
+            .set("Duration").to(240L)
+            .set("SongGenre").to("ROCK")
+            .set("Released").to(Timestamp.ofTimeSecondsAndNanos(0, 0))
+            .set("Tags").toStringArray(tags)
+            .build();
+  }
+
+  @Benchmark
+  public long estimate() {
+    return EstimateSize.estimate(row);
+  }
+}
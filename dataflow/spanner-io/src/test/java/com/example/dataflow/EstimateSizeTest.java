@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.dataflow;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.cloud.ByteArray;
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Value;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.beam.sdk.PipelineResult;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.metrics.DistributionResult;
+import org.apache.beam.sdk.metrics.MetricNameFilter;
+import org.apache.beam.sdk.metrics.MetricQueryResults;
+import org.apache.beam.sdk.metrics.MetricResult;
+import org.apache.beam.sdk.metrics.MetricsFilter;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.sdk.values.PCollection;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Accuracy tests for {@link EstimateSize} on the DirectRunner. */
+@RunWith(JUnit4.class)
+public class EstimateSizeTest {
+
+  @Rule public final transient TestPipeline pipeline = TestPipeline.create();
+
+  private static final Type ADDRESS =
+      Type.struct(
+          Type.StructField.of("City", Type.string()), Type.StructField.of("Zip", Type.int64()));
+
+  @Test
+  public void estimate_scalarsUseEncodedSizes() {
+    Struct row =
+        Struct.newBuilder()
+            .set("Bool").to(true)
+            .set("Int").to(1L)
+            .set("Float").to(1.5d)
+            .set("Date").to(Date.fromYearMonthDay(2024, 1, 1))
+            .set("Timestamp").to(Timestamp.ofTimeSecondsAndNanos(0, 0))
+            .set("Bytes").to(ByteArray.copyFrom(new byte[] {1, 2, 3}))
+            // Two characters, five UTF-8 bytes.
+            .set("String").to("é€")
+            .set("Json").to(Value.json("{\"a\":1}"))
+            .set("Numeric").to(new BigDecimal("-12.345"))
+            .set("Null").to((String) null)
+            .build();
+    assertEquals(1 + 8 + 8 + 4 + 12 + 3 + 5 + 7 + 7, EstimateSize.estimate(row));
+  }
+
+  @Test
+  public void estimate_arraysAndStructsSumTheirElements() {
+    Struct address = Struct.newBuilder().set("City").to("Zürich").set("Zip").to(8000L).build();
+    Struct row =
+        Struct.newBuilder()
+            .set("Ids").toInt64Array(Arrays.asList(1L, null, 3L))
+            .set("Tags").toStringArray(Arrays.asList("a", "é", null))
+            .set("Address").to(address)
+            .set("Addresses").toStructArray(ADDRESS, Arrays.asList(address, null, address))
+            .build();
+    long addressSize = 7 + 8;
+    assertEquals(2 * 8 + 1 + 2 + addressSize + 2 * addressSize, EstimateSize.estimate(row));
+  }
+
+  @Test
+  public void pipeline_emitsBundleSumsStatsAndMetrics() {
+    List<Struct> rows = new ArrayList<>();
+    long total = 0;
+    for (int i = 0; i < 100; i++) {
+      Struct row = Struct.newBuilder().set("Id").to((long) i).set("Name").to(name(i)).build();
+      rows.add(row);
+      total += EstimateSize.estimate(row);
+    }
+
+    PCollection<Struct> input =
+        pipeline.apply(Create.of(rows).withCoder(SerializableCoder.of(Struct.class)));
+    PAssert.thatSingleton(input.apply(EstimateSize.create()).apply(Sum.longsGlobally()))
+        .isEqualTo(total);
+    final long expectedTotal = total;
+    PAssert.thatSingleton(input.apply("Stats", EstimateSize.stats()))
+        .satisfies(
+            stats -> {
+              assertEquals(100, stats.getCount());
+              assertEquals(expectedTotal, stats.getSum());
+              assertEquals(8, stats.getMin());
+              assertEquals(8 + 99, stats.getMax());
+              long histogramRows = 0;
+              for (long bucket : stats.getBuckets()) {
+                histogramRows += bucket;
+              }
+              assertEquals(100, histogramRows);
+              return null;
+            });
+    PipelineResult result = pipeline.run();
+    result.waitUntilFinish();
+
+    MetricQueryResults metrics =
+        result
+            .metrics()
+            .queryMetrics(
+                MetricsFilter.builder()
+                    .addNameFilter(MetricNameFilter.inNamespace(EstimateSize.class))
+                    .build());
+    long rowCount = 0;
+    for (MetricResult<Long> counter : metrics.getCounters()) {
+      rowCount += counter.getAttempted();
+    }
+    // Both transforms count every row.
+    assertEquals(200, rowCount);
+    long distributionSum = 0;
+    for (MetricResult<DistributionResult> distribution : metrics.getDistributions()) {
+      distributionSum += distribution.getAttempted().getSum();
+      assertEquals(8 + 99, distribution.getAttempted().getMax());
+    }
+    assertEquals(2 * total, distributionSum);
+  }
+
+  private static String name(int length) {
+    char[] chars = new char[length];
+    Arrays.fill(chars, 'x');
+    return new String(chars);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.dataflow;
+
+import com.google.cloud.spanner.Mutation;
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.io.GenerateSequence;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.TypeDescriptors;
+
+/**
+ * Compares the lines per second of {@link ParseDelimited} with the previous regex split and
+ * {@code Singer} object parsing on the DirectRunner. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.dataflow.ParseDelimitedBenchmark -Dexec.args="5000000"
+ * </pre>
+ */
+public class ParseDelimitedBenchmark {
+
+  public static void main(String[] args) {
+    long lines = args.length > 0 ? Long.parseLong(args[0]) : 5_000_000L;
+    for (int round = 0; round < 2; round++) {
+      run("split + Long.parseLong", lines, new SplitParse());
+      run("ParseDelimited", lines, new PTransform<PCollection<String>, PCollection<Mutation>>() {
+        @Override
+        public PCollection<Mutation> expand(PCollection<String> input) {
+          return input
+              .apply(ParseDelimited.of("singers", SpannerWrite.SINGER_SCHEMA, '\t'))
+              .get(ParseDelimited.MUTATIONS);
+        }
+      });
+    }
+  }
+
+  private static void run(
+      String name, long lines, PTransform<PCollection<String>, PCollection<Mutation>> parse) {
+    Pipeline p = Pipeline.create(PipelineOptionsFactory.create());
+    p.apply(GenerateSequence.from(0).to(lines))
+        .apply(MapElements.into(TypeDescriptors.strings())
+            .via(i -> i + "\tFirst " + i + "\tLast " + i))
+        .apply(parse)
+        .apply(ParDo.of(new DoFn<Mutation, Void>() {
+          private final Counter parsed = Metrics.counter(ParseDelimitedBenchmark.class, "parsed");
+
+          @ProcessElement
+          public void processElement() {
+            parsed.inc();
+          }
+        }));
+    long start = System.nanoTime();
+    p.run().waitUntilFinish();
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("%-24s %,12.0f lines/s%n", name, lines / seconds);
+  }
+
+  /** The parsing that SpannerWrite used before ParseDelimited. */
+  private static class SplitParse extends PTransform<PCollection<String>, PCollection<Mutation>> {
+    @Override
+    public PCollection<Mutation> expand(PCollection<String> input) {
+      return input.apply(ParDo.of(new DoFn<String, Mutation>() {
+        @ProcessElement
+        public void processElement(ProcessContext c) {
+          String[] columns = c.element().split("\t");
+          Long singerId = Long.parseLong(columns[0].trim());
+          c.output(Mutation.newInsertOrUpdateBuilder("singers")
+              .set("singerId").to(singerId)
+              .set("firstName").to(columns[1].trim())
+              .set("lastName").to(columns[2].trim())
+              .build());
+        }
+      })).setCoder(SerializableCoder.of(Mutation.class));
+    }
+  }
+}
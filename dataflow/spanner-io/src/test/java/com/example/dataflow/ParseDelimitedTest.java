@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.dataflow;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.google.cloud.spanner.Mutation;
+import java.util.Arrays;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.TypeDescriptors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ParseDelimited} on the DirectRunner. */
+@RunWith(JUnit4.class)
+public class ParseDelimitedTest {
+
+  @Rule public final transient TestPipeline pipeline = TestPipeline.create();
+
+  @Test
+  public void split_trimsColumnsAndStopsAtCapacity() {
+    int[] bounds = new int[4];
+    String line = " 1 \tJohn\tLennon";
+    assertEquals(2, ParseDelimited.split(line, '\t', bounds));
+    assertArrayEquals(new int[] {1, 2, 4, 8}, bounds);
+
+    bounds = new int[6];
+    assertEquals(2, ParseDelimited.split("1\t", '\t', bounds));
+    assertEquals(bounds[2], bounds[3]);
+  }
+
+  @Test
+  public void parse_routesBadLinesToDeadLetters() {
+    PCollectionTuple result =
+        pipeline
+            .apply(
+                Create.of(
+                    Arrays.asList(
+                        "1\tJohn\tLennon",
+                        " 2 \t Paul \tMcCartney",
+                        "x\tGeorge\tHarrison",
+                        "4\tRingo")))
+            .apply(ParseDelimited.of("singers", SpannerWrite.SINGER_SCHEMA, '\t'));
+
+    PAssert.that(result.get(ParseDelimited.MUTATIONS))
+        .containsInAnyOrder(singer(1, "John", "Lennon"), singer(2, "Paul", "McCartney"));
+    PAssert.that(
+            result
+                .get(ParseDelimited.DEAD_LETTERS)
+                .apply(MapElements.into(TypeDescriptors.strings())
+                    .via(row -> row.getString("line"))))
+        .containsInAnyOrder("x\tGeorge\tHarrison", "4\tRingo");
+    pipeline.run().waitUntilFinish();
+  }
+
+  private static Mutation singer(long singerId, String firstName, String lastName) {
+    return Mutation.newInsertOrUpdateBuilder("singers")
+        .set("singerId").to(singerId)
+        .set("firstName").to(firstName)
+        .set("lastName").to(lastName)
+        .build();
+  }
+}
@@ -14,7 +14,8 @@
 
 package com.example.dataflow.templates;
 
-import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import org.apache.beam.sdk.Pipeline;
 import org.apache.beam.sdk.io.TextIO;
 import org.apache.beam.sdk.options.Default;
@@ -24,13 +25,15 @@ import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.options.ValueProvider;
 import org.apache.beam.sdk.options.ValueProvider.NestedValueProvider;
 import org.apache.beam.sdk.options.ValueProvider.StaticValueProvider;
-import org.apache.beam.sdk.transforms.Count;
+import org.apache.beam.sdk.transforms.Combine;
 import org.apache.beam.sdk.transforms.DoFn;
-import org.apache.beam.sdk.transforms.Filter;
-import org.apache.beam.sdk.transforms.FlatMapElements;
 import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.TypeDescriptors;
 
 
@@ -62,37 +65,106 @@ public class WordCount {
     Boolean getIsCaseSensitive();
 
     void setIsCaseSensitive(Boolean value);
-  }
 
-  static class FilterWithSubstring extends DoFn<String, String> {
-    ValueProvider<String> substring;
-    Boolean isCaseSensitive;
+    // Template option available only at template creation.
+    @Description("Spread the counts of each word over this many intermediate keys before the "
+        + "final sum, for inputs dominated by a few very frequent words. 0 disables fanout.")
+    @Default.Integer(0)
+    Integer getHotKeyFanout();
+
+    void setHotKeyFanout(Integer value);
+  }
 
-    FilterWithSubstring(ValueProvider<String> substring, Boolean isCaseSensitive) {
+  /**
+   * Splits lines into words, keeps the words that contain the substring, and counts them within
+   * each bundle, so only one partial count per distinct word and bundle leaves the DoFn.
+   *
+   * <p>A word is a maximal run of Unicode letters, like splitting on {@code [^\\p{L}]+}, but the
+   * line is scanned once by code point instead of being matched against a regular expression.
+   * Unless the counting is case sensitive, words and the substring are lowercased.
+   */
+  static class CountWordsInBundleFn extends DoFn<String, KV<String, Long>> {
+    private final ValueProvider<String> substring;
+    private final boolean isCaseSensitive;
+    private transient String bundleSubstring;
+    private transient Map<String, long[]> counts;
+
+    CountWordsInBundleFn(ValueProvider<String> substring, Boolean isCaseSensitive) {
       this.substring = substring;
       this.isCaseSensitive = isCaseSensitive;
     }
 
-    FilterWithSubstring(String substring, Boolean isCaseSensitive) {
+    CountWordsInBundleFn(String substring, Boolean isCaseSensitive) {
       // This gives a static value to the ValueProvider.
       // It creates a more flexible interface for the DoFn.
       this(StaticValueProvider.of(substring), isCaseSensitive);
     }
 
+    @StartBundle
+    public void startBundle() {
+      // Resolve the runtime parameter once per bundle instead of once per word.
+      bundleSubstring = isCaseSensitive ? substring.get() : substring.get().toLowerCase();
+      counts = new HashMap<>();
+    }
+
     @ProcessElement
-    public void processElement(ProcessContext c) {
-      String word = c.element();
-      String substring = this.substring.get();
-      if (isCaseSensitive) {
-        word = word.toLowerCase();
-        substring = substring.toLowerCase();
+    public void processElement(@Element String line) {
+      int length = line.length();
+      int i = 0;
+      while (i < length) {
+        // Skip to the start of the next word.
+        int codePoint = line.codePointAt(i);
+        if (!Character.isLetter(codePoint)) {
+          i += Character.charCount(codePoint);
+          continue;
+        }
+        int start = i;
+        do {
+          i += Character.charCount(codePoint);
+        } while (i < length && Character.isLetter(codePoint = line.codePointAt(i)));
+        String word = line.substring(start, i);
+        if (!isCaseSensitive) {
+          word = word.toLowerCase();
+        }
+        if (word.contains(bundleSubstring)) {
+          counts.computeIfAbsent(word, k -> new long[1])[0]++;
+        }
       }
-      if (word.contains(substring)) {
-        c.output(word);
+    }
+
+    @FinishBundle
+    public void finishBundle(FinishBundleContext c) {
+      // TextIO reads into the global window, which is the only window this DoFn expects.
+      for (Map.Entry<String, long[]> count : counts.entrySet()) {
+        c.output(KV.of(count.getKey(), count.getValue()[0]),
+            GlobalWindow.INSTANCE.maxTimestamp(), GlobalWindow.INSTANCE);
       }
+      counts = null;
     }
   }
 
+  /**
+   * Counts the words of each line that contain {@code substring}. With a positive {@code
+   * hotKeyFanout}, the per-bundle counts of each word are first summed on that many
+   * intermediate keys.
+   */
+  static PTransform<PCollection<String>, PCollection<KV<String, Long>>> countWords(
+      ValueProvider<String> substring, Boolean isCaseSensitive, int hotKeyFanout) {
+    return new PTransform<PCollection<String>, PCollection<KV<String, Long>>>() {
+      @Override
+      public PCollection<KV<String, Long>> expand(PCollection<String> lines) {
+        Combine.PerKey<String, Long, Long> sum = Combine.perKey(Sum.ofLongs());
+        if (hotKeyFanout > 0) {
+          sum = sum.withHotKeyFanout(hotKeyFanout);
+        }
+        return lines
+            .apply("Count words in bundle",
+                ParDo.of(new CountWordsInBundleFn(substring, isCaseSensitive)))
+            .apply("Sum counts", sum);
+      }
+    };
+  }
+
   public static void main(String[] args) {
     WordCountOptions options = PipelineOptionsFactory.fromArgs(args)
         .withValidation().as(WordCountOptions.class);
@@ -100,12 +172,8 @@ public class WordCount {
     Pipeline pipeline = Pipeline.create(options);
     pipeline
         .apply("Read lines", TextIO.read().from(options.getInputFile()))
-        .apply("Find words", FlatMapElements.into(TypeDescriptors.strings())
-            .via((String line) -> Arrays.asList(line.split("[^\\p{L}]+"))))
-        .apply("Filter empty words", Filter.by((String word) -> !word.isEmpty()))
-        .apply("Filter with substring", ParDo.of(new FilterWithSubstring(
-            options.getWithSubstring(), options.getIsCaseSensitive())))
-        .apply("Count words", Count.perElement())
+        .apply("Count words", countWords(
+            options.getWithSubstring(), options.getIsCaseSensitive(), options.getHotKeyFanout()))
         .apply("Format results", MapElements.into(TypeDescriptors.strings())
             .via((KV<String, Long> wordCount) -> wordCount.getKey() + ": " + wordCount.getValue()))
         .apply("Write results", TextIO.write().to(NestedValueProvider.of(
@@ -0,0 +1,135 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.dataflow.templates;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.io.TextIO;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.options.ValueProvider.StaticValueProvider;
+import org.apache.beam.sdk.transforms.Count;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.Filter;
+import org.apache.beam.sdk.transforms.FlatMapElements;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.TypeDescriptors;
+
+/**
+ * Compares the word counting of {@link WordCount} with a regular expression split followed by
+ * {@code Count.perElement()} on the DirectRunner, over a generated corpus with a Zipf-like word
+ * distribution.
+ *
+ * <p>Usage: {@code WordCountBenchmark [lines] [hotKeyFanout]}, for example with {@code mvn
+ * test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.dataflow.templates.WordCountBenchmark -Dexec.args="2000000 16"}.
+ */
+public class WordCountBenchmark {
+
+  private static final int VOCABULARY = 50_000;
+  private static final int WORDS_PER_LINE = 12;
+
+  public static void main(String[] args) throws IOException {
+    int lines = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int hotKeyFanout = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+
+    Path corpus = Files.createTempFile("wordcount", ".txt");
+    try {
+      long bytes = writeCorpus(corpus, lines);
+      System.out.printf("Corpus: %,d lines, %.1f MB%n", lines, bytes / 1e6);
+      // Run each variant twice and report the second run, after the JIT has warmed up.
+      for (int run = 0; run < 2; run++) {
+        report("regex split + Count.perElement", bytes, runBaseline(corpus));
+        report("scanner + bundle pre-aggregation", bytes, runTuned(corpus, hotKeyFanout));
+      }
+    } finally {
+      Files.delete(corpus);
+    }
+  }
+
+  private static long writeCorpus(Path corpus, int lines) throws IOException {
+    String[] vocabulary = new String[VOCABULARY];
+    Random random = new Random(42);
+    for (int i = 0; i < VOCABULARY; i++) {
+      char[] word = new char[3 + random.nextInt(8)];
+      for (int c = 0; c < word.length; c++) {
+        word[c] = (char) ((c == 0 && random.nextInt(4) == 0 ? 'A' : 'a') + random.nextInt(26));
+      }
+      vocabulary[i] = new String(word);
+    }
+    try (BufferedWriter writer = Files.newBufferedWriter(corpus, StandardCharsets.UTF_8)) {
+      for (int line = 0; line < lines; line++) {
+        for (int w = 0; w < WORDS_PER_LINE; w++) {
+          // Cubing a uniform value skews the ranks towards the first, most frequent, words.
+          double u = random.nextDouble();
+          writer.write(vocabulary[(int) (u * u * u * VOCABULARY)]);
+          writer.write(w % 5 == 4 ? ", " : " ");
+        }
+        writer.newLine();
+      }
+    }
+    return Files.size(corpus);
+  }
+
+  private static long runBaseline(Path corpus) {
+    Pipeline pipeline = Pipeline.create(PipelineOptionsFactory.create());
+    PCollection<KV<String, Long>> counts = pipeline
+        .apply(TextIO.read().from(corpus.toString()))
+        .apply(FlatMapElements.into(TypeDescriptors.strings())
+            .via((String line) -> Arrays.asList(line.split("[^\\p{L}]+"))))
+        .apply(Filter.by((String word) -> !word.isEmpty()))
+        .apply(Count.perElement());
+    return run(pipeline, counts);
+  }
+
+  private static long runTuned(Path corpus, int hotKeyFanout) {
+    Pipeline pipeline = Pipeline.create(PipelineOptionsFactory.create());
+    PCollection<KV<String, Long>> counts = pipeline
+        .apply(TextIO.read().from(corpus.toString()))
+        .apply(WordCount.countWords(StaticValueProvider.of(""), true, hotKeyFanout));
+    return run(pipeline, counts);
+  }
+
+  private static long run(Pipeline pipeline, PCollection<KV<String, Long>> counts) {
+    counts.apply(ParDo.of(new CountResultsFn()));
+    long start = System.nanoTime();
+    pipeline.run().waitUntilFinish();
+    return System.nanoTime() - start;
+  }
+
+  private static void report(String name, long bytes, long nanos) {
+    double seconds = nanos / 1e9;
+    System.out.printf("%-34s %6.2fs  %6.1f MB/s%n", name, seconds, bytes / 1e6 / seconds);
+  }
+
+  /** Consumes the counts so that the whole pipeline runs. */
+  static class CountResultsFn extends DoFn<KV<String, Long>, Void> {
+    private final Counter words = Metrics.counter(WordCountBenchmark.class, "distinctWords");
+
+    @ProcessElement
+    public void processElement() {
+      words.inc();
+    }
+  }
+}
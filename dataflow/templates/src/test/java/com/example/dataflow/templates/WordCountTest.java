@@ -0,0 +1,111 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.example.dataflow.templates;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.beam.sdk.options.ValueProvider.StaticValueProvider;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests that {@link WordCount#countWords} counts like splitting lines on {@code [^\p{L}]+}. */
+@RunWith(JUnit4.class)
+public class WordCountTest {
+
+  // U+1D49C, a letter outside the Basic Multilingual Plane, and U+1F600, an emoji.
+  private static final String SCRIPT_A = "\ud835\udc9c";
+  private static final String EMOJI = "\ud83d\ude00";
+
+  // Accented, German and Japanese words, separated by punctuation, an em dash and an underscore.
+  private static final List<String> LINES = Arrays.asList(
+      "Caf\u00e9 CAF\u00c9 caf\u00e9, na\u00efve\u2014\u00d1and\u00fa!",
+      SCRIPT_A + "lpha " + EMOJI + " beta" + SCRIPT_A + " " + SCRIPT_A + EMOJI + SCRIPT_A,
+      "Stra\u00dfe STRASSE stra\u00dfe 123 umlaut_\u00dcmlaut",
+      "\u65e5\u672c\u8a9e \u30c6\u30ad\u30b9\u30c8 \u65e5\u672c\u8a9e",
+      "",
+      "   ,;  ");
+
+  @Rule public final transient TestPipeline pipeline = TestPipeline.create();
+
+  /** Counts {@link #LINES} the way the template did before it scanned lines itself. */
+  private static List<KV<String, Long>> regexBaseline(String substring, boolean isCaseSensitive) {
+    String filter = isCaseSensitive ? substring : substring.toLowerCase();
+    Map<String, Long> counts = new TreeMap<>();
+    for (String line : LINES) {
+      for (String word : line.split("[^\\p{L}]+")) {
+        if (!isCaseSensitive) {
+          word = word.toLowerCase();
+        }
+        if (!word.isEmpty() && word.contains(filter)) {
+          counts.merge(word, 1L, Long::sum);
+        }
+      }
+    }
+    List<KV<String, Long>> expected = new ArrayList<>();
+    counts.forEach((word, count) -> expected.add(KV.of(word, count)));
+    return expected;
+  }
+
+  private PCollection<KV<String, Long>> countWords(String substring, boolean isCaseSensitive) {
+    return pipeline
+        .apply(Create.of(LINES))
+        .apply(WordCount.countWords(StaticValueProvider.of(substring), isCaseSensitive, 0));
+  }
+
+  @Test
+  public void caseSensitive_matchesRegexBaseline() {
+    PAssert.that(countWords("", true)).containsInAnyOrder(regexBaseline("", true));
+    pipeline.run().waitUntilFinish();
+  }
+
+  @Test
+  public void caseInsensitive_matchesRegexBaseline() {
+    PAssert.that(countWords("", false)).containsInAnyOrder(regexBaseline("", false));
+    pipeline.run().waitUntilFinish();
+  }
+
+  @Test
+  public void substring_matchesRegexBaseline() {
+    PAssert.that(countWords("\u00c9", false)).containsInAnyOrder(regexBaseline("\u00c9", false));
+    PAssert.that(countWords("\u00df", true)).containsInAnyOrder(regexBaseline("\u00df", true));
+    pipeline.run().waitUntilFinish();
+  }
+
+  @Test
+  public void surrogatePairs_areOneLetter() {
+    // The emoji separates words, the script letter is part of them.
+    PAssert.that(countWords(SCRIPT_A, true))
+        .containsInAnyOrder(
+            KV.of(SCRIPT_A + "lpha", 1L), KV.of("beta" + SCRIPT_A, 1L), KV.of(SCRIPT_A, 2L));
+    pipeline.run().waitUntilFinish();
+  }
+
+  @Test
+  public void caseInsensitive_mergesWordsAndLowercasesSubstring() {
+    PAssert.that(countWords("\u00c9", false)).containsInAnyOrder(KV.of("caf\u00e9", 3L));
+    PAssert.that(countWords("\u00c9", true)).containsInAnyOrder(KV.of("CAF\u00c9", 1L));
+    pipeline.run().waitUntilFinish();
+  }
+}
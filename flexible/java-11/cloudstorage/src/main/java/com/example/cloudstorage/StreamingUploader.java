@@ -0,0 +1,228 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.cloudstorage;
+
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.Storage.BlobTargetOption;
+import com.google.cloud.storage.Storage.ComposeRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.zip.CRC32C;
+
+/**
+ * Uploads a stream to Cloud Storage without holding all of it in memory, and checks that the
+ * stored object has the CRC32C of the bytes read.
+ *
+ * <p>Streams expected to be smaller than {@code compositeThreshold} are written to a resumable
+ * upload, which sends them in chunks of {@code chunkSize} bytes. Larger ones are cut into parts
+ * of {@code partSize} bytes, which are uploaded on {@code parallelism} threads and then composed
+ * into the object; the parts are deleted afterwards, whether the upload succeeds or not. Either
+ * way, an upload holds at most {@code max(chunkSize, parallelism * partSize)} bytes.
+ */
+public class StreamingUploader {
+
+  // A compose request takes at most 32 sources.
+  static final int MAX_COMPOSE_SOURCES = 32;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Storage storage;
+  private final int chunkSize;
+  private final long compositeThreshold;
+  private final int partSize;
+  private final int parallelism;
+  private final ExecutorService executor;
+
+  /**
+   * Creates an uploader.
+   *
+   * @param chunkSize the bytes sent by each request of a resumable upload, a multiple of 256 KiB
+   * @param compositeThreshold the expected size above which parts are uploaded in parallel
+   * @param partSize the size of each part of a parallel upload
+   * @param parallelism the most parts of an upload in memory and uploading at once
+   * @param executor runs the uploads of the parts
+   */
+  public StreamingUploader(
+      Storage storage,
+      int chunkSize,
+      long compositeThreshold,
+      int partSize,
+      int parallelism,
+      ExecutorService executor) {
+    this.storage = storage;
+    this.chunkSize = chunkSize;
+    this.compositeThreshold = compositeThreshold;
+    this.partSize = partSize;
+    this.parallelism = parallelism;
+    this.executor = executor;
+  }
+
+  /**
+   * Uploads a stream to an object.
+   *
+   * @param expectedSize the size of the stream if known, or an estimate, or -1
+   * @return the uploaded object
+   * @throws IOException if reading or uploading fails, or the object stored has another CRC32C
+   */
+  public Blob upload(BlobInfo info, InputStream in, long expectedSize) throws IOException {
+    return expectedSize > compositeThreshold ? uploadParallel(info, in) : uploadResumable(info, in);
+  }
+
+  Blob uploadResumable(BlobInfo info, InputStream in) throws IOException {
+    CRC32C crc = new CRC32C();
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (WriteChannel writer = storage.writer(info)) {
+      writer.setChunkSize(chunkSize);
+      for (int read; (read = in.read(buffer)) >= 0; ) {
+        crc.update(buffer, 0, read);
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+        while (bytes.hasRemaining()) {
+          writer.write(bytes);
+        }
+      }
+    }
+    return verify(info, storage.get(info.getBlobId()), crc);
+  }
+
+  Blob uploadParallel(BlobInfo info, InputStream in) throws IOException {
+    String prefix = info.getName() + ".part-" + UUID.randomUUID() + "-";
+    CRC32C crc = new CRC32C();
+    Semaphore inFlight = new Semaphore(parallelism);
+    List<Future<String>> uploads = new ArrayList<>();
+    List<BlobId> temporaries = new ArrayList<>();
+    try {
+      for (int index = 0; ; index++) {
+        inFlight.acquire();
+        byte[] part = new byte[partSize];
+        int length = in.readNBytes(part, 0, partSize);
+        if (length == 0 && index > 0) {
+          inFlight.release();
+          break;
+        }
+        crc.update(part, 0, length);
+        BlobInfo partInfo =
+            BlobInfo.newBuilder(info.getBucket(), prefix + index)
+                .setCrc32c(crc32c(part, length))
+                .build();
+        temporaries.add(partInfo.getBlobId());
+        uploads.add(
+            executor.submit(() -> {
+              try {
+                // Cloud Storage rejects the part if it does not have the CRC32C given.
+                storage.create(partInfo, part, 0, length, BlobTargetOption.crc32cMatch());
+                return partInfo.getName();
+              } finally {
+                inFlight.release();
+              }
+            }));
+        if (length < partSize) {
+          break;
+        }
+      }
+      List<String> parts = new ArrayList<>(uploads.size());
+      for (Future<String> upload : uploads) {
+        parts.add(upload.get());
+      }
+      return verify(info, compose(info, parts, prefix, temporaries), crc);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted uploading " + info.getName());
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to upload a part of " + info.getName(), e.getCause());
+    } finally {
+      // Wait for the parts still uploading, so that they can be deleted.
+      awaitQuietly(uploads);
+      storage.delete(temporaries);
+    }
+  }
+
+  private static void awaitQuietly(List<Future<String>> uploads) {
+    boolean interrupted = false;
+    for (Future<String> upload : uploads) {
+      while (true) {
+        try {
+          upload.get();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          break;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Composes parts into an object, through intermediate objects if there are too many. */
+  private Blob compose(
+      BlobInfo target, List<String> sources, String prefix, List<BlobId> temporaries) {
+    for (int round = 0; sources.size() > MAX_COMPOSE_SOURCES; round++) {
+      List<String> composed = new ArrayList<>();
+      for (int i = 0; i < sources.size(); i += MAX_COMPOSE_SOURCES) {
+        List<String> group = sources.subList(i, Math.min(i + MAX_COMPOSE_SOURCES, sources.size()));
+        BlobInfo intermediate =
+            BlobInfo.newBuilder(target.getBucket(), prefix + "r" + round + "-" + composed.size())
+                .build();
+        temporaries.add(intermediate.getBlobId());
+        storage.compose(
+            ComposeRequest.newBuilder().addSource(group).setTarget(intermediate).build());
+        composed.add(intermediate.getName());
+      }
+      sources = composed;
+    }
+    return storage.compose(
+        ComposeRequest.newBuilder().addSource(sources).setTarget(target).build());
+  }
+
+  /** Returns the object if it has the CRC32C computed while reading, or deletes it. */
+  private Blob verify(BlobInfo info, Blob blob, CRC32C crc) throws IOException {
+    String expected = crc32c(crc.getValue());
+    if (blob == null || !expected.equals(blob.getCrc32c())) {
+      storage.delete(info.getBlobId());
+      throw new IOException(
+          "CRC32C mismatch for " + info.getName() + ": read " + expected + ", stored "
+              + (blob == null ? "nothing" : blob.getCrc32c()));
+    }
+    return blob;
+  }
+
+  private static String crc32c(byte[] bytes, int length) {
+    CRC32C crc = new CRC32C();
+    crc.update(bytes, 0, length);
+    return crc32c(crc.getValue());
+  }
+
+  /** Returns a CRC32C the way Cloud Storage shows it, as the base64 of its 4 big-endian bytes. */
+  static String crc32c(long value) {
+    return Base64.getEncoder().encodeToString(ByteBuffer.allocate(4).putInt((int) value).array());
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.cloudstorage;
+
+import com.google.cloud.storage.Acl;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageOptions;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+
+/**
+ * Uploads the file of a multipart form to Cloud Storage while it is being received.
+ *
+ * <p>Unlike {@link UploadServlet}, it has no {@code @MultipartConfig}, so the container does not
+ * save the file before the servlet runs: the form is parsed from the request body as it arrives,
+ * and the file is handed to a {@link StreamingUploader}. Uploads are tuned with environment
+ * variables:
+ *
+ * <ul>
+ *   <li>{@code UPLOAD_CHUNK_SIZE}: the bytes of each request of a resumable upload, default 8 MiB
+ *   <li>{@code PARALLEL_UPLOAD_THRESHOLD}: the request size above which a file is uploaded in
+ *       parallel parts, default 64 MiB
+ *   <li>{@code PARALLEL_UPLOAD_PART_SIZE}: the size of each part, default 16 MiB
+ *   <li>{@code PARALLEL_UPLOAD_PARTS}: the parts of an upload uploading at once, default 4
+ * </ul>
+ */
+@SuppressWarnings("serial")
+@WebServlet(name = "streamingUpload", value = "/upload/stream")
+public class StreamingUploadServlet extends HttpServlet {
+
+  private static final String BUCKET_NAME =
+      System.getenv().getOrDefault("BUCKET_NAME", "my-test-bucket");
+  private static final int PARALLEL_UPLOAD_PARTS = intEnv("PARALLEL_UPLOAD_PARTS", 4);
+
+  private final ExecutorService executor =
+      Executors.newFixedThreadPool(4 * PARALLEL_UPLOAD_PARTS);
+  private final StreamingUploader uploader;
+
+  public StreamingUploadServlet() {
+    Storage storage = StorageOptions.getDefaultInstance().getService();
+    uploader =
+        new StreamingUploader(
+            storage,
+            intEnv("UPLOAD_CHUNK_SIZE", 8 << 20),
+            intEnv("PARALLEL_UPLOAD_THRESHOLD", 64 << 20),
+            intEnv("PARALLEL_UPLOAD_PART_SIZE", 16 << 20),
+            PARALLEL_UPLOAD_PARTS,
+            executor);
+  }
+
+  private static int intEnv(String name, int defaultValue) {
+    String value = System.getenv(name);
+    return value == null ? defaultValue : Integer.parseInt(value);
+  }
+
+  @Override
+  public void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    if (!ServletFileUpload.isMultipartContent(req)) {
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Expected a multipart form");
+      return;
+    }
+    try {
+      FileItemIterator items = new ServletFileUpload().getItemIterator(req);
+      while (items.hasNext()) {
+        FileItemStream item = items.next();
+        if (!"file".equals(item.getFieldName()) || item.isFormField()) {
+          continue;
+        }
+        BlobInfo info =
+            BlobInfo.newBuilder(BUCKET_NAME, item.getName())
+                .setContentType(item.getContentType())
+                // Allow all users with link to read file
+                .setAcl(Collections.singletonList(Acl.of(Acl.User.ofAllUsers(), Acl.Role.READER)))
+                .build();
+        Blob blob;
+        try (InputStream in = item.openStream()) {
+          // The body also holds the form around the file, but is close enough to its size.
+          blob = uploader.upload(info, in, req.getContentLengthLong());
+        }
+        // return the public download link
+        resp.getWriter().print(blob.getMediaLink());
+        return;
+      }
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "No file in the form");
+    } catch (FileUploadException e) {
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed form: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.cloudstorage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.Storage.BlobTargetOption;
+import com.google.cloud.storage.Storage.ComposeRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32C;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class StreamingUploaderTest {
+
+  private static final BlobInfo INFO = BlobInfo.newBuilder("bucket", "file.bin").build();
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+  private final Map<String, byte[]> parts = new ConcurrentHashMap<>();
+  private Storage storage;
+
+  @Before
+  public void setUp() {
+    storage = mock(Storage.class);
+    when(storage.create(
+            any(BlobInfo.class), any(byte[].class), anyInt(), anyInt(),
+            any(BlobTargetOption.class)))
+        .thenAnswer(invocation -> {
+          BlobInfo part = invocation.getArgument(0);
+          byte[] content = invocation.getArgument(1);
+          int offset = invocation.getArgument(2);
+          int length = invocation.getArgument(3);
+          parts.put(part.getName(), Arrays.copyOfRange(content, offset, offset + length));
+          return null;
+        });
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  private static byte[] data(int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (i * 31);
+    }
+    return data;
+  }
+
+  private static Blob blobWithCrc32c(byte[] data) {
+    CRC32C crc = new CRC32C();
+    crc.update(data);
+    Blob blob = mock(Blob.class);
+    when(blob.getCrc32c()).thenReturn(StreamingUploader.crc32c(crc.getValue()));
+    return blob;
+  }
+
+  @Test
+  public void smallUploadIsStreamedInChunks() throws Exception {
+    byte[] data = data(200_000);
+    ByteArrayOutputStream written = new ByteArrayOutputStream();
+    WriteChannel writer = mock(WriteChannel.class);
+    when(writer.write(any(ByteBuffer.class))).thenAnswer(invocation -> {
+      ByteBuffer bytes = invocation.getArgument(0);
+      int length = bytes.remaining();
+      byte[] chunk = new byte[length];
+      bytes.get(chunk);
+      written.write(chunk);
+      return length;
+    });
+    when(storage.writer(INFO)).thenReturn(writer);
+    Blob blob = blobWithCrc32c(data);
+    when(storage.get(INFO.getBlobId())).thenReturn(blob);
+
+    StreamingUploader uploader = new StreamingUploader(storage, 256 * 1024, 1_000_000, 0, 1, null);
+
+    assertSame(blob, uploader.upload(INFO, new ByteArrayInputStream(data), data.length));
+    assertArrayEquals(data, written.toByteArray());
+    verify(writer).setChunkSize(256 * 1024);
+    verify(writer).close();
+  }
+
+  @Test
+  public void mismatchedChecksumDeletesTheObject() {
+    WriteChannel writer = mock(WriteChannel.class);
+    when(storage.writer(INFO)).thenReturn(writer);
+    Blob blob = blobWithCrc32c(new byte[] {1});
+    when(storage.get(INFO.getBlobId())).thenReturn(blob);
+
+    StreamingUploader uploader = new StreamingUploader(storage, 256 * 1024, 1_000_000, 0, 1, null);
+
+    assertThrows(
+        IOException.class, () -> uploader.upload(INFO, new ByteArrayInputStream(new byte[0]), 0));
+    verify(storage).delete(INFO.getBlobId());
+  }
+
+  @Test
+  public void largeUploadIsComposedFromParts() throws Exception {
+    byte[] data = data(25);
+    Blob blob = blobWithCrc32c(data);
+    when(storage.compose(any(ComposeRequest.class))).thenReturn(blob);
+
+    StreamingUploader uploader = new StreamingUploader(storage, 256 * 1024, 0, 10, 2, executor);
+
+    assertSame(blob, uploader.upload(INFO, new ByteArrayInputStream(data), data.length));
+    ArgumentCaptor<ComposeRequest> compose = ArgumentCaptor.forClass(ComposeRequest.class);
+    verify(storage).compose(compose.capture());
+    assertEquals("file.bin", compose.getValue().getTarget().getName());
+    ByteArrayOutputStream composed = new ByteArrayOutputStream();
+    List<ComposeRequest.SourceBlob> sources = compose.getValue().getSourceBlobs();
+    assertEquals(3, sources.size());
+    for (ComposeRequest.SourceBlob source : sources) {
+      composed.write(parts.get(source.getName()));
+    }
+    assertArrayEquals(data, composed.toByteArray());
+    verify(storage).delete(anyIterable());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void manyPartsAreComposedInRounds() throws Exception {
+    byte[] data = data(40);
+    Blob blob = blobWithCrc32c(data);
+    when(storage.compose(any(ComposeRequest.class))).thenReturn(blob);
+
+    StreamingUploader uploader = new StreamingUploader(storage, 256 * 1024, 0, 1, 4, executor);
+
+    assertSame(blob, uploader.upload(INFO, new ByteArrayInputStream(data), data.length));
+    assertEquals(40, parts.size());
+    // Two intermediate objects of 32 and 8 parts, then the object from those two.
+    verify(storage, times(3)).compose(any(ComposeRequest.class));
+    ArgumentCaptor<Iterable<BlobId>> deleted = ArgumentCaptor.forClass(Iterable.class);
+    verify(storage).delete(deleted.capture());
+    int count = 0;
+    for (BlobId unused : deleted.getValue()) {
+      count++;
+    }
+    assertEquals(42, count);
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.cloudstorage;
+
+import com.google.cloud.NoCredentials;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.BucketInfo;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageOptions;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Uploads generated files of several sizes to a local fake Cloud Storage server with the single
+ * request of {@link UploadServlet}, and with the resumable and parallel uploads of {@link
+ * StreamingUploader}, and reports the throughput and the peak heap of each.
+ *
+ * <pre>
+ * docker run -d -p 4443:4443 fsouza/fake-gcs-server \
+ *     -scheme http -external-url http://localhost:4443
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.cloudstorage.UploadBenchmark \
+ *     -Dexec.args="http://localhost:4443 1 64 1024 5120"
+ * </pre>
+ *
+ * <p>The arguments are the address of the server, then the sizes of the files in MiB. Run with
+ * a heap large enough for the single request mode, or leave it out for the largest sizes by
+ * setting {@code -Dbenchmark.modes=resumable,parallel}.
+ */
+public class UploadBenchmark {
+
+  private static final String BUCKET = "upload-benchmark";
+
+  @SuppressWarnings("deprecation") // The single request upload of UploadServlet.
+  public static void main(String[] args) throws Exception {
+    String host = args.length > 0 ? args[0] : "http://localhost:4443";
+    String modes = System.getProperty("benchmark.modes", "create,resumable,parallel");
+    Storage storage =
+        StorageOptions.newBuilder()
+            .setHost(host)
+            .setProjectId("benchmark")
+            .setCredentials(NoCredentials.getInstance())
+            .build()
+            .getService();
+    if (storage.get(BUCKET) == null) {
+      storage.create(BucketInfo.of(BUCKET));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    StreamingUploader resumable =
+        new StreamingUploader(storage, 8 << 20, Long.MAX_VALUE, 16 << 20, 4, executor);
+    StreamingUploader parallel = new StreamingUploader(storage, 8 << 20, -1, 16 << 20, 4, executor);
+
+    System.out.printf("%-10s %9s %10s %14s%n", "mode", "size MiB", "MiB/s", "peak heap MiB");
+    try {
+      for (int i = 1; i < Math.max(args.length, 2); i++) {
+        long size = (args.length > 1 ? Long.parseLong(args[i]) : 64) << 20;
+        for (String mode : modes.split(",")) {
+          BlobInfo info = BlobInfo.newBuilder(BUCKET, mode + "-" + size).build();
+          System.gc();
+          resetPeakHeap();
+          long start = System.nanoTime();
+          try (InputStream in = new GeneratedInputStream(size)) {
+            switch (mode) {
+              case "create":
+                storage.create(info, in);
+                break;
+              case "resumable":
+                resumable.upload(info, in, size);
+                break;
+              default:
+                parallel.upload(info, in, size);
+                break;
+            }
+          }
+          long elapsedNanos = System.nanoTime() - start;
+          System.out.printf(
+              "%-10s %9d %10.1f %14d%n",
+              mode, size >> 20, (size >> 20) / (elapsedNanos / 1e9), peakHeap() >> 20);
+          storage.delete(info.getBlobId());
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void resetPeakHeap() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  /** Returns the sum of the peak usage of the heap pools, an upper bound of the peak heap. */
+  private static long peakHeap() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  /** Reads some random looking bytes, without holding more than a megabyte of them. */
+  private static class GeneratedInputStream extends InputStream {
+    private static final byte[] BLOCK = new byte[1 << 20];
+
+    static {
+      new Random(42).nextBytes(BLOCK);
+    }
+
+    private long remaining;
+
+    GeneratedInputStream(long size) {
+      this.remaining = size;
+    }
+
+    @Override
+    public int read() {
+      if (remaining == 0) {
+        return -1;
+      }
+      remaining--;
+      return BLOCK[(int) (remaining % BLOCK.length)] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+      if (remaining == 0) {
+        return -1;
+      }
+      int position = (int) (remaining % BLOCK.length);
+      int count = (int) Math.min(Math.min(length, remaining), BLOCK.length - position);
+      System.arraycopy(BLOCK, position, buffer, offset, count);
+      remaining -= count;
+      return count;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.flexible.websocket.jettynative;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+/**
+ * Sends every published message to all the subscribed sessions.
+ *
+ * <p>Messages are sent with asynchronous writes, so publishing never waits for a subscriber.
+ * Each subscriber has at most one write in progress and a queue of up to {@code
+ * maxQueuedMessages} messages behind it; a subscriber whose queue is full when a message is
+ * published reads too slowly to keep up, and is closed and removed rather than letting its queue
+ * grow without bound.
+ */
+public class BroadcastHub {
+  private static final Logger logger = Logger.getLogger(BroadcastHub.class.getName());
+
+  private final int maxQueuedMessages;
+  private final Map<Session, Subscriber> subscribers = new ConcurrentHashMap<>();
+
+  private final LongAdder published = new LongAdder();
+  private final LongAdder delivered = new LongAdder();
+  private final LongAdder evicted = new LongAdder();
+
+  public BroadcastHub(int maxQueuedMessages) {
+    this.maxQueuedMessages = maxQueuedMessages;
+  }
+
+  /** Starts sending the messages published from now on to a session. */
+  public void subscribe(Session session) {
+    subscribers.put(session, new Subscriber(session));
+    logger.fine("Subscribed: " + session.getRemoteAddress());
+  }
+
+  /** Stops sending messages to a session, for example when it is closed. */
+  public void unsubscribe(Session session) {
+    subscribers.remove(session);
+  }
+
+  /** Queues a message to be sent to every subscriber. */
+  public void publish(String message) {
+    published.increment();
+    for (Subscriber subscriber : subscribers.values()) {
+      subscriber.offer(message);
+    }
+  }
+
+  /** Returns the number of subscribed sessions. */
+  public int subscribers() {
+    return subscribers.size();
+  }
+
+  /** Returns the number of messages published. */
+  public long published() {
+    return published.sum();
+  }
+
+  /** Returns the number of messages written to subscribers. */
+  public long delivered() {
+    return delivered.sum();
+  }
+
+  /** Returns the number of subscribers closed for reading too slowly. */
+  public long evicted() {
+    return evicted.sum();
+  }
+
+  /** A session and the messages waiting to be written to it. */
+  private class Subscriber implements WriteCallback {
+    private final Session session;
+    private final Queue<String> queue = new ArrayDeque<>();
+    private boolean writing;
+
+    Subscriber(Session session) {
+      this.session = session;
+    }
+
+    void offer(String message) {
+      boolean full;
+      synchronized (this) {
+        if (writing && queue.size() < maxQueuedMessages) {
+          queue.add(message);
+          return;
+        }
+        full = writing;
+        writing = true;
+      }
+      if (full) {
+        evict();
+      } else {
+        write(message);
+      }
+    }
+
+    private void write(String message) {
+      try {
+        session.getRemote().sendString(message, this);
+      } catch (RuntimeException e) {
+        // The session is closing.
+        writeFailed(e);
+      }
+    }
+
+    @Override
+    public void writeSuccess() {
+      delivered.increment();
+      String next;
+      synchronized (this) {
+        next = queue.poll();
+        if (next == null) {
+          writing = false;
+          return;
+        }
+      }
+      write(next);
+    }
+
+    @Override
+    public void writeFailed(Throwable failure) {
+      logger.fine("Failed to write to " + session.getRemoteAddress() + ": " + failure);
+      unsubscribe(session);
+    }
+
+    private void evict() {
+      if (subscribers.remove(session, this)) {
+        evicted.increment();
+        logger.info("Closing slow subscriber " + session.getRemoteAddress());
+        session.close(StatusCode.POLICY_VIOLATION, "Too slow");
+      }
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.flexible.websocket.jettynative;
+
+import java.util.concurrent.TimeUnit;
+import javax.servlet.annotation.WebServlet;
+import org.eclipse.jetty.websocket.servlet.ServletUpgradeRequest;
+import org.eclipse.jetty.websocket.servlet.ServletUpgradeResponse;
+import org.eclipse.jetty.websocket.servlet.WebSocketCreator;
+import org.eclipse.jetty.websocket.servlet.WebSocketServlet;
+import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
+
+/*
+ * Server-side WebSocket upgraded on /broadcast servlet: every message received on a connection is
+ * sent to all the connections.
+ */
+@SuppressWarnings("serial")
+@WebServlet(
+    name = "Broadcast WebSocket Servlet",
+    urlPatterns = {"/broadcast"})
+public class BroadcastServlet extends WebSocketServlet implements WebSocketCreator {
+  // Subscribers more than 256 messages behind are disconnected.
+  static final BroadcastHub HUB = new BroadcastHub(256);
+
+  @Override
+  public void configure(WebSocketServletFactory factory) {
+    // Subscribers may only listen, so do not close them after the default 5 minutes of silence.
+    factory.getPolicy().setIdleTimeout(TimeUnit.HOURS.toMillis(1));
+    factory.setCreator(this);
+  }
+
+  @Override
+  public Object createWebSocket(
+      ServletUpgradeRequest servletUpgradeRequest, ServletUpgradeResponse servletUpgradeResponse) {
+    return new BroadcastSocket(HUB);
+  }
+}
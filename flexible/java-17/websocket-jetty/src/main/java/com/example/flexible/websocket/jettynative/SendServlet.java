@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -34,12 +35,18 @@ import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
 import org.eclipse.jetty.websocket.client.WebSocketClient;
 
 @WebServlet("/send")
-/** Servlet that sends the message sent over POST to over a websocket connection. */
+/**
+ * Servlet that sends the message sent over POST to over a websocket connection. The connection
+ * is opened by the first POST and kept for the next ones, and reopened if it closes.
+ */
 public class SendServlet extends HttpServlet {
 
   private Logger logger = Logger.getLogger(SendServlet.class.getName());
 
   private static final String ENDPOINT = "/echo";
+  private static final String BROADCAST_ENDPOINT = "/broadcast";
+  private static final long CONNECT_TIMEOUT_SECONDS = 10;
+  private static final long SEND_TIMEOUT_SECONDS = 10;
   private static final String WEBSOCKET_PROTOCOL_PREFIX = "ws://";
   private static final String WEBSOCKET_HTTPS_PROTOCOL_PREFIX = "wss://";
   private static final String APPENGINE_HOST_SUFFIX = ".appspot.com";
@@ -54,6 +61,7 @@ public class SendServlet extends HttpServlet {
   private final HttpClient httpClient;
   private final WebSocketClient webSocketClient;
   private final ClientSocket clientSocket;
+  private Session session;
 
   public SendServlet() {
     this.httpClient = createHttpClient();
@@ -92,6 +100,22 @@ public class SendServlet extends HttpServlet {
   }
 
   private void sendMessageOverWebSocket(String message) throws Exception {
+    Session current = getSession();
+    try {
+      // Send a message, without blocking other senders of the same session.
+      current.getRemote().sendStringByFuture(message).get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      // Open a new connection for the next message.
+      current.close();
+      throw e;
+    }
+  }
+
+  /** Returns the open connection to the broadcast endpoint, connecting if there is none. */
+  private synchronized Session getSession() throws Exception {
+    if (session != null && session.isOpen()) {
+      return session;
+    }
     if (!httpClient.isRunning()) {
       try {
         httpClient.start();
@@ -109,13 +133,21 @@ public class SendServlet extends HttpServlet {
     ClientUpgradeRequest request = new ClientUpgradeRequest();
     // Attempt connection
     Future<Session> future =
-        webSocketClient.connect(clientSocket, new URI(getWebSocketAddress()), request);
+        webSocketClient.connect(
+            clientSocket, new URI(getWebSocketAddress(BROADCAST_ENDPOINT)), request);
     // Wait for Connect
-    Session session = future.get();
-    // Send a message
-    session.getRemote().sendString(message);
-    // Close session
-    session.close();
+    session = future.get(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    return session;
+  }
+
+  @Override
+  public void destroy() {
+    try {
+      webSocketClient.stop();
+      httpClient.stop();
+    } catch (Exception e) {
+      logger.warning("Error stopping the websocket client: " + e.getMessage());
+    }
   }
 
   /**
@@ -123,6 +155,11 @@ public class SendServlet extends HttpServlet {
    * engine Flex environments, result will be in the form wss://project-id.appspot.com/echo
    */
   public static String getWebSocketAddress() {
+    return getWebSocketAddress(ENDPOINT);
+  }
+
+  /** Returns the address of an endpoint of the server, like {@link #getWebSocketAddress()}. */
+  public static String getWebSocketAddress(String endpoint) {
     // Use ws://127.0.0.1:8080/echo when testing locally
     String webSocketHost = "127.0.0.1:8080";
     String webSocketProtocolPrefix = WEBSOCKET_PROTOCOL_PREFIX;
@@ -138,6 +175,6 @@ public class SendServlet extends HttpServlet {
       // Use wss:// instead of ws:// protocol when connecting over https
       webSocketProtocolPrefix = WEBSOCKET_HTTPS_PROTOCOL_PREFIX;
     }
-    return webSocketProtocolPrefix + webSocketHost + ENDPOINT;
+    return webSocketProtocolPrefix + webSocketHost + endpoint;
   }
 }
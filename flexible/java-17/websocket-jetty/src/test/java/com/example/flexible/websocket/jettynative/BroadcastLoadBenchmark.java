@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.flexible.websocket.jettynative;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
+import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+
+/**
+ * Connects many subscribers to {@link BroadcastServlet} in an embedded server, publishes
+ * messages at a fixed rate, and reports how many messages per second reach the subscribers and
+ * how long after publishing they arrive.
+ *
+ * <pre>
+ * ulimit -n 65536
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.flexible.websocket.jettynative.BroadcastLoadBenchmark \
+ *     -Dexec.args="10000 100 20"
+ * </pre>
+ *
+ * <p>The arguments are the number of subscribers, the messages published per second and the
+ * duration in seconds. Subscribers and server share a JVM, so each message carries the {@link
+ * System#nanoTime} of its publication.
+ */
+public class BroadcastLoadBenchmark {
+
+  // Latencies are counted in buckets of powers of two microseconds.
+  private static final AtomicLongArray latencyBuckets = new AtomicLongArray(40);
+  private static final LongAdder received = new LongAdder();
+
+  /** Records the latency of every message it receives. */
+  @WebSocket(maxTextMessageSize = 64 * 1024)
+  public static class Subscriber {
+    @OnWebSocketMessage
+    public void onMessage(String message) {
+      long sentNanos = Long.parseLong(message.substring(0, message.indexOf(' ')));
+      long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentNanos));
+      latencyBuckets.incrementAndGet(63 - Long.numberOfLeadingZeros(micros));
+      received.increment();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    int subscribers = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+    int rate = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+    int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+    Server server = new Server(0);
+    ServletContextHandler context = new ServletContextHandler();
+    context.addServlet(BroadcastServlet.class, "/broadcast");
+    server.setHandler(context);
+    server.start();
+    URI uri =
+        new URI("ws://localhost:"
+            + ((ServerConnector) server.getConnectors()[0]).getLocalPort() + "/broadcast");
+
+    HttpClient httpClient = new HttpClient();
+    httpClient.setMaxConnectionsPerDestination(subscribers + 1);
+    WebSocketClient client = new WebSocketClient(httpClient);
+    client.getPolicy().setIdleTimeout(TimeUnit.MINUTES.toMillis(10));
+    httpClient.start();
+    client.start();
+    try {
+      long connectStart = System.nanoTime();
+      List<Future<Session>> connections = new ArrayList<>(subscribers);
+      for (int i = 0; i < subscribers; i++) {
+        connections.add(client.connect(new Subscriber(), uri));
+        // Connect in batches, so as not to overflow the accept queue.
+        if (connections.size() % 500 == 0) {
+          connections.get(connections.size() - 1).get(1, TimeUnit.MINUTES);
+        }
+      }
+      for (Future<Session> connection : connections) {
+        connection.get(1, TimeUnit.MINUTES);
+      }
+      System.out.printf(
+          "Connected %d subscribers in %d ms%n",
+          BroadcastServlet.HUB.subscribers(),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectStart));
+
+      Session publisher = client.connect(new Subscriber(), uri).get(1, TimeUnit.MINUTES);
+      String payload = new String(new char[100]).replace('\0', 'x');
+      long start = System.nanoTime();
+      long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+      for (long i = 0; i < (long) rate * seconds; i++) {
+        long due = start + i * intervalNanos;
+        while (System.nanoTime() < due) {
+          Thread.sleep(0, 100_000);
+        }
+        publisher.getRemote().sendStringByFuture(System.nanoTime() + " " + payload);
+      }
+      // Let the last messages arrive.
+      Thread.sleep(2000);
+      long elapsedNanos = System.nanoTime() - start;
+
+      System.out.printf(
+          "Published %d messages, delivered %.0f messages/s, %d subscribers evicted%n",
+          BroadcastServlet.HUB.published(),
+          received.sum() / (elapsedNanos / 1e9),
+          BroadcastServlet.HUB.evicted());
+      System.out.printf(
+          "Delivery latency: p50 < %d us, p99 < %d us, p99.9 < %d us%n",
+          percentile(0.5), percentile(0.99), percentile(0.999));
+    } finally {
+      client.stop();
+      httpClient.stop();
+      server.stop();
+    }
+  }
+
+  /** Returns the upper bound of the bucket that holds a percentile of the latencies. */
+  private static long percentile(double fraction) {
+    long total = received.sum();
+    long count = 0;
+    for (int bucket = 0; bucket < latencyBuckets.length(); bucket++) {
+      count += latencyBuckets.get(bucket);
+      if (count >= total * fraction) {
+        return 2L << bucket;
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+}
@@ -46,12 +46,15 @@ public class AbstractRestServlet extends HttpServlet {
 
   protected static final String APPKEY = "com.google.appengine.demos.asyncrest.appKey";
   protected static final String APPKEY_ENV = "PLACES_APPKEY";
+  protected static final String PLACES_URL = "com.google.appengine.demos.asyncrest.placesUrl";
+  protected static final String DEFAULT_PLACES_URL = "https://maps.googleapis.com/maps/api/place";
   protected static final String LOC_PARAM = "loc";
   protected static final String ITEMS_PARAM = "items";
   protected static final String LATITUDE_PARAM = "lat";
   protected static final String LONGITUDE_PARAM = "long";
   protected static final String RADIUS_PARAM = "radius";
   protected String key;
+  protected String placesUrl;
 
   @Override
   public void init(ServletConfig servletConfig) throws ServletException {
@@ -72,6 +75,12 @@ public class AbstractRestServlet extends HttpServlet {
     if (key.startsWith("${")) {
       throw new UnavailableException("Places App Key not expanded from " + source);
     }
+
+    // The Places API, or a stand-in for it when testing.
+    placesUrl = servletConfig.getInitParameter(PLACES_URL);
+    if (placesUrl == null) {
+      placesUrl = System.getProperty(PLACES_URL, DEFAULT_PLACES_URL);
+    }
   }
 
   public static String sanitize(String str) {
@@ -83,7 +92,7 @@ public class AbstractRestServlet extends HttpServlet {
 
   protected String restQuery(String coordinates, String radius, String item) {
     try {
-      return "https://maps.googleapis.com/maps/api/place/nearbysearch/json?key=" + key
+      return placesUrl + "/nearbysearch/json?key=" + key
           + "&location=" + URLEncoder.encode(coordinates, "UTF-8")
           + "&types=" + URLEncoder.encode(item, "UTF-8")
           + "&radius=" + URLEncoder.encode(radius, "UTF-8");
@@ -115,7 +124,7 @@ public class AbstractRestServlet extends HttpServlet {
   }
 
   public String getPhotoUrl(String photoref) {
-    return "https://maps.googleapis.com/maps/api/place/photo?key=" + key + "&photoreference=" + photoref
+    return placesUrl + "/photo?key=" + key + "&photoreference=" + photoref
             + "&maxheight=40";
   }
 
@@ -16,59 +16,96 @@
 
 package com.google.appengine.demos.asyncrest;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.eclipse.jetty.client.HttpClient;
-import org.eclipse.jetty.client.api.Response;
-import org.eclipse.jetty.client.api.Result;
-import org.eclipse.jetty.http.HttpMethod;
-import org.eclipse.jetty.util.BufferUtil;
-import org.eclipse.jetty.util.Utf8StringBuilder;
-import org.eclipse.jetty.util.ajax.JSON;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 
 /**
  * Servlet which makes REST calls asynchronously.
  *
+ * <p>The calls go through a {@link RestFanOut}, which limits how many run at once, gives each a
+ * deadline and caches their results. The page is streamed: the results of each keyword are
+ * written as soon as its call completes, and the request completes with the last one. Writes do
+ * not block the threads of the client; see {@link PageWriter}.
+ *
  * <p>May be configured with init parameters:
  * <dl>
  * <dt>appid</dt>
  * <dd>The Google app key to use</dd>
+ * <dt>maxConcurrentCalls</dt>
+ * <dd>The most REST calls running at once, across all requests, default 16</dd>
+ * <dt>callTimeoutMillis</dt>
+ * <dd>How long a REST call may take, default 5000</dd>
+ * <dt>cacheTtlMillis</dt>
+ * <dd>How long the results of a query are reused, default 60000</dd>
  * </dl>
  *
  */
 public class AsyncRestServlet extends AbstractRestServlet {
 
-  static final String RESULTS_ATTR = "com.google.appengine.demos.asyncrest.client";
-  static final String DURATION_ATTR = "com.google.appengine.demos.asyncrest.duration";
-  static final String START_ATTR = "com.google.appengine.demos.asyncrest.start";
+  static final String MAX_CONCURRENT_CALLS = "maxConcurrentCalls";
+  static final String CALL_TIMEOUT_MILLIS = "callTimeoutMillis";
+  static final String CACHE_TTL_MILLIS = "cacheTtlMillis";
+  static final int MAX_CACHED_QUERIES = 1000;
 
   HttpClient client;
+  RestFanOut fanOut;
 
   @Override
   public void init(ServletConfig servletConfig) throws ServletException {
     super.init(servletConfig);
+    int maxConcurrentCalls = intParameter(servletConfig, MAX_CONCURRENT_CALLS, 16);
     SslContextFactory sslContextFactory = new SslContextFactory();
     client = new HttpClient(sslContextFactory);
+    // All the calls go to the same host, so let them all have a connection.
+    client.setMaxConnectionsPerDestination(maxConcurrentCalls);
 
     try {
       client.start();
     } catch (Exception e) {
       throw new ServletException(e);
     }
+    fanOut =
+        new RestFanOut(
+            client,
+            maxConcurrentCalls,
+            intParameter(servletConfig, CALL_TIMEOUT_MILLIS, 5000),
+            intParameter(servletConfig, CACHE_TTL_MILLIS, 60000),
+            MAX_CACHED_QUERIES);
+  }
+
+  private static int intParameter(ServletConfig servletConfig, String name, int defaultValue) {
+    String value = servletConfig.getInitParameter(name);
+    return value == null ? defaultValue : Integer.parseInt(value);
+  }
+
+  @Override
+  public void destroy() {
+    try {
+      client.stop();
+    } catch (Exception e) {
+      log("Failed to stop the HTTP client", e);
+    }
   }
 
-  @SuppressWarnings("unchecked")
   @Override
   protected void doGet(HttpServletRequest request, HttpServletResponse response)
           throws ServletException, IOException {
@@ -78,148 +115,183 @@ public class AsyncRestServlet extends AbstractRestServlet {
       return;
     }
 
-    Long start = System.nanoTime();
-
-    // Do we have results yet?
-    Queue<Map<String, Object>> results =
-        (Queue<Map<String, Object>>) request.getAttribute(RESULTS_ATTR);
-
-    // If no results, this must be the first dispatch, so send the REST request(s).
-    if (results == null) {
-      // define results data structures
-      final Queue<Map<String, Object>> resultsQueue = new ConcurrentLinkedQueue<>();
-      request.setAttribute(RESULTS_ATTR, results = resultsQueue);
-
-      // Suspend the request.
-      // This is done before scheduling async handling to avoid race of
-      // dispatch before startAsync!
-      final AsyncContext async = request.startAsync();
-      async.setTimeout(30000);
-
-      // Extract keywords to search for.
-      String lat = sanitize(request.getParameter(LATITUDE_PARAM));
-      String longitude = sanitize(request.getParameter(LONGITUDE_PARAM));
-      String radius = sanitize(request.getParameter(RADIUS_PARAM));
-      String[] keywords = sanitize(request.getParameter(ITEMS_PARAM)).split(",");
-
-      final AtomicInteger outstanding = new AtomicInteger(keywords.length);
-
-      // Send request each keyword.
-      for (final String item : keywords) {
-        client.newRequest(restQuery(lat + "," + longitude, radius, item))
-            .method(HttpMethod.GET)
-            .send(
-                new AsyncRestRequest() {
-                  @Override
-                  void onLocationFound(Map<String, Object> result) {
-                    resultsQueue.add(result);
-                  }
-
-                  @Override
-                  void doComplete() {
-                    if (outstanding.decrementAndGet() <= 0) {
-                      async.dispatch();
-                    }
-                  }
-                });
-      }
+    final long start = System.nanoTime();
 
-      // save timing info and return
-      request.setAttribute(START_ATTR, start);
-      request.setAttribute(DURATION_ATTR, System.nanoTime() - start);
+    // Suspend the request.
+    // The response is completed once the last result is written, or when the request times out.
+    final AsyncContext async = request.startAsync();
+    async.setTimeout(30000);
 
-      return;
+    // Extract keywords to search for.
+    String lat = sanitize(request.getParameter(LATITUDE_PARAM));
+    String longitude = sanitize(request.getParameter(LONGITUDE_PARAM));
+    String radius = sanitize(request.getParameter(RADIUS_PARAM));
+    String[] keywords = sanitize(request.getParameter(ITEMS_PARAM)).split(",");
+
+    // Send the start of the page before any result arrives.
+    response.setContentType("text/html;charset=UTF-8");
+    final PageWriter page = new PageWriter(async);
+    String loc = sanitize(request.getParameter(LOC_PARAM));
+    page.print("<html><head>\n" + STYLE + "\n</head><body><small>\n"
+        + "<b>Asynchronous: Requesting " + sanitize(request.getParameter(ITEMS_PARAM)) + " near "
+        + (loc != null ? loc : "lat=" + lat + " long=" + longitude)
+        + "</b><br/>");
+    page.start();
+
+    final AtomicInteger outstanding = new AtomicInteger(keywords.length);
+    final AtomicInteger found = new AtomicInteger();
+
+    // Send request each keyword.
+    for (final String item : keywords) {
+      CompletableFuture<List<Map<String, Object>>> results =
+          fanOut.get(restQuery(lat + "," + longitude, radius, item));
+      final boolean cached = results.isDone();
+      final long callStart = System.nanoTime();
+      results.whenComplete(
+          (locations, failure) -> {
+            // Results arrive on the threads of the client, which only queue the text.
+            StringBuilder text = new StringBuilder();
+            text.append("<b>").append(item).append("</b> (")
+                .append(ms(System.nanoTime() - callStart)).append("ms")
+                .append(cached ? ", cached" : "").append("): ");
+            if (failure != null) {
+              text.append("<i>Failed: ").append(sanitize(failure.getClass().getSimpleName()))
+                  .append("</i>");
+            } else {
+              found.addAndGet(locations.size());
+              text.append(generateResults(new LinkedList<>(locations)));
+            }
+            page.print(text.append("<br/>\n").toString());
+            if (outstanding.decrementAndGet() == 0) {
+              finish(page, start, found.get());
+            }
+          });
     }
+  }
 
-    // We have results!
-    // Generate the response
-    response.setContentType("text/html");
-    PrintWriter out = response.getWriter();
-    out.println("<html><head>");
-    out.println(STYLE);
-    out.println("</head><body><small>");
+  private void finish(PageWriter page, long start, int found) {
+    StringBuilder text = new StringBuilder();
+    text.append("Total Time: ").append(ms(System.nanoTime() - start)).append("ms, ")
+        .append(found).append(" results<br/>");
+    if (found == 0) {
+      text.append("<i>No results. Ensure " + APPKEY + " property is set correctly.</i>");
+    }
+    page.finish(text.append("</small>\n</body></html>\n").toString());
+  }
 
-    long initial = (Long) request.getAttribute(DURATION_ATTR);
-    long start0 = (Long) request.getAttribute(START_ATTR);
+  /**
+   * Writes a page without blocking. Text is queued and written while the output stream is ready;
+   * when it is not, the container writes the rest from {@link #onWritePossible} on one of its own
+   * threads. Once the request has timed out or failed, text is dropped and the request is not
+   * completed a second time.
+   */
+  static class PageWriter implements WriteListener, AsyncListener {
+    private final AsyncContext async;
+    private final ServletOutputStream out;
+
+    // All fields below are guarded by "this".
+    private final Queue<byte[]> queue = new ArrayDeque<>();
+    private boolean started;
+    private boolean unflushed;
+    private boolean finished;
+    private boolean closed;
+
+    PageWriter(AsyncContext async) throws IOException {
+      this.async = async;
+      this.out = async.getResponse().getOutputStream();
+    }
 
-    long now = System.nanoTime();
-    long total = now - start0;
-    long generate = now - start;
-    long thread = initial + generate;
+    /** Starts writing the text queued so far, and listens for the end of the request. */
+    synchronized void start() {
+      async.addListener(this);
+      started = true;
+      out.setWriteListener(this);
+    }
 
-    String loc = sanitize(request.getParameter(LOC_PARAM));
-    out.print(
-        "<b>Asynchronous: Requesting " + sanitize(request.getParameter(ITEMS_PARAM)) + " near "
-            + (loc != null ? loc
-                    : "lat=" + sanitize(request.getParameter(LATITUDE_PARAM)) + " long="
-                    + sanitize(request.getParameter(LONGITUDE_PARAM)))
-            + "</b><br/>");
-    out.print("Total Time: " + ms(total) + "ms<br/>");
-
-    out.print(
-        "Thread held (<span class='red'>red</span>): "
-            + ms(thread) + "ms (" + ms(initial)
-            + " initial + " + ms(generate) + " generate )<br/>");
-    out.print("Async wait (<span class='green'>green</span>): " + ms(total - thread) + "ms<br/>");
-
-    out.println(
-        "<img border='0px' src='asyncrest/red.png' height='20px' width='" + width(initial) + "px'>"
-            + "<img border='0px' src='asyncrest/green.png'"
-            + " height='20px'"
-            + " width='" + width(total - thread) + "px'>"
-            + "<img border='0px' src='asyncrest/red.png'"
-            + " height='20px'"
-            + " width='" + width(generate) + "px'>");
-
-    out.println("<br/>");
-    out.print("First 5 results of " + results.size() + ":<br/>");
-
-    String thumbs = generateResults(results);
-    if ("".equals(thumbs)) {
-      out.print("<i>No results. Ensure " + APPKEY + " property is set correctly.</i>");
-    } else {
-      out.println(thumbs);
-    }
-
-    out.println("</small>");
-    out.println("</body></html>");
-    out.close();
-  }
+    /** Queues text to be written, and writes as much of the queue as the stream accepts. */
+    synchronized void print(String text) {
+      if (closed) {
+        return;
+      }
+      queue.add(text.getBytes(UTF_8));
+      drainQuietly();
+    }
 
-  private abstract class AsyncRestRequest extends Response.Listener.Adapter {
+    /** Queues the last text of the page; the request completes once it is written. */
+    synchronized void finish(String text) {
+      print(text);
+      finished = true;
+      drainQuietly();
+    }
+
+    private void drainQuietly() {
+      if (!started) {
+        return;
+      }
+      try {
+        drain();
+      } catch (IOException e) {
+        onError(e);
+      }
+    }
 
-    final Utf8StringBuilder utf8Content = new Utf8StringBuilder();
+    private void drain() throws IOException {
+      while (!closed && out.isReady()) {
+        byte[] text = queue.poll();
+        if (text != null) {
+          out.write(text);
+          unflushed = true;
+        } else if (finished) {
+          close();
+        } else if (unflushed) {
+          // Send the results so far, rather than wait for the buffer to fill.
+          unflushed = false;
+          out.flush();
+        } else {
+          return;
+        }
+      }
+    }
 
-    AsyncRestRequest() {
+    private void close() {
+      closed = true;
+      queue.clear();
+      try {
+        async.complete();
+      } catch (IllegalStateException e) {
+        // The request already completed.
+      }
     }
 
     @Override
-    public void onContent(Response response, ByteBuffer content) {
-      byte[] bytes = BufferUtil.toArray(content);
-      utf8Content.append(bytes, 0, bytes.length);
+    public synchronized void onWritePossible() throws IOException {
+      drain();
     }
 
-    @SuppressWarnings("unchecked")
     @Override
-    public void onComplete(Result result) {
-      // Extract results.
-      Map<String, Object> data = (Map<String, Object>) JSON.parse(utf8Content.toString());
-      if (data != null) {
-        Object[] results = (Object[]) data.get("results");
-        if (results != null) {
-          for (Object o : results) {
-            onLocationFound((Map<String, Object>) o);
-          }
-        }
-      }
-      doComplete();
+    public synchronized void onError(Throwable failure) {
+      close();
+    }
 
+    @Override
+    public synchronized void onTimeout(AsyncEvent event) {
+      // Calls still running or waiting for a slot will find the page closed.
+      close();
     }
 
-    abstract void onLocationFound(Map<String, Object> details);
+    @Override
+    public synchronized void onError(AsyncEvent event) {
+      close();
+    }
 
-    abstract void doComplete();
+    @Override
+    public synchronized void onComplete(AsyncEvent event) {
+      closed = true;
+      queue.clear();
+    }
 
+    @Override
+    public void onStartAsync(AsyncEvent event) {}
   }
 
   @Override
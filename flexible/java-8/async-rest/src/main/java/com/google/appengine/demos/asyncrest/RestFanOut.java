@@ -0,0 +1,188 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.appengine.demos.asyncrest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.util.ajax.JSON;
+
+/**
+ * Makes REST calls that return a JSON object with a {@code results} array, without blocking the
+ * calling thread.
+ *
+ * <p>At most {@code maxConcurrentCalls} calls run at once, across all requests; the others wait
+ * in a queue and start as running calls complete. Each call fails if it takes longer than {@code
+ * callTimeoutMillis}. The results of a URL are cached for {@code cacheTtlMillis}, and a URL that
+ * is already being called is not called again, so concurrent requests for the same query share
+ * one call. Failed calls are not cached.
+ */
+public class RestFanOut {
+
+  /** The results of a URL, and when they stop being used. */
+  private static class CachedCall {
+    final CompletableFuture<List<Map<String, Object>>> results;
+    final long expiresAtNanos;
+
+    CachedCall(CompletableFuture<List<Map<String, Object>>> results, long expiresAtNanos) {
+      this.results = results;
+      this.expiresAtNanos = expiresAtNanos;
+    }
+  }
+
+  private final HttpClient client;
+  private final int maxConcurrentCalls;
+  private final long callTimeoutMillis;
+  private final long cacheTtlNanos;
+  private final Map<String, CachedCall> cache;
+  private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger running = new AtomicInteger();
+
+  public RestFanOut(
+      HttpClient client,
+      int maxConcurrentCalls,
+      long callTimeoutMillis,
+      long cacheTtlMillis,
+      final int maxCachedUrls) {
+    this.client = client;
+    this.maxConcurrentCalls = maxConcurrentCalls;
+    this.callTimeoutMillis = callTimeoutMillis;
+    this.cacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(cacheTtlMillis);
+    this.cache =
+        Collections.synchronizedMap(
+            new LinkedHashMap<String, CachedCall>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<String, CachedCall> eldest) {
+                return size() > maxCachedUrls;
+              }
+            });
+  }
+
+  /**
+   * Returns the results of a URL, from the cache if they are there, or else from a call that
+   * starts as soon as fewer than {@code maxConcurrentCalls} calls are running. The returned
+   * future is completed by a thread of the client.
+   */
+  public CompletableFuture<List<Map<String, Object>>> get(final String url) {
+    long now = System.nanoTime();
+    final CachedCall call;
+    synchronized (cache) {
+      CachedCall cached = cache.get(url);
+      if (cached != null && cached.expiresAtNanos - now > 0) {
+        return cached.results;
+      }
+      call = new CachedCall(new CompletableFuture<>(), now + cacheTtlNanos);
+      cache.put(url, call);
+    }
+    waiting.add(() -> send(url, call));
+    startWaitingCalls();
+    return call.results;
+  }
+
+  /** Returns the number of calls that are running. */
+  public int running() {
+    return running.get();
+  }
+
+  /** Returns the number of calls that wait for a running call to complete. */
+  public int waiting() {
+    return waiting.size();
+  }
+
+  private void startWaitingCalls() {
+    while (true) {
+      int current = running.get();
+      if (current >= maxConcurrentCalls || waiting.isEmpty()) {
+        return;
+      }
+      if (!running.compareAndSet(current, current + 1)) {
+        continue;
+      }
+      Runnable call = waiting.poll();
+      if (call == null) {
+        // Another thread started the last waiting call.
+        running.decrementAndGet();
+        continue;
+      }
+      call.run();
+    }
+  }
+
+  private void send(final String url, final CachedCall call) {
+    client
+        .newRequest(url)
+        .method(HttpMethod.GET)
+        .timeout(callTimeoutMillis, TimeUnit.MILLISECONDS)
+        .send(
+            new BufferingResponseListener() {
+              @Override
+              public void onComplete(Result result) {
+                // Let the next call start before the results are handled.
+                running.decrementAndGet();
+                startWaitingCalls();
+
+                if (result.isFailed()) {
+                  fail(url, call, result.getFailure());
+                } else if (result.getResponse().getStatus() != 200) {
+                  fail(url, call, new IOException("HTTP " + result.getResponse().getStatus()));
+                } else {
+                  List<Map<String, Object>> results;
+                  try {
+                    results = parse(getContentAsString(StandardCharsets.UTF_8));
+                  } catch (RuntimeException e) {
+                    fail(url, call, e);
+                    return;
+                  }
+                  call.results.complete(results);
+                }
+              }
+            });
+  }
+
+  private void fail(String url, CachedCall call, Throwable failure) {
+    cache.remove(url, call);
+    call.results.completeExceptionally(failure);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Map<String, Object>> parse(String json) {
+    List<Map<String, Object>> results = new ArrayList<>();
+    Map<String, Object> data = (Map<String, Object>) JSON.parse(json);
+    if (data != null) {
+      Object[] array = (Object[]) data.get("results");
+      if (array != null) {
+        for (Object o : array) {
+          results.add((Map<String, Object>) o);
+        }
+      }
+    }
+    return Collections.unmodifiableList(results);
+  }
+}
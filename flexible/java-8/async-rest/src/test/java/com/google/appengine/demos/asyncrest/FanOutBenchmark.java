@@ -0,0 +1,191 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.appengine.demos.asyncrest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+
+/**
+ * Compares {@link SerialRestServlet} with {@link AsyncRestServlet} against a local stand-in for
+ * the Places API, which answers every query after a fixed delay.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.google.appengine.demos.asyncrest.FanOutBenchmark \
+ *     -Dexec.args="32 500 5 100"
+ * </pre>
+ *
+ * <p>The arguments are the number of concurrent clients, the number of requests, the keywords in
+ * each request and the delay of the stand-in in milliseconds. Keywords are drawn from a small set,
+ * so that the cache of {@link AsyncRestServlet} gets hits.
+ */
+public class FanOutBenchmark {
+
+  private static final String[] TYPES = {
+    "bakery", "bar", "cafe", "library", "museum", "park", "pharmacy", "restaurant", "store", "zoo"
+  };
+
+  /** Answers like the Places API nearby search, after a delay, without holding a thread. */
+  private static class StubPlacesServlet extends HttpServlet {
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private final long delayMillis;
+    final AtomicInteger queries = new AtomicInteger();
+
+    StubPlacesServlet(long delayMillis) {
+      this.delayMillis = delayMillis;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+      queries.incrementAndGet();
+      String type = request.getParameter("types");
+      AsyncContext async = request.startAsync();
+      scheduler.schedule(() -> {
+        try {
+          response.setContentType("application/json");
+          StringBuilder json = new StringBuilder("{\"results\": [");
+          for (int i = 0; i < 3; i++) {
+            json.append(i == 0 ? "" : ", ")
+                .append("{\"name\": \"").append(type).append(' ').append(i).append("\", ")
+                .append("\"photos\": [{\"photo_reference\": \"").append(type).append(i)
+                .append("\"}]}");
+          }
+          response.getWriter().print(json.append("]}"));
+        } catch (IOException e) {
+          response.setStatus(500);
+        }
+        async.complete();
+      }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    int clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+    int requests = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+    int keywords = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+    long delayMillis = args.length > 3 ? Long.parseLong(args[3]) : 100;
+
+    Server places = new Server(0);
+    ServletContextHandler placesContext = new ServletContextHandler();
+    StubPlacesServlet stub = new StubPlacesServlet(delayMillis);
+    ServletHolder stubHolder = new ServletHolder(stub);
+    stubHolder.setAsyncSupported(true);
+    placesContext.addServlet(stubHolder, "/nearbysearch/json");
+    places.setHandler(placesContext);
+    places.start();
+    String placesUrl = "http://localhost:" + port(places);
+
+    Server app = new Server(0);
+    ServletContextHandler appContext = new ServletContextHandler();
+    ServletHolder serial = new ServletHolder(new SerialRestServlet());
+    serial.setInitParameter(AbstractRestServlet.APPKEY, "benchmark");
+    serial.setInitParameter(AbstractRestServlet.PLACES_URL, placesUrl);
+    appContext.addServlet(serial, "/testSerial");
+    ServletHolder async = new ServletHolder(new AsyncRestServlet());
+    async.setInitParameter(AbstractRestServlet.APPKEY, "benchmark");
+    async.setInitParameter(AbstractRestServlet.PLACES_URL, placesUrl);
+    async.setAsyncSupported(true);
+    appContext.addServlet(async, "/testAsync");
+    app.setHandler(appContext);
+    app.start();
+
+    HttpClient client = new HttpClient();
+    client.setMaxConnectionsPerDestination(clients);
+    client.start();
+    try {
+      String appUrl = "http://localhost:" + port(app);
+      run("serial", client, appUrl + "/testSerial", stub, clients, requests, keywords);
+      run("async", client, appUrl + "/testAsync", stub, clients, requests, keywords);
+    } finally {
+      client.stop();
+      app.stop();
+      places.stop();
+      stub.scheduler.shutdown();
+    }
+  }
+
+  private static int port(Server server) {
+    return ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+  }
+
+  private static void run(
+      String name,
+      HttpClient client,
+      String url,
+      StubPlacesServlet stub,
+      int clients,
+      int requests,
+      int keywords)
+      throws Exception {
+    stub.queries.set(0);
+    ExecutorService executor = Executors.newFixedThreadPool(clients);
+    List<Future<Long>> futures = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int c = 0; c < clients; c++) {
+      int count = requests / clients + (c < requests % clients ? 1 : 0);
+      futures.add(executor.submit(() -> {
+        long latencyNanos = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < count; i++) {
+          StringBuilder items = new StringBuilder();
+          for (int k = 0; k < keywords; k++) {
+            items.append(k == 0 ? "" : ",").append(TYPES[random.nextInt(TYPES.length)]);
+          }
+          long requestStart = System.nanoTime();
+          ContentResponse response =
+              client.GET(url + "?lat=0&long=0&radius=1000&items=" + items);
+          if (response.getStatus() != 200) {
+            throw new IllegalStateException(name + " returned HTTP " + response.getStatus());
+          }
+          latencyNanos += System.nanoTime() - requestStart;
+        }
+        return latencyNanos;
+      }));
+    }
+    long latencyNanos = 0;
+    for (Future<Long> future : futures) {
+      latencyNanos += future.get();
+    }
+    long elapsedNanos = System.nanoTime() - start;
+    executor.shutdown();
+
+    System.out.printf(
+        "%-6s %8.1f requests/s, mean latency %6.1f ms, %d upstream queries%n",
+        name,
+        requests / (elapsedNanos / 1e9),
+        latencyNanos / 1e6 / requests,
+        stub.queries.get());
+  }
+}
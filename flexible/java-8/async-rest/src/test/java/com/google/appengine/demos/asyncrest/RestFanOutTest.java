@@ -0,0 +1,216 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.appengine.demos.asyncrest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link RestFanOut} against a local stub of a REST API. */
+@RunWith(JUnit4.class)
+public class RestFanOutTest {
+
+  private static final int MAX_CONCURRENT_CALLS = 2;
+
+  /**
+   * Answers every call with one result named after its path, once released. Until then, calls
+   * are held open, so that the test controls how many are running.
+   */
+  private static class StubServlet extends HttpServlet {
+    private final List<Runnable> held = new ArrayList<>();
+    private boolean released;
+    final AtomicInteger calls = new AtomicInteger();
+    final AtomicInteger failuresLeft = new AtomicInteger();
+    int inFlight;
+    int maxInFlight;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+      calls.incrementAndGet();
+      AsyncContext async = request.startAsync();
+      async.setTimeout(0);
+      String name = request.getPathInfo();
+      Runnable respond = () -> {
+        synchronized (this) {
+          inFlight--;
+        }
+        try {
+          if (failuresLeft.getAndDecrement() > 0) {
+            response.setStatus(500);
+          } else {
+            response.setContentType("application/json");
+            response.getWriter().print("{\"results\": [{\"name\": \"" + name + "\"}]}");
+          }
+        } catch (IOException e) {
+          response.setStatus(500);
+        }
+        async.complete();
+      };
+      boolean now;
+      synchronized (this) {
+        inFlight++;
+        maxInFlight = Math.max(maxInFlight, inFlight);
+        now = released;
+        if (!now) {
+          held.add(respond);
+        }
+      }
+      if (now) {
+        respond.run();
+      }
+    }
+
+    /** Answers the held calls, and every later call right away. */
+    void release() {
+      List<Runnable> toRun;
+      synchronized (this) {
+        released = true;
+        toRun = new ArrayList<>(held);
+        held.clear();
+      }
+      toRun.forEach(Runnable::run);
+    }
+
+    synchronized int held() {
+      return held.size();
+    }
+
+    synchronized int maxInFlight() {
+      return maxInFlight;
+    }
+  }
+
+  private StubServlet stub;
+  private Server server;
+  private HttpClient client;
+  private RestFanOut fanOut;
+  private String baseUrl;
+
+  @Before
+  public void setUp() throws Exception {
+    stub = new StubServlet();
+    server = new Server(0);
+    ServletContextHandler context = new ServletContextHandler();
+    ServletHolder holder = new ServletHolder(stub);
+    holder.setAsyncSupported(true);
+    context.addServlet(holder, "/*");
+    server.setHandler(context);
+    server.start();
+    baseUrl = "http://localhost:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+
+    client = new HttpClient();
+    client.start();
+    fanOut = new RestFanOut(client, MAX_CONCURRENT_CALLS, 10_000, 60_000, 100);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    stub.release();
+    client.stop();
+    server.stop();
+  }
+
+  /** Waits until the stub holds {@code count} calls. */
+  private void awaitHeld(int count) throws InterruptedException {
+    for (int i = 0; i < 500 && stub.held() < count; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, stub.held());
+  }
+
+  private static String name(CompletableFuture<List<Map<String, Object>>> results)
+      throws Exception {
+    return (String) results.get(10, TimeUnit.SECONDS).get(0).get("name");
+  }
+
+  @Test
+  public void get_runsAtMostMaxConcurrentCalls() throws Exception {
+    List<CompletableFuture<List<Map<String, Object>>>> results = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      results.add(fanOut.get(baseUrl + "/query" + i));
+    }
+
+    awaitHeld(MAX_CONCURRENT_CALLS);
+    assertEquals(MAX_CONCURRENT_CALLS, fanOut.running());
+    assertEquals(3, fanOut.waiting());
+
+    stub.release();
+    for (int i = 0; i < 5; i++) {
+      assertEquals("/query" + i, name(results.get(i)));
+    }
+    assertEquals(5, stub.calls.get());
+    assertTrue(stub.maxInFlight() <= MAX_CONCURRENT_CALLS);
+    assertEquals(0, fanOut.running());
+    assertEquals(0, fanOut.waiting());
+  }
+
+  @Test
+  public void get_sharesOneCallForConcurrentIdenticalUrls() throws Exception {
+    List<CompletableFuture<List<Map<String, Object>>>> results = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      results.add(fanOut.get(baseUrl + "/same"));
+    }
+
+    awaitHeld(1);
+    stub.release();
+    for (CompletableFuture<List<Map<String, Object>>> result : results) {
+      assertEquals("/same", name(result));
+    }
+    // Later calls are answered from the cache.
+    assertEquals("/same", name(fanOut.get(baseUrl + "/same")));
+    assertEquals(1, stub.calls.get());
+  }
+
+  @Test
+  public void get_doesNotCacheFailures() throws Exception {
+    stub.release();
+    stub.failuresLeft.set(1);
+
+    ExecutionException e =
+        assertThrows(
+            ExecutionException.class,
+            () -> fanOut.get(baseUrl + "/flaky").get(10, TimeUnit.SECONDS));
+    assertEquals("HTTP 500", e.getCause().getMessage());
+
+    assertEquals("/flaky", name(fanOut.get(baseUrl + "/flaky")));
+    assertEquals(2, stub.calls.get());
+    assertEquals(0, fanOut.running());
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.flexible.websocket.jsr356;
+
+import com.example.flexible.websocket.jsr356.TelemetryCodec.Reading;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.ContainerProvider;
+import javax.websocket.DeploymentException;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.Extension;
+import javax.websocket.Session;
+
+/**
+ * Sends telemetry readings to {@link TelemetryServerSocket}, several readings per message.
+ *
+ * <p>Readings are held until {@code maxBatchSize} of them are waiting, or until {@code
+ * maxDelayMillis} after the first of them, and then sent together in one message, which saves
+ * the frame header and the write of each. With {@code maxBatchSize} 1 every reading is sent at
+ * once. Messages are binary or text, and compressed with permessage-deflate when the server
+ * agrees to it.
+ */
+public class TelemetryClient extends Endpoint implements Closeable {
+
+  private static final Logger logger = Logger.getLogger(TelemetryClient.class.getName());
+  static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+  private final boolean binary;
+  private final boolean compress;
+  private final int maxBatchSize;
+  private final long maxDelayMillis;
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "telemetry-flush");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private Session session;
+  private List<Reading> pending = new ArrayList<>();
+
+  public TelemetryClient(boolean binary, boolean compress, int maxBatchSize, long maxDelayMillis) {
+    this.binary = binary;
+    this.compress = compress;
+    this.maxBatchSize = maxBatchSize;
+    this.maxDelayMillis = maxDelayMillis;
+  }
+
+  /** Opens the connection to a telemetry endpoint. */
+  public void connect(URI endpointUri) throws DeploymentException, IOException {
+    ClientEndpointConfig.Builder config = ClientEndpointConfig.Builder.create();
+    if (compress) {
+      config.extensions(Collections.<Extension>singletonList(new PerMessageDeflate()));
+    }
+    session =
+        ContainerProvider.getWebSocketContainer()
+            .connectToServer(this, config.build(), endpointUri);
+  }
+
+  @Override
+  public void onOpen(Session session, EndpointConfig config) {
+    logger.fine("Connected, extensions: " + session.getNegotiatedExtensions().size());
+  }
+
+  /** Returns whether the server agreed to compress messages. */
+  public boolean isCompressed() {
+    for (Extension extension : session.getNegotiatedExtensions()) {
+      if (PERMESSAGE_DEFLATE.equals(extension.getName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Queues a reading, and sends the waiting readings if there are enough of them. */
+  public synchronized void send(Reading reading) throws IOException {
+    pending.add(reading);
+    if (pending.size() >= maxBatchSize || maxDelayMillis <= 0) {
+      flush();
+    } else if (pending.size() == 1) {
+      scheduler.schedule(this::flushQuietly, maxDelayMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /** Sends the waiting readings now. */
+  public synchronized void flush() throws IOException {
+    if (pending.isEmpty()) {
+      return;
+    }
+    List<Reading> batch = pending;
+    pending = new ArrayList<>(maxBatchSize);
+    // Blocking sends keep a fast producer from queueing messages without bound.
+    if (binary) {
+      session.getBasicRemote().sendBinary(TelemetryCodec.encodeBinary(batch));
+    } else {
+      session.getBasicRemote().sendText(TelemetryCodec.encodeText(batch));
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (IOException e) {
+      logger.severe("Error sending readings : " + e.getMessage());
+    }
+  }
+
+  /** Sends the waiting readings and closes the connection. */
+  @Override
+  public void close() throws IOException {
+    scheduler.shutdown();
+    try {
+      flush();
+    } finally {
+      session.close();
+    }
+  }
+
+  /** Asks for permessage-deflate with its default parameters. */
+  private static class PerMessageDeflate implements Extension {
+    @Override
+    public String getName() {
+      return PERMESSAGE_DEFLATE;
+    }
+
+    @Override
+    public List<Parameter> getParameters() {
+      return Collections.emptyList();
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.flexible.websocket.jsr356;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes batches of telemetry readings for a WebSocket message, as text or as binary.
+ *
+ * <p>The text form has a {@code sensorId,timestampMillis,value} line per reading. The binary form
+ * starts with the number of readings, followed by, for each reading, its sensor id, its
+ * timestamp as the difference with the previous one and its value as an 8 byte double. Numbers
+ * other than values are written as variable length integers, so a reading usually takes 10 to 12
+ * bytes instead of about 30 characters.
+ *
+ * <p>Messages come from clients, so the decoders check them and throw {@link
+ * IllegalArgumentException} for malformed, truncated or trailing input instead of trusting the
+ * counts they contain.
+ */
+public final class TelemetryCodec {
+
+  // A reading takes at least a byte for its sensor id, one for its timestamp and 8 for its value.
+  private static final int MIN_READING_BYTES = 10;
+
+  /** A value measured by a sensor at a time. */
+  public static final class Reading {
+    public final int sensorId;
+    public final long timestampMillis;
+    public final double value;
+
+    public Reading(int sensorId, long timestampMillis, double value) {
+      this.sensorId = sensorId;
+      this.timestampMillis = timestampMillis;
+      this.value = value;
+    }
+  }
+
+  private TelemetryCodec() {}
+
+  /** Returns the binary form of some readings, ready to be read. */
+  public static ByteBuffer encodeBinary(List<Reading> readings) {
+    // At most 5 bytes for the count, and 5 + 10 + 8 bytes per reading.
+    ByteBuffer buffer = ByteBuffer.allocate(5 + 23 * readings.size());
+    writeVarLong(buffer, readings.size());
+    long previousTimestamp = 0;
+    for (Reading reading : readings) {
+      writeVarLong(buffer, reading.sensorId & 0xFFFFFFFFL);
+      long delta = reading.timestampMillis - previousTimestamp;
+      // Zigzag encoding keeps small negative differences small.
+      writeVarLong(buffer, (delta << 1) ^ (delta >> 63));
+      buffer.putDouble(reading.value);
+      previousTimestamp = reading.timestampMillis;
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Reads the readings of a binary message, which must hold exactly the number of readings it
+   * starts with.
+   */
+  public static List<Reading> decodeBinary(ByteBuffer buffer) {
+    try {
+      long count = readVarLong(buffer);
+      // Checked before allocating, so that a forged count cannot exhaust the heap. A varint of
+      // ten bytes can set the sign bit, so the count may be negative.
+      if (count < 0 || count > buffer.remaining() / MIN_READING_BYTES) {
+        throw new IllegalArgumentException(
+            "Count of " + count + " readings in " + buffer.remaining() + " bytes");
+      }
+      List<Reading> readings = new ArrayList<>((int) count);
+      long timestamp = 0;
+      for (int i = 0; i < count; i++) {
+        long sensorId = readVarLong(buffer);
+        if (sensorId > 0xFFFFFFFFL) {
+          throw new IllegalArgumentException("Sensor id out of range: " + sensorId);
+        }
+        long zigzag = readVarLong(buffer);
+        timestamp += (zigzag >>> 1) ^ -(zigzag & 1);
+        readings.add(new Reading((int) sensorId, timestamp, buffer.getDouble()));
+      }
+      if (buffer.hasRemaining()) {
+        throw new IllegalArgumentException(buffer.remaining() + " bytes after the last reading");
+      }
+      return readings;
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Truncated message", e);
+    }
+  }
+
+  /** Returns the text form of some readings. */
+  public static String encodeText(List<Reading> readings) {
+    StringBuilder text = new StringBuilder(32 * readings.size());
+    for (Reading reading : readings) {
+      text.append(reading.sensorId).append(',')
+          .append(reading.timestampMillis).append(',')
+          .append(reading.value).append('\n');
+    }
+    return text.toString();
+  }
+
+  /** Reads the readings of a text message. */
+  public static List<Reading> decodeText(String text) {
+    List<Reading> readings = new ArrayList<>();
+    int start = 0;
+    while (start < text.length()) {
+      int end = text.indexOf('\n', start);
+      if (end < 0) {
+        end = text.length();
+      }
+      int firstComma = text.indexOf(',', start);
+      int secondComma = firstComma < 0 ? -1 : text.indexOf(',', firstComma + 1);
+      if (secondComma < 0 || secondComma > end) {
+        throw new IllegalArgumentException(
+            "Expected sensorId,timestampMillis,value: " + text.substring(start, end));
+      }
+      readings.add(new Reading(
+          Integer.parseInt(text.substring(start, firstComma)),
+          Long.parseLong(text.substring(firstComma + 1, secondComma)),
+          Double.parseDouble(text.substring(secondComma + 1, end))));
+      start = end + 1;
+    }
+    return readings;
+  }
+
+  private static void writeVarLong(ByteBuffer buffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  private static long readVarLong(ByteBuffer buffer) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed variable length integer");
+  }
+}
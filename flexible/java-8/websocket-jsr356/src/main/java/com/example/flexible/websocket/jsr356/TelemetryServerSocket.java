@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.flexible.websocket.jsr356;
+
+import com.example.flexible.websocket.jsr356.TelemetryCodec.Reading;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.websocket.CloseReason;
+import javax.websocket.CloseReason.CloseCodes;
+import javax.websocket.OnClose;
+import javax.websocket.OnMessage;
+import javax.websocket.OnOpen;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpoint;
+
+/**
+ * Receives batches of telemetry readings, encoded by {@link TelemetryCodec} in text or binary
+ * messages, and counts them.
+ *
+ * <p>Jetty accepts the permessage-deflate extension when a client asks for it, so compression
+ * needs nothing here.
+ */
+@ServerEndpoint("/telemetry")
+public class TelemetryServerSocket {
+
+  private static final Logger logger = Logger.getLogger(TelemetryServerSocket.class.getName());
+
+  private static final LongAdder messages = new LongAdder();
+  private static final LongAdder readings = new LongAdder();
+
+  @OnOpen
+  public void onOpen(Session session) {
+    logger.info(
+        "Telemetry WebSocket Opened: " + session.getId()
+            + ", extensions: " + session.getNegotiatedExtensions().size());
+  }
+
+  /** Handles a batch of readings in binary form. */
+  @OnMessage
+  public void onBinary(ByteBuffer message, Session session) throws IOException {
+    try {
+      record(TelemetryCodec.decodeBinary(message));
+    } catch (IllegalArgumentException e) {
+      reject(session, e);
+    }
+  }
+
+  /** Handles a batch of readings in text form. */
+  @OnMessage
+  public void onText(String message, Session session) throws IOException {
+    try {
+      record(TelemetryCodec.decodeText(message));
+    } catch (IllegalArgumentException e) {
+      reject(session, e);
+    }
+  }
+
+  /** Closes the connection of a client that sent a malformed message. */
+  private static void reject(Session session, IllegalArgumentException e) throws IOException {
+    logger.warning("Malformed telemetry from " + session.getId() + ": " + e.getMessage());
+    session.close(new CloseReason(CloseCodes.CANNOT_ACCEPT, "Malformed readings"));
+  }
+
+  private static void record(List<Reading> batch) {
+    messages.increment();
+    readings.add(batch.size());
+  }
+
+  @OnClose
+  public void onClose(CloseReason reason, Session session) {
+    logger.fine("Closing Telemetry WebSocket: " + reason.getReasonPhrase());
+  }
+
+  /** Returns the number of messages received. */
+  public static long messagesReceived() {
+    return messages.sum();
+  }
+
+  /** Returns the number of readings received. */
+  public static long readingsReceived() {
+    return readings.sum();
+  }
+}
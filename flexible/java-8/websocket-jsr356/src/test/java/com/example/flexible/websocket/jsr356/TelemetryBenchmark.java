@@ -0,0 +1,175 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.flexible.websocket.jsr356;
+
+import com.example.flexible.websocket.jsr356.TelemetryCodec.Reading;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.websocket.jsr356.server.deploy.WebSocketServerContainerInitializer;
+
+/**
+ * Sends readings to {@link TelemetryServerSocket} in an embedded server as text and binary
+ * messages, with and without permessage-deflate and batching, and reports the bytes sent on the
+ * wire and the CPU time spent for each reading.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.flexible.websocket.jsr356.TelemetryBenchmark \
+ *     -Dexec.args="200000 64 5"
+ * </pre>
+ *
+ * <p>The arguments are the number of readings sent in each mode, the batch size and the batch
+ * delay in milliseconds. The client connects through a proxy that counts the bytes going through
+ * it, handshake and frame headers included. Client and server share the JVM, so the CPU time is
+ * that of both ends.
+ */
+public class TelemetryBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int readings = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+    long delayMillis = args.length > 2 ? Long.parseLong(args[2]) : 5;
+
+    Server server = new Server(0);
+    ServletContextHandler context = new ServletContextHandler();
+    WebSocketServerContainerInitializer.configureContext(context)
+        .addEndpoint(TelemetryServerSocket.class);
+    server.setHandler(context);
+    server.start();
+    int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    try {
+      System.out.printf(
+          "%-6s %-9s %5s %9s %12s %15s %13s%n",
+          "mode", "deflate", "batch", "messages", "wire B/read", "CPU us/reading", "readings/s");
+      for (int batch : new int[] {1, batchSize}) {
+        for (boolean binary : new boolean[] {false, true}) {
+          for (boolean compress : new boolean[] {false, true}) {
+            run(port, readings, binary, compress, batch, delayMillis);
+          }
+        }
+      }
+    } finally {
+      server.stop();
+    }
+  }
+
+  private static void run(
+      int port, int readings, boolean binary, boolean compress, int batch, long delayMillis)
+      throws Exception {
+    CountingProxy proxy = new CountingProxy(port);
+    long readingsBefore = TelemetryServerSocket.readingsReceived();
+    long messagesBefore = TelemetryServerSocket.messagesReceived();
+    long cpuBefore = processCpuNanos();
+    long start = System.nanoTime();
+
+    TelemetryClient client = new TelemetryClient(binary, compress, batch, delayMillis);
+    client.connect(new URI("ws://localhost:" + proxy.port() + "/telemetry"));
+    boolean compressed = client.isCompressed();
+    // Readings of 100 sensors, a few milliseconds apart, whose values drift slowly.
+    Random random = new Random(42);
+    double[] values = new double[100];
+    long timestamp = System.currentTimeMillis();
+    for (int i = 0; i < readings; i++) {
+      int sensor = random.nextInt(values.length);
+      values[sensor] = Math.round((values[sensor] + random.nextGaussian()) * 100) / 100.0;
+      timestamp += random.nextInt(5);
+      client.send(new Reading(sensor, timestamp, values[sensor]));
+    }
+    client.close();
+    while (TelemetryServerSocket.readingsReceived() - readingsBefore < readings) {
+      Thread.sleep(1);
+    }
+
+    long elapsedNanos = System.nanoTime() - start;
+    long cpuNanos = processCpuNanos() - cpuBefore;
+    proxy.close();
+    System.out.printf(
+        "%-6s %-9s %5d %9d %12.2f %15.2f %13.0f%n",
+        binary ? "binary" : "text",
+        compress ? (compressed ? "on" : "refused") : "off",
+        batch,
+        TelemetryServerSocket.messagesReceived() - messagesBefore,
+        (double) proxy.upstreamBytes.get() / readings,
+        cpuNanos / 1e3 / readings,
+        readings / (elapsedNanos / 1e9));
+  }
+
+  private static long processCpuNanos() {
+    return ((com.sun.management.OperatingSystemMXBean)
+            ManagementFactory.getOperatingSystemMXBean())
+        .getProcessCpuTime();
+  }
+
+  /** Relays one connection to the server, and counts the bytes sent to it. */
+  private static class CountingProxy implements AutoCloseable {
+    private final java.net.ServerSocket listener =
+        new java.net.ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    final AtomicLong upstreamBytes = new AtomicLong();
+
+    CountingProxy(int serverPort) throws IOException {
+      Thread acceptor = new Thread(() -> {
+        try {
+          Socket client = listener.accept();
+          Socket server = new Socket(InetAddress.getLoopbackAddress(), serverPort);
+          client.setTcpNoDelay(true);
+          server.setTcpNoDelay(true);
+          relay(client, server, upstreamBytes);
+          relay(server, client, new AtomicLong());
+        } catch (IOException e) {
+          // The proxy was closed.
+        }
+      });
+      acceptor.setDaemon(true);
+      acceptor.start();
+    }
+
+    int port() {
+      return listener.getLocalPort();
+    }
+
+    private static void relay(Socket from, Socket to, AtomicLong count) {
+      Thread thread = new Thread(() -> {
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+          for (int read; (read = in.read(buffer)) >= 0; ) {
+            out.write(buffer, 0, read);
+            count.addAndGet(read);
+          }
+        } catch (IOException e) {
+          // One side closed the connection.
+        }
+      });
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+      listener.close();
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.flexible.websocket.jsr356;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import com.example.flexible.websocket.jsr356.TelemetryCodec.Reading;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TelemetryCodecTest {
+
+  private static final List<Reading> READINGS = Arrays.asList(
+      new Reading(1, 1_700_000_000_000L, 21.5),
+      new Reading(2, 1_700_000_000_250L, -0.0),
+      // Out of order, so the timestamp goes back.
+      new Reading(1, 1_699_999_999_000L, Double.NaN),
+      new Reading(-1, Long.MIN_VALUE, Double.POSITIVE_INFINITY),
+      new Reading(Integer.MAX_VALUE, Long.MAX_VALUE, Double.MIN_VALUE),
+      new Reading(0, 0, 1e300));
+
+  private static void assertReadings(List<Reading> expected, List<Reading> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).sensorId, actual.get(i).sensorId);
+      assertEquals(expected.get(i).timestampMillis, actual.get(i).timestampMillis);
+      assertEquals(
+          Double.doubleToLongBits(expected.get(i).value),
+          Double.doubleToLongBits(actual.get(i).value));
+    }
+  }
+
+  @Test
+  public void binaryRoundTrip() {
+    assertReadings(READINGS, TelemetryCodec.decodeBinary(TelemetryCodec.encodeBinary(READINGS)));
+    assertReadings(
+        Collections.emptyList(),
+        TelemetryCodec.decodeBinary(TelemetryCodec.encodeBinary(Collections.emptyList())));
+  }
+
+  @Test
+  public void textRoundTrip() {
+    assertReadings(READINGS, TelemetryCodec.decodeText(TelemetryCodec.encodeText(READINGS)));
+    assertReadings(Collections.emptyList(), TelemetryCodec.decodeText(""));
+  }
+
+  @Test
+  public void binaryReadingsAreSmall() {
+    List<Reading> readings = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      readings.add(new Reading(i % 8, 1_700_000_000_000L + 10 * i, i));
+    }
+    // The first timestamp takes 6 bytes, the others 1.
+    assertEquals(1 + 100 * 10 + 5, TelemetryCodec.encodeBinary(readings).remaining());
+  }
+
+  @Test
+  public void binaryRejectsCountLargerThanMessage() {
+    // A count of 2^31 - 1 readings, and nothing else.
+    ByteBuffer buffer = ByteBuffer.wrap(new byte[] {-1, -1, -1, -1, 7});
+    assertThrows(IllegalArgumentException.class, () -> TelemetryCodec.decodeBinary(buffer));
+
+    // A count that is negative as an int.
+    ByteBuffer negative = ByteBuffer.wrap(new byte[] {-1, -1, -1, -1, 15});
+    assertThrows(IllegalArgumentException.class, () -> TelemetryCodec.decodeBinary(negative));
+
+    // 0x800000007FFFFFFF, a count that is negative as a long and Integer.MAX_VALUE as an int.
+    ByteBuffer negativeLong = ByteBuffer.wrap(new byte[] {-1, -1, -1, -1, -121, -128, -128, -128,
+        -128, 1});
+    assertThrows(IllegalArgumentException.class, () -> TelemetryCodec.decodeBinary(negativeLong));
+  }
+
+  @Test
+  public void binaryRejectsTruncatedMessage() {
+    ByteBuffer encoded = TelemetryCodec.encodeBinary(READINGS);
+    for (int length = 0; length < encoded.remaining(); length++) {
+      ByteBuffer truncated = encoded.duplicate();
+      truncated.limit(length);
+      assertThrows(IllegalArgumentException.class, () -> TelemetryCodec.decodeBinary(truncated));
+    }
+  }
+
+  @Test
+  public void binaryRejectsTrailingBytes() {
+    ByteBuffer encoded = TelemetryCodec.encodeBinary(READINGS);
+    ByteBuffer buffer = ByteBuffer.allocate(encoded.remaining() + 1);
+    buffer.put(encoded).put((byte) 0).flip();
+    assertThrows(IllegalArgumentException.class, () -> TelemetryCodec.decodeBinary(buffer));
+  }
+
+  @Test
+  public void textRejectsMalformedLines() {
+    assertThrows(IllegalArgumentException.class, () -> TelemetryCodec.decodeText("1,2\n"));
+    assertThrows(IllegalArgumentException.class, () -> TelemetryCodec.decodeText("1\n2,3,4\n"));
+    assertThrows(IllegalArgumentException.class, () -> TelemetryCodec.decodeText("1,2,x\n"));
+    assertThrows(IllegalArgumentException.class, () -> TelemetryCodec.decodeText("1,2,3,4\n"));
+  }
+}
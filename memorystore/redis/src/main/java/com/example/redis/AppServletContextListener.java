@@ -47,8 +47,26 @@ public class AppServletContextListener implements ServletContextListener {
     return new JedisPool(poolConfig, host, port);
   }
 
+  private CounterService createCounterService(JedisPool jedisPool) {
+    return new CounterService(
+        jedisPool,
+        Integer.parseInt(config.getProperty("counter.stripes", "8")),
+        Long.parseLong(config.getProperty("counter.flushIntervalMillis", "100")),
+        Long.parseLong(config.getProperty("counter.cacheTtlMillis", "1000")));
+  }
+
   @Override
   public void contextDestroyed(ServletContextEvent event) {
+    CounterService counterService =
+        (CounterService) event.getServletContext().getAttribute("counterService");
+    if (counterService != null) {
+      try {
+        counterService.close();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      event.getServletContext().setAttribute("counterService", null);
+    }
     JedisPool jedisPool = (JedisPool) event.getServletContext().getAttribute("jedisPool");
     if (jedisPool != null) {
       jedisPool.destroy();
@@ -64,6 +82,8 @@ public class AppServletContextListener implements ServletContextListener {
       try {
         jedisPool = createJedisPool();
         event.getServletContext().setAttribute("jedisPool", jedisPool);
+        event.getServletContext()
+            .setAttribute("counterService", createCounterService(jedisPool));
       } catch (IOException e) {
         // handle exception
       }
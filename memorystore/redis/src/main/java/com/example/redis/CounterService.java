@@ -0,0 +1,367 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.redis;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+
+/**
+ * Counters stored in Redis, each striped across {@code stripes} sub-keys named {@code
+ * {<name>}:<stripe>} so that increments do not all land on one hot key. The braces are a Redis
+ * Cluster hash tag: all keys of a counter are in the same slot as the counter key itself, so
+ * that they can be read with one {@code MGET} on a cluster too. Counter names must not contain
+ * braces.
+ *
+ * <p>With a {@code flushIntervalMillis} above zero, increments are only added up in memory, and
+ * the totals of all counters are written every {@code flushIntervalMillis} with one pipelined
+ * {@code INCRBY} per counter, so that any number of increments between two flushes cost a single
+ * round trip. Otherwise each increment is an {@code INCR} of a random stripe.
+ *
+ * <p>{@link #get} adds up the counter key and its stripes with a single {@code MGET}, so a count
+ * kept by an older version under the counter key itself is not lost. With a {@code
+ * cacheTtlMillis} above zero, the total is cached for up to {@code cacheTtlMillis}; every flush
+ * publishes the names of the counters it changed on the {@code counters:invalidate} channel, and
+ * every instance drops the cached totals of those counters. Without flushes, the totals cached by
+ * other instances expire after {@code cacheTtlMillis}.
+ *
+ * <p>Counts are only eventually consistent: increments of other instances are seen after they
+ * flush, and increments that are not flushed yet are lost if the instance stops without {@link
+ * #close()}.
+ */
+public class CounterService implements AutoCloseable {
+  static final String INVALIDATION_CHANNEL = "counters:invalidate";
+
+  private static final Logger logger = Logger.getLogger(CounterService.class.getName());
+
+  // Counters share generation counters by hash; a collision only skips caching a total.
+  private static final int GENERATION_STRIPES = 1024;
+
+  /** The Redis operations used by the counters. */
+  interface Backend {
+
+    /** Returns the value of each key, or null for keys that do not exist. */
+    List<String> mget(String... keys);
+
+    /** Adds one to a key. */
+    void incr(String key);
+
+    /**
+     * Adds each delta to its key and, unless {@code invalidation} is null, publishes it on
+     * {@link #INVALIDATION_CHANNEL}, in one round trip.
+     */
+    void incrBy(Map<String, Long> deltas, String invalidation);
+
+    /**
+     * Calls {@code onInvalidation} with every message published on {@link
+     * #INVALIDATION_CHANNEL}, and {@code onMissed} whenever messages may have been missed, until
+     * the returned task is run.
+     */
+    Runnable subscribe(Consumer<String> onInvalidation, Runnable onMissed);
+  }
+
+  /** A total read from Redis, and when it stops being used. */
+  private static class CachedTotal {
+    final long value;
+    final long expiresAtMillis;
+
+    CachedTotal(long value, long expiresAtMillis) {
+      this.value = value;
+      this.expiresAtMillis = expiresAtMillis;
+    }
+  }
+
+  private final Backend backend;
+  private final int stripes;
+  private final long cacheTtlMillis;
+  private final Map<String, LongAdder> pending = new ConcurrentHashMap<>();
+  private final Map<String, CachedTotal> cache = new ConcurrentHashMap<>();
+  // Bumped whenever a cached total is dropped, so that a read that started before is not cached.
+  private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+  private final ScheduledExecutorService scheduler;
+  private final Runnable unsubscribe;
+
+  public CounterService(
+      JedisPool jedisPool, int stripes, long flushIntervalMillis, long cacheTtlMillis) {
+    this(new JedisBackend(jedisPool), stripes, flushIntervalMillis, cacheTtlMillis);
+  }
+
+  CounterService(Backend backend, int stripes, long flushIntervalMillis, long cacheTtlMillis) {
+    if (stripes < 1) {
+      throw new IllegalArgumentException("stripes must be at least 1: " + stripes);
+    }
+    this.backend = backend;
+    this.stripes = stripes;
+    this.cacheTtlMillis = cacheTtlMillis;
+
+    if (flushIntervalMillis > 0) {
+      scheduler = Executors.newSingleThreadScheduledExecutor();
+      scheduler.scheduleWithFixedDelay(
+          this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    } else {
+      scheduler = null;
+    }
+    if (cacheTtlMillis > 0) {
+      unsubscribe =
+          backend.subscribe(
+              message -> {
+                for (String name : message.split("\n")) {
+                  invalidate(name);
+                }
+              },
+              this::invalidateAll);
+    } else {
+      unsubscribe = null;
+    }
+  }
+
+  /** Adds one to a counter. */
+  public void increment(String name) {
+    if (scheduler != null) {
+      pending.computeIfAbsent(name, key -> new LongAdder()).increment();
+      return;
+    }
+    backend.incr(randomStripe(name));
+    // Drop the cached total so that the caller sees its own increment.
+    invalidate(name);
+  }
+
+  /**
+   * Returns the total of a counter in Redis, cached for up to {@code cacheTtlMillis}, plus the
+   * increments of this instance that are not flushed yet.
+   */
+  public long get(String name) {
+    long now = System.currentTimeMillis();
+    CachedTotal cached = cache.get(name);
+    long total;
+    if (cached != null && cached.expiresAtMillis > now) {
+      total = cached.value;
+    } else {
+      int stripe = generationStripe(name);
+      long readGeneration = generations.get(stripe);
+      total = read(name);
+      // A flush that ran during the read may have written increments that the read missed and
+      // that are no longer pending, so only cache totals read since the last invalidation. The
+      // generation is checked again after the put, because the flush may bump it in between.
+      if (cacheTtlMillis > 0 && generations.get(stripe) == readGeneration) {
+        CachedTotal fresh = new CachedTotal(total, now + cacheTtlMillis);
+        cache.put(name, fresh);
+        if (generations.get(stripe) != readGeneration) {
+          cache.remove(name, fresh);
+        }
+      }
+    }
+    LongAdder unflushed = pending.get(name);
+    return unflushed == null ? total : total + unflushed.sum();
+  }
+
+  private long read(String name) {
+    String[] keys = new String[stripes + 1];
+    keys[0] = name;
+    for (int stripe = 0; stripe < stripes; stripe++) {
+      keys[stripe + 1] = stripeKey(name, stripe);
+    }
+    long total = 0;
+    for (String value : backend.mget(keys)) {
+      if (value != null) {
+        total += Long.parseLong(value);
+      }
+    }
+    return total;
+  }
+
+  static String stripeKey(String name, int stripe) {
+    return "{" + name + "}:" + stripe;
+  }
+
+  private String randomStripe(String name) {
+    return stripeKey(name, ThreadLocalRandom.current().nextInt(stripes));
+  }
+
+  private static int generationStripe(String name) {
+    return Math.floorMod(name.hashCode(), GENERATION_STRIPES);
+  }
+
+  private void invalidate(String name) {
+    generations.incrementAndGet(generationStripe(name));
+    cache.remove(name);
+  }
+
+  private void invalidateAll() {
+    for (int stripe = 0; stripe < GENERATION_STRIPES; stripe++) {
+      generations.incrementAndGet(stripe);
+    }
+    cache.clear();
+  }
+
+  /**
+   * Writes the increments of all counters that are not flushed yet in one pipeline, and
+   * publishes the names of the changed counters to invalidate their cached totals.
+   */
+  public void flush() {
+    List<String> names = new ArrayList<>();
+    List<Long> deltas = new ArrayList<>();
+    Map<String, Long> stripeDeltas = new LinkedHashMap<>();
+    for (Map.Entry<String, LongAdder> counter : pending.entrySet()) {
+      long delta = counter.getValue().sum();
+      if (delta != 0) {
+        names.add(counter.getKey());
+        deltas.add(delta);
+        stripeDeltas.put(randomStripe(counter.getKey()), delta);
+      }
+    }
+    if (names.isEmpty()) {
+      return;
+    }
+
+    backend.incrBy(stripeDeltas, cacheTtlMillis > 0 ? String.join("\n", names) : null);
+    // Subtract what was written rather than resetting the adders, so that the increments made
+    // during the flush are kept for the next one.
+    for (int i = 0; i < names.size(); i++) {
+      pending.get(names.get(i)).add(-deltas.get(i));
+      invalidate(names.get(i));
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      logger.log(Level.WARNING, "Failed to write counters.", e);
+    }
+  }
+
+  /** Stops the background tasks and writes the remaining increments. */
+  @Override
+  public void close() throws InterruptedException {
+    if (unsubscribe != null) {
+      unsubscribe.run();
+    }
+    if (scheduler != null) {
+      scheduler.shutdown();
+      scheduler.awaitTermination(1, TimeUnit.MINUTES);
+      flush();
+    }
+  }
+
+  /** Runs the counter operations on connections from a {@link JedisPool}. */
+  static class JedisBackend implements Backend {
+    private final JedisPool jedisPool;
+
+    JedisBackend(JedisPool jedisPool) {
+      this.jedisPool = jedisPool;
+    }
+
+    @Override
+    public List<String> mget(String... keys) {
+      try (Jedis jedis = jedisPool.getResource()) {
+        return jedis.mget(keys);
+      }
+    }
+
+    @Override
+    public void incr(String key) {
+      try (Jedis jedis = jedisPool.getResource()) {
+        jedis.incr(key);
+      }
+    }
+
+    @Override
+    public void incrBy(Map<String, Long> deltas, String invalidation) {
+      try (Jedis jedis = jedisPool.getResource()) {
+        Pipeline pipeline = jedis.pipelined();
+        for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+          pipeline.incrBy(delta.getKey(), delta.getValue());
+        }
+        if (invalidation != null) {
+          pipeline.publish(INVALIDATION_CHANNEL, invalidation);
+        }
+        pipeline.sync();
+      }
+    }
+
+    @Override
+    public Runnable subscribe(Consumer<String> onInvalidation, Runnable onMissed) {
+      Invalidator invalidator = new Invalidator(onInvalidation, onMissed);
+      Thread thread = new Thread(invalidator, "counter-invalidator");
+      thread.setDaemon(true);
+      thread.start();
+      return invalidator::close;
+    }
+
+    /** Passes on the invalidation messages of any instance. */
+    private class Invalidator extends JedisPubSub implements Runnable {
+      private final Consumer<String> onInvalidation;
+      private final Runnable onMissed;
+      private volatile boolean closed;
+
+      Invalidator(Consumer<String> onInvalidation, Runnable onMissed) {
+        this.onInvalidation = onInvalidation;
+        this.onMissed = onMissed;
+      }
+
+      @Override
+      public void run() {
+        while (!closed) {
+          try (Jedis jedis = jedisPool.getResource()) {
+            // Blocks until unsubscribed or disconnected.
+            jedis.subscribe(this, INVALIDATION_CHANNEL);
+          } catch (RuntimeException e) {
+            if (closed) {
+              return;
+            }
+            // Changes published while disconnected are missed, so stop trusting the cache.
+            onMissed.run();
+            logger.log(Level.WARNING, "Lost the invalidation subscription, retrying.", e);
+            try {
+              Thread.sleep(1000);
+            } catch (InterruptedException ie) {
+              return;
+            }
+          }
+        }
+      }
+
+      @Override
+      public void onMessage(String channel, String message) {
+        onInvalidation.accept(message);
+      }
+
+      void close() {
+        closed = true;
+        if (isSubscribed()) {
+          unsubscribe();
+        }
+      }
+    }
+  }
+}
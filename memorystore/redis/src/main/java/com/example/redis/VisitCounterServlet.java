@@ -23,8 +23,6 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
 
 @WebServlet(name = "Track visits", value = "")
 public class VisitCounterServlet extends HttpServlet {
@@ -32,16 +30,15 @@ public class VisitCounterServlet extends HttpServlet {
   @Override
   public void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
     try {
-      JedisPool jedisPool = (JedisPool) req.getServletContext().getAttribute("jedisPool");
+      CounterService counterService =
+          (CounterService) req.getServletContext().getAttribute("counterService");
 
-      if (jedisPool == null) {
+      if (counterService == null) {
         throw new SocketException("Error connecting to Jedis pool");
       }
-      Long visits;
 
-      try (Jedis jedis = jedisPool.getResource()) {
-        visits = jedis.incr("visits");
-      }
+      counterService.increment("visits");
+      long visits = counterService.get("visits");
 
       resp.setStatus(HttpServletResponse.SC_OK);
       resp.getWriter().println("Visitor counter: " + String.valueOf(visits));
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.redis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+
+/**
+ * Compares a single {@code INCR} per request with the {@link CounterService} modes, by running
+ * what {@link VisitCounterServlet} does for each request from many threads against a local
+ * redis-server.
+ *
+ * <pre>
+ * redis-server &amp;
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.redis.CounterServiceBenchmark \
+ *     -Dexec.args="localhost 6379 64 200000"
+ * </pre>
+ *
+ * <p>The arguments are the Redis host and port, the number of threads and the number of requests.
+ * Each run ends by checking that no increment was lost.
+ */
+public class CounterServiceBenchmark {
+
+  /** What the servlet does for one request. */
+  private interface Request {
+    long handle() throws Exception;
+  }
+
+  public static void main(String[] args) throws Exception {
+    String host = args.length > 0 ? args[0] : "localhost";
+    int port = args.length > 1 ? Integer.parseInt(args[1]) : 6379;
+    int threads = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+    int requests = args.length > 3 ? Integer.parseInt(args[3]) : 200_000;
+
+    JedisPoolConfig poolConfig = new JedisPoolConfig();
+    poolConfig.setMaxTotal(128);
+    try (JedisPool jedisPool = new JedisPool(poolConfig, host, port)) {
+      run("single key INCR", jedisPool, null, threads, requests, () -> {
+        try (Jedis jedis = jedisPool.getResource()) {
+          return jedis.incr("loadtest");
+        }
+      });
+      runService("striped INCR, 8 stripes", jedisPool, 8, 0, 0, threads, requests);
+      runService("striped INCR, cached 1 s", jedisPool, 8, 0, 1000, threads, requests);
+      runService("batched INCRBY every 100 ms", jedisPool, 8, 100, 0, threads, requests);
+      runService(
+          "batched INCRBY every 100 ms, cached 1 s", jedisPool, 8, 100, 1000, threads, requests);
+    }
+  }
+
+  private static void runService(
+      String name,
+      JedisPool jedisPool,
+      int stripes,
+      long flushIntervalMillis,
+      long cacheTtlMillis,
+      int threads,
+      int requests)
+      throws Exception {
+    CounterService counterService =
+        new CounterService(jedisPool, stripes, flushIntervalMillis, cacheTtlMillis);
+    run(name, jedisPool, counterService, threads, requests, () -> {
+      counterService.increment("loadtest");
+      return counterService.get("loadtest");
+    });
+  }
+
+  private static void run(
+      String name,
+      JedisPool jedisPool,
+      CounterService counterService,
+      int threads,
+      int requests,
+      Request request)
+      throws Exception {
+    deleteCounter(jedisPool);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int thread = 0; thread < threads; thread++) {
+      int count = requests / threads + (thread < requests % threads ? 1 : 0);
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < count; i++) {
+          request.handle();
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    long elapsedNanos = System.nanoTime() - start;
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+
+    long total;
+    if (counterService != null) {
+      counterService.close();
+      // Read through a new service, so that the total comes from Redis.
+      total = new CounterService(jedisPool, 8, 0, 0).get("loadtest");
+    } else {
+      try (Jedis jedis = jedisPool.getResource()) {
+        total = Long.parseLong(jedis.get("loadtest"));
+      }
+    }
+    System.out.printf(
+        "%-42s %10.0f requests/s, %s%n",
+        name,
+        requests / (elapsedNanos / 1e9),
+        total == requests ? "no increment lost" : "LOST " + (requests - total) + " increments");
+    deleteCounter(jedisPool);
+  }
+
+  private static void deleteCounter(JedisPool jedisPool) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      jedis.del("loadtest");
+      for (int stripe = 0; stripe < 8; stripe++) {
+        jedis.del(CounterService.stripeKey("loadtest", stripe));
+      }
+    }
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.redis;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CounterServiceTest {
+
+  private static final long NEVER = TimeUnit.HOURS.toMillis(1);
+
+  private FakeBackend backend;
+  private CounterService counters;
+
+  @Before
+  public void setUp() {
+    backend = new FakeBackend();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (counters != null) {
+      counters.close();
+    }
+  }
+
+  @Test
+  public void testGetAddsUpCounterKeyStripesAndUnflushedIncrements() {
+    counters = new CounterService(backend, 4, NEVER, 0);
+    // Kept by an older version under the counter key itself.
+    backend.values.put("visits", 5L);
+    backend.values.put(CounterService.stripeKey("visits", 2), 7L);
+
+    counters.increment("visits");
+    counters.increment("visits");
+
+    assertThat(counters.get("visits")).isEqualTo(14);
+    assertThat(backend.writes).isEqualTo(0);
+  }
+
+  @Test
+  public void testFlushWritesPendingIncrementsToHashTaggedStripes() {
+    counters = new CounterService(backend, 4, NEVER, 0);
+    counters.increment("visits");
+    counters.increment("visits");
+    counters.increment("visits");
+
+    counters.flush();
+
+    assertThat(backend.writes).isEqualTo(1);
+    assertThat(backend.values).hasSize(1);
+    String key = backend.values.keySet().iterator().next();
+    assertThat(key).startsWith("{visits}:");
+    assertThat(backend.values.get(key)).isEqualTo(3);
+    // Nothing is pending any more, so the total is not counted twice.
+    assertThat(counters.get("visits")).isEqualTo(3);
+    counters.flush();
+    assertThat(backend.writes).isEqualTo(1);
+  }
+
+  @Test
+  public void testIncrementsDuringFlushAreKeptForTheNextFlush() {
+    counters = new CounterService(backend, 4, NEVER, 0);
+    counters.increment("visits");
+    counters.increment("visits");
+    backend.duringWrite = () -> counters.increment("visits");
+
+    counters.flush();
+    backend.duringWrite = null;
+
+    assertThat(sum(backend, "visits")).isEqualTo(2);
+    assertThat(counters.get("visits")).isEqualTo(3);
+    counters.flush();
+    assertThat(sum(backend, "visits")).isEqualTo(3);
+    assertThat(counters.get("visits")).isEqualTo(3);
+  }
+
+  @Test
+  public void testFailedFlushKeepsIncrementsPending() {
+    counters = new CounterService(backend, 4, NEVER, 0);
+    counters.increment("visits");
+    backend.failWrites = true;
+
+    assertThrows(IllegalStateException.class, counters::flush);
+
+    assertThat(counters.get("visits")).isEqualTo(1);
+    backend.failWrites = false;
+    counters.flush();
+    assertThat(sum(backend, "visits")).isEqualTo(1);
+  }
+
+  @Test
+  public void testFlushPublishesChangedCountersAndDropsTheirCachedTotals() {
+    counters = new CounterService(backend, 4, NEVER, NEVER);
+    backend.values.put("visits", 5L);
+    assertThat(counters.get("visits")).isEqualTo(5);
+    counters.increment("visits");
+    counters.increment("other");
+
+    counters.flush();
+
+    assertThat(backend.published).hasSize(1);
+    assertThat(backend.published.get(0).split("\n")).asList().containsExactly("visits", "other");
+    assertThat(counters.get("visits")).isEqualTo(6);
+    assertThat(backend.reads).isEqualTo(2);
+  }
+
+  @Test
+  public void testReadDuringFlushIsNotCached() {
+    counters = new CounterService(backend, 4, NEVER, NEVER);
+    counters.increment("visits");
+    // The flush writes the increment and stops counting it as pending after the read.
+    backend.afterRead = counters::flush;
+
+    counters.get("visits");
+    backend.afterRead = null;
+
+    assertThat(counters.get("visits")).isEqualTo(1);
+    assertThat(backend.reads).isEqualTo(2);
+  }
+
+  @Test
+  public void testInvalidationFromOtherInstancesDropsCachedTotal() {
+    counters = new CounterService(backend, 4, 0, NEVER);
+    assertThat(counters.get("visits")).isEqualTo(0);
+    backend.values.put(CounterService.stripeKey("visits", 0), 4L);
+
+    assertThat(counters.get("visits")).isEqualTo(0);
+    backend.onInvalidation.accept("visits");
+
+    assertThat(counters.get("visits")).isEqualTo(4);
+    assertThat(backend.reads).isEqualTo(2);
+  }
+
+  @Test
+  public void testMissedInvalidationsDropAllCachedTotals() {
+    counters = new CounterService(backend, 4, 0, NEVER);
+    counters.get("visits");
+    backend.values.put(CounterService.stripeKey("visits", 0), 4L);
+
+    backend.onMissed.run();
+
+    assertThat(counters.get("visits")).isEqualTo(4);
+  }
+
+  @Test
+  public void testIncrementWithoutFlushingDropsCachedTotal() {
+    counters = new CounterService(backend, 4, 0, NEVER);
+    counters.get("visits");
+
+    counters.increment("visits");
+
+    assertThat(counters.get("visits")).isEqualTo(1);
+    assertThat(backend.reads).isEqualTo(2);
+  }
+
+  private static long sum(FakeBackend backend, String name) {
+    long sum = 0;
+    for (Map.Entry<String, Long> value : backend.values.entrySet()) {
+      if (value.getKey().startsWith("{" + name + "}:")) {
+        sum += value.getValue();
+      }
+    }
+    return sum;
+  }
+
+  /** Keeps the counters in a map and records the calls made to Redis. */
+  private static class FakeBackend implements CounterService.Backend {
+    final Map<String, Long> values = new ConcurrentHashMap<>();
+    final List<String> published = new ArrayList<>();
+    int reads;
+    int writes;
+    boolean failWrites;
+    Runnable afterRead;
+    Runnable duringWrite;
+    Consumer<String> onInvalidation;
+    Runnable onMissed;
+
+    @Override
+    public List<String> mget(String... keys) {
+      reads++;
+      List<String> result = new ArrayList<>();
+      for (String key : keys) {
+        Long value = values.get(key);
+        result.add(value == null ? null : value.toString());
+      }
+      if (afterRead != null) {
+        afterRead.run();
+      }
+      return result;
+    }
+
+    @Override
+    public void incr(String key) {
+      values.merge(key, 1L, Long::sum);
+    }
+
+    @Override
+    public void incrBy(Map<String, Long> deltas, String invalidation) {
+      if (failWrites) {
+        throw new IllegalStateException("Redis is unavailable");
+      }
+      writes++;
+      deltas.forEach((key, delta) -> values.merge(key, delta, Long::sum));
+      if (invalidation != null) {
+        published.add(invalidation);
+      }
+      if (duringWrite != null) {
+        duringWrite.run();
+      }
+    }
+
+    @Override
+    public Runnable subscribe(Consumer<String> onInvalidation, Runnable onMissed) {
+      this.onInvalidation = onInvalidation;
+      this.onMissed = onMissed;
+      return () -> { };
+    }
+  }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package demo;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController;
+import com.google.api.gax.batching.FlowController.FlowControlException;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+import com.google.api.gax.core.CredentialsProvider;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.rpc.TransportChannelProvider;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.cloud.spring.core.GcpProjectIdProvider;
+import com.google.cloud.spring.pubsub.core.PubSubTemplate;
+import com.google.cloud.spring.pubsub.reactive.PubSubReactiveFactory;
+import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.PubSubTopicUtils;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.pubsub.v1.PubsubMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+/**
+ * Relays messages from {@code relay.subscription} to {@code relay.topic} with a reactive stream,
+ * as an alternative to the channel adapters of {@link PubSubApplication}. Enable it with {@code
+ * relay.mode=reactive}.
+ *
+ * <p>Messages are pulled only as fast as they are republished: at most {@code
+ * relay.max-outstanding-messages} messages and {@code relay.max-outstanding-bytes} bytes are
+ * between being pulled and being acked. The relay publishes with its own {@link Publisher}, in
+ * batches of up to {@code relay.publish-batch-size} messages or {@code relay.publish-batch-bytes}
+ * bytes sent after at most {@code relay.publish-batch-delay}, so the publishers of the rest of
+ * the application keep their own settings. Each message is acked only after its publish
+ * succeeded, in batches of up to {@code relay.ack-batch-size} messages, and nacked if its publish
+ * failed. If the stream fails, the relay starts again after a backoff; the messages it had pulled
+ * are redelivered by Pub/Sub.
+ *
+ * <p>The {@code relay.messages} counters, tagged with the stage of the messages, and the {@code
+ * relay.publish.latency} timer are available from the {@code /actuator/metrics} endpoint.
+ */
+@Component
+@ConditionalOnProperty(name = "relay.mode", havingValue = "reactive")
+public class BatchedRelay {
+
+  private static final Log LOGGER = LogFactory.getLog(BatchedRelay.class);
+
+  private final PubSubReactiveFactory reactiveFactory;
+  private final PubSubTemplate pubSubTemplate;
+  private final GcpProjectIdProvider projectIdProvider;
+  private final CredentialsProvider credentialsProvider;
+  private final TransportChannelProvider channelProvider;
+  private final String subscription;
+  private final String topic;
+  private final int maxOutstandingMessages;
+  private final int pullBatchSize;
+  private final int ackBatchSize;
+  private final Duration ackMaxDelay;
+  private final Duration pollingPeriod;
+  private final FlowControlSettings flowControlSettings;
+  private final BatchingSettings batchingSettings;
+
+  private final Counter received;
+  private final Counter published;
+  private final Counter acked;
+  private final Counter failed;
+  private final Timer publishLatency;
+
+  private Publisher publisher;
+  private Disposable relay;
+
+  public BatchedRelay(
+      PubSubReactiveFactory reactiveFactory,
+      PubSubTemplate pubSubTemplate,
+      GcpProjectIdProvider projectIdProvider,
+      CredentialsProvider credentialsProvider,
+      @Qualifier("publisherTransportChannelProvider") TransportChannelProvider channelProvider,
+      MeterRegistry meterRegistry,
+      @Value("${spring.cloud.gcp.pubsub.emulator-host:}") String emulatorHost,
+      @Value("${relay.subscription:sub-one}") String subscription,
+      @Value("${relay.topic:topic-two}") String topic,
+      @Value("${relay.max-outstanding-messages:1000}") int maxOutstandingMessages,
+      @Value("${relay.max-outstanding-bytes:104857600}") long maxOutstandingBytes,
+      @Value("${relay.pull-batch-size:100}") int pullBatchSize,
+      @Value("${relay.ack-batch-size:100}") int ackBatchSize,
+      @Value("${relay.ack-max-delay:100ms}") Duration ackMaxDelay,
+      @Value("${relay.polling-period:100ms}") Duration pollingPeriod,
+      @Value("${relay.publish-batch-size:100}") long publishBatchSize,
+      @Value("${relay.publish-batch-bytes:1048576}") long publishBatchBytes,
+      @Value("${relay.publish-batch-delay:1s}") Duration publishBatchDelay) {
+    this.reactiveFactory = reactiveFactory;
+    this.pubSubTemplate = pubSubTemplate;
+    this.projectIdProvider = projectIdProvider;
+    // The emulator takes no credentials, as in the publishers configured by Spring Cloud GCP.
+    this.credentialsProvider =
+        emulatorHost.isEmpty() ? credentialsProvider : NoCredentialsProvider.create();
+    this.channelProvider = channelProvider;
+    this.subscription = subscription;
+    this.topic = topic;
+    this.maxOutstandingMessages = maxOutstandingMessages;
+    this.pullBatchSize = pullBatchSize;
+    this.ackBatchSize = ackBatchSize;
+    this.ackMaxDelay = ackMaxDelay;
+    this.pollingPeriod = pollingPeriod;
+    this.flowControlSettings =
+        FlowControlSettings.newBuilder()
+            .setMaxOutstandingElementCount((long) maxOutstandingMessages)
+            .setMaxOutstandingRequestBytes(maxOutstandingBytes)
+            .setLimitExceededBehavior(LimitExceededBehavior.Block)
+            .build();
+    this.batchingSettings =
+        BatchingSettings.newBuilder()
+            .setElementCountThreshold(publishBatchSize)
+            .setRequestByteThreshold(publishBatchBytes)
+            .setDelayThreshold(org.threeten.bp.Duration.ofMillis(publishBatchDelay.toMillis()))
+            .build();
+
+    this.received = messageCounter(meterRegistry, "received");
+    this.published = messageCounter(meterRegistry, "published");
+    this.acked = messageCounter(meterRegistry, "acked");
+    this.failed = messageCounter(meterRegistry, "failed");
+    this.publishLatency =
+        Timer.builder("relay.publish.latency")
+            .description("Time to republish a message")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+  }
+
+  private static Counter messageCounter(MeterRegistry meterRegistry, String stage) {
+    return Counter.builder("relay.messages")
+        .description("Messages relayed, by stage")
+        .tag("stage", stage)
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void start() throws IOException {
+    publisher =
+        Publisher.newBuilder(PubSubTopicUtils.toTopicName(topic, projectIdProvider.getProjectId()))
+            .setCredentialsProvider(credentialsProvider)
+            .setChannelProvider(channelProvider)
+            .setBatchingSettings(batchingSettings)
+            .build();
+    relay =
+        Flux.defer(this::relay)
+            // Start again if anything fails, rather than leaving the subscription unread.
+            .retryWhen(
+                Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                    .doBeforeRetry(
+                        signal -> LOGGER.error("Restarting the relay.", signal.failure())))
+            .subscribe(null, error -> LOGGER.error("The relay stopped.", error));
+    LOGGER.info("Relaying messages from " + subscription + " to " + topic + ".");
+  }
+
+  /**
+   * Returns the stream of acked batches. Each subscription has its own flow controller, so the
+   * messages lost by a failed subscription do not hold back the next one.
+   */
+  private Flux<Void> relay() {
+    FlowController flowController = new FlowController(flowControlSettings);
+    return reactiveFactory
+        .poll(subscription, pollingPeriod.toMillis())
+        // Keep pulling if a pull fails, for example while the subscription is being created.
+        .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)))
+        // Request messages in pull-sized batches, and wait here for flow control so that only
+        // this thread blocks.
+        .publishOn(Schedulers.boundedElastic(), pullBatchSize)
+        .doOnNext(message -> reserve(flowController, message))
+        .flatMap(message -> publish(flowController, message), maxOutstandingMessages)
+        .bufferTimeout(ackBatchSize, ackMaxDelay)
+        // bufferTimeout emits on its timer even when concatMap has not asked for a batch, and
+        // fails with an overflow error if nothing holds it. The flow controller already bounds
+        // the messages waiting here.
+        .onBackpressureBuffer()
+        .concatMap(messages -> ack(flowController, messages));
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    relay.dispose();
+    publisher.shutdown();
+    publisher.awaitTermination(1, TimeUnit.MINUTES);
+  }
+
+  private void reserve(FlowController flowController, AcknowledgeablePubsubMessage message) {
+    received.increment();
+    try {
+      flowController.reserve(1, message.getPubsubMessage().getSerializedSize());
+    } catch (FlowControlException e) {
+      // Only thrown with LimitExceededBehavior.ThrowException.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void release(
+      FlowController flowController, List<AcknowledgeablePubsubMessage> messages) {
+    long bytes = 0;
+    for (AcknowledgeablePubsubMessage message : messages) {
+      bytes += message.getPubsubMessage().getSerializedSize();
+    }
+    flowController.release(messages.size(), bytes);
+  }
+
+  private Mono<AcknowledgeablePubsubMessage> publish(
+      FlowController flowController, AcknowledgeablePubsubMessage message) {
+    // Copy only the payload, the message ID and publish time are assigned by the new topic.
+    PubsubMessage original = message.getPubsubMessage();
+    PubsubMessage copy =
+        PubsubMessage.newBuilder()
+            .setData(original.getData())
+            .putAllAttributes(original.getAttributesMap())
+            .build();
+    long start = System.nanoTime();
+    return toMono(publisher.publish(copy))
+        .map(
+            messageId -> {
+              publishLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+              published.increment();
+              return message;
+            })
+        .onErrorResume(
+            error -> {
+              // Let Pub/Sub redeliver the message instead of waiting for its ack deadline.
+              failed.increment();
+              LOGGER.warn("Failed to publish message " + original.getMessageId(), error);
+              message.nack();
+              release(flowController, Collections.singletonList(message));
+              return Mono.empty();
+            });
+  }
+
+  private Mono<Void> ack(
+      FlowController flowController, List<AcknowledgeablePubsubMessage> messages) {
+    return toMono(pubSubTemplate.ack(messages))
+        .doOnSuccess(ignored -> acked.increment(messages.size()))
+        .onErrorResume(
+            error -> {
+              // The messages are redelivered after their ack deadline.
+              LOGGER.warn("Failed to ack " + messages.size() + " messages.", error);
+              return Mono.empty();
+            })
+        .doFinally(signal -> release(flowController, messages));
+  }
+
+  private static <T> Mono<T> toMono(ListenableFuture<T> future) {
+    return Mono.create(sink -> future.addCallback(sink::success, sink::error));
+  }
+
+  private static <T> Mono<T> toMono(ApiFuture<T> future) {
+    return Mono.create(
+        sink ->
+            ApiFutures.addCallback(
+                future,
+                new ApiFutureCallback<T>() {
+                  @Override
+                  public void onSuccess(T result) {
+                    sink.success(result);
+                  }
+
+                  @Override
+                  public void onFailure(Throwable t) {
+                    sink.error(t);
+                  }
+                },
+                MoreExecutors.directExecutor()));
+  }
+}
@@ -22,6 +22,7 @@ import com.google.cloud.spring.pubsub.integration.inbound.PubSubInboundChannelAd
 import com.google.cloud.spring.pubsub.integration.outbound.PubSubMessageHandler;
 import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
 import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
+import java.time.Duration;
 import java.util.Random;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -30,6 +31,7 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.integration.channel.PublishSubscribeChannel;
@@ -39,7 +41,6 @@ import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.handler.annotation.Header;
 import reactor.core.publisher.Flux;
-import reactor.core.scheduler.Schedulers;
 
 @SpringBootApplication
 public class PubSubApplication {
@@ -61,6 +62,7 @@ public class PubSubApplication {
   // Create an inbound channel adapter to listen to the subscription `sub-one` and send
   // messages to the input message channel.
   @Bean
+  @ConditionalOnProperty(name = "relay.mode", havingValue = "adapter", matchIfMissing = true)
   public PubSubInboundChannelAdapter inboundChannelAdapter(
       @Qualifier("inputMessageChannel") MessageChannel messageChannel,
       PubSubTemplate pubSubTemplate) {
@@ -117,22 +119,16 @@ public class PubSubApplication {
   @Bean
   public Supplier<Flux<Message<String>>> sendMessageToTopicOne() {
     return () ->
-        Flux.<Message<String>>generate(
-                sink -> {
-                  try {
-                    Thread.sleep(10000);
-                  } catch (InterruptedException e) {
-                    // Stop sleep earlier.
-                  }
-
+        Flux.interval(Duration.ofSeconds(10))
+            .map(
+                tick -> {
                   Message<String> message =
                       MessageBuilder.withPayload("message-" + rand.nextInt(1000)).build();
                   LOGGER.info(
                       "Sending a message via the output binder to topic-one! Payload: "
                           + message.getPayload());
-                  sink.next(message);
-                })
-            .subscribeOn(Schedulers.boundedElastic());
+                  return message;
+                });
   }
   // [END pubsub_spring_cloud_stream_output_binder]
 }
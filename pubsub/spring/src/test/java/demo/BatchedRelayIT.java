@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package demo;
+
+import static com.google.common.truth.Truth.assertThat;
+import static junit.framework.TestCase.assertNotNull;
+
+import com.google.cloud.spring.pubsub.PubSubAdmin;
+import com.google.cloud.spring.pubsub.core.PubSubTemplate;
+import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/** Relays a burst of messages through {@link BatchedRelay} on the Pub/Sub emulator. */
+public class BatchedRelayIT {
+
+  private static final String emulatorHost = System.getenv("PUBSUB_EMULATOR_HOST");
+  private static final int MESSAGES = 5000;
+
+  private ConfigurableApplicationContext context;
+
+  private static void requireEnvVar(String varName) {
+    assertNotNull(
+        "Environment variable " + varName + " is required to perform these tests.",
+        System.getenv(varName));
+  }
+
+  @Rule public Timeout globalTimeout = Timeout.seconds(300); // 5 minute timeout
+
+  @BeforeClass
+  public static void checkRequirements() {
+    requireEnvVar("PUBSUB_EMULATOR_HOST");
+  }
+
+  @After
+  public void tearDown() {
+    if (context != null) {
+      context.close();
+    }
+  }
+
+  @Test
+  public void testBatchedRelay() throws Exception {
+    context =
+        SpringApplication.run(
+            PubSubApplication.class,
+            "--relay.mode=reactive",
+            "--relay.max-outstanding-messages=200",
+            "--relay.ack-batch-size=50",
+            "--spring.cloud.gcp.pubsub.emulator-host=" + emulatorHost,
+            "--spring.cloud.gcp.project-id=relay-test",
+            "--server.port=0");
+
+    // The relay keeps retrying to pull from sub-one until it exists.
+    PubSubAdmin admin = context.getBean(PubSubAdmin.class);
+    for (String topic : new String[] {"topic-one", "topic-two"}) {
+      if (admin.getTopic(topic) == null) {
+        admin.createTopic(topic);
+      }
+    }
+    if (admin.getSubscription("sub-one") == null) {
+      admin.createSubscription("sub-one", "topic-one");
+    }
+    if (admin.getSubscription("sub-two") == null) {
+      admin.createSubscription("sub-two", "topic-two");
+    }
+
+    PubSubTemplate pubSubTemplate = context.getBean(PubSubTemplate.class);
+    long start = System.nanoTime();
+    for (int i = 0; i < MESSAGES; i++) {
+      pubSubTemplate.publish("topic-one", "relay-" + i);
+    }
+
+    // Messages may be redelivered, so count distinct payloads.
+    Set<String> relayed = new HashSet<>();
+    while (relayed.size() < MESSAGES) {
+      List<AcknowledgeablePubsubMessage> messages = pubSubTemplate.pull("sub-two", 1000, false);
+      for (AcknowledgeablePubsubMessage message : messages) {
+        String payload = message.getPubsubMessage().getData().toStringUtf8();
+        if (payload.startsWith("relay-")) {
+          relayed.add(payload);
+        }
+      }
+      if (!messages.isEmpty()) {
+        pubSubTemplate.ack(messages).get();
+      }
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("Relayed %d messages in %.1fs (%.0f messages/s)%n",
+        MESSAGES, seconds, MESSAGES / seconds);
+
+    MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+    // Acks are sent after the publish, so the last batch may still be in flight.
+    TimeUnit.SECONDS.sleep(1);
+    assertThat(meterRegistry.counter("relay.messages", "stage", "published").count())
+        .isAtLeast((double) MESSAGES);
+    assertThat(meterRegistry.counter("relay.messages", "stage", "acked").count())
+        .isAtLeast((double) MESSAGES);
+    assertThat(meterRegistry.counter("relay.messages", "stage", "failed").count()).isEqualTo(0.0);
+  }
+}
@@ -0,0 +1,64 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.examples.pubsub.streaming;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.io.Compression;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.joda.time.Instant;
+
+/** The Avro records that {@link PubSubToGcs} writes with {@code --outputFormat=AVRO}. */
+final class AvroMessages {
+
+  // The schema of the Avro output, with the publish time in milliseconds since the epoch.
+  static final Schema SCHEMA = SchemaBuilder.record("PubSubMessage")
+      .namespace("com.examples.pubsub.streaming")
+      .fields()
+      .requiredString("message")
+      .name("publishTime").type().longBuilder().prop("logicalType", "timestamp-millis").endLong()
+      .noDefault()
+      .endRecord();
+
+  private AvroMessages() {}
+
+  /** Returns the Avro codec that matches the compression of the text files. */
+  static CodecFactory codec(Compression compression) {
+    switch (compression) {
+      case UNCOMPRESSED:
+        return CodecFactory.nullCodec();
+      case GZIP:
+        return CodecFactory.deflateCodec(CodecFactory.DEFAULT_DEFLATE_LEVEL);
+      case ZSTD:
+        return CodecFactory.zstandardCodec(CodecFactory.DEFAULT_ZSTANDARD_LEVEL);
+      default:
+        throw new IllegalArgumentException("Unsupported compression for Avro: " + compression);
+    }
+  }
+
+  static class ToGenericRecordFn extends DoFn<String, GenericRecord> {
+    @ProcessElement
+    public void processElement(@Element String message, @Timestamp Instant publishTime,
+        OutputReceiver<GenericRecord> out) {
+      GenericRecord record = new GenericData.Record(SCHEMA);
+      record.put("message", message);
+      record.put("publishTime", publishTime.getMillis());
+      out.output(record);
+    }
+  }
+}
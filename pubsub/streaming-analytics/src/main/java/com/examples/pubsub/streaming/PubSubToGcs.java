@@ -17,16 +17,25 @@ package com.examples.pubsub.streaming;
 // [START pubsub_to_gcs]
 
 import java.io.IOException;
-import org.apache.beam.examples.common.WriteOneFilePerWindow;
+import org.apache.avro.generic.GenericRecord;
 import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.extensions.avro.coders.AvroCoder;
+import org.apache.beam.sdk.extensions.avro.io.AvroIO;
+import org.apache.beam.sdk.io.Compression;
+import org.apache.beam.sdk.io.FileIO;
+import org.apache.beam.sdk.io.TextIO;
+import org.apache.beam.sdk.io.WriteFilesResult;
 import org.apache.beam.sdk.io.gcp.pubsub.PubsubIO;
 import org.apache.beam.sdk.options.Default;
 import org.apache.beam.sdk.options.Description;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.options.StreamingOptions;
 import org.apache.beam.sdk.options.Validation.Required;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
 import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.values.PCollection;
 import org.joda.time.Duration;
 
 public class PubSubToGcs {
@@ -52,12 +61,46 @@ public class PubSubToGcs {
     String getOutput();
 
     void setOutput(String value);
+
+    @Description("Fixed number of files per window. When 0, the number of files is computed from "
+        + "maxRecordsPerFile and maxBytesPerFile, or left to the runner if both are 0 too.")
+    @Default.Integer(0)
+    Integer getNumShards();
+
+    void setNumShards(Integer value);
+
+    @Description("Target maximum number of messages per file, or 0 for no limit.")
+    @Default.Long(0)
+    Long getMaxRecordsPerFile();
+
+    void setMaxRecordsPerFile(Long value);
+
+    @Description("Target maximum uncompressed size of a file in bytes, or 0 for no limit.")
+    @Default.Long(0)
+    Long getMaxBytesPerFile();
+
+    void setMaxBytesPerFile(Long value);
+
+    @Description("Output format: TEXT for one message per line, or AVRO.")
+    @Default.Enum("TEXT")
+    OutputFormat getOutputFormat();
+
+    void setOutputFormat(OutputFormat value);
+
+    @Description("Compression of the output files: UNCOMPRESSED, GZIP or ZSTD. Avro files use "
+        + "the deflate or zstandard codec for GZIP or ZSTD.")
+    @Default.Enum("UNCOMPRESSED")
+    Compression getCompression();
+
+    void setCompression(Compression value);
   }
 
-  public static void main(String[] args) throws IOException {
-    // The maximum number of shards when writing output.
-    int numShards = 1;
+  public enum OutputFormat {
+    TEXT,
+    AVRO
+  }
 
+  public static void main(String[] args) throws IOException {
     PubSubToGcsOptions options =
         PipelineOptionsFactory.fromArgs(args).withValidation().as(PubSubToGcsOptions.class);
 
@@ -70,11 +113,66 @@ public class PubSubToGcs {
         .apply("Read PubSub Messages", PubsubIO.readStrings().fromTopic(options.getInputTopic()))
         // 2) Group the messages into fixed-sized minute intervals.
         .apply(Window.into(FixedWindows.of(Duration.standardMinutes(options.getWindowSize()))))
-        // 3) Write one file to GCS for every window of messages.
-        .apply("Write Files to GCS", new WriteOneFilePerWindow(options.getOutput(), numShards));
+        // 3) Write the files of every window of messages to GCS.
+        .apply("Write Files to GCS", writeFiles(options));
 
     // Execute the pipeline and wait until it finishes running.
     pipeline.run().waitUntilFinish();
   }
+
+  /**
+   * Writes each window of messages to {@code options.getOutput()}, sharded as configured by the
+   * options.
+   */
+  static PTransform<PCollection<String>, WriteFilesResult<Void>> writeFiles(
+      PubSubToGcsOptions options) {
+    String output = options.getOutput();
+    int slash = output.lastIndexOf('/');
+    String directory = output.substring(0, slash + 1);
+    String prefix = output.substring(slash + 1);
+    Compression compression = options.getCompression();
+    OutputFormat format = options.getOutputFormat();
+    int numShards = options.getNumShards();
+    long maxRecords = options.getMaxRecordsPerFile();
+    long maxBytes = options.getMaxBytesPerFile();
+
+    return new PTransform<PCollection<String>, WriteFilesResult<Void>>() {
+      @Override
+      public WriteFilesResult<Void> expand(PCollection<String> messages) {
+        if (format == OutputFormat.AVRO) {
+          FileIO.Write<Void, GenericRecord> write = FileIO.<GenericRecord>write()
+              .via(AvroIO.sink(AvroMessages.SCHEMA).withCodec(AvroMessages.codec(compression)))
+              .to(directory)
+              .withPrefix(prefix)
+              .withSuffix(".avro");
+          PCollection<GenericRecord> records = messages
+              .apply("To Avro records", ParDo.of(new AvroMessages.ToGenericRecordFn()))
+              .setCoder(AvroCoder.of(AvroMessages.SCHEMA));
+          return records.apply(withSharding(write, numShards, new ShardCount<GenericRecord>(
+              maxRecords, maxBytes, record -> record.get("message").toString())));
+        }
+        FileIO.Write<Void, String> write = FileIO.<String>write()
+            .via(TextIO.sink())
+            .to(directory)
+            .withPrefix(prefix)
+            .withSuffix(".txt")
+            .withCompression(compression);
+        return messages.apply(withSharding(
+            write, numShards, new ShardCount<String>(maxRecords, maxBytes, message -> message)));
+      }
+    };
+  }
+
+  private static <T> FileIO.Write<Void, T> withSharding(
+      FileIO.Write<Void, T> write, int numShards, ShardCount<T> shardCount) {
+    if (numShards > 0) {
+      return write.withNumShards(numShards);
+    }
+    if (shardCount.hasLimits()) {
+      return write.withSharding(shardCount);
+    }
+    // Let the runner pick the number of files from the throughput.
+    return write.withAutoSharding();
+  }
 }
 // [END pubsub_to_gcs]
@@ -0,0 +1,135 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.examples.pubsub.streaming;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
+
+/**
+ * Computes the number of files of each window so that no file holds more than {@code
+ * maxRecordsPerFile} messages or {@code maxBytesPerFile} bytes of messages, since FileIO spreads
+ * the messages of a window evenly over its files. The count is only known when the window
+ * closes, so the files of a window are written then.
+ */
+class ShardCount<T> extends PTransform<PCollection<T>, PCollectionView<Integer>> {
+
+  /** Returns the text of a message, to measure its size. */
+  interface MessageText<T> extends Serializable {
+    String apply(T element);
+  }
+
+  private final long maxRecords;
+  private final long maxBytes;
+  private final MessageText<T> text;
+
+  ShardCount(long maxRecords, long maxBytes, MessageText<T> text) {
+    this.maxRecords = maxRecords;
+    this.maxBytes = maxBytes;
+    this.text = text;
+  }
+
+  /** Whether a file has a limit at all, so that the count needs to be computed. */
+  boolean hasLimits() {
+    return maxRecords > 0 || maxBytes > 0;
+  }
+
+  @Override
+  public PCollectionView<Integer> expand(PCollection<T> input) {
+    return input
+        .apply("Message sizes", ParDo.of(new MessageSizeFn<>(text)))
+        .setCoder(VarLongCoder.of())
+        .apply("Shard count", Combine.globally(new ShardCountFn(maxRecords, maxBytes))
+            .asSingletonView());
+  }
+
+  /** Returns the fewest files that keep each file within the limits that are positive. */
+  static int shards(long records, long bytes, long maxRecords, long maxBytes) {
+    long shards = 1;
+    if (maxRecords > 0) {
+      shards = Math.max(shards, (records + maxRecords - 1) / maxRecords);
+    }
+    if (maxBytes > 0) {
+      shards = Math.max(shards, (bytes + maxBytes - 1) / maxBytes);
+    }
+    return (int) Math.min(shards, Integer.MAX_VALUE);
+  }
+
+  static class MessageSizeFn<T> extends DoFn<T, Long> {
+    private final MessageText<T> text;
+
+    MessageSizeFn(MessageText<T> text) {
+      this.text = text;
+    }
+
+    @ProcessElement
+    public void processElement(@Element T element, OutputReceiver<Long> out) {
+      // One more byte for the newline of a text file.
+      out.output(text.apply(element).getBytes(StandardCharsets.UTF_8).length + 1L);
+    }
+  }
+
+  static class ShardCountFn extends Combine.CombineFn<Long, long[], Integer> {
+    private final long maxRecords;
+    private final long maxBytes;
+
+    ShardCountFn(long maxRecords, long maxBytes) {
+      this.maxRecords = maxRecords;
+      this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public long[] createAccumulator() {
+      // The number of messages and their total size.
+      return new long[2];
+    }
+
+    @Override
+    public long[] addInput(long[] accumulator, Long bytes) {
+      accumulator[0]++;
+      accumulator[1] += bytes;
+      return accumulator;
+    }
+
+    @Override
+    public long[] mergeAccumulators(Iterable<long[]> accumulators) {
+      long[] merged = createAccumulator();
+      for (long[] accumulator : accumulators) {
+        merged[0] += accumulator[0];
+        merged[1] += accumulator[1];
+      }
+      return merged;
+    }
+
+    @Override
+    public Integer extractOutput(long[] accumulator) {
+      return shards(accumulator[0], accumulator[1], maxRecords, maxBytes);
+    }
+
+    @Override
+    public Coder<long[]> getAccumulatorCoder(CoderRegistry registry, Coder<Long> inputCoder) {
+      return SerializableCoder.of(long[].class);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.examples.pubsub.streaming;
+
+import com.examples.pubsub.streaming.PubSubToGcs.PubSubToGcsOptions;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.testing.TestStream;
+import org.apache.beam.sdk.transforms.windowing.FixedWindows;
+import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+
+/**
+ * Replays a burst of messages through {@link PubSubToGcs#writeFiles} with {@link TestStream} on
+ * the DirectRunner, and reports the throughput and the number and sizes of the files written.
+ *
+ * <p>The first two arguments are the number of windows and messages per window; the others are
+ * {@link PubSubToGcsOptions}, for example {@code mvn test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=com.examples.pubsub.streaming.PubSubToGcsBenchmark
+ * -Dexec.args="4 100000 --maxRecordsPerFile=20000 --compression=GZIP"}.
+ */
+public class PubSubToGcsBenchmark {
+
+  private static final int MESSAGE_SIZE = 200;
+
+  public static void main(String[] args) throws IOException {
+    int windows = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+    int messagesPerWindow = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+    String[] optionArgs = new String[Math.max(0, args.length - 2)];
+    System.arraycopy(args, Math.min(2, args.length), optionArgs, 0, optionArgs.length);
+
+    Path directory = Files.createTempDirectory("pubsub-to-gcs");
+    PubSubToGcsOptions options =
+        PipelineOptionsFactory.fromArgs(optionArgs).as(PubSubToGcsOptions.class);
+    options.setOutput(directory.resolve("output").toString());
+
+    Pipeline pipeline = Pipeline.create(options);
+    pipeline
+        .apply(messages(windows, messagesPerWindow))
+        .apply(Window.into(FixedWindows.of(Duration.standardMinutes(options.getWindowSize()))))
+        .apply(PubSubToGcs.writeFiles(options));
+
+    long start = System.nanoTime();
+    pipeline.run().waitUntilFinish();
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    List<Path> files;
+    try (Stream<Path> paths = Files.list(directory)) {
+      files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+    }
+    long total = 0;
+    long largest = 0;
+    for (Path file : files) {
+      long size = Files.size(file);
+      total += size;
+      largest = Math.max(largest, size);
+    }
+    long messages = (long) windows * messagesPerWindow;
+    System.out.printf("%,d messages in %.2fs: %,.0f messages/s%n",
+        messages, seconds, messages / seconds);
+    System.out.printf("%d files, %.1f MB in total, largest %.1f MB%n",
+        files.size(), total / 1e6, largest / 1e6);
+
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /** Returns messages spread over consecutive one minute windows, with the watermark after each. */
+  private static TestStream<String> messages(int windows, int messagesPerWindow) {
+    StringBuilder padding = new StringBuilder();
+    while (padding.length() < MESSAGE_SIZE) {
+      padding.append("lorem ipsum dolor sit amet ");
+    }
+    String body = padding.substring(0, MESSAGE_SIZE - 12);
+
+    Instant start = new Instant(0);
+    TestStream.Builder<String> stream = TestStream.create(StringUtf8Coder.of());
+    for (int w = 0; w < windows; w++) {
+      Instant windowStart = start.plus(Duration.standardMinutes(w));
+      List<TimestampedValue<String>> batch = new ArrayList<>();
+      for (int i = 0; i < messagesPerWindow; i++) {
+        Instant timestamp = windowStart.plus(Duration.millis(i % 60_000));
+        batch.add(TimestampedValue.of(String.format("%011d %s", i, body), timestamp));
+        if (batch.size() == 10_000) {
+          stream = addAll(stream, batch);
+          batch.clear();
+        }
+      }
+      stream = addAll(stream, batch)
+          .advanceWatermarkTo(windowStart.plus(Duration.standardMinutes(1)));
+    }
+    return stream.advanceWatermarkToInfinity();
+  }
+
+  private static TestStream.Builder<String> addAll(
+      TestStream.Builder<String> stream, List<TimestampedValue<String>> batch) {
+    if (batch.isEmpty()) {
+      return stream;
+    }
+    TimestampedValue<String> first = batch.get(0);
+    @SuppressWarnings("unchecked")
+    TimestampedValue<String>[] rest =
+        batch.subList(1, batch.size()).toArray(new TimestampedValue[0]);
+    return stream.addElements(first, rest);
+  }
+}
@@ -0,0 +1,154 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.examples.pubsub.streaming;
+
+import static org.junit.Assert.assertEquals;
+
+import com.examples.pubsub.streaming.PubSubToGcs.OutputFormat;
+import com.examples.pubsub.streaming.PubSubToGcs.PubSubToGcsOptions;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.testing.TestStream;
+import org.apache.beam.sdk.transforms.windowing.FixedWindows;
+import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests the number of files that {@link PubSubToGcs#writeFiles} writes for each window. */
+@RunWith(JUnit4.class)
+public class PubSubToGcsTest {
+
+  // Every message is 12 bytes, 13 with its newline.
+  private static final String MESSAGE = "message-%04d";
+
+  // Matches the shard and shard count that FileIO puts in each file name.
+  private static final Pattern SHARD = Pattern.compile("-(\\d{5})-of-(\\d{5})\\.");
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+  @Rule public final transient TestPipeline pipeline = TestPipeline.create();
+
+  @Test
+  public void shards_keepsEachFileWithinTheLimits() {
+    assertEquals(1, ShardCount.shards(0, 0, 10, 100));
+    assertEquals(1, ShardCount.shards(10, 1000, 10, 0));
+    assertEquals(2, ShardCount.shards(11, 1000, 10, 0));
+    assertEquals(4, ShardCount.shards(25, 325, 0, 100));
+    // The stricter of the two limits wins.
+    assertEquals(3, ShardCount.shards(25, 325, 10, 1000));
+    assertEquals(4, ShardCount.shards(25, 325, 10, 100));
+    assertEquals(Integer.MAX_VALUE, ShardCount.shards(Long.MAX_VALUE, 0, 1, 0));
+  }
+
+  @Test
+  public void writeFiles_splitsEachWindowByMessageCount() throws IOException {
+    PubSubToGcsOptions options = options();
+    options.setMaxRecordsPerFile(10L);
+    run(options);
+
+    // 25 messages in the first window, 5 in the second.
+    assertEquals(expectedFiles(3, 1), filesByShardCount(".txt"));
+  }
+
+  @Test
+  public void writeFiles_splitsEachWindowOfAvroRecordsBySize() throws IOException {
+    PubSubToGcsOptions options = options();
+    options.setOutputFormat(OutputFormat.AVRO);
+    options.setMaxBytesPerFile(100L);
+    run(options);
+
+    // 325 bytes of messages in the first window, 65 in the second.
+    assertEquals(expectedFiles(4, 1), filesByShardCount(".avro"));
+  }
+
+  private PubSubToGcsOptions options() {
+    PubSubToGcsOptions options = PipelineOptionsFactory.as(PubSubToGcsOptions.class);
+    options.setOutput(folder.getRoot().toPath().resolve("output").toString());
+    return options;
+  }
+
+  private void run(PubSubToGcsOptions options) {
+    pipeline
+        .apply(messages())
+        .apply(Window.into(FixedWindows.of(Duration.standardMinutes(options.getWindowSize()))))
+        .apply(PubSubToGcs.writeFiles(options));
+    pipeline.run().waitUntilFinish();
+  }
+
+  /**
+   * Returns 25 messages in the first one minute window and 5 in the second. The messages of a
+   * window are added at once, so FileIO deals them to its files in turn and leaves none empty.
+   */
+  @SuppressWarnings("unchecked")
+  private static TestStream<String> messages() {
+    TestStream.Builder<String> stream = TestStream.create(StringUtf8Coder.of());
+    int[] counts = {25, 5};
+    int message = 0;
+    for (int window = 0; window < counts.length; window++) {
+      Instant windowStart = new Instant(0).plus(Duration.standardMinutes(window));
+      TimestampedValue<String>[] batch = new TimestampedValue[counts[window]];
+      for (int i = 0; i < batch.length; i++) {
+        batch[i] = TimestampedValue.of(
+            String.format(MESSAGE, message++), windowStart.plus(Duration.standardSeconds(i)));
+      }
+      stream = stream
+          .addElements(batch[0], Arrays.copyOfRange(batch, 1, batch.length))
+          .advanceWatermarkTo(windowStart.plus(Duration.standardMinutes(1)));
+    }
+    return stream.advanceWatermarkToInfinity();
+  }
+
+  /** Maps each shard count to the number of files written with it. */
+  private static Map<Integer, Integer> expectedFiles(int... shardCounts) {
+    Map<Integer, Integer> files = new TreeMap<>();
+    for (int shardCount : shardCounts) {
+      files.merge(shardCount, shardCount, Integer::sum);
+    }
+    return files;
+  }
+
+  /** Counts the files with a suffix by the shard count in their name. */
+  private Map<Integer, Integer> filesByShardCount(String suffix) throws IOException {
+    Map<Integer, Integer> files = new TreeMap<>();
+    try (Stream<Path> paths = Files.list(folder.getRoot().toPath())) {
+      for (Path path : (Iterable<Path>) paths::iterator) {
+        String name = path.getFileName().toString();
+        if (!name.endsWith(suffix)) {
+          continue;
+        }
+        Matcher matcher = SHARD.matcher(name);
+        if (matcher.find()) {
+          files.merge(Integer.parseInt(matcher.group(2)), 1, Integer::sum);
+        }
+      }
+    }
+    return files;
+  }
+}
@@ -0,0 +1,247 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package examples;
+
+import com.google.cloud.pubsublite.proto.SequencedMessage;
+import com.google.protobuf.util.Timestamps;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import org.apache.beam.sdk.coders.BooleanCoder;
+import org.apache.beam.sdk.coders.IterableCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.extensions.sorter.BufferedExternalSorter;
+import org.apache.beam.sdk.extensions.sorter.SortValues;
+import org.apache.beam.sdk.io.FileSystems;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Distribution;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.state.StateSpec;
+import org.apache.beam.sdk.state.StateSpecs;
+import org.apache.beam.sdk.state.ValueState;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.GroupByKey;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.windowing.FixedWindows;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.util.MimeTypes;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.joda.time.Duration;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+/**
+ * Archives Pub/Sub Lite messages to files of length-delimited {@link SequencedMessage} protos,
+ * readable with {@link SequencedMessage#parseDelimitedFrom}, so the data, key, attributes,
+ * offset and publish time of each message are kept as is.
+ *
+ * <p>Messages are windowed by publish time and deduplicated within their window with Beam state,
+ * so a message delivered again after a worker restarts is written once. Beam's Pub/Sub Lite
+ * source does not tell which partition a message came from, so a message is identified by its
+ * offset, publish time and a hash of its contents. The messages of each window are written to
+ * {@code numShards} files, keyed by message key so that the messages of a key stay together, and
+ * sorted by publish time and offset with {@link SortValues}, which spills to local disk rather
+ * than hold a whole shard in memory. A file holds the messages of several partitions, so its
+ * offsets say nothing about the progress of any one partition.
+ *
+ * <p>Each file is followed by a manifest with the same name and a {@code .manifest.json}
+ * suffix, which is written last and lists the number of messages, the bytes and the publish
+ * time range of the file. The {@code publishLagMillis} and {@code archiveLagMillis}
+ * distributions report how long after their publish time messages are read and written.
+ */
+public class PubsubliteArchiver
+    extends PTransform<PCollection<SequencedMessage>, PCollection<String>> {
+
+  static final String DATA_SUFFIX = ".pb";
+  static final String MANIFEST_SUFFIX = ".manifest.json";
+
+  private static final DateTimeFormatter FORMATTER =
+      ISODateTimeFormat.basicDateTimeNoMillis().withZoneUTC();
+
+  private final String output;
+  private final Duration windowSize;
+  private final int numShards;
+
+  public PubsubliteArchiver(String output, Duration windowSize, int numShards) {
+    this.output = output;
+    this.windowSize = windowSize;
+    this.numShards = numShards;
+  }
+
+  @Override
+  public PCollection<String> expand(PCollection<SequencedMessage> messages) {
+    ProtoCoder<SequencedMessage> messageCoder = ProtoCoder.of(SequencedMessage.class);
+    return messages
+        .apply("Window by publish time", Window.into(FixedWindows.of(windowSize)))
+        .apply("Key by message id", ParDo.of(new KeyByMessageIdFn()))
+        .setCoder(KvCoder.of(StringUtf8Coder.of(), messageCoder))
+        .apply("Deduplicate", ParDo.of(new DeduplicateFn()))
+        .setCoder(messageCoder)
+        .apply("Key by shard", ParDo.of(new KeyByShardFn(numShards)))
+        .setCoder(KvCoder.of(VarIntCoder.of(), KvCoder.of(StringUtf8Coder.of(), messageCoder)))
+        .apply("Group shards", GroupByKey.create())
+        .setCoder(KvCoder.of(VarIntCoder.of(),
+            IterableCoder.of(KvCoder.of(StringUtf8Coder.of(), messageCoder))))
+        .apply("Sort shards", SortValues.create(BufferedExternalSorter.options()))
+        .apply("Write shards", ParDo.of(new WriteShardFn(output)));
+  }
+
+  /** Returns an id that is the same for every delivery of a message. */
+  static String messageId(SequencedMessage message) {
+    return message.getCursor().getOffset()
+        + "/" + Timestamps.toMicros(message.getPublishTime())
+        + "/" + Integer.toHexString(message.getMessage().toByteString().hashCode());
+  }
+
+  static class KeyByMessageIdFn extends DoFn<SequencedMessage, KV<String, SequencedMessage>> {
+    private final Distribution publishLagMillis =
+        Metrics.distribution(PubsubliteArchiver.class, "publishLagMillis");
+
+    @ProcessElement
+    public void processElement(
+        @Element SequencedMessage message, OutputReceiver<KV<String, SequencedMessage>> out) {
+      publishLagMillis.update(
+          System.currentTimeMillis() - Timestamps.toMillis(message.getPublishTime()));
+      out.output(KV.of(messageId(message), message));
+    }
+  }
+
+  /**
+   * Drops every message whose id was already seen in the same window. The state of a window is
+   * garbage collected when the window expires.
+   */
+  static class DeduplicateFn extends DoFn<KV<String, SequencedMessage>, SequencedMessage> {
+    private final Counter duplicates = Metrics.counter(PubsubliteArchiver.class, "duplicates");
+
+    @StateId("seen")
+    private final StateSpec<ValueState<Boolean>> seenSpec = StateSpecs.value(BooleanCoder.of());
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<String, SequencedMessage> element,
+        @StateId("seen") ValueState<Boolean> seen,
+        OutputReceiver<SequencedMessage> out) {
+      if (seen.read() != null) {
+        duplicates.inc();
+        return;
+      }
+      seen.write(true);
+      out.output(element.getValue());
+    }
+  }
+
+  /** Returns a key whose UTF-8 bytes sort messages by publish time and then offset. */
+  static String sortKey(SequencedMessage message) {
+    return String.format("%020d/%020d",
+        Timestamps.toMicros(message.getPublishTime()), message.getCursor().getOffset());
+  }
+
+  /** Keys each message by its shard, and by its sort key within the shard. */
+  static class KeyByShardFn
+      extends DoFn<SequencedMessage, KV<Integer, KV<String, SequencedMessage>>> {
+    private final int numShards;
+
+    KeyByShardFn(int numShards) {
+      this.numShards = numShards;
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element SequencedMessage message,
+        OutputReceiver<KV<Integer, KV<String, SequencedMessage>>> out) {
+      // Messages without a key are spread over the partitions round robin, so spread them by
+      // offset.
+      int hash = message.getMessage().getKey().isEmpty()
+          ? Long.hashCode(message.getCursor().getOffset())
+          : message.getMessage().getKey().hashCode();
+      out.output(KV.of(Math.floorMod(hash, numShards), KV.of(sortKey(message), message)));
+    }
+  }
+
+  /**
+   * Writes the sorted messages of a shard and window to a data file and then its manifest, and
+   * outputs the name of the manifest. The messages are streamed to the file as they are read.
+   * Both names only depend on the window and shard, so a retry overwrites the files of a failed
+   * attempt.
+   */
+  static class WriteShardFn
+      extends DoFn<KV<Integer, Iterable<KV<String, SequencedMessage>>>, String> {
+    private final Counter messagesWritten =
+        Metrics.counter(PubsubliteArchiver.class, "messagesWritten");
+    private final Distribution archiveLagMillis =
+        Metrics.distribution(PubsubliteArchiver.class, "archiveLagMillis");
+    private final String output;
+
+    WriteShardFn(String output) {
+      this.output = output;
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<Integer, Iterable<KV<String, SequencedMessage>>> shard,
+        IntervalWindow window,
+        OutputReceiver<String> out)
+        throws IOException {
+      String prefix = String.format("%s-%s-%s-shard-%d",
+          output, FORMATTER.print(window.start()), FORMATTER.print(window.end()), shard.getKey());
+      String dataFile = prefix + DATA_SUFFIX;
+      String manifestFile = prefix + MANIFEST_SUFFIX;
+
+      long count = 0;
+      long bytes = 0;
+      SequencedMessage first = null;
+      SequencedMessage last = null;
+      try (OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(
+          FileSystems.create(FileSystems.matchNewResource(dataFile, false), MimeTypes.BINARY)))) {
+        for (KV<String, SequencedMessage> entry : shard.getValue()) {
+          SequencedMessage message = entry.getValue();
+          message.writeDelimitedTo(stream);
+          count++;
+          bytes += message.getSizeBytes();
+          if (first == null) {
+            first = message;
+          }
+          last = message;
+        }
+      }
+
+      String manifest = String.format(
+          "{\"file\": \"%s\", \"messages\": %d, \"bytes\": %d, "
+              + "\"minPublishTime\": \"%s\", \"maxPublishTime\": \"%s\"}%n",
+          dataFile.substring(dataFile.lastIndexOf('/') + 1), count, bytes,
+          Timestamps.toString(first.getPublishTime()),
+          Timestamps.toString(last.getPublishTime()));
+      try (Writer writer = Channels.newWriter(
+          FileSystems.create(FileSystems.matchNewResource(manifestFile, false), MimeTypes.TEXT),
+          StandardCharsets.UTF_8)) {
+        writer.write(manifest);
+      }
+
+      messagesWritten.inc(count);
+      archiveLagMillis.update(
+          System.currentTimeMillis() - Timestamps.toMillis(last.getPublishTime()));
+      out.output(manifestFile);
+    }
+  }
+}
@@ -22,6 +22,8 @@ import org.apache.beam.examples.common.WriteOneFilePerWindow;
 import org.apache.beam.sdk.Pipeline;
 import org.apache.beam.sdk.io.gcp.pubsublite.PubsubLiteIO;
 import org.apache.beam.sdk.io.gcp.pubsublite.SubscriberOptions;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.options.Default;
 import org.apache.beam.sdk.options.Description;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
@@ -30,10 +32,9 @@ import org.apache.beam.sdk.options.Validation.Required;
 import org.apache.beam.sdk.transforms.MapElements;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
 import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.TypeDescriptors;
 import org.joda.time.Duration;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 public class PubsubliteToGcs {
   /*
@@ -58,14 +59,26 @@ public class PubsubliteToGcs {
     String getOutput();
 
     void setOutput(String value);
+
+    @Description("Archive the messages as length-delimited protos instead of writing their data "
+        + "as text. Each file gets a manifest that lists its message count, its bytes and its "
+        + "publish time range.")
+    @Default.Boolean(false)
+    Boolean getArchive();
+
+    void setArchive(Boolean value);
+
+    @Description("Number of output files per window. Archives spread messages over the files "
+        + "by key.")
+    @Default.Integer(1)
+    Integer getNumShards();
+
+    void setNumShards(Integer value);
   }
 
-  private static final Logger LOG = LoggerFactory.getLogger(PubsubliteToGcs.class);
+  private static final Counter messagesRead = Metrics.counter(PubsubliteToGcs.class, "messages");
 
   public static void main(String[] args) throws InterruptedException {
-    // The maximum number of shards when writing output files.
-    int numShards = 1;
-
     PubsubliteToGcsOptions options =
         PipelineOptionsFactory.fromArgs(args).withValidation().as(PubsubliteToGcsOptions.class);
 
@@ -77,34 +90,47 @@ public class PubsubliteToGcs {
             .build();
 
     Pipeline pipeline = Pipeline.create(options);
-    pipeline
-        .apply("Read From Pub/Sub Lite", PubsubLiteIO.read(subscriberOptions))
-        .apply(
-            "Convert messages",
-            MapElements.into(TypeDescriptors.strings())
-                .via(
-                    (SequencedMessage sequencedMessage) -> {
-                      String data = sequencedMessage.getMessage().getData().toStringUtf8();
-                      LOG.info("Received: " + data);
-                      long publishTime = sequencedMessage.getPublishTime().getSeconds();
-                      return data + "\t" + publishTime;
-                    }))
-        .apply(
-            "Apply windowing function",
-            Window
-                // Group the elements using fixed-sized time intervals based on the element
-                // timestamp (using the default event time trigger). The element timestamp
-                // is the publish timestamp associated with a message.
-                //
-                // NOTE: If data is not being continuously ingested, such as with a batch or
-                // intermittent publisher, the final window will never close as the watermark
-                // will not advance. If this is a possibility with your pipeline, you should
-                // add an additional processing time trigger to force window closure after
-                // enough time has passed. See
-                // https://beam.apache.org/documentation/programming-guide/#triggers
-                // for more information.
-                .<String>into(FixedWindows.of(Duration.standardMinutes(options.getWindowSize()))))
-        .apply("Write elements to GCS", new WriteOneFilePerWindow(options.getOutput(), numShards));
+    PCollection<SequencedMessage> messages =
+        pipeline.apply("Read From Pub/Sub Lite", PubsubLiteIO.read(subscriberOptions));
+
+    if (options.getArchive()) {
+      messages.apply(
+          "Archive messages to GCS",
+          new PubsubliteArchiver(
+              options.getOutput(),
+              Duration.standardMinutes(options.getWindowSize()),
+              options.getNumShards()));
+    } else {
+      messages
+          .apply(
+              "Convert messages",
+              MapElements.into(TypeDescriptors.strings())
+                  .via(
+                      (SequencedMessage sequencedMessage) -> {
+                        String data = sequencedMessage.getMessage().getData().toStringUtf8();
+                        messagesRead.inc();
+                        long publishTime = sequencedMessage.getPublishTime().getSeconds();
+                        return data + "\t" + publishTime;
+                      }))
+          .apply(
+              "Apply windowing function",
+              Window
+                  // Group the elements using fixed-sized time intervals based on the element
+                  // timestamp (using the default event time trigger). The element timestamp
+                  // is the publish timestamp associated with a message.
+                  //
+                  // NOTE: If data is not being continuously ingested, such as with a batch or
+                  // intermittent publisher, the final window will never close as the watermark
+                  // will not advance. If this is a possibility with your pipeline, you should
+                  // add an additional processing time trigger to force window closure after
+                  // enough time has passed. See
+                  // https://beam.apache.org/documentation/programming-guide/#triggers
+                  // for more information.
+                  .<String>into(FixedWindows.of(Duration.standardMinutes(options.getWindowSize()))))
+          .apply(
+              "Write elements to GCS",
+              new WriteOneFilePerWindow(options.getOutput(), options.getNumShards()));
+    }
 
     // Execute the pipeline. You may add `.waitUntilFinish()` to observe logs in your console, but
     // `waitUntilFinish()` will not work in Dataflow Flex Templates.
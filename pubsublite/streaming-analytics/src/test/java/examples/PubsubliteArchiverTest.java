@@ -0,0 +1,124 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package examples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.pubsublite.proto.Cursor;
+import com.google.cloud.pubsublite.proto.PubSubMessage;
+import com.google.cloud.pubsublite.proto.SequencedMessage;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.util.Timestamps;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.testing.TestStream;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PubsubliteArchiverTest {
+  @Rule public final transient TestPipeline pipeline = TestPipeline.create();
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private static final int MESSAGES = 100;
+
+  private static TimestampedValue<SequencedMessage> message(long offset) {
+    // One message per second, so the messages span two one-minute windows.
+    long publishMillis = offset * 1000;
+    SequencedMessage message = SequencedMessage.newBuilder()
+        .setCursor(Cursor.newBuilder().setOffset(offset))
+        .setPublishTime(Timestamps.fromMillis(publishMillis))
+        .setMessage(PubSubMessage.newBuilder()
+            .setKey(ByteString.copyFromUtf8("key-" + offset % 3))
+            .setData(ByteString.copyFromUtf8("message-" + offset)))
+        .setSizeBytes(16)
+        .build();
+    return TimestampedValue.of(message, new Instant(publishMillis));
+  }
+
+  @Test
+  public void archive_writesEachMessageOnceInOrderWithManifests() throws IOException {
+    TestStream.Builder<SequencedMessage> stream =
+        TestStream.create(ProtoCoder.of(SequencedMessage.class));
+    for (long offset = 0; offset < MESSAGES; offset++) {
+      stream = stream.addElements(message(offset));
+    }
+    // Redeliver some messages, as after a worker restart.
+    for (long offset = 10; offset < 20; offset++) {
+      stream = stream.addElements(message(offset));
+    }
+
+    String output = new File(folder.getRoot(), "archive").getPath();
+    pipeline
+        .apply(stream.advanceWatermarkToInfinity())
+        .apply(new PubsubliteArchiver(output, Duration.standardMinutes(1), 2));
+    pipeline.run().waitUntilFinish();
+
+    Set<Long> offsets = new HashSet<>();
+    int dataFiles = 0;
+    for (File file : folder.getRoot().listFiles()) {
+      if (!file.getName().endsWith(PubsubliteArchiver.DATA_SUFFIX)) {
+        continue;
+      }
+      dataFiles++;
+      List<SequencedMessage> messages = new ArrayList<>();
+      try (InputStream in = new FileInputStream(file)) {
+        SequencedMessage message;
+        while ((message = SequencedMessage.parseDelimitedFrom(in)) != null) {
+          messages.add(message);
+        }
+      }
+      for (int i = 1; i < messages.size(); i++) {
+        assertTrue(messages.get(i - 1).getCursor().getOffset()
+            < messages.get(i).getCursor().getOffset());
+      }
+      for (SequencedMessage message : messages) {
+        assertTrue("duplicate offset", offsets.add(message.getCursor().getOffset()));
+      }
+
+      String dataName = file.getName();
+      File manifest = new File(file.getParentFile(), dataName.substring(
+          0, dataName.length() - PubsubliteArchiver.DATA_SUFFIX.length())
+          + PubsubliteArchiver.MANIFEST_SUFFIX);
+      String content = new String(Files.readAllBytes(manifest.toPath()), StandardCharsets.UTF_8);
+      assertTrue(content, content.contains("\"messages\": " + messages.size() + ","));
+      assertTrue(content, content.contains("\"minPublishTime\": \""
+          + Timestamps.toString(messages.get(0).getPublishTime()) + "\""));
+      assertTrue(content, content.contains("\"maxPublishTime\": \""
+          + Timestamps.toString(messages.get(messages.size() - 1).getPublishTime()) + "\""));
+    }
+
+    assertEquals(MESSAGES, offsets.size());
+    // Two windows of two shards each.
+    assertEquals(4, dataFiles);
+  }
+}
@@ -16,23 +16,17 @@
 package com.example.gettingstarted.util;
 
 import com.example.gettingstarted.actions.HelloWorldServlet;
-import com.google.cloud.firestore.CollectionReference;
-import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.FirestoreOptions;
-import com.google.cloud.firestore.QueryDocumentSnapshot;
-import com.google.cloud.firestore.QuerySnapshot;
-import com.google.common.collect.Maps;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.security.SecureRandom;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
+import java.time.Duration;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -50,34 +44,36 @@ import javax.servlet.http.HttpSession;
     filterName = "FirestoreSessionFilter ",
     urlPatterns = {""})
 public class FirestoreSessionFilter implements Filter {
-  private static final SimpleDateFormat dtf = new SimpleDateFormat("yyyyMMddHHmmssSSS");
   private static final Logger logger = Logger.getLogger(HelloWorldServlet.class.getName());
-  private static Firestore firestore;
-  private static CollectionReference sessions;
+  private static FirestoreSessionStore sessions;
 
   // [START firestore_sessions_handling_init]
   @Override
   public void init(FilterConfig config) throws ServletException {
-    // Initialize local copy of datastore session variables.
-    firestore = FirestoreOptions.getDefaultInstance().getService();
-    sessions = firestore.collection("sessions");
+    // Cache up to 10,000 sessions, write changed sessions every second, and delete sessions
+    // unmodified for over two days every hour, in the background.
+    Firestore firestore = FirestoreOptions.getDefaultInstance().getService();
+    sessions =
+        new FirestoreSessionStore(
+            firestore,
+            "sessions",
+            10_000,
+            Duration.ofSeconds(1),
+            Duration.ofHours(1),
+            Duration.ofHours(48),
+            Duration.ofHours(1));
+  }
+  // [END firestore_sessions_handling_init]
 
+  @Override
+  public void destroy() {
     try {
-      // Delete all sessions unmodified for over two days.
-      Calendar cal = Calendar.getInstance();
-      cal.setTime(new Date());
-      cal.add(Calendar.HOUR, -48);
-      Date twoDaysAgo = Calendar.getInstance().getTime();
-      QuerySnapshot sessionDocs =
-          sessions.whereLessThan("lastModified", dtf.format(twoDaysAgo)).get().get();
-      for (QueryDocumentSnapshot snapshot : sessionDocs.getDocuments()) {
-        snapshot.getReference().delete();
-      }
-    } catch (InterruptedException | ExecutionException e) {
-      throw new ServletException("Exception initializing FirestoreSessionFilter.", e);
+      // Write the changes that are still queued.
+      sessions.close();
+    } catch (ExecutionException | InterruptedException e) {
+      logger.log(Level.WARNING, "Failed to write sessions on shutdown.", e);
     }
   }
-  // [END firestore_sessions_handling_init]
 
   // [START firestore_sessions_handling_filter]
   @Override
@@ -96,8 +92,8 @@ public class FirestoreSessionFilter implements Filter {
     // identifier.
     String sessionId = getCookieValue(req, "bookshelfSessionId");
     if (sessionId.equals("")) {
-      String sessionNum = new BigInteger(130, new SecureRandom()).toString(32);
-      Cookie session = new Cookie("bookshelfSessionId", sessionNum);
+      sessionId = new BigInteger(130, new SecureRandom()).toString(32);
+      Cookie session = new Cookie("bookshelfSessionId", sessionId);
       session.setPath("/");
       resp.addCookie(session);
     }
@@ -105,8 +101,8 @@ public class FirestoreSessionFilter implements Filter {
     // session variables for request
     Map<String, Object> firestoreMap = null;
     try {
-      firestoreMap = loadSessionVariables(req);
-    } catch (ExecutionException | InterruptedException e) {
+      firestoreMap = loadSessionVariables(sessionId);
+    } catch (ExecutionException e) {
       throw new ServletException("Exception loading session variables.", e);
     }
 
@@ -126,8 +122,12 @@ public class FirestoreSessionFilter implements Filter {
       sessionMap.put(attrName, session.getAttribute(attrName));
     }
 
-    logger.info("Saving data to " + sessionId + " with views: " + session.getAttribute("views"));
-    firestore.runTransaction((ob) -> sessions.document(sessionId).set(sessionMap));
+    // Only the attributes that changed are queued, and written in the background.
+    try {
+      sessions.save(sessionId, sessionMap);
+    } catch (ExecutionException e) {
+      throw new ServletException("Exception saving session variables.", e);
+    }
   }
   // [END firestore_sessions_handling_filter]
 
@@ -146,30 +146,14 @@ public class FirestoreSessionFilter implements Filter {
   // [START firestore_sessions_load_session_variables]
 
   /**
-   * Take an HttpServletRequest, and copy all of the current session variables over to it
+   * Take a session ID, and copy all of the current session variables over to a map
    *
-   * @param req Request from which to extract session.
+   * @param sessionId The ID from the session cookie.
    * @return a map of strings containing all the session variables loaded or an empty map.
    */
-  private Map<String, Object> loadSessionVariables(HttpServletRequest req)
-      throws ExecutionException, InterruptedException {
-    Map<String, Object> datastoreMap = new HashMap<>();
-    String sessionId = getCookieValue(req, "bookshelfSessionId");
-    if (sessionId.equals("")) {
-      return datastoreMap;
-    }
-
-    return firestore
-        .runTransaction(
-            (ob) -> {
-              DocumentSnapshot session = sessions.document(sessionId).get().get();
-              Map<String, Object> data = session.getData();
-              if (data == null) {
-                data = Maps.newHashMap();
-              }
-              return data;
-            })
-        .get();
+  private Map<String, Object> loadSessionVariables(String sessionId) throws ExecutionException {
+    // Sessions are read from Firestore only when they are not cached.
+    return sessions.load(sessionId);
   }
   // [END firestore_sessions_load_session_variables]
 }
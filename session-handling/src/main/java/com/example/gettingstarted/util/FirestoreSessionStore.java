@@ -0,0 +1,273 @@
+/* Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.gettingstarted.util;
+
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Session attributes stored in a Firestore collection, one document per session, behind an
+ * in-process LRU cache.
+ *
+ * <p>Sessions are read from Firestore only when they are not cached. {@link #save} compares the
+ * attributes with the cached ones and queues only the attributes that changed; the queued
+ * changes of all sessions are written every {@code flushInterval} in batched merges, so several
+ * requests to the same session cost a single write. A session that is read but not changed only
+ * has its {@code lastModified} field refreshed once per {@code touchInterval}.
+ *
+ * <p>Sessions whose {@code lastModified} is older than {@code maxAge} are deleted by a periodic
+ * sweep, in batches, instead of when the application starts.
+ *
+ * <p>Writes are asynchronous: changes that are not flushed yet are lost if the instance stops
+ * without {@link #close()}, and another instance serving the same session only sees them after
+ * the flush. Route a session to one instance, for example with session affinity, when that
+ * matters.
+ */
+public class FirestoreSessionStore implements AutoCloseable {
+  static final String LAST_MODIFIED = "lastModified";
+
+  // The format of the lastModified field, which sorts in time order.
+  private static final DateTimeFormatter LAST_MODIFIED_FORMAT =
+      DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS").withZone(ZoneOffset.UTC);
+  // The most writes Firestore accepts in a batch.
+  private static final int MAX_BATCH_SIZE = 500;
+
+  private static final Logger logger = Logger.getLogger(FirestoreSessionStore.class.getName());
+
+  /** The attributes of a session as last loaded or saved, and when it was last written. */
+  private static class CachedSession {
+    final Map<String, Object> attributes;
+    long lastTouchedMillis;
+
+    CachedSession(Map<String, Object> attributes, long lastTouchedMillis) {
+      this.attributes = attributes;
+      this.lastTouchedMillis = lastTouchedMillis;
+    }
+  }
+
+  private final Firestore firestore;
+  private final CollectionReference sessions;
+  private final Duration touchInterval;
+  private final Duration maxAge;
+  private final Cache<String, CachedSession> cache;
+  private final Map<String, Map<String, Object>> pendingWrites = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+  public FirestoreSessionStore(
+      Firestore firestore,
+      String collection,
+      int maxCachedSessions,
+      Duration flushInterval,
+      Duration touchInterval,
+      Duration maxAge,
+      Duration sweepInterval) {
+    this.firestore = firestore;
+    this.sessions = firestore.collection(collection);
+    this.touchInterval = touchInterval;
+    this.maxAge = maxAge;
+    this.cache = CacheBuilder.newBuilder().maximumSize(maxCachedSessions).build();
+
+    long flushMillis = flushInterval.toMillis();
+    scheduler.scheduleWithFixedDelay(
+        this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    long sweepMillis = sweepInterval.toMillis();
+    scheduler.scheduleWithFixedDelay(this::sweepQuietly, 0, sweepMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /** Returns a copy of the attributes of a session, or an empty map for a new session. */
+  public Map<String, Object> load(String sessionId) throws ExecutionException {
+    CachedSession session = cache.get(sessionId, () -> fetch(sessionId));
+    synchronized (session) {
+      return new HashMap<>(session.attributes);
+    }
+  }
+
+  private CachedSession fetch(String sessionId) throws ExecutionException, InterruptedException {
+    DocumentSnapshot snapshot = sessions.document(sessionId).get().get();
+    Map<String, Object> data = snapshot.getData();
+    Map<String, Object> attributes = new HashMap<>();
+    if (data != null) {
+      attributes.putAll(data);
+      attributes.remove(LAST_MODIFIED);
+    }
+    // A session that was never written is touched by its first save.
+    return new CachedSession(attributes, data == null ? 0 : System.currentTimeMillis());
+  }
+
+  /**
+   * Queues the attributes of a session that differ from the cached ones to be written, including
+   * the removal of attributes that are no longer set.
+   */
+  public void save(String sessionId, Map<String, Object> attributes) throws ExecutionException {
+    CachedSession session = cache.get(sessionId, () -> fetch(sessionId));
+    long now = System.currentTimeMillis();
+    synchronized (session) {
+      Map<String, Object> changes = changes(session.attributes, attributes);
+      if (changes.isEmpty() && now - session.lastTouchedMillis < touchInterval.toMillis()) {
+        return;
+      }
+      session.attributes.clear();
+      session.attributes.putAll(attributes);
+      session.lastTouchedMillis = now;
+      changes.put(LAST_MODIFIED, LAST_MODIFIED_FORMAT.format(Instant.ofEpochMilli(now)));
+      // Queued while holding the session, so that concurrent saves queue their changes in the
+      // order they compared them and an older change never overwrites a newer one.
+      pendingWrites.merge(sessionId, changes, FirestoreSessionStore::coalesce);
+    }
+  }
+
+  /**
+   * Returns the attributes that differ between {@code cached} and {@code attributes}, with the
+   * attributes that are no longer set mapped to {@link FieldValue#delete()}.
+   */
+  static Map<String, Object> changes(Map<String, Object> cached, Map<String, Object> attributes) {
+    Map<String, Object> changes = new HashMap<>();
+    for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+      if (!cached.containsKey(attribute.getKey())
+          || !Objects.equals(cached.get(attribute.getKey()), attribute.getValue())) {
+        changes.put(attribute.getKey(), attribute.getValue());
+      }
+    }
+    for (String name : cached.keySet()) {
+      if (!attributes.containsKey(name)) {
+        changes.put(name, FieldValue.delete());
+      }
+    }
+    return changes;
+  }
+
+  /** Adds {@code newer} changes to {@code queued} ones of the same session, and returns them. */
+  static Map<String, Object> coalesce(Map<String, Object> queued, Map<String, Object> newer) {
+    queued.putAll(newer);
+    return queued;
+  }
+
+  /** Returns the number of sessions with changes that are not written yet. */
+  public int pendingSessions() {
+    return pendingWrites.size();
+  }
+
+  /**
+   * Writes the queued changes of all sessions and waits for the writes to complete. The changes
+   * of a batch that fails are queued again, under any newer changes of the same sessions.
+   */
+  public void flush() throws ExecutionException, InterruptedException {
+    Map<String, Map<String, Object>> batch = new HashMap<>();
+    for (String sessionId : new ArrayList<>(pendingWrites.keySet())) {
+      Map<String, Object> changes = pendingWrites.remove(sessionId);
+      if (changes == null) {
+        continue;
+      }
+      batch.put(sessionId, changes);
+      if (batch.size() == MAX_BATCH_SIZE) {
+        commit(batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      commit(batch);
+    }
+  }
+
+  private void commit(Map<String, Map<String, Object>> batch)
+      throws ExecutionException, InterruptedException {
+    WriteBatch writeBatch = firestore.batch();
+    for (Map.Entry<String, Map<String, Object>> session : batch.entrySet()) {
+      writeBatch.set(sessions.document(session.getKey()), session.getValue(), SetOptions.merge());
+    }
+    try {
+      writeBatch.commit().get();
+    } catch (ExecutionException | InterruptedException e) {
+      for (Map.Entry<String, Map<String, Object>> session : batch.entrySet()) {
+        pendingWrites.merge(
+            session.getKey(), session.getValue(), (newer, failed) -> coalesce(failed, newer));
+      }
+      throw e;
+    }
+  }
+
+  /** Deletes the sessions that were not modified for {@code maxAge}, in batches. */
+  public int sweep() throws ExecutionException, InterruptedException {
+    String cutoff = LAST_MODIFIED_FORMAT.format(Instant.now().minus(maxAge));
+    int deleted = 0;
+    List<QueryDocumentSnapshot> expired;
+    do {
+      expired = sessions.whereLessThan(LAST_MODIFIED, cutoff).limit(MAX_BATCH_SIZE).get().get()
+          .getDocuments();
+      if (expired.isEmpty()) {
+        break;
+      }
+      WriteBatch batch = firestore.batch();
+      for (QueryDocumentSnapshot snapshot : expired) {
+        batch.delete(snapshot.getReference());
+        cache.invalidate(snapshot.getId());
+      }
+      batch.commit().get();
+      deleted += expired.size();
+    } while (expired.size() == MAX_BATCH_SIZE);
+    return deleted;
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (ExecutionException | InterruptedException | RuntimeException e) {
+      logger.log(Level.WARNING, "Failed to write sessions.", e);
+    }
+  }
+
+  private void sweepQuietly() {
+    try {
+      int deleted = sweep();
+      if (deleted > 0) {
+        logger.info("Deleted " + deleted + " expired sessions.");
+      }
+    } catch (ExecutionException | InterruptedException | RuntimeException e) {
+      logger.log(Level.WARNING, "Failed to delete expired sessions.", e);
+    }
+  }
+
+  /** Stops the background tasks and writes the remaining changes. */
+  @Override
+  public void close() throws ExecutionException, InterruptedException {
+    scheduler.shutdown();
+    scheduler.awaitTermination(1, TimeUnit.MINUTES);
+    flush();
+  }
+}
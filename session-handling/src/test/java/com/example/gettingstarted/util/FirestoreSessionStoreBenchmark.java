@@ -0,0 +1,116 @@
+/* Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.gettingstarted.util;
+
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares the requests per second of loading and saving sessions with a Firestore transaction
+ * each, as {@code FirestoreSessionFilter} used to, and with {@link FirestoreSessionStore}.
+ *
+ * <p>Start the Firestore emulator and set {@code FIRESTORE_EMULATOR_HOST} before running it, for
+ * example with {@code gcloud emulators firestore start --host-port=localhost:8081} and {@code
+ * export FIRESTORE_EMULATOR_HOST=localhost:8081}. The arguments are the number of requests,
+ * client threads and distinct sessions.
+ */
+public class FirestoreSessionStoreBenchmark {
+
+  private interface Request {
+    void handle(String sessionId) throws Exception;
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (System.getenv("FIRESTORE_EMULATOR_HOST") == null) {
+      System.err.println("Set FIRESTORE_EMULATOR_HOST to the address of the Firestore emulator.");
+      System.exit(1);
+    }
+    int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+    int threads = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+    int sessionCount = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+
+    Firestore firestore = FirestoreOptions.getDefaultInstance().getService();
+
+    CollectionReference transactional = firestore.collection("benchmark-transactional");
+    run("transaction per request", requests, threads, sessionCount, sessionId -> {
+      Map<String, Object> attributes = firestore.runTransaction(transaction -> {
+        DocumentSnapshot snapshot = transaction.get(transactional.document(sessionId)).get();
+        return snapshot.getData() == null ? new HashMap<String, Object>() : snapshot.getData();
+      }).get();
+      Map<String, Object> updated = increment(attributes);
+      firestore.runTransaction(transaction -> {
+        transaction.set(transactional.document(sessionId), updated);
+        return null;
+      }).get();
+    });
+
+    try (FirestoreSessionStore store =
+        new FirestoreSessionStore(
+            firestore,
+            "benchmark-cached",
+            10_000,
+            Duration.ofSeconds(1),
+            Duration.ofHours(1),
+            Duration.ofHours(48),
+            Duration.ofHours(1))) {
+      run("cached, write-behind", requests, threads, sessionCount,
+          sessionId -> store.save(sessionId, increment(store.load(sessionId))));
+      long start = System.nanoTime();
+      store.flush();
+      System.out.printf("Final flush took %.1f ms%n", (System.nanoTime() - start) / 1e6);
+    }
+  }
+
+  private static Map<String, Object> increment(Map<String, Object> attributes) {
+    Map<String, Object> updated = new HashMap<>(attributes);
+    Number views = (Number) updated.get("views");
+    updated.put("views", views == null ? 1 : views.intValue() + 1);
+    updated.putIfAbsent("greeting", "Hello World");
+    return updated;
+  }
+
+  private static void run(
+      String name, int requests, int threads, int sessionCount, Request request)
+      throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> results = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int i = 0; i < requests; i++) {
+      results.add(executor.submit(() -> {
+        request.handle("session-" + ThreadLocalRandom.current().nextInt(sessionCount));
+        return null;
+      }));
+    }
+    for (Future<?> result : results) {
+      result.get();
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    executor.shutdown();
+    System.out.printf("%-24s %,d requests in %.1fs: %,.0f requests/s%n",
+        name, requests, seconds, requests / seconds);
+  }
+}
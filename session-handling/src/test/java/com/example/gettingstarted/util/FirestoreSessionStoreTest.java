@@ -0,0 +1,82 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.gettingstarted.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.firestore.FieldValue;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for the dirty tracking and the coalescing of changes in FirestoreSessionStore. */
+@RunWith(JUnit4.class)
+public class FirestoreSessionStoreTest {
+
+  private static Map<String, Object> map(Object... entries) {
+    Map<String, Object> map = new HashMap<>();
+    for (int i = 0; i < entries.length; i += 2) {
+      map.put((String) entries[i], entries[i + 1]);
+    }
+    return map;
+  }
+
+  @Test
+  public void testUnchangedAttributesHaveNoChanges() {
+    Map<String, Object> cached = map("user", "alice", "count", 3L);
+    assertTrue(FirestoreSessionStore.changes(cached, map("count", 3L, "user", "alice")).isEmpty());
+    assertTrue(FirestoreSessionStore.changes(map(), map()).isEmpty());
+  }
+
+  @Test
+  public void testChangesHoldOnlyChangedAddedAndRemovedAttributes() {
+    Map<String, Object> cached = map("user", "alice", "count", 3L, "theme", "dark");
+    Map<String, Object> attributes = map("user", "alice", "count", 4L, "lang", "fr");
+
+    assertEquals(
+        map("count", 4L, "lang", "fr", "theme", FieldValue.delete()),
+        FirestoreSessionStore.changes(cached, attributes));
+  }
+
+  @Test
+  public void testNullValuesAreTracked() {
+    assertEquals(
+        map("user", null), FirestoreSessionStore.changes(map("user", "alice"), map("user", null)));
+    assertEquals(map("user", null), FirestoreSessionStore.changes(map(), map("user", null)));
+    assertTrue(FirestoreSessionStore.changes(map("user", null), map("user", null)).isEmpty());
+  }
+
+  @Test
+  public void testCoalescedChangesKeepTheNewestValue() {
+    Map<String, Object> first =
+        FirestoreSessionStore.changes(map("user", "alice", "theme", "dark"), map("user", "bob"));
+    Map<String, Object> second =
+        FirestoreSessionStore.changes(map("user", "bob"), map("user", "carol", "theme", "light"));
+
+    Map<String, Object> queued = FirestoreSessionStore.coalesce(first, second);
+
+    // The removal of "theme" is overwritten by the newer value, so one write restores it.
+    assertEquals(map("user", "carol", "theme", "light"), queued);
+    assertEquals(
+        map("user", "carol", "theme", FieldValue.delete()),
+        FirestoreSessionStore.coalesce(
+            queued, FirestoreSessionStore.changes(map("theme", "light"), map())));
+  }
+}
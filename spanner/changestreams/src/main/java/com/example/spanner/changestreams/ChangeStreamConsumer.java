@@ -0,0 +1,458 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.spanner.changestreams;
+
+import com.example.spanner.changestreams.model.ChangeStreamRecord;
+import com.example.spanner.changestreams.model.ChildPartition;
+import com.example.spanner.changestreams.model.ChildPartitionsRecord;
+import com.example.spanner.changestreams.model.DataChangeRecord;
+import com.example.spanner.changestreams.model.HeartbeatRecord;
+import com.example.spanner.changestreams.model.PartitionMetadata;
+import com.example.spanner.changestreams.model.PartitionMetadata.State;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Consumes a change stream by following its whole partition graph.
+ *
+ * <p>{@link ChangeStreamSample#queryChangeStream} runs the initial query and then each child
+ * partition one after another. This consumer instead:
+ *
+ * <ul>
+ *   <li>tracks every partition it learns about from {@link ChildPartitionsRecord}s, including
+ *       grandchildren, and deduplicates children that several parents report after a merge;
+ *   <li>starts a partition only once all of its parents have finished, and queries up to
+ *       {@code maxConcurrentQueries} partitions at the same time;
+ *   <li>buffers data change records and delivers them to the listener in commit timestamp order,
+ *       once every unfinished partition's watermark has passed them;
+ *   <li>saves partition tokens and the delivered watermark to a {@link PartitionStore}, so that a
+ *       new consumer resumes from where the previous one stopped.
+ * </ul>
+ *
+ * <p>Each query reads at most {@code querySliceMillis} of the stream. A partition that has not
+ * ended by then is queued again behind the others, so that a pool smaller than the number of live
+ * partitions still gets to every partition and the watermark keeps moving, even without an end
+ * timestamp.
+ *
+ * <p>The listener is called outside of the consumer's lock, by one thread at a time. Progress is
+ * saved with one {@link PartitionStore#saveAll} call every {@value #CHECKPOINT_EVERY_RECORDS}
+ * records, every second, and whenever a partition finishes. A finished partition stays in the
+ * store until all of its records have been delivered, so that a resumed consumer queries it again
+ * rather than losing records that were still buffered.
+ *
+ * <p>Delivery is at least once: records committed at or after the saved watermark may be delivered
+ * again after a resume.
+ */
+public class ChangeStreamConsumer implements AutoCloseable {
+
+  /** Receives data change records, one at a time and in commit timestamp order. */
+  public interface Listener {
+    void onDataChangeRecord(DataChangeRecord record);
+  }
+
+  /** Runs one change stream query and passes every record it returns to {@code sink}. */
+  public interface PartitionReader {
+    void read(String partitionToken, Timestamp start, Timestamp end,
+        Consumer<ChangeStreamRecord> sink);
+  }
+
+  static final int CHECKPOINT_EVERY_RECORDS = 1000;
+  private static final long CHECKPOINT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final long DEFAULT_QUERY_SLICE_MILLIS = 10_000;
+
+  private static final Comparator<DataChangeRecord> COMMIT_ORDER =
+      Comparator.comparing(DataChangeRecord::getCommitTimestamp)
+          .thenComparing(DataChangeRecord::getServerTransactionId)
+          .thenComparing(DataChangeRecord::getRecordSequence);
+
+  // A record read twice from the same partition, at the boundary of two slices, is kept once.
+  private static final Comparator<BufferedRecord> BUFFER_ORDER =
+      Comparator.comparing((BufferedRecord buffered) -> buffered.record, COMMIT_ORDER)
+          .thenComparing(buffered -> buffered.partitionToken);
+
+  private final PartitionReader reader;
+  private final PartitionStore store;
+  private final Listener listener;
+  private final Timestamp endTimestamp;
+  private final long querySliceMillis;
+  private final ExecutorService executor;
+
+  // Held while records are passed to the listener and checkpoints are saved, so that both happen
+  // in order. Threads that find it taken leave their work to the thread holding it.
+  private final ReentrantLock deliveryLock = new ReentrantLock();
+  private final AtomicBoolean deliveryRequested = new AtomicBoolean();
+
+  // All fields below are guarded by "this".
+  private final Map<String, PartitionMetadata> partitions = new HashMap<>();
+  private final TreeSet<BufferedRecord> pending = new TreeSet<>(BUFFER_ORDER);
+  // The number of buffered records of each partition that has any.
+  private final Map<String, Integer> bufferedRecords = new HashMap<>();
+  // Partitions that reported their children, so their query is over.
+  private final Set<String> ended = new HashSet<>();
+  // Finished partitions already saved as such.
+  private final Set<String> savedFinished = new HashSet<>();
+  private final CompletableFuture<Void> completion = new CompletableFuture<>();
+  private Timestamp deliveredWatermark = Timestamp.MIN_VALUE;
+  private long recordsDelivered;
+  private long recordsSinceCheckpoint;
+  private long lastCheckpointNanos = System.nanoTime();
+  private boolean checkpointDue;
+
+  /**
+   * Creates a consumer that reads at most ten seconds of the stream per query.
+   *
+   * @param reader runs partition queries
+   * @param store persists partition progress
+   * @param listener receives the data change records
+   * @param endTimestamp the end of the time range to read, or {@code null} to read indefinitely
+   * @param maxConcurrentQueries the number of partition queries that may run at the same time
+   */
+  public ChangeStreamConsumer(
+      PartitionReader reader,
+      PartitionStore store,
+      Listener listener,
+      Timestamp endTimestamp,
+      int maxConcurrentQueries) {
+    this(reader, store, listener, endTimestamp, maxConcurrentQueries, DEFAULT_QUERY_SLICE_MILLIS);
+  }
+
+  /**
+   * Creates a consumer.
+   *
+   * @param reader runs partition queries
+   * @param store persists partition progress
+   * @param listener receives the data change records
+   * @param endTimestamp the end of the time range to read, or {@code null} to read indefinitely
+   * @param maxConcurrentQueries the number of partition queries that may run at the same time
+   * @param querySliceMillis the longest span of commit timestamps read by one query
+   */
+  public ChangeStreamConsumer(
+      PartitionReader reader,
+      PartitionStore store,
+      Listener listener,
+      Timestamp endTimestamp,
+      int maxConcurrentQueries,
+      long querySliceMillis) {
+    if (querySliceMillis <= 0) {
+      throw new IllegalArgumentException("querySliceMillis must be positive: " + querySliceMillis);
+    }
+    this.reader = reader;
+    this.store = store;
+    this.listener = listener;
+    this.endTimestamp = endTimestamp;
+    this.querySliceMillis = querySliceMillis;
+    this.executor = Executors.newFixedThreadPool(maxConcurrentQueries);
+  }
+
+  /** Returns a reader that queries {@code changeStreamName} through {@code dbClient}. */
+  public static PartitionReader spannerReader(
+      DatabaseClient dbClient, String changeStreamName, long heartbeatMillis) {
+    final String query =
+        String.format("SELECT * FROM READ_%s ("
+          + "start_timestamp => @startTimestamp,"
+          + "end_timestamp => @endTimestamp,"
+          + "partition_token => @partitionToken,"
+          + "heartbeat_milliseconds => @heartbeatMillis"
+          + ")", changeStreamName);
+    final ChangeStreamRecordMapper mapper = new ChangeStreamRecordMapper();
+    return (partitionToken, start, end, sink) -> {
+      String token =
+          PartitionMetadata.INITIAL_PARTITION_TOKEN.equals(partitionToken) ? null : partitionToken;
+      try (ResultSet resultSet =
+          dbClient
+            .singleUse()
+            .executeQuery(
+              Statement.newBuilder(query)
+                .bind("startTimestamp").to(start)
+                .bind("endTimestamp").to(end)
+                .bind("partitionToken").to(token)
+                .bind("heartbeatMillis").to(heartbeatMillis)
+                .build())) {
+        while (resultSet.next()) {
+          for (ChangeStreamRecord record :
+              mapper.toChangeStreamRecords(resultSet.getCurrentRowAsStruct())) {
+            sink.accept(record);
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * Starts consuming. If the store holds unfinished partitions they are resumed from their
+   * watermarks and {@code startTimestamp} is ignored; otherwise the initial query starts at
+   * {@code startTimestamp}.
+   */
+  public synchronized void start(Timestamp startTimestamp) {
+    List<PartitionMetadata> saved = store.loadUnfinished();
+    if (saved.isEmpty()) {
+      PartitionMetadata initial = new PartitionMetadata(
+          PartitionMetadata.INITIAL_PARTITION_TOKEN, new HashSet<>(), startTimestamp,
+          startTimestamp, State.CREATED);
+      partitions.put(initial.getToken(), initial);
+      store.save(initial);
+    } else {
+      Timestamp resumeFrom = null;
+      for (PartitionMetadata partition : saved) {
+        // Queries that were in flight when the previous consumer stopped are started again.
+        partition.setState(State.CREATED);
+        partitions.put(partition.getToken(), partition);
+        if (resumeFrom == null || partition.getWatermark().compareTo(resumeFrom) < 0) {
+          resumeFrom = partition.getWatermark();
+        }
+      }
+      deliveredWatermark = resumeFrom;
+    }
+    scheduleReady();
+  }
+
+  /** Returns a future that completes once every partition has reached the end timestamp. */
+  public CompletableFuture<Void> getCompletion() {
+    return completion;
+  }
+
+  public synchronized long getRecordsDelivered() {
+    return recordsDelivered;
+  }
+
+  /** Returns the number of partitions that are known and not finished. */
+  public synchronized int getActivePartitions() {
+    return (int) partitions.values().stream().filter(p -> p.getState() != State.FINISHED).count();
+  }
+
+  /** Returns the number of partitions discovered so far, including finished ones. */
+  public synchronized int getKnownPartitions() {
+    return partitions.size();
+  }
+
+  private void scheduleReady() {
+    for (PartitionMetadata partition : partitions.values()) {
+      if (partition.getState() == State.CREATED && parentsFinished(partition)) {
+        partition.setState(State.SCHEDULED);
+        executor.execute(() -> runPartition(partition));
+      }
+    }
+  }
+
+  private boolean parentsFinished(PartitionMetadata partition) {
+    for (String parentToken : partition.getParentTokens()) {
+      PartitionMetadata parent = partitions.get(parentToken);
+      // Parents that are no longer tracked finished before a resume.
+      if (parent != null && parent.getState() != State.FINISHED) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void runPartition(PartitionMetadata partition) {
+    try {
+      Timestamp start;
+      synchronized (this) {
+        partition.setState(State.RUNNING);
+        start = partition.getWatermark();
+      }
+      Timestamp end = sliceEnd(start);
+      reader.read(partition.getToken(), start, end, record -> onRecord(partition, record));
+      synchronized (this) {
+        if (ended.contains(partition.getToken())
+            || (endTimestamp != null && end.compareTo(endTimestamp) >= 0)) {
+          partition.setState(State.FINISHED);
+          checkpointDue = true;
+        } else {
+          // The query returned every record up to the end of its slice; the next one goes on
+          // from there once the other partitions waiting for a thread have had their turn.
+          advance(partition, end);
+          partition.setState(State.CREATED);
+        }
+        scheduleReady();
+      }
+      deliverReady();
+    } catch (RuntimeException e) {
+      completion.completeExceptionally(e);
+      executor.shutdownNow();
+    }
+  }
+
+  private Timestamp sliceEnd(Timestamp start) {
+    Timestamp end = Timestamp.ofTimeMicroseconds(
+        start.getSeconds() * 1_000_000L + start.getNanos() / 1000 + querySliceMillis * 1000);
+    return endTimestamp != null && endTimestamp.compareTo(end) < 0 ? endTimestamp : end;
+  }
+
+  private void onRecord(PartitionMetadata partition, ChangeStreamRecord record) {
+    synchronized (this) {
+      if (record instanceof DataChangeRecord) {
+        DataChangeRecord dataChangeRecord = (DataChangeRecord) record;
+        if (pending.add(new BufferedRecord(partition.getToken(), dataChangeRecord))) {
+          bufferedRecords.merge(partition.getToken(), 1, Integer::sum);
+        }
+        advance(partition, dataChangeRecord.getCommitTimestamp());
+      } else if (record instanceof HeartbeatRecord) {
+        advance(partition, ((HeartbeatRecord) record).getTimestamp());
+      } else if (record instanceof ChildPartitionsRecord) {
+        ChildPartitionsRecord childPartitionsRecord = (ChildPartitionsRecord) record;
+        Timestamp childStart = childPartitionsRecord.getStartTimestamp();
+        for (ChildPartition child : childPartitionsRecord.getChildPartitions()) {
+          // After a merge every parent reports the same child; only the first one registers it.
+          // It is saved by the checkpoint that saves its parent as finished.
+          if (!partitions.containsKey(child.getToken())) {
+            partitions.put(child.getToken(), new PartitionMetadata(
+                child.getToken(), child.getParentTokens(), childStart, childStart, State.CREATED));
+          }
+        }
+        ended.add(partition.getToken());
+        advance(partition, childStart);
+      }
+    }
+    deliverReady();
+  }
+
+  private void advance(PartitionMetadata partition, Timestamp timestamp) {
+    if (timestamp.compareTo(partition.getWatermark()) > 0) {
+      partition.setWatermark(timestamp);
+    }
+  }
+
+  /**
+   * Delivers every buffered record that is older than the lowest watermark of all unfinished
+   * partitions and saves a checkpoint when one is due. If another thread is already delivering,
+   * this returns at once and that thread delivers the records instead.
+   */
+  private void deliverReady() {
+    deliveryRequested.set(true);
+    while (deliveryRequested.get() && deliveryLock.tryLock()) {
+      try {
+        while (deliveryRequested.getAndSet(false)) {
+          List<DataChangeRecord> ready = new ArrayList<>();
+          Timestamp low = takeReady(ready);
+          for (DataChangeRecord record : ready) {
+            listener.onDataChangeRecord(record);
+          }
+          List<PartitionMetadata> checkpoint = delivered(low, ready.size());
+          if (!checkpoint.isEmpty()) {
+            store.saveAll(checkpoint);
+          }
+          if (low == null) {
+            completion.complete(null);
+            executor.shutdown();
+          }
+        }
+      } finally {
+        deliveryLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Moves the records older than the lowest watermark of all unfinished partitions to {@code
+   * ready}, and returns that watermark, or {@code null} once every partition has finished.
+   */
+  private synchronized Timestamp takeReady(List<DataChangeRecord> ready) {
+    Timestamp low = null;
+    for (PartitionMetadata partition : partitions.values()) {
+      if (partition.getState() != State.FINISHED
+          && (low == null || partition.getWatermark().compareTo(low) < 0)) {
+        low = partition.getWatermark();
+      }
+    }
+    // Records at the watermark itself are held back: the partition may still return more
+    // records with the same commit timestamp.
+    while (!pending.isEmpty()
+        && (low == null || pending.first().record.getCommitTimestamp().compareTo(low) < 0)) {
+      BufferedRecord buffered = pending.pollFirst();
+      bufferedRecords.computeIfPresent(buffered.partitionToken, (token, count) -> count - 1);
+      bufferedRecords.remove(buffered.partitionToken, 0);
+      ready.add(buffered.record);
+    }
+    return low;
+  }
+
+  /**
+   * Records that the records taken below {@code low} have reached the listener, and returns the
+   * partitions to save if a checkpoint is due.
+   */
+  private synchronized List<PartitionMetadata> delivered(Timestamp low, int count) {
+    recordsDelivered += count;
+    recordsSinceCheckpoint += count;
+    if (low != null && low.compareTo(deliveredWatermark) > 0) {
+      deliveredWatermark = low;
+    }
+    long now = System.nanoTime();
+    if (low != null
+        && !checkpointDue
+        && recordsSinceCheckpoint < CHECKPOINT_EVERY_RECORDS
+        && now - lastCheckpointNanos < CHECKPOINT_INTERVAL_NANOS) {
+      return Collections.emptyList();
+    }
+    checkpointDue = false;
+    recordsSinceCheckpoint = 0;
+    lastCheckpointNanos = now;
+    List<PartitionMetadata> checkpoint = new ArrayList<>();
+    for (PartitionMetadata partition : partitions.values()) {
+      boolean finished = partition.getState() == State.FINISHED;
+      if (finished && !bufferedRecords.containsKey(partition.getToken())) {
+        if (savedFinished.add(partition.getToken())) {
+          checkpoint.add(partition);
+        }
+      } else {
+        // Everything before the delivered watermark has reached the listener, so this is a safe
+        // resume point. A finished partition whose records are still buffered is saved as
+        // unfinished, so that it is queried again after a restart.
+        Timestamp resumeFrom = deliveredWatermark.compareTo(partition.getStartTimestamp()) > 0
+            ? deliveredWatermark : partition.getStartTimestamp();
+        checkpoint.add(new PartitionMetadata(
+            partition.getToken(), partition.getParentTokens(), partition.getStartTimestamp(),
+            resumeFrom, finished ? State.RUNNING : partition.getState()));
+      }
+    }
+    return checkpoint;
+  }
+
+  private static final class BufferedRecord {
+    final String partitionToken;
+    final DataChangeRecord record;
+
+    BufferedRecord(String partitionToken, DataChangeRecord record) {
+      this.partitionToken = partitionToken;
+      this.record = record;
+    }
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
@@ -26,128 +26,261 @@ import com.example.spanner.changestreams.model.Mod;
 import com.example.spanner.changestreams.model.ModType;
 import com.example.spanner.changestreams.model.TypeCode;
 import com.example.spanner.changestreams.model.ValueCaptureType;
-import com.google.cloud.Timestamp;
 import com.google.cloud.spanner.Struct;
 import com.google.cloud.spanner.Type;
-import com.google.common.collect.Sets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ChangeStreamRecordMapper converts a Struct returned from Change Streams API into a well-defined
  * model, which could be one of DataChangeRecord, ChildPartitionsRecord or HeartbeatRecord.
+ *
+ * <p>Field positions are resolved once per result set schema and every value is then read by
+ * index, so mapping a row does no field name lookups. Records are built with plain loops into
+ * pre-sized lists, {@link TypeCode}s are shared between records, and column type decoding can be
+ * turned off for consumers that only need the mods.
  */
 public class ChangeStreamRecordMapper {
 
-  public List<ChangeStreamRecord> toChangeStreamRecords(Struct row) {
-    return row.getStructList(0).stream()
-      .flatMap(struct -> toChangeStreamRecord(struct))
-      .collect(Collectors.toList());
-  }
-
-  private Stream<ChangeStreamRecord> toChangeStreamRecord(Struct row) {
-    final Stream<DataChangeRecord> dataChangeRecords =
-        row.getStructList("data_change_record").stream()
-        .filter(this::isNonNullDataChangeRecord)
-        .map(struct -> toDataChangeRecord(struct));
+  private final boolean decodeColumnTypes;
+  private final Map<String, TypeCode> typeCodes = new ConcurrentHashMap<>();
+  private volatile Schema schema;
 
-    final Stream<HeartbeatRecord> heartbeatRecords =
-        row.getStructList("heartbeat_record").stream()
-        .filter(this::isNonNullHeartbeatRecord)
-        .map(struct -> toHeartbeatRecord(struct));
-
-    final Stream<ChildPartitionsRecord> childPartitionsRecords =
-        row.getStructList("child_partitions_record").stream()
-          .filter(this::isNonNullChildPartitionsRecord)
-          .map(struct -> toChildPartitionsRecord(struct));
-
-    return Stream.concat(
-      Stream.concat(dataChangeRecords, heartbeatRecords), childPartitionsRecords);
+  public ChangeStreamRecordMapper() {
+    this(true);
   }
 
-  private boolean isNonNullDataChangeRecord(Struct row) {
-    return !row.isNull("commit_timestamp");
+  /**
+   * Creates a mapper.
+   *
+   * @param decodeColumnTypes whether to populate {@link DataChangeRecord#getRowType()}; when
+   *     {@code false} the row type is an empty list
+   */
+  public ChangeStreamRecordMapper(boolean decodeColumnTypes) {
+    this.decodeColumnTypes = decodeColumnTypes;
   }
 
-  private boolean isNonNullHeartbeatRecord(Struct row) {
-    return !row.isNull("timestamp");
+  public List<ChangeStreamRecord> toChangeStreamRecords(Struct row) {
+    final List<Struct> changeRecords = row.getStructList(0);
+    final List<ChangeStreamRecord> result = new ArrayList<>(changeRecords.size());
+    for (int i = 0; i < changeRecords.size(); i++) {
+      final Struct changeRecord = changeRecords.get(i);
+      final Schema schema = schemaFor(changeRecord.getType());
+      addDataChangeRecords(schema, changeRecord.getStructList(schema.dataChangeRecord), result);
+      addHeartbeatRecords(schema, changeRecord.getStructList(schema.heartbeatRecord), result);
+      addChildPartitionsRecords(
+          schema, changeRecord.getStructList(schema.childPartitionsRecord), result);
+    }
+    return result;
   }
 
-  private boolean isNonNullChildPartitionsRecord(Struct row) {
-    return !row.isNull("start_timestamp");
+  private Schema schemaFor(Type type) {
+    Schema current = schema;
+    // Rows of one result set share a Type instance, so the identity check almost always hits.
+    if (current == null || (current.type != type && !current.type.equals(type))) {
+      current = new Schema(type);
+      schema = current;
+    }
+    return current;
   }
 
-  private DataChangeRecord toDataChangeRecord(Struct row) {
-    final Timestamp commitTimestamp = row.getTimestamp("commit_timestamp");
-    return new DataChangeRecord(
-      commitTimestamp,
-      row.getString("server_transaction_id"),
-      row.getBoolean("is_last_record_in_transaction_in_partition"),
-      row.getString("record_sequence"),
-      row.getString("table_name"),
-      row.getStructList("column_types").stream()
-        .map(this::columnTypeFrom)
-        .collect(Collectors.toList()),
-      row.getStructList("mods").stream().map(this::modFrom).collect(Collectors.toList()),
-      ModType.valueOf(row.getString("mod_type")),
-      ValueCaptureType.valueOf(row.getString("value_capture_type")),
-      row.getLong("number_of_records_in_transaction"),
-      row.getLong("number_of_partitions_in_transaction"));
+  private void addDataChangeRecords(
+      Schema schema, List<Struct> structs, List<ChangeStreamRecord> result) {
+    for (int i = 0; i < structs.size(); i++) {
+      final Struct row = structs.get(i);
+      if (row.isNull(schema.commitTimestamp)) {
+        continue;
+      }
+      result.add(new DataChangeRecord(
+          row.getTimestamp(schema.commitTimestamp),
+          row.getString(schema.serverTransactionId),
+          row.getBoolean(schema.isLastRecordInTransactionInPartition),
+          row.getString(schema.dataChangeRecordSequence),
+          row.getString(schema.tableName),
+          decodeColumnTypes
+              ? columnTypesFrom(schema, row.getStructList(schema.columnTypes))
+              : Collections.emptyList(),
+          modsFrom(schema, row.getStructList(schema.mods)),
+          ModType.valueOf(row.getString(schema.modType)),
+          ValueCaptureType.valueOf(row.getString(schema.valueCaptureType)),
+          row.getLong(schema.numberOfRecordsInTransaction),
+          row.getLong(schema.numberOfPartitionsInTransaction)));
+    }
   }
 
-  private HeartbeatRecord toHeartbeatRecord(Struct row) {
-    final Timestamp timestamp = row.getTimestamp("timestamp");
-    return new HeartbeatRecord(timestamp);
+  private void addHeartbeatRecords(
+      Schema schema, List<Struct> structs, List<ChangeStreamRecord> result) {
+    for (int i = 0; i < structs.size(); i++) {
+      final Struct row = structs.get(i);
+      if (!row.isNull(schema.heartbeatTimestamp)) {
+        result.add(new HeartbeatRecord(row.getTimestamp(schema.heartbeatTimestamp)));
+      }
+    }
   }
 
-  private ChildPartitionsRecord toChildPartitionsRecord(Struct row) {
-    final Timestamp startTimestamp = row.getTimestamp("start_timestamp");
-    return new ChildPartitionsRecord(
-      startTimestamp,
-      row.getString("record_sequence"),
-      row.getStructList("child_partitions").stream()
-        .map(struct -> childPartitionFrom(struct))
-        .collect(Collectors.toList()));
+  private void addChildPartitionsRecords(
+      Schema schema, List<Struct> structs, List<ChangeStreamRecord> result) {
+    for (int i = 0; i < structs.size(); i++) {
+      final Struct row = structs.get(i);
+      if (row.isNull(schema.startTimestamp)) {
+        continue;
+      }
+      final List<Struct> children = row.getStructList(schema.childPartitions);
+      final List<ChildPartition> childPartitions = new ArrayList<>(children.size());
+      for (int j = 0; j < children.size(); j++) {
+        final Struct child = children.get(j);
+        childPartitions.add(new ChildPartition(
+            child.getString(schema.childToken),
+            new HashSet<>(child.getStringList(schema.parentPartitionTokens))));
+      }
+      result.add(new ChildPartitionsRecord(
+          row.getTimestamp(schema.startTimestamp),
+          row.getString(schema.childPartitionsRecordSequence),
+          childPartitions));
+    }
   }
 
-  private ColumnType columnTypeFrom(Struct struct) {
-    // TODO: Move to type struct.getJson when backend is fully migrated
-    final String type = getJsonString(struct, "type");
-    return new ColumnType(
-      struct.getString("name"),
-        new TypeCode(type),
-      struct.getBoolean("is_primary_key"),
-      struct.getLong("ordinal_position"));
+  private List<ColumnType> columnTypesFrom(Schema schema, List<Struct> structs) {
+    final List<ColumnType> columnTypes = new ArrayList<>(structs.size());
+    for (int i = 0; i < structs.size(); i++) {
+      final Struct struct = structs.get(i);
+      // TODO: Move to type struct.getJson when backend is fully migrated
+      final String type = jsonString(struct, schema.columnTypeType, schema.columnTypeTypeIsJson);
+      columnTypes.add(new ColumnType(
+          struct.getString(schema.columnName),
+          typeCodes.computeIfAbsent(type, TypeCode::new),
+          struct.getBoolean(schema.isPrimaryKey),
+          struct.getLong(schema.ordinalPosition)));
+    }
+    return columnTypes;
   }
 
-  private Mod modFrom(Struct struct) {
-    // TODO: Move to keys struct.getJson when backend is fully migrated
-    final String keys = getJsonString(struct, "keys");
-    // TODO: Move to oldValues struct.getJson when backend is fully migrated
-    final String oldValues =
-        struct.isNull("old_values") ? null : getJsonString(struct, "old_values");
-    // TODO: Move to newValues struct.getJson when backend is fully migrated
-    final String newValues =
-        struct.isNull("new_values") ? null : getJsonString(struct, "new_values");
-    return new Mod(keys, oldValues, newValues);
+  private List<Mod> modsFrom(Schema schema, List<Struct> structs) {
+    final List<Mod> mods = new ArrayList<>(structs.size());
+    for (int i = 0; i < structs.size(); i++) {
+      final Struct struct = structs.get(i);
+      // TODO: Move to keys, oldValues and newValues struct.getJson when backend is fully migrated
+      mods.add(new Mod(
+          jsonString(struct, schema.keys, schema.keysIsJson),
+          struct.isNull(schema.oldValues)
+              ? null : jsonString(struct, schema.oldValues, schema.oldValuesIsJson),
+          struct.isNull(schema.newValues)
+              ? null : jsonString(struct, schema.newValues, schema.newValuesIsJson)));
+    }
+    return mods;
   }
 
-  private ChildPartition childPartitionFrom(Struct struct) {
-    final HashSet<String> parentTokens =
-        Sets.newHashSet(struct.getStringList("parent_partition_tokens"));
-    return new ChildPartition(struct.getString("token"), parentTokens);
+  // TODO: Remove when backend is fully migrated to JSON.
+  private static String jsonString(Struct struct, int index, boolean isJson) {
+    return isJson ? struct.getJson(index) : struct.getString(index);
   }
 
-  // TODO: Remove when backend is fully migrated to JSON.
-  private String getJsonString(Struct struct, String columnName) {
-    if (struct.getColumnType(columnName).equals(Type.json())) {
-      return struct.getJson(columnName);
-    } else if (struct.getColumnType(columnName).equals(Type.string())) {
-      return struct.getString(columnName);
-    } else {
-      throw new IllegalArgumentException("Can not extract string from value " + columnName);
+  /** Field positions of the change record schema, resolved from the outermost struct type. */
+  private static final class Schema {
+    final Type type;
+
+    final int dataChangeRecord;
+    final int heartbeatRecord;
+    final int childPartitionsRecord;
+
+    final int commitTimestamp;
+    final int serverTransactionId;
+    final int isLastRecordInTransactionInPartition;
+    final int dataChangeRecordSequence;
+    final int tableName;
+    final int columnTypes;
+    final int mods;
+    final int modType;
+    final int valueCaptureType;
+    final int numberOfRecordsInTransaction;
+    final int numberOfPartitionsInTransaction;
+
+    final int columnName;
+    final int columnTypeType;
+    final boolean columnTypeTypeIsJson;
+    final int isPrimaryKey;
+    final int ordinalPosition;
+
+    final int keys;
+    final boolean keysIsJson;
+    final int oldValues;
+    final boolean oldValuesIsJson;
+    final int newValues;
+    final boolean newValuesIsJson;
+
+    final int heartbeatTimestamp;
+
+    final int startTimestamp;
+    final int childPartitionsRecordSequence;
+    final int childPartitions;
+    final int childToken;
+    final int parentPartitionTokens;
+
+    Schema(Type type) {
+      this.type = type;
+      dataChangeRecord = type.getFieldIndex("data_change_record");
+      heartbeatRecord = type.getFieldIndex("heartbeat_record");
+      childPartitionsRecord = type.getFieldIndex("child_partitions_record");
+
+      final Type dataChange = elementType(type, dataChangeRecord);
+      commitTimestamp = dataChange.getFieldIndex("commit_timestamp");
+      serverTransactionId = dataChange.getFieldIndex("server_transaction_id");
+      isLastRecordInTransactionInPartition =
+          dataChange.getFieldIndex("is_last_record_in_transaction_in_partition");
+      dataChangeRecordSequence = dataChange.getFieldIndex("record_sequence");
+      tableName = dataChange.getFieldIndex("table_name");
+      columnTypes = dataChange.getFieldIndex("column_types");
+      mods = dataChange.getFieldIndex("mods");
+      modType = dataChange.getFieldIndex("mod_type");
+      valueCaptureType = dataChange.getFieldIndex("value_capture_type");
+      numberOfRecordsInTransaction = dataChange.getFieldIndex("number_of_records_in_transaction");
+      numberOfPartitionsInTransaction =
+          dataChange.getFieldIndex("number_of_partitions_in_transaction");
+
+      final Type columnType = elementType(dataChange, columnTypes);
+      columnName = columnType.getFieldIndex("name");
+      columnTypeType = columnType.getFieldIndex("type");
+      columnTypeTypeIsJson = isJson(columnType, columnTypeType);
+      isPrimaryKey = columnType.getFieldIndex("is_primary_key");
+      ordinalPosition = columnType.getFieldIndex("ordinal_position");
+
+      final Type mod = elementType(dataChange, mods);
+      keys = mod.getFieldIndex("keys");
+      keysIsJson = isJson(mod, keys);
+      oldValues = mod.getFieldIndex("old_values");
+      oldValuesIsJson = isJson(mod, oldValues);
+      newValues = mod.getFieldIndex("new_values");
+      newValuesIsJson = isJson(mod, newValues);
+
+      heartbeatTimestamp = elementType(type, heartbeatRecord).getFieldIndex("timestamp");
+
+      final Type childPartitionsType = elementType(type, childPartitionsRecord);
+      startTimestamp = childPartitionsType.getFieldIndex("start_timestamp");
+      childPartitionsRecordSequence = childPartitionsType.getFieldIndex("record_sequence");
+      childPartitions = childPartitionsType.getFieldIndex("child_partitions");
+      final Type child = elementType(childPartitionsType, childPartitions);
+      childToken = child.getFieldIndex("token");
+      parentPartitionTokens = child.getFieldIndex("parent_partition_tokens");
+    }
+
+    private static Type elementType(Type structType, int fieldIndex) {
+      return structType.getStructFields().get(fieldIndex).getType().getArrayElementType();
+    }
+
+    private static boolean isJson(Type structType, int fieldIndex) {
+      final Type fieldType = structType.getStructFields().get(fieldIndex).getType();
+      if (fieldType.equals(Type.json())) {
+        return true;
+      } else if (fieldType.equals(Type.string())) {
+        return false;
+      }
+      throw new IllegalArgumentException(
+          "Can not extract string from value " + structType.getStructFields().get(fieldIndex)
+              .getName());
     }
   }
 }
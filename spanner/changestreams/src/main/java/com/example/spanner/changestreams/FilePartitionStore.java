@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.spanner.changestreams;
+
+import com.example.spanner.changestreams.model.PartitionMetadata;
+import com.example.spanner.changestreams.model.PartitionMetadata.State;
+import com.google.cloud.Timestamp;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link PartitionStore} that keeps partitions in memory and, if given a file, rewrites it
+ * atomically on every {@link #save} or {@link #saveAll} call. Finished partitions are dropped
+ * because a resumed consumer never queries them again.
+ */
+public class FilePartitionStore implements PartitionStore {
+
+  private final Path file;
+  private final Map<String, PartitionMetadata> partitions = new LinkedHashMap<>();
+
+  /**
+   * Creates a store backed by {@code file}, loading any partitions it already contains.
+   *
+   * @param file the file to persist to, or {@code null} to keep partitions in memory only
+   */
+  public FilePartitionStore(Path file) {
+    this.file = file;
+    if (file != null && Files.exists(file)) {
+      try {
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+          PartitionMetadata partition = parse(line);
+          partitions.put(partition.getToken(), partition);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void save(PartitionMetadata partition) {
+    put(partition);
+    if (file != null) {
+      write();
+    }
+  }
+
+  @Override
+  public synchronized void saveAll(Collection<PartitionMetadata> checkpoint) {
+    for (PartitionMetadata partition : checkpoint) {
+      put(partition);
+    }
+    if (file != null) {
+      write();
+    }
+  }
+
+  private void put(PartitionMetadata partition) {
+    if (partition.getState() == State.FINISHED) {
+      partitions.remove(partition.getToken());
+    } else {
+      // Store a copy; the consumer keeps mutating its own instance.
+      partitions.put(
+          partition.getToken(),
+          new PartitionMetadata(
+              partition.getToken(),
+              new HashSet<>(partition.getParentTokens()),
+              partition.getStartTimestamp(),
+              partition.getWatermark(),
+              partition.getState()));
+    }
+  }
+
+  @Override
+  public synchronized List<PartitionMetadata> loadUnfinished() {
+    return new ArrayList<>(partitions.values());
+  }
+
+  private void write() {
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      for (PartitionMetadata partition : partitions.values()) {
+        writer.write(format(partition));
+        writer.newLine();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    try {
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // token \t state \t start \t watermark \t parent,parent
+  private static String format(PartitionMetadata partition) {
+    return String.join(
+        "\t",
+        partition.getToken(),
+        partition.getState().name(),
+        partition.getStartTimestamp().toString(),
+        partition.getWatermark().toString(),
+        String.join(",", partition.getParentTokens()));
+  }
+
+  private static PartitionMetadata parse(String line) {
+    String[] fields = line.split("\t", -1);
+    HashSet<String> parents = new HashSet<>();
+    if (!fields[4].isEmpty()) {
+      parents.addAll(Arrays.asList(fields[4].split(",")));
+    }
+    return new PartitionMetadata(
+        fields[0],
+        parents,
+        Timestamp.parseTimestamp(fields[2]),
+        Timestamp.parseTimestamp(fields[3]),
+        State.valueOf(fields[1]));
+  }
+}
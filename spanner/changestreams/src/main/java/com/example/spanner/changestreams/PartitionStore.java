@@ -0,0 +1,44 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.spanner.changestreams;
+
+import com.example.spanner.changestreams.model.PartitionMetadata;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Persists partition tokens and watermarks so that a {@link ChangeStreamConsumer} can resume
+ * where it stopped.
+ */
+public interface PartitionStore {
+
+  /** Inserts or replaces the stored copy of a partition. */
+  void save(PartitionMetadata partition);
+
+  /**
+   * Saves several partitions as one checkpoint. Stores that write on every change should override
+   * this to write once.
+   */
+  default void saveAll(Collection<PartitionMetadata> partitions) {
+    for (PartitionMetadata partition : partitions) {
+      save(partition);
+    }
+  }
+
+  /** Returns every partition that has not finished. */
+  List<PartitionMetadata> loadUnfinished();
+}
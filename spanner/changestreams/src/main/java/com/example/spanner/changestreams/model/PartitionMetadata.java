@@ -0,0 +1,145 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.spanner.changestreams.model;
+
+import com.google.cloud.Timestamp;
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Objects;
+
+/**
+ * The progress of one change stream partition: where it came from, where its query started and
+ * how far it has been read.
+ */
+public class PartitionMetadata implements Serializable {
+
+  /** The token used for the initial query, which has no partition token. */
+  public static final String INITIAL_PARTITION_TOKEN = "Parent0";
+
+  /** The lifecycle of a partition query. */
+  public enum State {
+    /** Known, but waiting for its parents to finish. */
+    CREATED,
+    /** Submitted to the executor. */
+    SCHEDULED,
+    /** The query is streaming records. */
+    RUNNING,
+    /** The query has reported its child partitions or reached the end timestamp. */
+    FINISHED
+  }
+
+  private String token;
+  private HashSet<String> parentTokens;
+  private Timestamp startTimestamp;
+  private Timestamp watermark;
+  private State state;
+
+  /** Default constructor for serialization only. */
+  private PartitionMetadata() {}
+
+  /**
+   * Constructs the metadata of a partition.
+   *
+   * @param token the partition token, or {@link #INITIAL_PARTITION_TOKEN} for the initial query
+   * @param parentTokens the partition tokens of the parent(s) that originated this partition
+   * @param startTimestamp the timestamp at which the partition became valid
+   * @param watermark the timestamp up to which the partition has been consumed
+   * @param state the lifecycle state of the partition
+   */
+  public PartitionMetadata(
+      String token,
+      HashSet<String> parentTokens,
+      Timestamp startTimestamp,
+      Timestamp watermark,
+      State state) {
+    this.token = token;
+    this.parentTokens = parentTokens;
+    this.startTimestamp = startTimestamp;
+    this.watermark = watermark;
+    this.state = state;
+  }
+
+  public String getToken() {
+    return token;
+  }
+
+  public HashSet<String> getParentTokens() {
+    return parentTokens;
+  }
+
+  public Timestamp getStartTimestamp() {
+    return startTimestamp;
+  }
+
+  /**
+   * The timestamp up to which this partition has been consumed. A query that resumes the
+   * partition starts here.
+   */
+  public Timestamp getWatermark() {
+    return watermark;
+  }
+
+  public void setWatermark(Timestamp watermark) {
+    this.watermark = watermark;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  public void setState(State state) {
+    this.state = state;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof PartitionMetadata)) {
+      return false;
+    }
+    PartitionMetadata that = (PartitionMetadata) o;
+    return Objects.equals(token, that.token)
+        && Objects.equals(parentTokens, that.parentTokens)
+        && Objects.equals(startTimestamp, that.startTimestamp)
+        && Objects.equals(watermark, that.watermark)
+        && state == that.state;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(token, parentTokens, startTimestamp, watermark, state);
+  }
+
+  @Override
+  public String toString() {
+    return "PartitionMetadata{"
+        + "token='"
+        + token
+        + '\''
+        + ", parentTokens="
+        + parentTokens
+        + ", startTimestamp="
+        + startTimestamp
+        + ", watermark="
+        + watermark
+        + ", state="
+        + state
+        + '}';
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.spanner.changestreams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.spanner.changestreams.model.DataChangeRecord;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.DatabaseAdminClient;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.DatabaseId;
+import com.google.cloud.spanner.Instance;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Spanner;
+import com.google.cloud.spanner.SpannerOptions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Runs ChangeStreamConsumer against a change stream that receives a steady stream of writes.
+ * Point {@code SPANNER_EMULATOR_HOST} at the Spanner emulator to run it locally.
+ */
+@RunWith(JUnit4.class)
+@SuppressWarnings("checkstyle:abbreviationaswordinname")
+public class ChangeStreamConsumerIT {
+  private static final int WRITERS = 8;
+  private static final long WRITE_SECONDS = 10;
+
+  private static String instanceId = System.getProperty("spanner.test.instance");
+  private static final String databaseId =
+      ChangeStreamSampleIT.formatForTest(System.getProperty("spanner.sample.database", "csc"));
+  private static final String tableName = "Singers";
+  private static final String changeStreamName = "SingersStream";
+
+  private Spanner spanner;
+  private DatabaseAdminClient dbAdminClient;
+  private DatabaseClient dbClient;
+
+  @Before
+  public void setUp() throws Exception {
+    SpannerOptions options = SpannerOptions.newBuilder().build();
+    spanner = options.getService();
+    dbAdminClient = spanner.getDatabaseAdminClient();
+    if (instanceId == null) {
+      Iterator<Instance> iterator =
+          spanner.getInstanceAdminClient().listInstances().iterateAll().iterator();
+      if (iterator.hasNext()) {
+        instanceId = iterator.next().getId().getInstance();
+      }
+    }
+    dbAdminClient.createDatabase(instanceId, databaseId, Collections.emptyList())
+        .get(10, TimeUnit.MINUTES);
+    ChangeStreamSample.createChangeStream(
+        dbAdminClient, instanceId, databaseId, tableName, changeStreamName);
+    dbClient = spanner.getDatabaseClient(
+        DatabaseId.of(options.getProjectId(), instanceId, databaseId));
+  }
+
+  @After
+  public void tearDown() {
+    dbAdminClient.dropDatabase(instanceId, databaseId);
+    spanner.close();
+  }
+
+  @Test
+  public void testConsumesAllWritesInCommitOrder() throws Exception {
+    Timestamp start = Timestamp.now();
+    Timestamp end = Timestamp.ofTimeSecondsAndNanos(
+        start.getSeconds() + WRITE_SECONDS + 5, start.getNanos());
+
+    List<DataChangeRecord> received = Collections.synchronizedList(new ArrayList<>());
+    ChangeStreamConsumer consumer = new ChangeStreamConsumer(
+        ChangeStreamConsumer.spannerReader(dbClient, changeStreamName, 1000),
+        new FilePartitionStore(null), received::add, end, 16);
+    consumer.start(start);
+
+    // Each writer inserts rows in its own id range until the write window closes.
+    AtomicLong written = new AtomicLong();
+    ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WRITE_SECONDS);
+    for (int w = 0; w < WRITERS; w++) {
+      final long base = w * 1_000_000L;
+      writers.execute(() -> {
+        for (long id = base; System.currentTimeMillis() < deadline; id += 10) {
+          List<Mutation> mutations = new ArrayList<>();
+          for (long i = id; i < id + 10; i++) {
+            mutations.add(Mutation.newInsertBuilder(tableName)
+                .set("SingerId").to(i)
+                .set("FirstName").to("first_" + i)
+                .set("LastName").to("last_" + i)
+                .build());
+          }
+          dbClient.write(mutations);
+          written.addAndGet(mutations.size());
+        }
+      });
+    }
+    writers.shutdown();
+    assertTrue(writers.awaitTermination(1, TimeUnit.MINUTES));
+
+    consumer.getCompletion().get(2, TimeUnit.MINUTES);
+    consumer.close();
+
+    long mods = 0;
+    Timestamp previous = Timestamp.MIN_VALUE;
+    for (DataChangeRecord record : received) {
+      assertTrue(record.getCommitTimestamp().compareTo(previous) >= 0);
+      previous = record.getCommitTimestamp();
+      mods += record.getMods().size();
+    }
+    assertEquals(written.get(), mods);
+    System.out.printf("Consumed %d mods in %d records from %d partitions%n",
+        mods, received.size(), consumer.getKnownPartitions());
+  }
+}
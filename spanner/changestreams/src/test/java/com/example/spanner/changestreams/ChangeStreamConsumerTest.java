@@ -0,0 +1,269 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.spanner.changestreams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.example.spanner.changestreams.model.ChangeStreamRecord;
+import com.example.spanner.changestreams.model.ChildPartition;
+import com.example.spanner.changestreams.model.ChildPartitionsRecord;
+import com.example.spanner.changestreams.model.DataChangeRecord;
+import com.example.spanner.changestreams.model.HeartbeatRecord;
+import com.example.spanner.changestreams.model.ModType;
+import com.example.spanner.changestreams.model.PartitionMetadata;
+import com.example.spanner.changestreams.model.PartitionMetadata.State;
+import com.example.spanner.changestreams.model.ValueCaptureType;
+import com.google.cloud.Timestamp;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for ChangeStreamConsumer using a scripted partition reader.
+ */
+@RunWith(JUnit4.class)
+public class ChangeStreamConsumerTest {
+
+  private static Timestamp ts(long seconds) {
+    return Timestamp.ofTimeSecondsAndNanos(seconds, 0);
+  }
+
+  private static DataChangeRecord data(long seconds, String transactionId) {
+    return new DataChangeRecord(
+        ts(seconds), transactionId, true, "00000000", "Singers", Collections.emptyList(),
+        Collections.emptyList(), ModType.INSERT, ValueCaptureType.OLD_AND_NEW_VALUES, 1, 1);
+  }
+
+  private static ChildPartitionsRecord children(long seconds, String... tokens) {
+    List<ChildPartition> partitions = new ArrayList<>();
+    for (String token : tokens) {
+      partitions.add(new ChildPartition(token, new HashSet<>(PARENTS.get(token))));
+    }
+    return new ChildPartitionsRecord(ts(seconds), "00000001", partitions);
+  }
+
+  private static final Map<String, List<String>> PARENTS = new HashMap<>();
+
+  static {
+    PARENTS.put("A", ImmutableList.of(PartitionMetadata.INITIAL_PARTITION_TOKEN));
+    PARENTS.put("B", ImmutableList.of(PartitionMetadata.INITIAL_PARTITION_TOKEN));
+    PARENTS.put("C", ImmutableList.of("A", "B"));
+  }
+
+  /**
+   * The initial partition splits into A and B, which later merge into C. A and B each report C.
+   */
+  private static final Map<String, List<ChangeStreamRecord>> SCRIPT = new HashMap<>();
+
+  static {
+    SCRIPT.put(PartitionMetadata.INITIAL_PARTITION_TOKEN, ImmutableList.of(children(1, "A", "B")));
+    SCRIPT.put("A", ImmutableList.of(data(2, "a1"), data(5, "a2"), children(6, "C")));
+    SCRIPT.put("B", ImmutableList.of(data(3, "b1"), new HeartbeatRecord(ts(4)), data(4, "b2"),
+        children(6, "C")));
+    SCRIPT.put("C", ImmutableList.of(data(7, "c1"), new HeartbeatRecord(ts(9))));
+  }
+
+  /** The initial partition splits into A and B, which never end. */
+  private static final Map<String, List<ChangeStreamRecord>> LIVE_SCRIPT = new HashMap<>();
+
+  static {
+    LIVE_SCRIPT.put(
+        PartitionMetadata.INITIAL_PARTITION_TOKEN, ImmutableList.of(children(1, "A", "B")));
+    LIVE_SCRIPT.put("A", ImmutableList.of(data(2, "a1"), data(5, "a2")));
+    LIVE_SCRIPT.put("B", ImmutableList.of(data(3, "b1"), data(4, "b2")));
+  }
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final Map<String, Timestamp> queryStarts = new ConcurrentHashMap<>();
+
+  private final ChangeStreamConsumer.PartitionReader scriptedReader = scriptedReader(SCRIPT);
+
+  /**
+   * Returns a reader that passes on the records of a script up to the end timestamp. Like a real
+   * query, one without an end timestamp never returns on its own.
+   */
+  private ChangeStreamConsumer.PartitionReader scriptedReader(
+      Map<String, List<ChangeStreamRecord>> script) {
+    return (token, start, end, sink) -> {
+      queryStarts.put(token, start);
+      for (ChangeStreamRecord record : script.get(token)) {
+        if (end != null && timestamp(record).compareTo(end) > 0) {
+          break;
+        }
+        if (!(record instanceof DataChangeRecord) || timestamp(record).compareTo(start) >= 0) {
+          sink.accept(record);
+        }
+      }
+      if (end == null) {
+        awaitCancellation();
+      }
+    };
+  }
+
+  private static Timestamp timestamp(ChangeStreamRecord record) {
+    if (record instanceof DataChangeRecord) {
+      return ((DataChangeRecord) record).getCommitTimestamp();
+    } else if (record instanceof HeartbeatRecord) {
+      return ((HeartbeatRecord) record).getTimestamp();
+    }
+    return ((ChildPartitionsRecord) record).getStartTimestamp();
+  }
+
+  private static void awaitCancellation() {
+    await(new CountDownLatch(1));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new RuntimeException("Query cancelled", e);
+    }
+  }
+
+  private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        fail("Timed out");
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  public void testFollowsSplitsAndMergesInCommitOrder() throws Exception {
+    List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+    FilePartitionStore store = new FilePartitionStore(null);
+    try (ChangeStreamConsumer consumer = new ChangeStreamConsumer(
+        scriptedReader, store, record -> delivered.add(record.getServerTransactionId()),
+        ts(10), 4)) {
+      consumer.start(ts(0));
+      consumer.getCompletion().get(10, TimeUnit.SECONDS);
+
+      assertEquals(ImmutableList.of("a1", "b1", "b2", "a2", "c1"), delivered);
+      assertEquals(4, consumer.getKnownPartitions());
+      assertEquals(0, consumer.getActivePartitions());
+      assertEquals(0, store.loadUnfinished().size());
+      // The merged partition is queried once, from its start timestamp.
+      assertEquals(ts(6), queryStarts.get("C"));
+    }
+  }
+
+  @Test
+  public void testResumesFromSavedWatermark() throws Exception {
+    FilePartitionStore store = new FilePartitionStore(null);
+    store.save(new PartitionMetadata(
+        "C", Sets.newHashSet("A", "B"), ts(6), ts(7), State.RUNNING));
+
+    List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+    try (ChangeStreamConsumer consumer = new ChangeStreamConsumer(
+        scriptedReader, store, record -> delivered.add(record.getServerTransactionId()),
+        ts(10), 4)) {
+      consumer.start(ts(0));
+      consumer.getCompletion().get(10, TimeUnit.SECONDS);
+
+      assertEquals(ImmutableList.of("c1"), delivered);
+      assertEquals(ts(7), queryStarts.get("C"));
+      assertEquals(1, consumer.getKnownPartitions());
+    }
+  }
+
+  @Test
+  public void testKeepsFinishedPartitionUntilItsRecordsAreDelivered() throws Exception {
+    // B returns its first record and then hangs, holding back the records of A, which finishes.
+    CountDownLatch bStarted = new CountDownLatch(1);
+    ChangeStreamConsumer.PartitionReader hangingReader =
+        (token, start, end, sink) -> {
+          if (token.equals("B")) {
+            sink.accept(data(3, "b1"));
+            bStarted.countDown();
+            awaitCancellation();
+          } else if (token.equals("A")) {
+            await(bStarted);
+          }
+          scriptedReader.read(token, start, end, sink);
+        };
+    Path file = temporaryFolder.getRoot().toPath().resolve("partitions");
+    Path crashed = temporaryFolder.getRoot().toPath().resolve("crashed");
+    List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+    try (ChangeStreamConsumer consumer = new ChangeStreamConsumer(
+        hangingReader, new FilePartitionStore(file),
+        record -> delivered.add(record.getServerTransactionId()), ts(10), 4)) {
+      consumer.start(ts(0));
+      // A finishing saves a checkpoint with its child C.
+      awaitCondition(() -> consumer.getActivePartitions() == 2
+          && new FilePartitionStore(file).loadUnfinished().stream()
+              .anyMatch(partition -> partition.getToken().equals("C")));
+      // The process stops here.
+      Files.copy(file, crashed);
+    }
+    assertEquals(ImmutableList.of("a1"), delivered);
+
+    Map<String, PartitionMetadata> saved = new HashMap<>();
+    for (PartitionMetadata partition : new FilePartitionStore(crashed).loadUnfinished()) {
+      saved.put(partition.getToken(), partition);
+    }
+    // A's record at 5 is still buffered, so A is saved to be read again from the watermark.
+    assertEquals(ImmutableSet.of("A", "B", "C"), saved.keySet());
+    assertEquals(ts(3), saved.get("A").getWatermark());
+
+    List<String> resumed = Collections.synchronizedList(new ArrayList<>());
+    try (ChangeStreamConsumer consumer = new ChangeStreamConsumer(
+        scriptedReader, new FilePartitionStore(crashed),
+        record -> resumed.add(record.getServerTransactionId()), ts(10), 4)) {
+      consumer.start(ts(0));
+      consumer.getCompletion().get(10, TimeUnit.SECONDS);
+
+      assertEquals(ImmutableList.of("b1", "b2", "a2", "c1"), resumed);
+    }
+  }
+
+  @Test
+  public void testSlicesQueriesWhenPartitionsOutnumberThreads() throws Exception {
+    List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+    // One thread, two partitions that never end and no end timestamp.
+    try (ChangeStreamConsumer consumer = new ChangeStreamConsumer(
+        scriptedReader(LIVE_SCRIPT), new FilePartitionStore(null),
+        record -> delivered.add(record.getServerTransactionId()), null, 1, 1000)) {
+      consumer.start(ts(0));
+      awaitCondition(() -> delivered.size() >= 4);
+
+      assertEquals(ImmutableList.of("a1", "b1", "b2", "a2"), delivered.subList(0, 4));
+      assertEquals(2, consumer.getActivePartitions());
+    }
+  }
+}
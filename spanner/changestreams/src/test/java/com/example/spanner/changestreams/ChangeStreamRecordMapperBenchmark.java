@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.spanner.changestreams;
+
+import com.example.spanner.changestreams.model.ChangeStreamRecord;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.Struct;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark for ChangeStreamRecordMapper over synthetic change stream rows. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.openjdk.jmh.Main \
+ *     -Dexec.args="ChangeStreamRecordMapperBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChangeStreamRecordMapperBenchmark {
+
+  @Param({"1", "10", "100"})
+  public int modsPerRecord;
+
+  private Struct dataChangeRow;
+  private Struct heartbeatRow;
+  private ChangeStreamRecordMapper mapper;
+  private ChangeStreamRecordMapper modsOnlyMapper;
+
+  @Setup
+  public void setUp() {
+    Timestamp now = Timestamp.now();
+    dataChangeRow = SyntheticChangeRecords.dataChangeRow(now, modsPerRecord);
+    heartbeatRow = SyntheticChangeRecords.heartbeatRow(now);
+    mapper = new ChangeStreamRecordMapper();
+    modsOnlyMapper = new ChangeStreamRecordMapper(false);
+  }
+
+  @Benchmark
+  public List<ChangeStreamRecord> dataChangeRecord() {
+    return mapper.toChangeStreamRecords(dataChangeRow);
+  }
+
+  @Benchmark
+  public List<ChangeStreamRecord> dataChangeRecordWithoutColumnTypes() {
+    return modsOnlyMapper.toChangeStreamRecords(dataChangeRow);
+  }
+
+  @Benchmark
+  public List<ChangeStreamRecord> heartbeatRecord() {
+    return mapper.toChangeStreamRecords(heartbeatRow);
+  }
+}
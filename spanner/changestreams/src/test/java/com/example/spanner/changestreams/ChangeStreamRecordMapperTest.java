@@ -0,0 +1,85 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.spanner.changestreams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.spanner.changestreams.model.ChangeStreamRecord;
+import com.example.spanner.changestreams.model.ChildPartition;
+import com.example.spanner.changestreams.model.ChildPartitionsRecord;
+import com.example.spanner.changestreams.model.DataChangeRecord;
+import com.example.spanner.changestreams.model.HeartbeatRecord;
+import com.example.spanner.changestreams.model.Mod;
+import com.example.spanner.changestreams.model.ModType;
+import com.google.cloud.Timestamp;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for ChangeStreamRecordMapper.
+ */
+@RunWith(JUnit4.class)
+public class ChangeStreamRecordMapperTest {
+
+  private static final Timestamp TIMESTAMP = Timestamp.ofTimeSecondsAndNanos(1_700_000_000, 42);
+
+  @Test
+  public void testDataChangeRecord() {
+    List<ChangeStreamRecord> records = new ChangeStreamRecordMapper()
+        .toChangeStreamRecords(SyntheticChangeRecords.dataChangeRow(TIMESTAMP, 2));
+
+    assertEquals(1, records.size());
+    DataChangeRecord record = (DataChangeRecord) records.get(0);
+    assertEquals(TIMESTAMP, record.getCommitTimestamp());
+    assertEquals("Singers", record.getTableName());
+    assertEquals(ModType.INSERT, record.getModType());
+    assertEquals(3, record.getRowType().size());
+    assertEquals("SingerId", record.getRowType().get(0).getName());
+    assertTrue(record.getRowType().get(0).isPrimaryKey());
+    assertEquals(
+        new Mod("{\"SingerId\":\"1\"}", null,
+            "{\"FirstName\":\"singer_1_first_name\",\"LastName\":\"singer_1_last_name\"}"),
+        record.getMods().get(1));
+  }
+
+  @Test
+  public void testSkipsColumnTypes() {
+    DataChangeRecord record = (DataChangeRecord) new ChangeStreamRecordMapper(false)
+        .toChangeStreamRecords(SyntheticChangeRecords.dataChangeRow(TIMESTAMP, 1)).get(0);
+
+    assertEquals(Collections.emptyList(), record.getRowType());
+    assertEquals(1, record.getMods().size());
+  }
+
+  @Test
+  public void testHeartbeatAndChildPartitionsRecords() {
+    ChangeStreamRecordMapper mapper = new ChangeStreamRecordMapper();
+
+    assertEquals(
+        Collections.singletonList(new HeartbeatRecord(TIMESTAMP)),
+        mapper.toChangeStreamRecords(SyntheticChangeRecords.heartbeatRow(TIMESTAMP)));
+    assertEquals(
+        Collections.singletonList(new ChildPartitionsRecord(TIMESTAMP, "00000001",
+            Collections.singletonList(new ChildPartition("child", "parent")))),
+        mapper.toChangeStreamRecords(
+            SyntheticChangeRecords.childPartitionsRow(TIMESTAMP, "child", "parent")));
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.spanner.changestreams;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import com.google.cloud.spanner.Value;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** Builds change stream result rows with the same schema as a {@code READ_<stream>} query. */
+final class SyntheticChangeRecords {
+
+  static final Type COLUMN_TYPE = Type.struct(
+      StructField.of("name", Type.string()),
+      StructField.of("type", Type.json()),
+      StructField.of("is_primary_key", Type.bool()),
+      StructField.of("ordinal_position", Type.int64()));
+
+  static final Type MOD = Type.struct(
+      StructField.of("keys", Type.json()),
+      StructField.of("new_values", Type.json()),
+      StructField.of("old_values", Type.json()));
+
+  static final Type DATA_CHANGE_RECORD = Type.struct(
+      StructField.of("commit_timestamp", Type.timestamp()),
+      StructField.of("record_sequence", Type.string()),
+      StructField.of("server_transaction_id", Type.string()),
+      StructField.of("is_last_record_in_transaction_in_partition", Type.bool()),
+      StructField.of("table_name", Type.string()),
+      StructField.of("value_capture_type", Type.string()),
+      StructField.of("column_types", Type.array(COLUMN_TYPE)),
+      StructField.of("mods", Type.array(MOD)),
+      StructField.of("mod_type", Type.string()),
+      StructField.of("number_of_records_in_transaction", Type.int64()),
+      StructField.of("number_of_partitions_in_transaction", Type.int64()),
+      StructField.of("transaction_tag", Type.string()),
+      StructField.of("is_system_transaction", Type.bool()));
+
+  static final Type HEARTBEAT_RECORD = Type.struct(
+      StructField.of("timestamp", Type.timestamp()));
+
+  static final Type CHILD_PARTITION = Type.struct(
+      StructField.of("token", Type.string()),
+      StructField.of("parent_partition_tokens", Type.array(Type.string())));
+
+  static final Type CHILD_PARTITIONS_RECORD = Type.struct(
+      StructField.of("start_timestamp", Type.timestamp()),
+      StructField.of("record_sequence", Type.string()),
+      StructField.of("child_partitions", Type.array(CHILD_PARTITION)));
+
+  static final Type CHANGE_RECORD = Type.struct(
+      StructField.of("data_change_record", Type.array(DATA_CHANGE_RECORD)),
+      StructField.of("heartbeat_record", Type.array(HEARTBEAT_RECORD)),
+      StructField.of("child_partitions_record", Type.array(CHILD_PARTITIONS_RECORD)));
+
+  private SyntheticChangeRecords() {}
+
+  /** A result row holding one data change record with {@code modCount} inserted rows. */
+  static Struct dataChangeRow(Timestamp commitTimestamp, int modCount) {
+    List<Struct> mods = new ArrayList<>(modCount);
+    for (int i = 0; i < modCount; i++) {
+      mods.add(Struct.newBuilder()
+          .set("keys").to(Value.json("{\"SingerId\":\"" + i + "\"}"))
+          .set("new_values").to(Value.json(
+              "{\"FirstName\":\"singer_" + i + "_first_name\","
+                  + "\"LastName\":\"singer_" + i + "_last_name\"}"))
+          .set("old_values").to(Value.json(null))
+          .build());
+    }
+    Struct dataChangeRecord = Struct.newBuilder()
+        .set("commit_timestamp").to(commitTimestamp)
+        .set("record_sequence").to("00000000")
+        .set("server_transaction_id").to("transaction-" + commitTimestamp.getNanos())
+        .set("is_last_record_in_transaction_in_partition").to(true)
+        .set("table_name").to("Singers")
+        .set("value_capture_type").to("OLD_AND_NEW_VALUES")
+        .set("column_types").toStructArray(COLUMN_TYPE, Arrays.asList(
+            columnType("SingerId", "{\"code\":\"INT64\"}", true, 1),
+            columnType("FirstName", "{\"code\":\"STRING\"}", false, 2),
+            columnType("LastName", "{\"code\":\"STRING\"}", false, 3)))
+        .set("mods").toStructArray(MOD, mods)
+        .set("mod_type").to("INSERT")
+        .set("number_of_records_in_transaction").to(1L)
+        .set("number_of_partitions_in_transaction").to(1L)
+        .set("transaction_tag").to("")
+        .set("is_system_transaction").to(false)
+        .build();
+    return row(Collections.singletonList(dataChangeRecord), Collections.emptyList(),
+        Collections.emptyList());
+  }
+
+  /** A result row holding one heartbeat record. */
+  static Struct heartbeatRow(Timestamp timestamp) {
+    Struct heartbeat = Struct.newBuilder().set("timestamp").to(timestamp).build();
+    return row(Collections.emptyList(), Collections.singletonList(heartbeat),
+        Collections.emptyList());
+  }
+
+  /** A result row holding one child partitions record with a single child. */
+  static Struct childPartitionsRow(Timestamp startTimestamp, String token, String parentToken) {
+    Struct child = Struct.newBuilder()
+        .set("token").to(token)
+        .set("parent_partition_tokens").toStringArray(Collections.singletonList(parentToken))
+        .build();
+    Struct record = Struct.newBuilder()
+        .set("start_timestamp").to(startTimestamp)
+        .set("record_sequence").to("00000001")
+        .set("child_partitions").toStructArray(CHILD_PARTITION, Collections.singletonList(child))
+        .build();
+    return row(Collections.emptyList(), Collections.emptyList(),
+        Collections.singletonList(record));
+  }
+
+  private static Struct columnType(String name, String type, boolean isPrimaryKey, long ordinal) {
+    return Struct.newBuilder()
+        .set("name").to(name)
+        .set("type").to(Value.json(type))
+        .set("is_primary_key").to(isPrimaryKey)
+        .set("ordinal_position").to(ordinal)
+        .build();
+  }
+
+  private static Struct row(
+      List<Struct> dataChangeRecords, List<Struct> heartbeatRecords,
+      List<Struct> childPartitionsRecords) {
+    Struct changeRecord = Struct.newBuilder()
+        .set("data_change_record").toStructArray(DATA_CHANGE_RECORD, dataChangeRecords)
+        .set("heartbeat_record").toStructArray(HEARTBEAT_RECORD, heartbeatRecords)
+        .set("child_partitions_record")
+            .toStructArray(CHILD_PARTITIONS_RECORD, childPartitionsRecords)
+        .build();
+    return Struct.newBuilder()
+        .set("ChangeRecord").toStructArray(CHANGE_RECORD, Collections.singletonList(changeRecord))
+        .build();
+  }
+}
@@ -246,17 +246,16 @@ class LoadCsvExample {
               builder.set(columnName).to(Byte.parseByte(recordValue));
               break;
             case INT64:
-              builder.set(columnName).to(Integer.parseInt(recordValue));
+              builder.set(columnName).to(Long.parseLong(recordValue));
               break;
             case FLOAT64:
-              builder.set(columnName).to(Float.parseFloat(recordValue));
+              builder.set(columnName).to(Double.parseDouble(recordValue));
               break;
             case BOOL:
               builder.set(columnName).to(Boolean.parseBoolean(recordValue));
               break;
             case NUMERIC:
-              builder.set(columnName).to(Value.numeric(BigDecimal.valueOf(
-                  Double.parseDouble(recordValue))));
+              builder.set(columnName).to(Value.numeric(new BigDecimal(recordValue)));
               break;
             case DATE:
               builder.set(columnName).to(com.google.cloud.Date.parseDate(recordValue));
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.spanner.jdbc;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+/**
+ * Exports the result of a query to one CSV file per partition, running partitions in parallel.
+ *
+ * <p>The query is split with {@code PARTITION <query>} as in {@link PartitionQueryExample}, and
+ * each partition is executed with {@code RUN PARTITION '<id>'} on one of {@code threads} worker
+ * connections, optionally with Data Boost. All partitions read the same snapshot.
+ *
+ * <p>The partition ids are stored in a manifest in the output directory, and a partition's file
+ * is only moved to its final name once all of its rows are written. Running the export again
+ * with the same output directory skips the partitions that have a file and retries the others
+ * against the original snapshot. Partition ids can only be executed while their read timestamp
+ * is within the database's version retention period; delete the manifest to start a new
+ * snapshot after that.
+ *
+ * <pre>
+ * mvn compile exec:java -Dexec.mainClass=com.example.spanner.jdbc.PartitionedExporter \
+ *     -Dexec.args="my-project my-instance my-database 'SELECT * FROM Singers' /tmp/export 8"
+ * </pre>
+ *
+ * <p>The optional arguments after the output directory are the number of threads, the number of
+ * attempts per partition and {@code true} to use Data Boost.
+ */
+public class PartitionedExporter {
+
+  static final String MANIFEST = "partitions.txt";
+
+  /** The size in bytes and duration of one exported partition file. */
+  static class PartitionStats {
+    final int index;
+    final long rows;
+    final long bytes;
+    final long nanos;
+
+    PartitionStats(int index, long rows, long bytes, long nanos) {
+      this.index = index;
+      this.rows = rows;
+      this.bytes = bytes;
+      this.nanos = nanos;
+    }
+
+    @Override
+    public String toString() {
+      double seconds = nanos / 1e9;
+      return String.format(
+          "partition %d: %,d rows, %.1f MB in %.1fs (%,.0f rows/s, %.1f MB/s)",
+          index, rows, bytes / 1e6, seconds, rows / seconds, bytes / 1e6 / seconds);
+    }
+  }
+
+  private final String connectionUrl;
+  private final String query;
+  private final Path outputDirectory;
+  private final int threads;
+  private final int maxAttempts;
+  private final boolean dataBoost;
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 5) {
+      System.err.println(
+          "Usage: PartitionedExporter <project> <instance> <database> <query> <directory>"
+              + " [threads] [attempts] [dataBoost]");
+      System.exit(1);
+    }
+    String connectionUrl =
+        String.format(
+            "jdbc:cloudspanner:/projects/%s/instances/%s/databases/%s", args[0], args[1], args[2]);
+    int threads = args.length > 5 ? Integer.parseInt(args[5]) : 8;
+    int maxAttempts = args.length > 6 ? Integer.parseInt(args[6]) : 3;
+    boolean dataBoost = args.length > 7 && Boolean.parseBoolean(args[7]);
+    PartitionedExporter exporter =
+        new PartitionedExporter(
+            connectionUrl, args[3], Paths.get(args[4]), threads, maxAttempts, dataBoost);
+
+    long start = System.nanoTime();
+    long rows = 0;
+    long bytes = 0;
+    List<PartitionStats> stats = exporter.export();
+    for (PartitionStats partition : stats) {
+      System.out.println(partition);
+      rows += partition.rows;
+      bytes += partition.bytes;
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf(
+        "%d partitions: %,d rows, %.1f MB in %.1fs (%,.0f rows/s, %.1f MB/s)%n",
+        stats.size(), rows, bytes / 1e6, seconds, rows / seconds, bytes / 1e6 / seconds);
+  }
+
+  PartitionedExporter(
+      String connectionUrl,
+      String query,
+      Path outputDirectory,
+      int threads,
+      int maxAttempts,
+      boolean dataBoost) {
+    this.connectionUrl = connectionUrl;
+    this.query = query;
+    this.outputDirectory = outputDirectory;
+    this.threads = threads;
+    this.maxAttempts = maxAttempts;
+    this.dataBoost = dataBoost;
+  }
+
+  static Path partitionFile(Path outputDirectory, int index) {
+    return outputDirectory.resolve(String.format("part-%05d.csv", index));
+  }
+
+  /**
+   * Exports every partition that does not have an output file yet.
+   *
+   * @return the statistics of the partitions exported by this call, in partition order
+   * @throws ExecutionException if a partition still failed after {@code maxAttempts} attempts;
+   *     the partitions that succeeded are kept and the export can be resumed
+   */
+  List<PartitionStats> export()
+      throws IOException, SQLException, InterruptedException, ExecutionException {
+    Files.createDirectories(outputDirectory);
+    List<String> partitions = readManifest(outputDirectory);
+    if (partitions == null) {
+      partitions = partition();
+      writeManifest(outputDirectory, partitions);
+    }
+
+    BlockingQueue<Connection> connections = new ArrayBlockingQueue<>(threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<PartitionStats>> results = new ArrayList<>();
+    try {
+      for (int i = 0; i < threads; i++) {
+        connections.add(openConnection());
+      }
+      for (int index : pendingPartitions(outputDirectory, partitions.size())) {
+        String partitionId = partitions.get(index);
+        results.add(executor.submit(() -> {
+          Connection connection = connections.take();
+          try {
+            return exportWithRetries(connection, index, partitionId);
+          } finally {
+            connections.put(connection);
+          }
+        }));
+      }
+
+      List<PartitionStats> stats = new ArrayList<>();
+      ExecutionException failure = null;
+      for (Future<PartitionStats> result : results) {
+        try {
+          stats.add(result.get());
+        } catch (ExecutionException e) {
+          // Let the other partitions finish so that a rerun has less left to do.
+          if (failure == null) {
+            failure = e;
+          } else {
+            failure.addSuppressed(e.getCause());
+          }
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      return stats;
+    } finally {
+      executor.shutdownNow();
+      for (Connection connection : connections) {
+        connection.close();
+      }
+    }
+  }
+
+  private Connection openConnection() throws SQLException {
+    Connection connection = DriverManager.getConnection(connectionUrl);
+    if (dataBoost) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("set data_boost_enabled=true");
+      }
+    }
+    return connection;
+  }
+
+  private List<String> partition() throws SQLException {
+    List<String> partitions = new ArrayList<>();
+    try (Connection connection = openConnection();
+        Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("PARTITION " + query)) {
+      while (resultSet.next()) {
+        partitions.add(resultSet.getString(1));
+      }
+    }
+    return partitions;
+  }
+
+  private PartitionStats exportWithRetries(Connection connection, int index, String partitionId)
+      throws IOException, SQLException {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return exportPartition(connection, index, partitionId);
+      } catch (IOException | SQLException e) {
+        if (attempt >= maxAttempts) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  private PartitionStats exportPartition(Connection connection, int index, String partitionId)
+      throws IOException, SQLException {
+    long start = System.nanoTime();
+    Path target = partitionFile(outputDirectory, index);
+    Path temp = target.resolveSibling(target.getFileName() + ".inprogress");
+    long rows = 0;
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet =
+            statement.executeQuery(String.format("RUN PARTITION '%s'", partitionId));
+        Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8);
+        CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT)) {
+      ResultSetMetaData metadata = resultSet.getMetaData();
+      int columns = metadata.getColumnCount();
+      for (int i = 1; i <= columns; i++) {
+        printer.print(metadata.getColumnName(i));
+      }
+      printer.println();
+      while (resultSet.next()) {
+        for (int i = 1; i <= columns; i++) {
+          // BYTES columns are returned as base64, which StreamingCsvLoader reads back.
+          printer.print(resultSet.getString(i));
+        }
+        printer.println();
+        rows++;
+      }
+    } catch (IOException | SQLException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+    // The size of the CSV file in UTF-8, including the header, separators and quoting.
+    long bytes = Files.size(temp);
+    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    return new PartitionStats(index, rows, bytes, System.nanoTime() - start);
+  }
+
+  /** Returns the partition ids of a previous export, or null if there is none. */
+  static List<String> readManifest(Path outputDirectory) throws IOException {
+    Path manifest = outputDirectory.resolve(MANIFEST);
+    if (!Files.exists(manifest)) {
+      return null;
+    }
+    return Files.readAllLines(manifest, StandardCharsets.UTF_8);
+  }
+
+  static void writeManifest(Path outputDirectory, List<String> partitions) throws IOException {
+    Path manifest = outputDirectory.resolve(MANIFEST);
+    Path temp = manifest.resolveSibling(MANIFEST + ".tmp");
+    Files.write(temp, partitions, StandardCharsets.UTF_8);
+    Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Returns the indexes of the partitions that do not have an output file. */
+  static List<Integer> pendingPartitions(Path outputDirectory, int partitionCount) {
+    List<Integer> pending = new ArrayList<>();
+    for (int i = 0; i < partitionCount; i++) {
+      if (!Files.exists(partitionFile(outputDirectory, i))) {
+        pending.add(i);
+      }
+    }
+    return Collections.unmodifiableList(pending);
+  }
+}
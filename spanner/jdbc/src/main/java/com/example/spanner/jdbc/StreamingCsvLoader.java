@@ -0,0 +1,354 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.spanner.jdbc;
+
+import com.google.cloud.ByteArray;
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Mutation.WriteBuilder;
+import com.google.cloud.spanner.Value;
+import com.google.cloud.spanner.jdbc.CloudSpannerJdbcConnection;
+import com.google.spanner.v1.TypeCode;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Streams a CSV file into Spanner in bounded, parallel batches.
+ *
+ * <p>Unlike {@link LoadCsvExample}, which collects every row into one list and writes it in a
+ * single call, this loader:
+ *
+ * <ul>
+ *   <li>cuts a new batch whenever it reaches {@code maxMutationsPerBatch} column values or
+ *       {@code maxBytesPerBatch} bytes, so each commit stays under Spanner's mutation limit;
+ *   <li>commits batches from a pool of worker threads, each with its own connection, while
+ *       limiting the number of batches held in memory;
+ *   <li>resolves a typed parser for each column once, before reading any rows;
+ *   <li>stops reading and cancels the batches in flight as soon as one batch fails;
+ *   <li>records the last fully committed CSV record in a checkpoint file, so a failed load can be
+ *       restarted without re-sending rows that were already written.
+ * </ul>
+ *
+ * <p>Rows are written with insert-or-update mutations, so replaying a partially committed range
+ * after a restart is safe.
+ */
+class StreamingCsvLoader {
+
+  /** Parses one CSV value and sets it on a mutation. */
+  interface ColumnBinder {
+    void bind(WriteBuilder builder, String value);
+  }
+
+  private final String connectionUrl;
+  private final String tableName;
+  private final Map<String, TypeCode> tableColumns;
+  private final int maxMutationsPerBatch;
+  private final long maxBytesPerBatch;
+  private final int threads;
+  private final Path checkpointFile;
+
+  private final AtomicLong rowsWritten = new AtomicLong();
+  private final AtomicLong batchesWritten = new AtomicLong();
+  // Batches that committed out of order, keyed by first record number, valued by last.
+  private final TreeMap<Long, Long> committedRanges = new TreeMap<>();
+  private long checkpoint;
+
+  StreamingCsvLoader(
+      String connectionUrl,
+      String tableName,
+      Map<String, TypeCode> tableColumns,
+      int maxMutationsPerBatch,
+      long maxBytesPerBatch,
+      int threads,
+      Path checkpointFile) {
+    this.connectionUrl = connectionUrl;
+    this.tableName = tableName;
+    this.tableColumns = tableColumns;
+    this.maxMutationsPerBatch = maxMutationsPerBatch;
+    this.maxBytesPerBatch = maxBytesPerBatch;
+    this.threads = threads;
+    this.checkpointFile = checkpointFile;
+  }
+
+  long getRowsWritten() {
+    return rowsWritten.get();
+  }
+
+  long getBatchesWritten() {
+    return batchesWritten.get();
+  }
+
+  /** Returns the parser for a column type. */
+  static ColumnBinder binderFor(String columnName, TypeCode type) {
+    switch (type) {
+      case STRING:
+        return (builder, value) -> builder.set(columnName).to(value);
+      case BYTES:
+        return (builder, value) -> builder.set(columnName).to(ByteArray.fromBase64(value));
+      case INT64:
+        return (builder, value) -> builder.set(columnName).to(Long.parseLong(value));
+      case FLOAT64:
+        return (builder, value) -> builder.set(columnName).to(Double.parseDouble(value));
+      case BOOL:
+        return (builder, value) -> builder.set(columnName).to(Boolean.parseBoolean(value));
+      case NUMERIC:
+        return (builder, value) ->
+            builder.set(columnName).to(Value.numeric(new BigDecimal(value)));
+      case DATE:
+        return (builder, value) -> builder.set(columnName).to(Date.parseDate(value));
+      case TIMESTAMP:
+        return (builder, value) -> builder.set(columnName).to(Timestamp.parseTimestamp(value));
+      default:
+        throw new IllegalArgumentException("Unsupported column type: " + type);
+    }
+  }
+
+  /**
+   * Loads every record from {@code in}. If the checkpoint file exists, records up to and
+   * including the checkpointed record number are skipped.
+   *
+   * @return the number of rows written by this call
+   */
+  long load(Reader in, CSVFormat format, boolean hasHeader)
+      throws IOException, SQLException, InterruptedException, ExecutionException {
+    checkpoint = readCheckpoint();
+    long skipUntil = checkpoint;
+
+    BlockingQueue<CloudSpannerJdbcConnection> connections = new ArrayBlockingQueue<>(threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    // At most two batches per worker are parsed but not yet committed.
+    Semaphore pendingBatches = new Semaphore(threads * 2);
+    List<Future<?>> results = new ArrayList<>();
+    try (CSVParser parser = CSVParser.parse(in, format)) {
+      for (int i = 0; i < threads; i++) {
+        Connection connection = DriverManager.getConnection(connectionUrl);
+        connections.add(connection.unwrap(CloudSpannerJdbcConnection.class));
+      }
+
+      // Resolve the CSV position and parser of every column once.
+      List<String> columnNames = new ArrayList<>(tableColumns.keySet());
+      int[] positions = new int[columnNames.size()];
+      long[] nameBytes = new long[columnNames.size()];
+      ColumnBinder[] binders = new ColumnBinder[columnNames.size()];
+      Map<String, Integer> header = hasHeader ? parser.getHeaderMap() : null;
+      for (int i = 0; i < columnNames.size(); i++) {
+        String columnName = columnNames.get(i);
+        positions[i] = hasHeader ? header.getOrDefault(columnName, -1) : i;
+        binders[i] = binderFor(columnName, tableColumns.get(columnName));
+        nameBytes[i] = utf8Length(columnName);
+      }
+
+      List<Mutation> batch = new ArrayList<>();
+      long batchBytes = 0;
+      int batchValues = 0;
+      long firstRecord = -1;
+      long lastRecord = -1;
+      // Counts data records only, so numbering does not depend on whether a header is present.
+      long recordNumber = 0;
+      for (CSVRecord record : parser) {
+        recordNumber++;
+        if (recordNumber <= skipUntil) {
+          continue;
+        }
+        WriteBuilder builder = Mutation.newInsertOrUpdateBuilder(tableName);
+        int values = 0;
+        long rowBytes = 0;
+        for (int i = 0; i < positions.length; i++) {
+          int position = positions[i];
+          if (position < 0 || position >= record.size()) {
+            continue;
+          }
+          String value = record.get(position);
+          if (value == null) {
+            continue;
+          }
+          value = value.trim();
+          binders[i].bind(builder, value);
+          rowBytes += utf8Length(value) + nameBytes[i];
+          values++;
+        }
+        if (batchValues + values > maxMutationsPerBatch && !batch.isEmpty()) {
+          submit(executor, connections, pendingBatches, results, batch, firstRecord, lastRecord);
+          batch = new ArrayList<>();
+          batchBytes = 0;
+          batchValues = 0;
+          firstRecord = -1;
+        }
+        batch.add(builder.build());
+        batchValues += values;
+        batchBytes += rowBytes;
+        if (firstRecord < 0) {
+          firstRecord = recordNumber;
+        }
+        lastRecord = recordNumber;
+        if (batchBytes >= maxBytesPerBatch) {
+          submit(executor, connections, pendingBatches, results, batch, firstRecord, lastRecord);
+          batch = new ArrayList<>();
+          batchBytes = 0;
+          batchValues = 0;
+          firstRecord = -1;
+        }
+      }
+      if (!batch.isEmpty()) {
+        submit(executor, connections, pendingBatches, results, batch, firstRecord, lastRecord);
+      }
+      for (Future<?> result : results) {
+        result.get();
+      }
+    } finally {
+      // Only batches still in flight after a failure are cancelled; the others are done.
+      for (Future<?> result : results) {
+        result.cancel(true);
+      }
+      executor.shutdownNow();
+      for (CloudSpannerJdbcConnection connection : connections) {
+        connection.close();
+      }
+    }
+    return rowsWritten.get();
+  }
+
+  /**
+   * Submits a batch once fewer than two batches per worker are in flight. A batch that failed
+   * while this one waited fails the load here, before any more rows are parsed or sent.
+   */
+  private void submit(
+      ExecutorService executor,
+      BlockingQueue<CloudSpannerJdbcConnection> connections,
+      Semaphore pendingBatches,
+      List<Future<?>> results,
+      List<Mutation> batch,
+      long firstRecord,
+      long lastRecord)
+      throws InterruptedException, ExecutionException {
+    pendingBatches.acquire();
+    throwIfFailed(results);
+    results.add(
+        executor.submit(
+            () -> {
+              CloudSpannerJdbcConnection connection = connections.take();
+              try {
+                // In autocommit mode each write is committed as its own transaction.
+                connection.write(batch);
+                rowsWritten.addAndGet(batch.size());
+                batchesWritten.incrementAndGet();
+                markCommitted(firstRecord, lastRecord);
+              } finally {
+                connections.put(connection);
+                pendingBatches.release();
+              }
+              return null;
+            }));
+  }
+
+  /** Throws the error of a finished batch that failed, and forgets the batches that succeeded. */
+  private static void throwIfFailed(List<Future<?>> results)
+      throws InterruptedException, ExecutionException {
+    for (Iterator<Future<?>> it = results.iterator(); it.hasNext(); ) {
+      Future<?> result = it.next();
+      if (result.isDone()) {
+        it.remove();
+        result.get();
+      }
+    }
+  }
+
+  /** Returns the number of bytes of a string in UTF-8, without encoding it. */
+  static long utf8Length(String value) {
+    long bytes = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        bytes++;
+      } else if (c < 0x800) {
+        bytes += 2;
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        bytes += 4;
+        i++;
+      } else {
+        bytes += 3;
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Advances the checkpoint across every contiguous committed range. Batches may finish out of
+   * order, so a range is only folded into the checkpoint once all earlier records are committed.
+   */
+  synchronized void markCommitted(long firstRecord, long lastRecord) throws IOException {
+    committedRanges.put(firstRecord, lastRecord);
+    long previous = checkpoint;
+    Map.Entry<Long, Long> next;
+    while ((next = committedRanges.firstEntry()) != null && next.getKey() <= checkpoint + 1) {
+      checkpoint = Math.max(checkpoint, next.getValue());
+      committedRanges.pollFirstEntry();
+    }
+    if (checkpoint != previous) {
+      writeCheckpoint(checkpoint);
+    }
+  }
+
+  synchronized long getCheckpoint() {
+    return checkpoint;
+  }
+
+  private long readCheckpoint() throws IOException {
+    if (checkpointFile == null || !Files.exists(checkpointFile)) {
+      return 0;
+    }
+    String content = new String(Files.readAllBytes(checkpointFile), StandardCharsets.UTF_8);
+    return Long.parseLong(content.trim());
+  }
+
+  private void writeCheckpoint(long recordNumber) throws IOException {
+    if (checkpointFile == null) {
+      return;
+    }
+    Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+    Files.write(temp, Long.toString(recordNumber).getBytes(StandardCharsets.UTF_8));
+    Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+}
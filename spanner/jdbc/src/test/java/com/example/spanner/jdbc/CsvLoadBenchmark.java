@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.spanner.jdbc;
+
+import com.google.spanner.v1.TypeCode;
+import java.io.BufferedWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import org.apache.commons.csv.CSVFormat;
+
+/**
+ * Generates a synthetic CSV file and loads it into the Spanner emulator with
+ * {@link StreamingCsvLoader}, reporting rows and megabytes per second.
+ *
+ * <pre>
+ * gcloud emulators spanner start
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.spanner.jdbc.CsvLoadBenchmark -Dexec.args="20000000 8"
+ * </pre>
+ *
+ * <p>Twenty million rows produce a file of roughly 2 GB.
+ */
+public class CsvLoadBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    long rows = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000L;
+    int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+    String connectionUrl =
+        "jdbc:cloudspanner://localhost:9010/projects/test-project/instances/test-instance/"
+            + "databases/csv-load;autoConfigEmulator=true";
+
+    Path csv = Files.createTempFile("csv-load", ".csv");
+    Path checkpoint = Paths.get(csv + ".checkpoint");
+    try {
+      generate(csv, rows);
+      try (Connection connection = DriverManager.getConnection(connectionUrl);
+          Statement statement = connection.createStatement()) {
+        statement.execute("DROP TABLE IF EXISTS LoadTest");
+        statement.execute(
+            "CREATE TABLE LoadTest (Id INT64 NOT NULL, Name STRING(MAX), Score FLOAT64, "
+                + "Amount NUMERIC, CreatedAt TIMESTAMP) PRIMARY KEY (Id)");
+      }
+
+      Map<String, TypeCode> columns = new LinkedHashMap<>();
+      columns.put("Id", TypeCode.INT64);
+      columns.put("Name", TypeCode.STRING);
+      columns.put("Score", TypeCode.FLOAT64);
+      columns.put("Amount", TypeCode.NUMERIC);
+      columns.put("CreatedAt", TypeCode.TIMESTAMP);
+      StreamingCsvLoader loader =
+          new StreamingCsvLoader(
+              connectionUrl, "LoadTest", columns, 20_000, 4L * 1024 * 1024, threads, checkpoint);
+
+      long bytes = Files.size(csv);
+      long start = System.nanoTime();
+      try (Reader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+        loader.load(in, CSVFormat.DEFAULT.withFirstRecordAsHeader(), true);
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.printf(
+          "Loaded %d rows (%.1f MB) in %d batches with %d threads: %.0f rows/s, %.1f MB/s%n",
+          loader.getRowsWritten(), bytes / 1e6, loader.getBatchesWritten(), threads,
+          loader.getRowsWritten() / seconds, bytes / 1e6 / seconds);
+    } finally {
+      Files.deleteIfExists(csv);
+      Files.deleteIfExists(checkpoint);
+    }
+  }
+
+  private static void generate(Path csv, long rows) throws Exception {
+    Random random = new Random(42);
+    try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+      writer.write("Id,Name,Score,Amount,CreatedAt\n");
+      for (long i = 0; i < rows; i++) {
+        writer.write(Long.toString(i));
+        writer.write(",name-");
+        writer.write(Long.toString(random.nextInt(1_000_000)));
+        writer.write(',');
+        writer.write(Double.toString(random.nextDouble() * 1000));
+        writer.write(',');
+        writer.write(Long.toString(random.nextInt(10_000_000)));
+        writer.write(".25,2024-01-01T00:00:00Z\n");
+      }
+    }
+  }
+}
@@ -28,9 +28,15 @@ import com.google.cloud.spanner.Spanner;
 import com.google.cloud.spanner.SpannerOptions;
 import com.google.cloud.spanner.connection.ConnectionOptions;
 import com.google.cloud.spanner.jdbc.CloudSpannerJdbcConnection;
+import com.google.spanner.v1.TypeCode;
 import java.io.ByteArrayOutputStream;
+import java.io.FileReader;
 import java.io.PrintStream;
+import java.io.Reader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
@@ -38,8 +44,12 @@ import java.sql.Statement;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Stream;
+import org.apache.commons.csv.CSVFormat;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -346,6 +356,28 @@ public class JdbcExamplesIT {
     assertThat(out).contains("Data successfully written into table.");
   }
 
+  @Test
+  public void streamingCsvLoader_shouldLoadData() throws Exception {
+    String connectionUrl =
+        String.format(
+            "jdbc:cloudspanner:/projects/%s/instances/%s/databases/%s",
+            ServiceOptions.getDefaultProjectId(), instanceId, databaseId);
+    Map<String, TypeCode> columns = new LinkedHashMap<>();
+    columns.put("SingerId", TypeCode.INT64);
+    columns.put("FirstName", TypeCode.STRING);
+    columns.put("LastName", TypeCode.STRING);
+    columns.put("Revenues", TypeCode.NUMERIC);
+    // Two rows per batch, so the five rows are committed as three parallel batches.
+    StreamingCsvLoader loader =
+        new StreamingCsvLoader(connectionUrl, "Singers", columns, 8, 1024, 2, null);
+    try (Reader in = new FileReader("src/test/resources/singers.csv")) {
+      loader.load(in, CSVFormat.DEFAULT.withFirstRecordAsHeader().withNullString("nil"), true);
+    }
+    assertThat(loader.getRowsWritten()).isEqualTo(5);
+    assertThat(loader.getBatchesWritten()).isEqualTo(3);
+    assertThat(loader.getCheckpoint()).isEqualTo(5);
+  }
+
   @Test
   public void partitionedDml_shouldUpdateData() throws SQLException {
     String out =
@@ -474,6 +506,44 @@ public class JdbcExamplesIT {
     assertOutputContainsAllSingers(out);
   }
 
+  @Test
+  public void partitionedExporter_shouldExportAllSingers() throws Exception {
+    String connectionUrl =
+        String.format(
+            "jdbc:cloudspanner:/projects/%s/instances/%s/databases/%s",
+            ServiceOptions.getDefaultProjectId(), instanceId, databaseId);
+    Path directory = Files.createTempDirectory("export");
+    try {
+      PartitionedExporter exporter =
+          new PartitionedExporter(
+              connectionUrl, "SELECT SingerId, FirstName, LastName FROM Singers", directory, 4, 3,
+              false);
+      List<PartitionedExporter.PartitionStats> stats = exporter.export();
+      long rows = 0;
+      StringBuilder out = new StringBuilder();
+      for (PartitionedExporter.PartitionStats partition : stats) {
+        rows += partition.rows;
+        out.append(new String(
+            Files.readAllBytes(PartitionedExporter.partitionFile(directory, partition.index)),
+            StandardCharsets.UTF_8));
+      }
+      assertThat(rows).isEqualTo(TEST_SINGERS.size());
+      for (Singer singer : TEST_SINGERS) {
+        assertThat(out.toString()).contains(singer.firstName + "," + singer.lastName);
+      }
+
+      // Every partition has a file, so a second run has nothing left to export.
+      assertThat(exporter.export()).isEmpty();
+    } finally {
+      try (Stream<Path> files = Files.list(directory)) {
+        for (Path file : (Iterable<Path>) files::iterator) {
+          Files.delete(file);
+        }
+      }
+      Files.delete(directory);
+    }
+  }
+
   @Test
   public void testRunPartitionedQuery() throws SQLException {
     String out = runExample(() -> RunPartitionedQueryExample.runPartitionedQuery(
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.spanner.jdbc;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for the resume bookkeeping of {@link PartitionedExporter}. */
+@RunWith(JUnit4.class)
+public class PartitionedExporterTest {
+
+  @Test
+  public void resume_skipsPartitionsWithOutputFiles() throws Exception {
+    Path directory = Files.createTempDirectory("export");
+    try {
+      assertThat(PartitionedExporter.readManifest(directory)).isNull();
+
+      List<String> partitions = Arrays.asList("p0", "p1", "p2");
+      PartitionedExporter.writeManifest(directory, partitions);
+      assertThat(PartitionedExporter.readManifest(directory)).isEqualTo(partitions);
+
+      // Partition 1 finished; partition 2 was interrupted while writing.
+      Files.createFile(PartitionedExporter.partitionFile(directory, 1));
+      Files.createFile(directory.resolve("part-00002.csv.inprogress"));
+      assertThat(PartitionedExporter.pendingPartitions(directory, partitions.size()))
+          .containsExactly(0, 2)
+          .inOrder();
+    } finally {
+      try (Stream<Path> files = Files.list(directory)) {
+        for (Path file : (Iterable<Path>) files::iterator) {
+          Files.delete(file);
+        }
+      }
+      Files.delete(directory);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.spanner.jdbc;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Mutation.WriteBuilder;
+import com.google.cloud.spanner.Value;
+import com.google.spanner.v1.TypeCode;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link StreamingCsvLoader} that do not need a Spanner instance. */
+@RunWith(JUnit4.class)
+public class StreamingCsvLoaderTest {
+
+  private static Value bind(TypeCode type, String value) {
+    WriteBuilder builder = Mutation.newInsertOrUpdateBuilder("T");
+    StreamingCsvLoader.binderFor("C", type).bind(builder, value);
+    return builder.build().asMap().get("C");
+  }
+
+  @Test
+  public void binders_keepFullPrecision() {
+    assertThat(bind(TypeCode.INT64, "9223372036854775807").getInt64())
+        .isEqualTo(Long.MAX_VALUE);
+    assertThat(bind(TypeCode.FLOAT64, "0.1").getFloat64()).isEqualTo(0.1d);
+    assertThat(bind(TypeCode.NUMERIC, "12345678901234567890.123456789").getNumeric())
+        .isEqualTo(new BigDecimal("12345678901234567890.123456789"));
+  }
+
+  @Test
+  public void utf8Length_matchesEncodedLength() {
+    for (String value : new String[] {"", "abc", "caf\u00e9", "\u65e5\u672c", "\ud83d\ude00!"}) {
+      assertThat(StreamingCsvLoader.utf8Length(value))
+          .isEqualTo((long) value.getBytes(StandardCharsets.UTF_8).length);
+    }
+  }
+
+  @Test
+  public void markCommitted_onlyAdvancesOverContiguousRanges() throws Exception {
+    Path checkpoint = Files.createTempFile("checkpoint", ".txt");
+    Files.delete(checkpoint);
+    try {
+      StreamingCsvLoader loader =
+          new StreamingCsvLoader(
+              "unused", "T", Collections.emptyMap(), 100, 1024, 1, checkpoint);
+
+      // Records 11-20 commit before 1-10.
+      loader.markCommitted(11, 20);
+      assertThat(loader.getCheckpoint()).isEqualTo(0);
+      assertThat(Files.exists(checkpoint)).isFalse();
+
+      loader.markCommitted(1, 10);
+      assertThat(loader.getCheckpoint()).isEqualTo(20);
+      assertThat(new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8))
+          .isEqualTo("20");
+    } finally {
+      Files.deleteIfExists(checkpoint);
+    }
+  }
+}
@@ -19,6 +19,7 @@ package com.google.codelabs;
 import static com.google.cloud.spanner.TransactionRunner.TransactionCallable;
 
 import com.google.api.gax.longrunning.OperationFuture;
+import com.google.cloud.Timestamp;
 import com.google.cloud.spanner.Database;
 import com.google.cloud.spanner.DatabaseAdminClient;
 import com.google.cloud.spanner.DatabaseClient;
@@ -40,7 +41,6 @@ import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -61,6 +61,9 @@ import java.util.concurrent.ThreadLocalRandom;
  */
 public class App {
 
+  // Number of players inserted by 'insert ... bulk-players'.
+  static final long BULK_PLAYERS = 100_000;
+
   static void create(DatabaseAdminClient dbAdminClient, DatabaseId db) {
     OperationFuture<Database, CreateDatabaseMetadata> op =
         dbAdminClient.createDatabase(
@@ -77,7 +80,8 @@ public class App {
                     + "  Timestamp TIMESTAMP NOT NULL\n"
                     + "  OPTIONS(allow_commit_timestamp=true)\n"
                     + ") PRIMARY KEY(PlayerId, Timestamp),\n"
-                    + "INTERLEAVE IN PARENT Players ON DELETE NO ACTION"));
+                    + "INTERLEAVE IN PARENT Players ON DELETE NO ACTION",
+                Leaderboard.CREATE_TOP_SCORES_TABLE));
     try {
       // Initiate the request which returns an OperationFuture.
       Database dbOperation = op.get();
@@ -92,7 +96,7 @@ public class App {
     }
   }
 
-  static void insert(DatabaseClient dbClient, String insertType) {
+  static void insert(DatabaseClient dbClient, DatabaseId db, String insertType) {
     try {
       insertType = insertType.toLowerCase();
     } catch (Exception e) {
@@ -104,11 +108,26 @@ public class App {
       insertPlayers(dbClient);
     } else if (insertType.equals("scores")) {
       // Insert scores.
-      insertScores(dbClient);
+      insertScores(dbClient, db);
+    } else if (insertType.equals("bulk-players")) {
+      System.out.println(new BulkLoader(dbClient).loadPlayers(BULK_PLAYERS));
+      System.out.println("Done inserting player records...");
+    } else if (insertType.equals("bulk-scores")) {
+      BulkLoader.Stats stats = new BulkLoader(dbClient).loadScores(4);
+      if (stats.getRows() == 0) {
+        System.out.println("Parameter 'bulk-scores' is invalid since "
+            + "no player records currently exist. First insert players "
+            + "then insert scores.");
+        System.exit(1);
+      }
+      System.out.println(stats);
+      // Blind writes bypass the materialized leaderboards, so rebuild them once at the end.
+      System.out.printf("Seeded %d leaderboard entries.\n", Leaderboard.seed(dbClient, db));
+      System.out.println("Done inserting score records...");
     } else {
       // Invalid input.
       System.out.println("Invalid value for 'type of insert'. "
-          + "Specify a valid value: 'players' or 'scores'.");
+          + "Specify a valid value: 'players', 'scores', 'bulk-players' or 'bulk-scores'.");
       System.exit(1);
     }
   }
@@ -152,7 +171,7 @@ public class App {
     System.out.println("Done inserting player records...");
   }
 
-  static void insertScores(DatabaseClient dbClient) {
+  static void insertScores(DatabaseClient dbClient, DatabaseId db) {
     boolean playerRecordsFound = false;
     ResultSet resultSet =
         dbClient
@@ -161,6 +180,7 @@ public class App {
     while (resultSet.next()) {
       playerRecordsFound = true;
       final long playerId = resultSet.getLong("PlayerId");
+      final String playerName = resultSet.getString("PlayerName");
       dbClient
           .readWriteTransaction()
           .run(
@@ -175,15 +195,16 @@ public class App {
                   int startDay = endDate.getDayOfMonth();
                   LocalDate startDate = LocalDate.of(startYear, startMonth, startDay);
                   long start = startDate.toEpochDay();
-                  Random r = new Random();
+                  ThreadLocalRandom r = ThreadLocalRandom.current();
                   List<Statement> stmts = new ArrayList<>();
+                  List<Leaderboard.Entry> entries = new ArrayList<>();
                   // Insert 4 score records into the Scores table 
                   // for each player in the Players table.
                   for (int x = 1; x <= 4; x++) {
                     // Generate random score between 1,000,000 and 1,000
                     long randomScore = r.nextInt(1000000 - 1000) + 1000;
                     // Get random day within the past two years.
-                    long randomDay = ThreadLocalRandom.current().nextLong(start, end);
+                    long randomDay = r.nextLong(start, end);
                     LocalDate randomDayDate = LocalDate.ofEpochDay(randomDay);
                     LocalTime randomTime = LocalTime.of(
                         r.nextInt(23), r.nextInt(59), r.nextInt(59), r.nextInt(9999));
@@ -202,8 +223,13 @@ public class App {
                         .to(randomInstant.toString())
                         .build();
                     stmts.add(statement);
+                    entries.add(new Leaderboard.Entry(playerId, playerName, randomScore,
+                        Timestamp.ofTimeSecondsAndNanos(
+                            randomInstant.getEpochSecond(), randomInstant.getNano())));
                   }
                   transaction.batchUpdate(stmts);
+                  // Keep the materialized leaderboards current in the same transaction.
+                  Leaderboard.recordScores(db, transaction, entries);
                   return null;
                 }
               });
@@ -235,8 +261,9 @@ public class App {
     }
   }
 
-  static void query(DatabaseClient dbClient, int timespan) {
-    Statement statement =
+  // Top ten scores within the past `timespan` hours, computed from the Scores table.
+  static Statement topTenStatement(int timespan) {
+    return
         Statement
             .newBuilder(
               "SELECT p.PlayerId, p.PlayerName, s.Score, s.Timestamp "
@@ -249,6 +276,10 @@ public class App {
             .bind("Timespan")
             .to(timespan)
             .build();
+  }
+
+  static void query(DatabaseClient dbClient, int timespan) {
+    Statement statement = topTenStatement(timespan);
     ResultSet resultSet = dbClient.singleUse().executeQuery(statement);
     while (resultSet.next()) {
       String scoreDate = String.valueOf(resultSet.getTimestamp("Timestamp"));
@@ -284,11 +315,22 @@ public class App {
     System.out.println("  java -jar leaderboard.jar insert my-instance example-db scores");
     System.out.println("      - Insert sample score data into Scores sample Cloud Spanner "
         + "database table.\n");
+    System.out.println("  java -jar leaderboard.jar insert my-instance example-db bulk-players");
+    System.out.println("      - Insert 100,000 sample Player records with batched, parallel "
+        + "mutation commits.\n");
+    System.out.println("  java -jar leaderboard.jar insert my-instance example-db bulk-scores");
+    System.out.println("      - Insert 4 scores per player with batched, parallel mutation "
+        + "commits, then rebuild the materialized leaderboards.\n");
     System.out.println("  java -jar leaderboard.jar query my-instance example-db");
     System.out.println("      - Query players with top ten scores of all time.\n");
     System.out.println("  java -jar leaderboard.jar query my-instance example-db 168");
     System.out.println("      - Query players with top ten scores within a timespan "
         + "specified in hours.\n");
+    System.out.println("  java -jar leaderboard.jar seed my-instance example-db");
+    System.out.println("      - Rebuild the materialized leaderboards from the Scores table.\n");
+    System.out.println("  java -jar leaderboard.jar top my-instance example-db week");
+    System.out.println("      - Read the top ten scores of the current hour, day, week or "
+        + "of all time from the materialized leaderboards.\n");
     System.out.println("  java -jar leaderboard.jar delete my-instance example-db");
     System.out.println("      - Delete sample Cloud Spanner database.");
     System.exit(1);
@@ -316,7 +358,7 @@ public class App {
           } catch (ArrayIndexOutOfBoundsException exception) {
             insertType = "";
           }
-          insert(dbClient, insertType);
+          insert(dbClient, db, insertType);
           break;
         case "query":
           if (args.length == 4) {
@@ -332,6 +374,23 @@ public class App {
             query(dbClient);
           }
           break;
+        case "seed":
+          long rows = Leaderboard.seed(dbClient, db);
+          System.out.printf("Seeded %d leaderboard entries.\n", rows);
+          break;
+        case "top":
+          Leaderboard.Window window = Leaderboard.Window.ALL;
+          if (args.length == 4) {
+            try {
+              window = Leaderboard.Window.valueOf(args[3].toUpperCase());
+            } catch (IllegalArgumentException e) {
+              System.err.println("top command's 'window' parameter must be one of "
+                  + "hour, day, week or all.");
+              System.exit(1);
+            }
+          }
+          Leaderboard.print(Leaderboard.top(dbClient, window));
+          break;
         case "delete":
           delete(dbAdminClient, db);
           break;
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.codelabs;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads players and scores with blind mutation writes instead of DML in read-write transactions.
+ *
+ * <p>Rows for many players are packed into each commit, up to {@code maxMutationsPerCommit}
+ * column values, and up to {@code maxConcurrentCommits} commits run at once. Every commit uses
+ * {@link DatabaseClient#writeAtLeastOnce}, which needs no read or lock round trips; the
+ * insert-or-update mutations make a retried commit harmless. The first commit that fails stops
+ * the load: the producer is stopped at its next batch and the commits still in flight are
+ * cancelled.
+ *
+ * <p>Blind writes do not maintain the TopScores table, so the bulk insert commands rebuild it
+ * with {@link Leaderboard#seed} when they finish.
+ */
+public class BulkLoader {
+
+  /** Spanner allows 80,000 mutations per commit; leave room for secondary indexes. */
+  static final int DEFAULT_MAX_MUTATIONS_PER_COMMIT = 20_000;
+  static final int DEFAULT_MAX_CONCURRENT_COMMITS = 8;
+
+  private static final int PLAYER_COLUMNS = 2;
+  private static final int SCORE_COLUMNS = 3;
+
+  /** Throughput and commit latency of one load. */
+  static class Stats {
+    private final long rows;
+    private final long elapsedNanos;
+    private final long[] commitLatencies;
+
+    Stats(long rows, long elapsedNanos, List<Long> commitLatencies) {
+      this.rows = rows;
+      this.elapsedNanos = elapsedNanos;
+      this.commitLatencies = new long[commitLatencies.size()];
+      for (int i = 0; i < this.commitLatencies.length; i++) {
+        this.commitLatencies[i] = commitLatencies.get(i);
+      }
+      Arrays.sort(this.commitLatencies);
+    }
+
+    long getRows() {
+      return rows;
+    }
+
+    double rowsPerSecond() {
+      return rows / (elapsedNanos / 1e9);
+    }
+
+    /** Returns the {@code p}-th percentile commit latency in milliseconds. */
+    double commitLatencyMillis(double p) {
+      if (commitLatencies.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.min(commitLatencies.length - 1, p / 100 * commitLatencies.length);
+      return commitLatencies[index] / 1e6;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%,d rows in %d commits, %,.0f rows/sec, commit latency p50=%.1fms p90=%.1fms "
+              + "p99=%.1fms",
+          rows, commitLatencies.length, rowsPerSecond(), commitLatencyMillis(50),
+          commitLatencyMillis(90), commitLatencyMillis(99));
+    }
+  }
+
+  private final DatabaseClient dbClient;
+  private final int maxMutationsPerCommit;
+  private final int maxConcurrentCommits;
+
+  BulkLoader(DatabaseClient dbClient) {
+    this(dbClient, DEFAULT_MAX_MUTATIONS_PER_COMMIT, DEFAULT_MAX_CONCURRENT_COMMITS);
+  }
+
+  BulkLoader(DatabaseClient dbClient, int maxMutationsPerCommit, int maxConcurrentCommits) {
+    this.dbClient = dbClient;
+    this.maxMutationsPerCommit = maxMutationsPerCommit;
+    this.maxConcurrentCommits = maxConcurrentCommits;
+  }
+
+  /**
+   * Inserts {@code count} players with random ids. The ids are distinct from each other and from
+   * the existing players, so that every mutation adds a player instead of overwriting one.
+   */
+  Stats loadPlayers(long count) {
+    return run(sink -> {
+      Set<Long> playerIds = new HashSet<>();
+      try (ResultSet resultSet =
+          dbClient.singleUse().executeQuery(Statement.of("SELECT PlayerId FROM Players"))) {
+        while (resultSet.next()) {
+          playerIds.add(resultSet.getLong(0));
+        }
+      }
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      for (long x = 1; x <= count; x++) {
+        long playerId;
+        do {
+          playerId = random.nextLong(1_000_000_000L, 10_000_000_000L);
+        } while (!playerIds.add(playerId));
+        sink.add(
+            Mutation.newInsertOrUpdateBuilder("Players")
+                .set("PlayerId").to(playerId)
+                .set("PlayerName").to("Player " + x)
+                .build(),
+            PLAYER_COLUMNS);
+      }
+    });
+  }
+
+  /**
+   * Inserts {@code scoresPerPlayer} random scores from the past two years for every player.
+   */
+  Stats loadScores(int scoresPerPlayer) {
+    return run(sink -> {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      long now = System.currentTimeMillis() / 1000;
+      long twoYears = TimeUnit.DAYS.toSeconds(730);
+      try (ResultSet resultSet =
+          dbClient.singleUse().executeQuery(Statement.of("SELECT PlayerId FROM Players"))) {
+        while (resultSet.next()) {
+          long playerId = resultSet.getLong(0);
+          for (int x = 0; x < scoresPerPlayer; x++) {
+            sink.add(
+                Mutation.newInsertOrUpdateBuilder("Scores")
+                    .set("PlayerId").to(playerId)
+                    .set("Score").to(random.nextLong(1000, 1_000_000))
+                    .set("Timestamp").to(Timestamp.ofTimeSecondsAndNanos(
+                        now - random.nextLong(twoYears), random.nextInt(1_000_000_000)))
+                    .build(),
+                SCORE_COLUMNS);
+          }
+        }
+      }
+    });
+  }
+
+  private interface Producer {
+    void produce(BatchSink sink) throws Exception;
+  }
+
+  /** Accumulates mutations and hands full batches to the commit pool. */
+  private class BatchSink {
+    private final ExecutorService executor;
+    private final Semaphore inFlight = new Semaphore(maxConcurrentCommits);
+    private final List<Future<?>> commits = new ArrayList<>();
+    private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+    private List<Mutation> batch = new ArrayList<>();
+    private int batchMutations;
+    private long rows;
+
+    BatchSink(ExecutorService executor) {
+      this.executor = executor;
+    }
+
+    void add(Mutation mutation, int columns) throws InterruptedException, ExecutionException {
+      if (batchMutations + columns > maxMutationsPerCommit) {
+        flush();
+      }
+      batch.add(mutation);
+      batchMutations += columns;
+      rows++;
+    }
+
+    void flush() throws InterruptedException, ExecutionException {
+      if (batch.isEmpty()) {
+        return;
+      }
+      final List<Mutation> toCommit = batch;
+      batch = new ArrayList<>();
+      batchMutations = 0;
+      // Blocks the producer while maxConcurrentCommits commits are outstanding.
+      inFlight.acquire();
+      // Stop producing as soon as a commit has failed, instead of after the last batch.
+      throwIfFailed();
+      commits.add(executor.submit(() -> {
+        try {
+          long start = System.nanoTime();
+          dbClient.writeAtLeastOnce(toCommit);
+          latencies.add(System.nanoTime() - start);
+        } finally {
+          inFlight.release();
+        }
+      }));
+    }
+
+    /** Throws the error of a finished commit that failed, and forgets the ones that succeeded. */
+    private void throwIfFailed() throws InterruptedException, ExecutionException {
+      for (Iterator<Future<?>> it = commits.iterator(); it.hasNext(); ) {
+        Future<?> commit = it.next();
+        if (commit.isDone()) {
+          it.remove();
+          commit.get();
+        }
+      }
+    }
+  }
+
+  private Stats run(Producer producer) {
+    ExecutorService executor = Executors.newFixedThreadPool(maxConcurrentCommits);
+    BatchSink sink = new BatchSink(executor);
+    long start = System.nanoTime();
+    try {
+      producer.produce(sink);
+      sink.flush();
+      for (Future<?> commit : sink.commits) {
+        commit.get();
+      }
+    } catch (InterruptedException e) {
+      throw SpannerExceptionFactory.propagateInterrupt(e);
+    } catch (ExecutionException e) {
+      throw SpannerExceptionFactory.asSpannerException(e.getCause());
+    } catch (Exception e) {
+      throw SpannerExceptionFactory.asSpannerException(e);
+    } finally {
+      // Only commits still in flight after a failure are cancelled; the others are done.
+      for (Future<?> commit : sink.commits) {
+        commit.cancel(true);
+      }
+      executor.shutdownNow();
+    }
+    return new Stats(sink.rows, System.nanoTime() - start, sink.latencies);
+  }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.codelabs;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.DatabaseId;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.TransactionContext;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the top scores of every hour, day, week and of all time in a TopScores table, so that a
+ * leaderboard is answered by reading at most {@link #TOP_N} rows instead of sorting Scores.
+ *
+ * <p>Periods are aligned to UTC calendar boundaries; weeks start on Monday. TopScores is updated
+ * by {@link #recordScores} in the same read-write transaction that inserts the scores, and can be
+ * rebuilt from Scores with {@link #seed}.
+ *
+ * <p>Reading a period locks its rows until the transaction commits, and every score belongs to the
+ * single "ALL" period, so reading it on every insert would serialize all inserts. Instead, the
+ * lowest score of each full period of each database is remembered, and a score below it skips the
+ * period without reading it.
+ */
+public class Leaderboard {
+
+  static final int TOP_N = 10;
+
+  static final String CREATE_TOP_SCORES_TABLE =
+      "CREATE TABLE TopScores(\n"
+          + "  Period STRING(32) NOT NULL,\n"
+          + "  Score INT64 NOT NULL,\n"
+          + "  PlayerId INT64 NOT NULL,\n"
+          + "  Timestamp TIMESTAMP NOT NULL,\n"
+          + "  PlayerName STRING(2048) NOT NULL\n"
+          + ") PRIMARY KEY(Period, Score DESC, PlayerId, Timestamp)";
+
+  private static final List<String> COLUMNS =
+      Arrays.asList("Period", "Score", "PlayerId", "Timestamp", "PlayerName");
+
+  private static final DateTimeFormatter HOUR_FORMAT =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH");
+
+  private static final int MAX_CACHED_PERIODS = 10_000;
+
+  /**
+   * The lowest committed score of each period that has {@link #TOP_N} entries, for the most
+   * recently used periods of each database. Only {@link #seed} removes entries from TopScores, so
+   * between seeds the lowest score of a full period only rises, and an old value still never skips
+   * a score that belongs in the period. {@link #seed} forgets the thresholds of its database.
+   */
+  private static final Map<DatabaseId, Map<String, Long>> THRESHOLDS = new ConcurrentHashMap<>();
+
+  /** The granularity of a leaderboard. */
+  enum Window {
+    HOUR, DAY, WEEK, ALL;
+
+    /** The TopScores period key that a score at {@code timestamp} belongs to. */
+    String periodOf(Instant timestamp) {
+      LocalDateTime time = LocalDateTime.ofInstant(timestamp, ZoneOffset.UTC);
+      switch (this) {
+        case HOUR:
+          return "HOUR:" + HOUR_FORMAT.format(time);
+        case DAY:
+          return "DAY:" + time.toLocalDate();
+        case WEEK:
+          return "WEEK:"
+              + time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        default:
+          return "ALL";
+      }
+    }
+  }
+
+  /** One Scores row, with the player's name denormalized for display. */
+  static class Entry {
+    final long playerId;
+    final String playerName;
+    final long score;
+    final Timestamp timestamp;
+
+    Entry(long playerId, String playerName, long score, Timestamp timestamp) {
+      this.playerId = playerId;
+      this.playerName = playerName;
+      this.score = score;
+      this.timestamp = timestamp;
+    }
+
+    Key key(String period) {
+      return Key.of(period, score, playerId, timestamp);
+    }
+
+    Mutation toMutation(String period) {
+      return Mutation.newInsertOrUpdateBuilder("TopScores")
+          .set("Period").to(period)
+          .set("Score").to(score)
+          .set("PlayerId").to(playerId)
+          .set("Timestamp").to(timestamp)
+          .set("PlayerName").to(playerName)
+          .build();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Entry)) {
+        return false;
+      }
+      Entry that = (Entry) o;
+      return playerId == that.playerId && score == that.score
+          && timestamp.equals(that.timestamp);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(playerId, score, timestamp);
+    }
+  }
+
+  /** Highest score first; ties keep the TopScores primary key order. */
+  static final Comparator<Entry> RANKING =
+      Comparator.comparingLong((Entry e) -> e.score).reversed()
+          .thenComparingLong(e -> e.playerId)
+          .thenComparing(e -> e.timestamp);
+
+  /**
+   * Buffers the TopScores changes caused by inserting {@code scores} into {@code transaction}.
+   * Each affected period is read once, so several scores for the same period in one transaction
+   * are handled together. Periods that none of the scores can enter are not read.
+   */
+  static void recordScores(DatabaseId db, TransactionContext transaction, List<Entry> scores) {
+    Map<String, List<Entry>> byPeriod = new LinkedHashMap<>();
+    for (Entry score : scores) {
+      Instant instant = score.timestamp.toSqlTimestamp().toInstant();
+      for (Window window : Window.values()) {
+        String period = window.periodOf(instant);
+        if (mayEnterTop(db, period, score.score)) {
+          byPeriod.computeIfAbsent(period, k -> new ArrayList<>()).add(score);
+        }
+      }
+    }
+    for (Map.Entry<String, List<Entry>> period : byPeriod.entrySet()) {
+      List<Entry> current = new ArrayList<>();
+      try (ResultSet resultSet =
+          transaction.read(
+              "TopScores", KeySet.prefixRange(Key.of(period.getKey())), COLUMNS)) {
+        while (resultSet.next()) {
+          current.add(entryFrom(resultSet));
+        }
+      }
+      // Only what was read is committed; the scores of this transaction may still be rolled back.
+      rememberThreshold(db, period.getKey(), current);
+      List<Entry> merged = new ArrayList<>(current);
+      merged.addAll(period.getValue());
+      merged.sort(RANKING);
+      List<Entry> top = merged.subList(0, Math.min(TOP_N, merged.size()));
+      for (Entry entry : current) {
+        if (!top.contains(entry)) {
+          transaction.buffer(Mutation.delete("TopScores", entry.key(period.getKey())));
+        }
+      }
+      for (Entry entry : top) {
+        if (!current.contains(entry)) {
+          transaction.buffer(entry.toMutation(period.getKey()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns false if {@code score} is below the lowest of a full period, so it cannot rank in it.
+   * A score equal to the lowest may still rank above it on {@link #RANKING}'s tie breakers.
+   */
+  static boolean mayEnterTop(DatabaseId db, String period, long score) {
+    Long threshold = thresholds(db).get(period);
+    return threshold == null || score >= threshold;
+  }
+
+  /** Remembers the lowest score of {@code period} if the committed entries fill it. */
+  static void rememberThreshold(DatabaseId db, String period, List<Entry> committed) {
+    if (committed.size() >= TOP_N) {
+      long lowest = committed.stream().mapToLong(e -> e.score).min().getAsLong();
+      thresholds(db).merge(period, lowest, Math::max);
+    }
+  }
+
+  /** Forgets the thresholds of {@code db}, whose TopScores may now hold lower scores. */
+  static void forgetThresholds(DatabaseId db) {
+    THRESHOLDS.remove(db);
+  }
+
+  private static Map<String, Long> thresholds(DatabaseId db) {
+    return THRESHOLDS.computeIfAbsent(
+        db,
+        k ->
+            Collections.synchronizedMap(
+                new LinkedHashMap<String, Long>(16, 0.75f, true) {
+                  @Override
+                  protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                    return size() > MAX_CACHED_PERIODS;
+                  }
+                }));
+  }
+
+  /**
+   * Rebuilds TopScores from Scores with a single scan, keeping a bounded heap per period, and
+   * replaces the previous contents of TopScores of {@code db}, which {@code dbClient} is connected
+   * to.
+   *
+   * @return the number of TopScores rows written
+   */
+  static long seed(DatabaseClient dbClient, DatabaseId db) {
+    Map<String, PriorityQueue<Entry>> heaps = new HashMap<>();
+    try (ResultSet resultSet =
+        dbClient
+            .singleUse()
+            .executeQuery(
+                Statement.of(
+                    "SELECT s.PlayerId, p.PlayerName, s.Score, s.Timestamp "
+                        + "FROM Scores s JOIN Players p ON p.PlayerId = s.PlayerId"))) {
+      while (resultSet.next()) {
+        Entry entry = entryFrom(resultSet);
+        Instant instant = entry.timestamp.toSqlTimestamp().toInstant();
+        for (Window window : Window.values()) {
+          // Each heap keeps the lowest ranked entry on top so it can be evicted in O(log N).
+          PriorityQueue<Entry> heap = heaps.computeIfAbsent(
+              window.periodOf(instant), k -> new PriorityQueue<>(RANKING.reversed()));
+          heap.add(entry);
+          if (heap.size() > TOP_N) {
+            heap.poll();
+          }
+        }
+      }
+    }
+
+    List<Mutation> mutations = new ArrayList<>();
+    mutations.add(Mutation.delete("TopScores", KeySet.all()));
+    long rows = 0;
+    for (Map.Entry<String, PriorityQueue<Entry>> period : heaps.entrySet()) {
+      for (Entry entry : period.getValue()) {
+        mutations.add(entry.toMutation(period.getKey()));
+        rows++;
+      }
+      // Stay well below the per-commit mutation limit.
+      if (mutations.size() >= 1000) {
+        dbClient.write(mutations);
+        mutations.clear();
+      }
+    }
+    if (!mutations.isEmpty()) {
+      dbClient.write(mutations);
+    }
+    // The rebuilt periods may be lower than the thresholds remembered from the old contents.
+    forgetThresholds(db);
+    return rows;
+  }
+
+  /** Returns the top scores of the current period of {@code window}, highest first. */
+  static List<Entry> top(DatabaseClient dbClient, Window window) {
+    return top(dbClient, window.periodOf(Instant.now().truncatedTo(ChronoUnit.SECONDS)));
+  }
+
+  static List<Entry> top(DatabaseClient dbClient, String period) {
+    List<Entry> entries = new ArrayList<>(TOP_N);
+    // Reads a key range in primary key order, which is already highest score first.
+    try (ResultSet resultSet =
+        dbClient
+            .singleUse()
+            .read("TopScores", KeySet.prefixRange(Key.of(period)), COLUMNS)) {
+      while (resultSet.next() && entries.size() < TOP_N) {
+        entries.add(entryFrom(resultSet));
+      }
+    }
+    return entries;
+  }
+
+  static void print(List<Entry> entries) {
+    for (Entry entry : entries) {
+      String scoreDate = String.valueOf(entry.timestamp);
+      String score = String.format("%,d", entry.score);
+      System.out.printf(
+          "PlayerId: %d  PlayerName: %s  Score: %s  Timestamp: %s\n",
+          entry.playerId, entry.playerName, score, scoreDate.substring(0, 10));
+    }
+  }
+
+  private static Entry entryFrom(Struct row) {
+    return new Entry(
+        row.getLong("PlayerId"),
+        row.getString("PlayerName"),
+        row.getLong("Score"),
+        row.getTimestamp("Timestamp"));
+  }
+}
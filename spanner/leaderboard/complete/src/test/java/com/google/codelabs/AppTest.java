@@ -26,8 +26,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -130,6 +134,35 @@ public class AppTest {
     // Test that Top Ten Players of the Week (within past 168 hours) runs successfully.
     out = runSample("query", "168");
     assertThat(out).contains("PlayerId: ");
+
+    // The materialized all-time leaderboard matches the query over the Scores table.
+    List<String> expected = scores(runSample("query"));
+    assertThat(expected).hasSize(10);
+    out = runSample("top", "all");
+    assertThat(scores(out)).isEqualTo(expected);
+
+    // Rebuilding the materialized leaderboards from Scores gives the same result.
+    out = runSample("seed");
+    assertThat(out).contains("Seeded ");
+    out = runSample("top", "all");
+    assertThat(scores(out)).isEqualTo(expected);
+
+    // Bulk-loaded scores reach the materialized leaderboards through the reseed at the end.
+    out = runSample("insert", "bulk-scores");
+    assertThat(out).contains("rows/sec");
+    assertThat(out).contains("Done inserting score records");
+    out = runSample("top", "all");
+    assertThat(scores(out)).isEqualTo(scores(runSample("query")));
+  }
+
+  // The Score column of each output line; unlike player ids it does not depend on tie order.
+  private static List<String> scores(String out) {
+    List<String> scores = new ArrayList<>();
+    Matcher matcher = Pattern.compile("Score: ([0-9,]+)").matcher(out);
+    while (matcher.find()) {
+      scores.add(matcher.group(1));
+    }
+    return scores;
   }
 
   private String formatForTest(String name) {
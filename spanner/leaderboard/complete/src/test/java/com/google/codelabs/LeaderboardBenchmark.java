@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.codelabs;
+
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.DatabaseId;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Spanner;
+import com.google.cloud.spanner.SpannerOptions;
+import java.util.Arrays;
+
+/**
+ * Compares leaderboard query latency on the Scores table with reads from the materialized
+ * TopScores table. Intended for the Spanner emulator:
+ *
+ * <pre>
+ * gcloud emulators spanner start
+ * export SPANNER_EMULATOR_HOST=localhost:9010
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.google.codelabs.LeaderboardBenchmark \
+ *     -Dexec.args="test-instance leaderboard-bench 10000000"
+ * </pre>
+ */
+public class LeaderboardBenchmark {
+
+  private static final int QUERIES = 50;
+
+  public static void main(String[] args) throws Exception {
+    String instanceId = args[0];
+    String databaseId = args[1];
+    long scores = args.length > 2 ? Long.parseLong(args[2]) : 10_000_000L;
+
+    SpannerOptions options = SpannerOptions.newBuilder().build();
+    Spanner spanner = options.getService();
+    try {
+      DatabaseId db = DatabaseId.of(options.getProjectId(), instanceId, databaseId);
+      App.create(spanner.getDatabaseAdminClient(), db);
+      DatabaseClient dbClient = spanner.getDatabaseClient(db);
+
+      // One player per 100 scores, with scores spread over the past two years.
+      BulkLoader loader = new BulkLoader(dbClient);
+      System.out.println("Players: " + loader.loadPlayers(Math.max(1, scores / 100)));
+      System.out.println("Scores:  " + loader.loadScores(100));
+
+      long start = System.nanoTime();
+      long rows = Leaderboard.seed(dbClient, db);
+      System.out.printf("Seeded %,d TopScores rows in %.1fs%n", rows, seconds(start));
+
+      for (int timespan : new int[] {24, 168, 8760}) {
+        report("Scores query, " + timespan + "h", timeQueries(() -> {
+          try (ResultSet resultSet =
+              dbClient.singleUse().executeQuery(App.topTenStatement(timespan))) {
+            while (resultSet.next()) {
+              // Drain the result.
+            }
+          }
+        }));
+      }
+      for (Leaderboard.Window window : Leaderboard.Window.values()) {
+        report("TopScores read, " + window, timeQueries(() -> Leaderboard.top(dbClient, window)));
+      }
+
+      App.delete(spanner.getDatabaseAdminClient(), db);
+    } finally {
+      spanner.close();
+    }
+  }
+
+  private static long[] timeQueries(Runnable query) {
+    query.run();
+    long[] latencies = new long[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      long start = System.nanoTime();
+      query.run();
+      latencies[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(latencies);
+    return latencies;
+  }
+
+  private static void report(String name, long[] latencies) {
+    System.out.printf("%-28s p50=%8.2fms p99=%8.2fms%n", name,
+        latencies[latencies.length / 2] / 1e6,
+        latencies[(int) (latencies.length * 0.99)] / 1e6);
+  }
+
+  private static double seconds(long startNanos) {
+    return (System.nanoTime() - startNanos) / 1e9;
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.codelabs;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.DatabaseId;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for the TopScores thresholds of {@link Leaderboard}, which need no database. */
+@RunWith(JUnit4.class)
+public class LeaderboardTest {
+
+  private static final DatabaseId DB = DatabaseId.of("test-project", "test-instance", "scores");
+  private static final DatabaseId OTHER_DB =
+      DatabaseId.of("test-project", "test-instance", "other-scores");
+
+  @After
+  public void forgetThresholds() {
+    Leaderboard.forgetThresholds(DB);
+    Leaderboard.forgetThresholds(OTHER_DB);
+  }
+
+  private static List<Leaderboard.Entry> entries(long lowest, int count) {
+    List<Leaderboard.Entry> entries = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      entries.add(new Leaderboard.Entry(i, "player" + i, lowest + 100 * i, Timestamp.now()));
+    }
+    return entries;
+  }
+
+  @Test
+  public void mayEnterTop_readsPeriodsThatAreNotFull() {
+    String period = "DAY:2026-01-01";
+    assertThat(Leaderboard.mayEnterTop(DB, period, 1)).isTrue();
+
+    Leaderboard.rememberThreshold(DB, period, entries(1000, Leaderboard.TOP_N - 1));
+    assertThat(Leaderboard.mayEnterTop(DB, period, 1)).isTrue();
+  }
+
+  @Test
+  public void mayEnterTop_skipsScoresBelowTheLowestOfAFullPeriod() {
+    String period = "DAY:2026-01-02";
+    Leaderboard.rememberThreshold(DB, period, entries(1000, Leaderboard.TOP_N));
+
+    assertThat(Leaderboard.mayEnterTop(DB, period, 999)).isFalse();
+    // A tie may still rank higher on player id.
+    assertThat(Leaderboard.mayEnterTop(DB, period, 1000)).isTrue();
+    assertThat(Leaderboard.mayEnterTop(DB, period, 5000)).isTrue();
+  }
+
+  @Test
+  public void rememberThreshold_neverLowersTheThreshold() {
+    String period = "DAY:2026-01-03";
+    Leaderboard.rememberThreshold(DB, period, entries(1000, Leaderboard.TOP_N));
+    // A transaction that read the period before it filled up reports a lower score.
+    Leaderboard.rememberThreshold(DB, period, entries(10, Leaderboard.TOP_N));
+
+    assertThat(Leaderboard.mayEnterTop(DB, period, 999)).isFalse();
+  }
+
+  @Test
+  public void mayEnterTop_keepsTheThresholdsOfEachDatabaseApart() {
+    String period = "DAY:2026-01-04";
+    Leaderboard.rememberThreshold(DB, period, entries(1000, Leaderboard.TOP_N));
+
+    assertThat(Leaderboard.mayEnterTop(DB, period, 999)).isFalse();
+    assertThat(Leaderboard.mayEnterTop(OTHER_DB, period, 999)).isTrue();
+  }
+
+  @Test
+  public void forgetThresholds_readsThePeriodAgain() {
+    String period = "DAY:2026-01-05";
+    Leaderboard.rememberThreshold(DB, period, entries(1000, Leaderboard.TOP_N));
+    // Seeding may rebuild the period with lower scores.
+    Leaderboard.forgetThresholds(DB);
+
+    assertThat(Leaderboard.mayEnterTop(DB, period, 999)).isTrue();
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package storage.s3sdk;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class BulkDownloadGcsObjects {
+  private static final int PARALLEL_REQUESTS = 16;
+  private static final long PART_SIZE = 16 << 20;
+
+  public static void bulkDownloadGcsObjects(
+      String googleAccessKeyId,
+      String googleAccessKeySecret,
+      String bucketName,
+      String prefix,
+      String directory)
+      throws IOException {
+
+    // String googleAccessKeyId = "your-google-access-key-id";
+    // String googleAccessKeySecret = "your-google-access-key-secret";
+    // String bucketName = "bucket-name";
+    // String prefix = "folder/";
+    // String directory = "/tmp/download";
+
+    // Create a BasicAWSCredentials using Cloud Storage HMAC credentials.
+    BasicAWSCredentials googleCreds =
+        new BasicAWSCredentials(googleAccessKeyId, googleAccessKeySecret);
+
+    // Create a new client and do the following:
+    // 1. Change the endpoint URL to use the Google Cloud Storage XML API endpoint.
+    // 2. Use Cloud Storage HMAC Credentials.
+    // 3. Allow a connection for each request in progress.
+    AmazonS3 interopClient =
+        AmazonS3ClientBuilder.standard()
+            .withEndpointConfiguration(
+                new AwsClientBuilder.EndpointConfiguration(
+                    "https://storage.googleapis.com", "auto"))
+            .withCredentials(new AWSStaticCredentialsProvider(googleCreds))
+            .withClientConfiguration(
+                new ClientConfiguration().withMaxConnections(PARALLEL_REQUESTS))
+            .build();
+    ExecutorService executor = Executors.newFixedThreadPool(PARALLEL_REQUESTS);
+
+    try {
+      ParallelGcsDownloader downloader =
+          new ParallelGcsDownloader(interopClient, executor, PART_SIZE);
+      List<S3ObjectSummary> objects = downloader.list(bucketName, prefix);
+
+      // Record the parts done next to the directory, so that running again resumes.
+      Path target = Paths.get(directory);
+      downloader.download(
+          bucketName, objects, target, target.resolveSibling(target.getFileName() + ".manifest"));
+
+      System.out.printf(
+          "Downloaded %d objects: %d parts, %d bytes, %d parts already done%n",
+          downloader.objects(),
+          downloader.partsDownloaded(),
+          downloader.bytesDownloaded(),
+          downloader.partsSkipped());
+    } finally {
+      // Explicitly clean up client resources.
+      executor.shutdown();
+      interopClient.shutdown();
+    }
+  }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package storage.s3sdk;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lists and downloads many objects at once through the Cloud Storage XML API.
+ *
+ * <p>Listing uses the {@code /} delimiter, so that each level of "folders" is listed by its own
+ * request, and the folders found are listed in parallel. Downloads are cut into parts of {@code
+ * partSize} bytes, which are fetched with ranged GETs in parallel and written in place in the
+ * file. The parts done are recorded in a manifest file; downloading again with the same manifest
+ * skips them, as long as the object has the same ETag.
+ */
+public class ParallelGcsDownloader {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final AmazonS3 client;
+  private final ExecutorService executor;
+  private final long partSize;
+
+  private final LongAdder objects = new LongAdder();
+  private final LongAdder partsDownloaded = new LongAdder();
+  private final LongAdder partsSkipped = new LongAdder();
+  private final LongAdder bytesDownloaded = new LongAdder();
+
+  /**
+   * Creates a downloader.
+   *
+   * @param executor runs the requests; its size is the number of requests in progress at once
+   * @param partSize the most bytes fetched by one GET
+   */
+  public ParallelGcsDownloader(AmazonS3 client, ExecutorService executor, long partSize) {
+    this.client = client;
+    this.executor = executor;
+    this.partSize = partSize;
+  }
+
+  /** Returns the objects of a bucket whose name starts with a prefix. */
+  public List<S3ObjectSummary> list(String bucketName, String prefix) {
+    Queue<S3ObjectSummary> found = new ConcurrentLinkedQueue<>();
+    AtomicInteger pending = new AtomicInteger(1);
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    listFolder(bucketName, prefix, found, pending, done);
+    await(done);
+    return new ArrayList<>(found);
+  }
+
+  private void listFolder(
+      String bucketName,
+      String prefix,
+      Queue<S3ObjectSummary> found,
+      AtomicInteger pending,
+      CompletableFuture<Void> done) {
+    executor.execute(() -> {
+      try {
+        ObjectListing listing =
+            client.listObjects(
+                new ListObjectsRequest()
+                    .withBucketName(bucketName)
+                    .withPrefix(prefix)
+                    .withDelimiter("/"));
+        while (true) {
+          found.addAll(listing.getObjectSummaries());
+          for (String folder : listing.getCommonPrefixes()) {
+            pending.incrementAndGet();
+            listFolder(bucketName, folder, found, pending, done);
+          }
+          if (!listing.isTruncated()) {
+            break;
+          }
+          listing = client.listNextBatchOfObjects(listing);
+        }
+        if (pending.decrementAndGet() == 0) {
+          done.complete(null);
+        }
+      } catch (RuntimeException e) {
+        done.completeExceptionally(e);
+      }
+    });
+  }
+
+  /**
+   * Downloads objects to the files named by their keys in a directory.
+   *
+   * @param manifestFile where the parts done are recorded, created if it does not exist
+   */
+  public void download(
+      String bucketName, List<S3ObjectSummary> summaries, Path directory, Path manifestFile)
+      throws IOException {
+    List<CompletableFuture<Void>> parts = new ArrayList<>();
+    try (Manifest manifest = new Manifest(manifestFile)) {
+      CompletableFuture<Void> all;
+      try {
+        for (S3ObjectSummary summary : summaries) {
+          if (summary.getKey().endsWith("/")) {
+            // A placeholder for a folder.
+            continue;
+          }
+          Path file = directory.resolve(summary.getKey()).normalize();
+          if (!file.startsWith(directory.normalize())) {
+            throw new IOException("Object name outside of the directory: " + summary.getKey());
+          }
+          objects.increment();
+          downloadObject(bucketName, summary, file, manifest, parts);
+        }
+      } finally {
+        // Let the parts started finish before the manifest is closed, even on failure.
+        all = CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]));
+        all.handle((result, failure) -> null).join();
+      }
+      await(all);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private void downloadObject(
+      String bucketName,
+      S3ObjectSummary summary,
+      Path file,
+      Manifest manifest,
+      List<CompletableFuture<Void>> parts)
+      throws IOException {
+    Files.createDirectories(file.getParent());
+    // Parts recorded in the manifest are only kept if the file still holds them.
+    boolean resume = Files.exists(file);
+    try (FileChannel channel = FileChannel.open(file, CREATE, WRITE)) {
+      if (channel.size() > summary.getSize()) {
+        channel.truncate(summary.getSize());
+      }
+    }
+    for (long offset = 0; offset < summary.getSize(); offset += partSize) {
+      long start = offset;
+      long length = Math.min(partSize, summary.getSize() - offset);
+      if (resume && manifest.isDone(summary, start, length)) {
+        partsSkipped.increment();
+        continue;
+      }
+      parts.add(
+          CompletableFuture.runAsync(
+              () -> downloadPart(bucketName, summary, file, start, length, manifest), executor));
+    }
+  }
+
+  private void downloadPart(
+      String bucketName,
+      S3ObjectSummary summary,
+      Path file,
+      long offset,
+      long length,
+      Manifest manifest) {
+    // The ETag makes sure all the parts come from the same version of the object.
+    S3Object part =
+        client.getObject(
+            new GetObjectRequest(bucketName, summary.getKey())
+                .withRange(offset, offset + length - 1)
+                .withMatchingETagConstraint(summary.getETag()));
+    if (part == null) {
+      throw new IllegalStateException(summary.getKey() + " changed while being downloaded");
+    }
+    try (InputStream in = part.getObjectContent();
+        FileChannel channel = FileChannel.open(file, WRITE)) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      long position = offset;
+      for (int read; (read = in.read(buffer)) >= 0; ) {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+        while (bytes.hasRemaining()) {
+          position += channel.write(bytes, position);
+        }
+      }
+      if (position != offset + length) {
+        throw new IOException(
+            "Expected " + length + " bytes of " + summary.getKey() + " at " + offset + ", got "
+                + (position - offset));
+      }
+      manifest.markDone(summary, offset, length);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    partsDownloaded.increment();
+    bytesDownloaded.add(length);
+  }
+
+  private static void await(CompletableFuture<?> future) {
+    try {
+      future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /** Returns the number of objects downloaded or found already downloaded. */
+  public long objects() {
+    return objects.sum();
+  }
+
+  /** Returns the number of parts fetched. */
+  public long partsDownloaded() {
+    return partsDownloaded.sum();
+  }
+
+  /** Returns the number of parts skipped, because the manifest had them. */
+  public long partsSkipped() {
+    return partsSkipped.sum();
+  }
+
+  /** Returns the number of bytes fetched. */
+  public long bytesDownloaded() {
+    return bytesDownloaded.sum();
+  }
+
+  /** The parts downloaded, as a line of ETag, offset, length and key each. */
+  private static class Manifest implements Closeable {
+    private final Set<String> done = ConcurrentHashMap.newKeySet();
+    private final Writer writer;
+
+    Manifest(Path file) throws IOException {
+      if (Files.exists(file)) {
+        // A line cut short by a crash matches no part.
+        done.addAll(Files.readAllLines(file, UTF_8));
+      }
+      writer = Files.newBufferedWriter(file, UTF_8, CREATE, APPEND);
+    }
+
+    boolean isDone(S3ObjectSummary summary, long offset, long length) {
+      return done.contains(line(summary, offset, length));
+    }
+
+    synchronized void markDone(S3ObjectSummary summary, long offset, long length)
+        throws IOException {
+      writer.write(line(summary, offset, length));
+      writer.write('\n');
+      writer.flush();
+    }
+
+    private static String line(S3ObjectSummary summary, long offset, long length) {
+      return summary.getETag() + '\t' + offset + '\t' + length + '\t' + summary.getKey();
+    }
+
+    @Override
+    public void close() throws IOException {
+      writer.close();
+    }
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package storage.s3sdk;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Downloads a bucket of many small objects and a bucket of a few huge ones from a local
+ * S3-compatible server, one object at a time and with {@link ParallelGcsDownloader}, and reports
+ * the time taken by each, and by a second run of {@link ParallelGcsDownloader} that resumes from
+ * its manifest.
+ *
+ * <pre>
+ * docker run -d -p 9000:9000 minio/minio server /data
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=storage.s3sdk.BulkDownloadBenchmark \
+ *     -Dexec.args="http://localhost:9000 minioadmin minioadmin 16 8"
+ * </pre>
+ *
+ * <p>The arguments are the address of the server, its access key and secret, the number of
+ * requests in progress at once and the part size in MiB. The objects are uploaded on the first
+ * run, and kept for the next ones.
+ */
+public class BulkDownloadBenchmark {
+
+  private static final String SMALL_BUCKET = "benchmark-small";
+  private static final int SMALL_FOLDERS = 50;
+  private static final int SMALL_OBJECTS_PER_FOLDER = 200;
+  private static final int SMALL_SIZE = 16 << 10;
+  private static final String HUGE_BUCKET = "benchmark-huge";
+  private static final int HUGE_OBJECTS = 4;
+  private static final long HUGE_SIZE = 1L << 30;
+
+  public static void main(String[] args) throws Exception {
+    String endpoint = args.length > 0 ? args[0] : "http://localhost:9000";
+    String accessKey = args.length > 1 ? args[1] : "minioadmin";
+    String secretKey = args.length > 2 ? args[2] : "minioadmin";
+    int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+    long partSize = (args.length > 4 ? Long.parseLong(args[4]) : 8) << 20;
+
+    AmazonS3 client =
+        AmazonS3ClientBuilder.standard()
+            .withEndpointConfiguration(
+                new AwsClientBuilder.EndpointConfiguration(endpoint, "us-east-1"))
+            .withCredentials(
+                new AWSStaticCredentialsProvider(new BasicAWSCredentials(accessKey, secretKey)))
+            .withPathStyleAccessEnabled(true)
+            .withClientConfiguration(new ClientConfiguration().withMaxConnections(parallelism))
+            .build();
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    try {
+      populate(client, executor);
+      System.out.printf(
+          "%-6s %-9s %9s %9s %10s%n", "bucket", "mode", "objects", "seconds", "MiB/s");
+      for (String bucket : new String[] {SMALL_BUCKET, HUGE_BUCKET}) {
+        Path directory = Files.createTempDirectory(bucket);
+        try {
+          long start = System.nanoTime();
+          long bytes = downloadSerially(client, bucket, directory.resolve("serial"));
+          report(bucket, "serial", -1, bytes, start);
+
+          Path manifest = directory.resolve("parallel.manifest");
+          for (String mode : new String[] {"parallel", "resumed"}) {
+            ParallelGcsDownloader downloader =
+                new ParallelGcsDownloader(client, executor, partSize);
+            start = System.nanoTime();
+            List<S3ObjectSummary> objects = downloader.list(bucket, "");
+            downloader.download(bucket, objects, directory.resolve("parallel"), manifest);
+            report(bucket, mode, downloader.objects(), downloader.bytesDownloaded(), start);
+          }
+        } finally {
+          deleteRecursively(directory);
+        }
+      }
+    } finally {
+      executor.shutdown();
+      client.shutdown();
+    }
+  }
+
+  private static void report(String bucket, String mode, long objects, long bytes, long start) {
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf(
+        "%-6s %-9s %9s %9.2f %10.1f%n",
+        bucket.substring(bucket.indexOf('-') + 1),
+        mode,
+        objects < 0 ? "" : Long.toString(objects),
+        seconds,
+        bytes / (1024.0 * 1024) / seconds);
+  }
+
+  /** Lists without a delimiter and downloads each object in one GET, one at a time. */
+  private static long downloadSerially(AmazonS3 client, String bucket, Path directory)
+      throws IOException {
+    long bytes = 0;
+    ObjectListing listing = client.listObjects(bucket);
+    while (true) {
+      for (S3ObjectSummary summary : listing.getObjectSummaries()) {
+        Path file = directory.resolve(summary.getKey());
+        Files.createDirectories(file.getParent());
+        try (S3Object object = client.getObject(bucket, summary.getKey());
+            InputStream in = object.getObjectContent()) {
+          bytes += Files.copy(in, file, REPLACE_EXISTING);
+        }
+      }
+      if (!listing.isTruncated()) {
+        return bytes;
+      }
+      listing = client.listNextBatchOfObjects(listing);
+    }
+  }
+
+  /** Uploads the objects of the benchmark, unless a previous run did. */
+  private static void populate(AmazonS3 client, ExecutorService executor) throws Exception {
+    byte[] block = new byte[SMALL_SIZE];
+    new Random(42).nextBytes(block);
+    List<Future<?>> uploads = new ArrayList<>();
+    if (!client.doesBucketExistV2(SMALL_BUCKET)) {
+      client.createBucket(SMALL_BUCKET);
+      for (int folder = 0; folder < SMALL_FOLDERS; folder++) {
+        for (int i = 0; i < SMALL_OBJECTS_PER_FOLDER; i++) {
+          String key = String.format("folder-%02d/object-%04d", folder, i);
+          uploads.add(executor.submit(() -> put(client, SMALL_BUCKET, key, block, SMALL_SIZE)));
+        }
+      }
+    }
+    if (!client.doesBucketExistV2(HUGE_BUCKET)) {
+      client.createBucket(HUGE_BUCKET);
+      for (int i = 0; i < HUGE_OBJECTS; i++) {
+        String key = "object-" + i;
+        uploads.add(executor.submit(() -> put(client, HUGE_BUCKET, key, block, HUGE_SIZE)));
+      }
+    }
+    for (Future<?> upload : uploads) {
+      upload.get();
+    }
+  }
+
+  private static void put(AmazonS3 client, String bucket, String key, byte[] block, long size) {
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(size);
+    client.putObject(bucket, key, new RepeatedInputStream(block, size), metadata);
+  }
+
+  private static void deleteRecursively(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /** Reads a block of bytes over and over, up to a size. */
+  private static class RepeatedInputStream extends InputStream {
+    private final byte[] block;
+    private long remaining;
+
+    RepeatedInputStream(byte[] block, long size) {
+      this.block = block;
+      this.remaining = size;
+    }
+
+    @Override
+    public int read() {
+      if (remaining == 0) {
+        return -1;
+      }
+      remaining--;
+      return block[(int) (remaining % block.length)] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+      if (remaining == 0) {
+        return -1;
+      }
+      int position = (int) (remaining % block.length);
+      int count = (int) Math.min(Math.min(length, remaining), block.length - position);
+      System.arraycopy(block, position, buffer, offset, count);
+      remaining -= count;
+      return count;
+    }
+  }
+}
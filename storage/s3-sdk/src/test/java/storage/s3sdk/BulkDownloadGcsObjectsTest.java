@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package storage.s3sdk;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageOptions;
+import com.google.cloud.testing.junit4.MultipleAttemptsRule;
+import com.google.cloud.testing.junit4.StdOutCaptureRule;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BulkDownloadGcsObjectsTest {
+  private static final String BUCKET_ENV_VAR = "GOOGLE_CLOUD_PROJECT_S3_SDK_BUCKET_NAME";
+  private static final String BUCKET = System.getenv(BUCKET_ENV_VAR);
+  private static final String[] NAMES = {"a.txt", "folder/b.txt", "folder/nested/c.txt"};
+
+  @ClassRule public static final TestHmacKeyRule hmacKey = new TestHmacKeyRule();
+
+  /**
+   * Hmac Keys can take a little bit of time to propagate. Run our test multiple times with some
+   * backoff to try and allow for the propagation.
+   */
+  @Rule public final MultipleAttemptsRule multipleAttemptsRule = new MultipleAttemptsRule(3, 2_000);
+
+  @Rule public final StdOutCaptureRule stdOut = new StdOutCaptureRule();
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final Storage storage = StorageOptions.getDefaultInstance().getService();
+  private final String prefix = "bulk-download-" + UUID.randomUUID() + "/";
+  private final List<BlobId> blobs = new ArrayList<>();
+  private String bucketName;
+
+  @Before
+  public void setUp() {
+    bucketName = Optional.ofNullable(BUCKET).orElse(hmacKey.getProjectId());
+    for (String name : NAMES) {
+      BlobInfo info = BlobInfo.newBuilder(bucketName, prefix + name).build();
+      storage.create(info, name.getBytes(UTF_8));
+      blobs.add(info.getBlobId());
+    }
+  }
+
+  @After
+  public void tearDown() {
+    storage.delete(blobs);
+  }
+
+  @Test
+  public void testBulkDownload() throws Exception {
+    // A new folder for each attempt, so that no manifest is left from a failed one.
+    File directory = new File(temporaryFolder.newFolder(), "download");
+    BulkDownloadGcsObjects.bulkDownloadGcsObjects(
+        hmacKey.getAccessKeyId(),
+        hmacKey.getAccessSecretKey(),
+        bucketName,
+        prefix,
+        directory.getPath());
+    MatcherAssert.assertThat(
+        stdOut.getCapturedOutputAsUtf8String(),
+        CoreMatchers.containsString("Downloaded 3 objects: 3 parts"));
+    for (String name : NAMES) {
+      assertArrayEquals(
+          name.getBytes(UTF_8),
+          Files.readAllBytes(directory.toPath().resolve(prefix + name)));
+    }
+
+    // The manifest has all the parts, so downloading again fetches nothing.
+    BulkDownloadGcsObjects.bulkDownloadGcsObjects(
+        hmacKey.getAccessKeyId(),
+        hmacKey.getAccessSecretKey(),
+        bucketName,
+        prefix,
+        directory.getPath());
+    MatcherAssert.assertThat(
+        stdOut.getCapturedOutputAsUtf8String(),
+        CoreMatchers.containsString("0 parts, 0 bytes, 3 parts already done"));
+  }
+}